@@ -0,0 +1,103 @@
+package at.rovo.benchmark;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.test.LegacyCleanText;
+import at.rovo.test.TestResources;
+import at.rovo.textextraction.mss.SimpleMSS;
+
+/**
+ * <p>
+ * Compares the single pass <code>cleanText</code> with the previous
+ * implementation which scanned the frames on the stack again on every closing
+ * tag. Both run on the p0.txt and p1.txt fixtures and on a large synthetic
+ * page with deeply nested and long div blocks.
+ * </p>
+ * <p>
+ * Every invocation works on freshly parsed tokens. Parsing is not part of the
+ * measurement.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CleanTextBenchmark
+{
+	/** The name of the synthetic page **/
+	private static final String LARGE_PAGE = "large";
+	/** The number of nested div blocks of the synthetic page **/
+	private static final int LARGE_PAGE_DEPTH = 2000;
+
+	/** The page to process **/
+	@Param({ "p0.txt", "p1.txt", LARGE_PAGE })
+	public String fixture;
+
+	private SimpleMSS mss;
+	private Parser parser;
+	private String html;
+	private Dictionary<String, List<String>> commonTags;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.mss = new SimpleMSS();
+		this.parser = new Parser();
+		if (LARGE_PAGE.equals(this.fixture))
+			this.html = TestResources.buildLargePage(LARGE_PAGE_DEPTH);
+		else
+			this.html = Fixtures.read(this.fixture);
+		this.commonTags = new Hashtable<String, List<String>>();
+	}
+
+	/**
+	 * <p>
+	 * Holds the freshly parsed tokens of the page for a single invocation.
+	 * </p>
+	 */
+	@State(Scope.Thread)
+	public static class Page
+	{
+		private List<Token> tokens;
+
+		@Setup(Level.Invocation)
+		public void setUp(CleanTextBenchmark benchmark)
+		{
+			this.tokens = benchmark.parser.tokenize(benchmark.html, false)
+					.getParsedTokens();
+		}
+	}
+
+	@Benchmark
+	public List<Token> singlePass(Page page)
+	{
+		return this.mss.cleanText(page.tokens);
+	}
+
+	@Benchmark
+	public List<Token> legacy(Page page)
+	{
+		return LegacyCleanText.cleanText(page.tokens, this.commonTags);
+	}
+}
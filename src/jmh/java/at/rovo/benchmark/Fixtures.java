@@ -0,0 +1,164 @@
+package at.rovo.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Random;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+
+/**
+ * <p>
+ * Provides the input data shared by the benchmarks: the p0.txt and p1.txt test
+ * fixtures, inflated versions of them and synthetic score arrays.
+ * </p>
+ * <p>
+ * All random data is generated from a fixed seed so every run of a benchmark
+ * works on the same input.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class Fixtures
+{
+	/** The seed of all generated data **/
+	public static final long SEED = 42L;
+
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private Fixtures()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Reads a fixture from the class path.
+	 * </p>
+	 *
+	 * @param name
+	 *            The name of the fixture, f.e. <code>p0.txt</code>
+	 * @return The content of the fixture
+	 * @throws IOException
+	 *             If the fixture could not be found or read
+	 */
+	public static String read(String name) throws IOException
+	{
+		InputStream stream = Fixtures.class.getResourceAsStream("/" + name);
+		if (stream == null)
+			throw new IOException("Fixture " + name + " not found on the class path");
+		StringBuilder builder = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				stream, "UTF-8")))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+				builder.append(line).append("\n");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * <p>
+	 * Inflates a page by repeating the content of its body. If the page does
+	 * not contain a body the whole page is repeated.
+	 * </p>
+	 *
+	 * @param html
+	 *            The page to inflate
+	 * @param factor
+	 *            How often the content is contained in the inflated page
+	 * @return The inflated page
+	 */
+	public static String inflate(String html, int factor)
+	{
+		if (factor <= 1)
+			return html;
+		int start = html.indexOf("<body");
+		int end = html.lastIndexOf("</body>");
+		if (start < 0 || end < start)
+		{
+			StringBuilder builder = new StringBuilder(html.length() * factor);
+			for (int i = 0; i < factor; i++)
+				builder.append(html);
+			return builder.toString();
+		}
+		start = html.indexOf('>', start) + 1;
+		String body = html.substring(start, end);
+		StringBuilder builder = new StringBuilder(html.length() + body.length()
+				* (factor - 1));
+		builder.append(html, 0, start);
+		for (int i = 0; i < factor; i++)
+			builder.append(body);
+		builder.append(html, end, html.length());
+		return builder.toString();
+	}
+
+	/**
+	 * <p>
+	 * Reads a fixture and repeats the content of its body.
+	 * </p>
+	 *
+	 * @param name
+	 *            The name of the fixture
+	 * @param factor
+	 *            How often the content of the fixture is repeated
+	 * @return The inflated fixture
+	 * @throws IOException
+	 *             If the fixture could not be read
+	 */
+	public static String page(String name, int factor) throws IOException
+	{
+		return inflate(read(name), factor);
+	}
+
+	/**
+	 * <p>
+	 * Reads and inflates a fixture and splits it into tokens.
+	 * </p>
+	 *
+	 * @param name
+	 *            The name of the fixture
+	 * @param factor
+	 *            How often the content of the fixture is repeated
+	 * @return The tokens of the inflated fixture
+	 * @throws IOException
+	 *             If the fixture could not be read
+	 */
+	public static List<Token> tokenize(String name, int factor)
+			throws IOException
+	{
+		return new Parser().tokenize(page(name, factor), false).getParsedTokens();
+	}
+
+	/**
+	 * <p>
+	 * Generates a score array which resembles the scores of a page: mostly
+	 * negative scores interrupted by a few blocks of positive scores.
+	 * </p>
+	 *
+	 * @param size
+	 *            The number of scores to generate
+	 * @return The generated scores
+	 */
+	public static double[] scores(int size)
+	{
+		Random random = new Random(SEED);
+		double[] scores = new double[size];
+		boolean content = false;
+		for (int i = 0; i < size; i++)
+		{
+			// switch between content and boilerplate every ~200 scores
+			if (random.nextInt(200) == 0)
+				content = !content;
+			double score = random.nextDouble() - 0.5;
+			scores[i] = content ? score + 0.3 : score - 0.3;
+		}
+		return scores;
+	}
+}
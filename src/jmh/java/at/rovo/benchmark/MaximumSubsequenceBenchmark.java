@@ -0,0 +1,76 @@
+package at.rovo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import at.rovo.textextraction.mss.MaximumSubsequenceSegmentation;
+import at.rovo.textextraction.mss.SimpleMSS;
+import at.rovo.textextraction.mss.Subsequence;
+import at.rovo.textextraction.mss.SubsequenceTree;
+
+/**
+ * <p>
+ * Measures the maximum subsequence algorithms of
+ * {@link MaximumSubsequenceSegmentation} on synthetic score arrays of 1k to 1M
+ * entries.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaximumSubsequenceBenchmark
+{
+	/** The number of scores **/
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private MaximumSubsequenceSegmentation mss;
+	private double[] scores;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.mss = new SimpleMSS();
+		this.scores = Fixtures.scores(this.size);
+	}
+
+	@Benchmark
+	public Subsequence topMaximumSubsequence()
+	{
+		return this.mss.topMaximumSubsequence(this.scores);
+	}
+
+	@Benchmark
+	public Subsequence parallelTopMaximumSubsequence()
+	{
+		return SubsequenceTree.top(this.scores, 0, this.scores.length,
+				SubsequenceTree.DEFAULT_CHUNK_SIZE);
+	}
+
+	@Benchmark
+	public Subsequence[] kMaximumSubsequences()
+	{
+		return this.mss.kMaximumSubsequences(this.scores);
+	}
+
+	@Benchmark
+	public Subsequence[] topMaximumSubsequences()
+	{
+		return this.mss.topMaximumSubsequences(this.scores, 5, 10);
+	}
+}
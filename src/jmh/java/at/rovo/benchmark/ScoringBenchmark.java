@@ -0,0 +1,104 @@
+package at.rovo.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.SupervisedMSS;
+
+/**
+ * <p>
+ * Measures the score-list creation of {@link SupervisedMSS} against a small
+ * model which is trained on the tokens of the fixture itself. Tokens in the
+ * middle third of the page are labeled as <em>in</em>, all other tokens as
+ * <em>out</em>.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark
+{
+	/** The fixture to score **/
+	@Param({ "p0.txt", "p1.txt" })
+	public String fixture;
+	/** How often the body of the fixture is repeated **/
+	@Param({ "1", "16" })
+	public int factor;
+
+	private Scorer scorer;
+	private List<Token> tokens;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.tokens = Fixtures.tokenize(this.fixture, this.factor);
+		this.scorer = new Scorer();
+		this.scorer.train(Fixtures.tokenize(this.fixture, 1));
+	}
+
+	@Benchmark
+	public List<Double> buildScoreList()
+	{
+		return this.scorer.buildScoreList(this.tokens);
+	}
+
+	@Benchmark
+	public double[] buildScores()
+	{
+		return this.scorer.buildScores(this.tokens);
+	}
+
+	/**
+	 * <p>
+	 * Exposes the score-list creation of {@link SupervisedMSS} and trains its
+	 * classifier without any external training data.
+	 * </p>
+	 */
+	private static class Scorer extends SupervisedMSS
+	{
+		Scorer()
+		{
+			super(TrainData.FILE);
+		}
+
+		void train(List<Token> page)
+		{
+			int from = page.size() / 3;
+			int to = 2 * from;
+			for (int i = 2; i < page.size(); i++)
+				this.classifier.train(this.getTripleUnigram(page.get(i - 2),
+						page.get(i - 1), page.get(i)), i >= from && i < to ? "in"
+						: "out");
+			this.isTrained = true;
+		}
+
+		List<Double> buildScoreList(List<Token> html)
+		{
+			return this.buildScoreList(html, this.classifier);
+		}
+
+		double[] buildScores(List<Token> html)
+		{
+			return this.buildScores(html, this.classifier);
+		}
+	}
+}
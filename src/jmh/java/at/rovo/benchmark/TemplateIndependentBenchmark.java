@@ -0,0 +1,58 @@
+package at.rovo.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import at.rovo.textextraction.templateIndependent.TemplateIndependentNewsExtractor;
+
+/**
+ * <p>
+ * Measures {@link TemplateIndependentNewsExtractor#predictText(String)} on
+ * local HTML. As the HTML is passed directly no page is downloaded, though
+ * parsing the page is part of the measurement.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateIndependentBenchmark
+{
+	/** The fixture to extract the article from **/
+	@Param({ "p0.txt", "p1.txt" })
+	public String fixture;
+	/** How often the body of the fixture is repeated **/
+	@Param({ "1", "4" })
+	public int factor;
+
+	private TemplateIndependentNewsExtractor extractor;
+	private String html;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.extractor = new TemplateIndependentNewsExtractor();
+		this.html = Fixtures.page(this.fixture, this.factor);
+	}
+
+	@Benchmark
+	public String predictText()
+	{
+		return this.extractor.predictText(this.html);
+	}
+}
@@ -0,0 +1,99 @@
+package at.rovo.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.mss.SimpleMSS;
+
+/**
+ * <p>
+ * Measures <code>cleanText</code> and <code>formatText</code> on the p0.txt
+ * and p1.txt fixtures and on versions of them whose body is repeated
+ * <em>factor</em> times.
+ * </p>
+ * <p>
+ * As <code>cleanText</code> marks removed tags as undefined, every invocation
+ * of {@link #cleanText(Page)} works on freshly parsed tokens. Parsing is not
+ * part of the measurement.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextFormattingBenchmark
+{
+	/** The fixture to process **/
+	@Param({ "p0.txt", "p1.txt" })
+	public String fixture;
+	/** How often the body of the fixture is repeated **/
+	@Param({ "1", "16" })
+	public int factor;
+
+	private SimpleMSS mss;
+	private Parser parser;
+	private String html;
+	private List<Token> cleaned;
+	private StringBuilder out;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		this.mss = new SimpleMSS();
+		this.parser = new Parser();
+		this.html = Fixtures.page(this.fixture, this.factor);
+		this.cleaned = this.mss.cleanText(this.parser.tokenize(this.html, false)
+				.getParsedTokens());
+		this.out = new StringBuilder();
+	}
+
+	/**
+	 * <p>
+	 * Holds the freshly parsed tokens of the page for a single invocation.
+	 * </p>
+	 */
+	@State(Scope.Thread)
+	public static class Page
+	{
+		private List<Token> tokens;
+
+		@Setup(Level.Invocation)
+		public void setUp(TextFormattingBenchmark benchmark)
+		{
+			this.tokens = benchmark.parser.tokenize(benchmark.html, false)
+					.getParsedTokens();
+		}
+	}
+
+	@Benchmark
+	public List<Token> cleanText(Page page)
+	{
+		return this.mss.cleanText(page.tokens);
+	}
+
+	@Benchmark
+	public int formatText() throws IOException
+	{
+		this.out.setLength(0);
+		this.mss.formatText(this.cleaned, this.out);
+		return this.out.length();
+	}
+}
@@ -1,6 +1,7 @@
 package at.rovo.textextraction;
 
 import at.rovo.classifier.Classifier;
+import at.rovo.textextraction.mss.FeatureVocabulary;
 import at.rovo.textextraction.mss.TrainFeatureStrategy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,6 +40,8 @@ public abstract class AbstractTrainer implements TrainingDataStrategy
 	protected TrainFeatureStrategy trainFeatureStrategy = TrainFeatureStrategy.BIGRAM;
 	/** A list of common tags and the number of sources they occur **/
 	protected Dictionary<String, List<String>> commonTags = new Hashtable<>();
+	/** Records the features the classifier is trained with if set **/
+	protected FeatureVocabulary featureVocabulary = null;
 
 	protected AbstractTrainer(File trainingDir, int trainingSampleSize, TrainFeatureStrategy trainFeatureStrategy)
 	{
@@ -159,6 +162,60 @@ public abstract class AbstractTrainer implements TrainingDataStrategy
 		}
 	}
 
+	@Override
+	public void setFeatureVocabulary(FeatureVocabulary featureVocabulary)
+	{
+		this.featureVocabulary = featureVocabulary;
+	}
+
+	/**
+	 * <p>Persists the feature vocabulary, if one is set, next to the file of
+	 * the serialized classifier.</p>
+	 *
+	 * @param classifierFileName The name of the file the classifier was
+	 *                           saved to
+	 */
+	protected void saveFeatureVocabulary(String classifierFileName)
+	{
+		if (this.featureVocabulary == null)
+			return;
+		File vocabularyFile = new File(trainingDir.getAbsoluteFile()+"/"+classifierFileName+".features");
+		try
+		{
+			this.featureVocabulary.save(vocabularyFile);
+		}
+		catch (IOException e)
+		{
+			LOG.error("Error while persisting the feature vocabulary to file", e);
+		}
+	}
+
+	/**
+	 * <p>Loads the feature vocabulary persisted next to the file of a
+	 * serialized classifier into the feature vocabulary, if one is set.</p>
+	 *
+	 * @param classifierFile The file the classifier was loaded from
+	 */
+	protected void loadFeatureVocabulary(File classifierFile)
+	{
+		if (this.featureVocabulary == null)
+			return;
+		File vocabularyFile = new File(classifierFile.getAbsolutePath()+".features");
+		if (!vocabularyFile.isFile())
+		{
+			LOG.warn("No feature vocabulary found for {}", classifierFile.getName());
+			return;
+		}
+		try
+		{
+			this.featureVocabulary.load(vocabularyFile);
+		}
+		catch (IOException e)
+		{
+			LOG.error("Error while reading the feature vocabulary file", e);
+		}
+	}
+
 	/**
 	 * <p>
 	 * Loads a previously trained model into the provided classifier.
@@ -196,6 +253,7 @@ public abstract class AbstractTrainer implements TrainingDataStrategy
 			else
 			{
 				LOG.info("Previously trained data loaded successfully");
+				this.loadFeatureVocabulary(serObjects[0]);
 			}
 		}
 		return cls;
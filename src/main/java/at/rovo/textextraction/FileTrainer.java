@@ -84,6 +84,7 @@ public class FileTrainer extends AbstractTrainer
 							entry.setUrl(url);
 
 							entry.setClassifier(classifier);
+							entry.setFeatureVocabulary(this.featureVocabulary);
 						}
 						else if (lineNr == 1)
 						{
@@ -112,7 +113,9 @@ public class FileTrainer extends AbstractTrainer
 			}
 
 			// serialize the classifier so we do not have to train it on every new call
-			classifier.saveData(trainingDir, "mssClassificationData" + "_" + trainingSampleSize + "_" + trainFeatureStrategy.name() + ".ser");
+			String fileName = "mssClassificationData" + "_" + trainingSampleSize + "_" + trainFeatureStrategy.name() + ".ser";
+			classifier.saveData(trainingDir, fileName);
+			this.saveFeatureVocabulary(fileName);
 			this.saveCommonTags(commonTags, trainingDir, "commonTags");
 		}
 		else
@@ -0,0 +1,161 @@
+package at.rovo.textextraction;
+
+import at.rovo.textextraction.mss.Convergence;
+
+/**
+ * <p>
+ * The outcome of predicting the text of a single page within a batch. A
+ * prediction either contains the predicted text or the exception which
+ * prevented the text from being predicted, so a single page which could not
+ * be processed does not abort the whole batch.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class Prediction
+{
+	/** The URL of the page **/
+	private final String url;
+	/** The predicted text of the page **/
+	private final String text;
+	/** The reason why the text could not be predicted **/
+	private final Exception error;
+	/** How the iterations of the prediction terminated **/
+	private final Convergence convergence;
+
+	private Prediction(String url, String text, Exception error,
+			Convergence convergence)
+	{
+		this.url = url;
+		this.text = text;
+		this.error = error;
+		this.convergence = convergence;
+	}
+
+	/**
+	 * <p>
+	 * Creates the prediction of a page whose text could be predicted.
+	 * </p>
+	 *
+	 * @param url
+	 *            The URL of the page
+	 * @param text
+	 *            The predicted text; null if the page did not provide any
+	 *            content
+	 * @return The successful prediction
+	 */
+	public static Prediction success(String url, String text)
+	{
+		return new Prediction(url, text, null, null);
+	}
+
+	/**
+	 * <p>
+	 * Creates the prediction of a page whose text was predicted iteratively.
+	 * </p>
+	 *
+	 * @param url
+	 *            The URL of the page
+	 * @param text
+	 *            The predicted text
+	 * @param convergence
+	 *            How the iterations of the prediction terminated
+	 * @return The successful prediction
+	 */
+	public static Prediction success(String url, String text,
+			Convergence convergence)
+	{
+		return new Prediction(url, text, null, convergence);
+	}
+
+	/**
+	 * <p>
+	 * Creates the prediction of a page whose text could not be predicted.
+	 * </p>
+	 *
+	 * @param url
+	 *            The URL of the page
+	 * @param error
+	 *            The reason why the text could not be predicted
+	 * @return The failed prediction
+	 * @throws IllegalArgumentException
+	 *             If no error is provided
+	 */
+	public static Prediction failure(String url, Exception error)
+	{
+		if (error == null)
+			throw new IllegalArgumentException("A failed prediction requires an error!");
+		return new Prediction(url, null, error, null);
+	}
+
+	/**
+	 * <p>
+	 * Returns the URL of the page the text was predicted for.
+	 * </p>
+	 *
+	 * @return The URL of the page
+	 */
+	public String getUrl()
+	{
+		return this.url;
+	}
+
+	/**
+	 * <p>
+	 * Returns the predicted text of the page.
+	 * </p>
+	 *
+	 * @return The predicted text; null if the prediction failed or the page
+	 *         did not provide any content
+	 */
+	public String getText()
+	{
+		return this.text;
+	}
+
+	/**
+	 * <p>
+	 * Returns the reason why the text of the page could not be predicted.
+	 * </p>
+	 *
+	 * @return The error of the prediction; null if the prediction succeeded
+	 */
+	public Exception getError()
+	{
+		return this.error;
+	}
+
+	/**
+	 * <p>
+	 * Returns how the iterations of the prediction terminated.
+	 * </p>
+	 *
+	 * @return The convergence of the prediction; null if the prediction
+	 *         failed or the text was not predicted iteratively
+	 */
+	public Convergence getConvergence()
+	{
+		return this.convergence;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the text of the page could be predicted.
+	 * </p>
+	 *
+	 * @return true if the prediction succeeded, false otherwise
+	 */
+	public boolean isSuccessful()
+	{
+		return this.error == null;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (this.error != null)
+			return "Prediction[" + this.url + ", failed: " + this.error + "]";
+		return "Prediction[" + this.url + ", "
+				+ (this.text != null ? this.text.length() + " chars" : "no content") + "]";
+	}
+}
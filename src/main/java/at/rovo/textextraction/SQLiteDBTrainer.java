@@ -158,6 +158,7 @@ public class SQLiteDBTrainer extends AbstractTrainer
 
 						entry.setTrainFeatureStrategy(trainFeatureStrategy);
 						entry.setClassifier(classifier);
+						entry.setFeatureVocabulary(this.featureVocabulary);
 						entry.setUrl(st.columnString(1));
 						entry.setSourceUrl(source);
 						entry.setCommonTags(commonTags);
@@ -182,7 +183,8 @@ public class SQLiteDBTrainer extends AbstractTrainer
 					st.dispose();
 				}
 				// serialize the classifier so we do not have to train it on every new call
-				classifier.saveData(trainingDir, "mssClassificationData" + "_" + trainingSampleSize + "_" + trainFeatureStrategy.name() + ".ser");
+				classifier.saveData(trainingDir, fileName);
+				this.saveFeatureVocabulary(fileName);
 				this.saveCommonTags(commonTags, trainingDir, "commonTags");
 			}
 			catch (SQLiteException e)
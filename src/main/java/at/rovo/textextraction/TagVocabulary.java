@@ -0,0 +1,296 @@
+package at.rovo.textextraction;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import at.rovo.parser.Tag;
+
+/**
+ * <p>
+ * Symbol table which maps the short names of HTML tags to small integer ids.
+ * The table is shared by all extractors so a tag name is interned only once per
+ * JVM, afterwards every token costs a single hash lookup and all further tag
+ * comparisons are plain integer comparisons.
+ * </p>
+ * <p>
+ * The tags the extractors care about are registered upfront and available as
+ * constants. Each of them is assigned to a set of tag classes, f.e.
+ * {@link #BLOCK} or {@link #HEADING}, which can be tested via
+ * {@link #is(int, int)} instead of comparing the name against a list of
+ * strings or a regular expression. Tags which are registered later on never
+ * belong to any class.
+ * </p>
+ * <p>
+ * Names are case-sensitive. As pages may contain arbitrary tag names, at most
+ * {@link #MAX_SIZE} names get interned. Any further name is mapped to
+ * {@link #OTHER}, hence two tags with the id {@link #OTHER} have to be
+ * compared by name.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class TagVocabulary
+{
+	/** The maximum number of tag names to intern **/
+	public static final int MAX_SIZE = 1 << 14;
+
+	/** Tags which form a block of the page **/
+	public static final int BLOCK = 1;
+	/** Tags which format text inside a block **/
+	public static final int INLINE = 1 << 1;
+	/** Tags which get removed by cleanText including their content **/
+	public static final int REMOVABLE_CONTAINER = 1 << 2;
+	/** Headings from h1 to h6 **/
+	public static final int HEADING = 1 << 3;
+	/** Tags which lead to the removal of a surrounding div **/
+	public static final int FORBIDDEN_IN_DIV = 1 << 4;
+	/** Tags which are not printed by formatText **/
+	public static final int NOT_PRINTED = 1 << 5;
+	/** Tags which never have a closing tag, even if they are not written as
+	 * inline closing tags **/
+	public static final int VOID = 1 << 6;
+
+	/** Names which exceed the capacity of the vocabulary or are null **/
+	public static final int OTHER = 0;
+	public static final int A = 1;
+	public static final int ABBR = 2;
+	public static final int APPLET = 3;
+	public static final int ARTICLE = 4;
+	public static final int B = 5;
+	public static final int BLOCKQUOTE = 6;
+	public static final int BR = 7;
+	public static final int CITE = 8;
+	public static final int DIV = 9;
+	public static final int EM = 10;
+	public static final int EMBED = 11;
+	public static final int FB = 12;
+	public static final int FORM = 13;
+	public static final int G = 14;
+	public static final int H1 = 15;
+	public static final int H2 = 16;
+	public static final int H3 = 17;
+	public static final int H4 = 18;
+	public static final int H5 = 19;
+	public static final int H6 = 20;
+	public static final int I = 21;
+	public static final int IFRAME = 22;
+	public static final int IMG = 23;
+	public static final int INPUT = 24;
+	public static final int LI = 25;
+	public static final int META = 26;
+	public static final int MORE = 27;
+	public static final int NOSCRIPT = 28;
+	public static final int OBJECT = 29;
+	public static final int OL = 30;
+	public static final int P = 31;
+	public static final int SCRIPT = 32;
+	public static final int SPAN = 33;
+	public static final int STRONG = 34;
+	public static final int STYLE = 35;
+	public static final int TABLE = 36;
+	public static final int UL = 37;
+	/** The name assigned to tags which are not common among sources **/
+	public static final int UNKNOWN = 38;
+
+	/** The classes of the predefined tags indexed by their id **/
+	private static final int[] CLASSES = new int[UNKNOWN + 1];
+	/** The ids of all interned names **/
+	private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+	/** The interned names indexed by their id **/
+	private static volatile String[] names = new String[64];
+	/** The lower case names indexed by their id **/
+	private static volatile String[] lowerCaseNames = new String[64];
+	/** The number of interned names **/
+	private static int size = 0;
+
+	static
+	{
+		register("", OTHER, 0);
+		register("a", A, INLINE);
+		register("abbr", ABBR, INLINE | NOT_PRINTED);
+		register("applet", APPLET, FORBIDDEN_IN_DIV);
+		register("article", ARTICLE, BLOCK | NOT_PRINTED);
+		register("b", B, INLINE | NOT_PRINTED);
+		register("blockquote", BLOCKQUOTE, BLOCK | REMOVABLE_CONTAINER);
+		register("br", BR, VOID);
+		register("cite", CITE, INLINE | REMOVABLE_CONTAINER | NOT_PRINTED);
+		register("div", DIV, BLOCK);
+		register("em", EM, INLINE | NOT_PRINTED);
+		register("embed", EMBED, FORBIDDEN_IN_DIV);
+		register("fb", FB, REMOVABLE_CONTAINER);
+		register("form", FORM, BLOCK | REMOVABLE_CONTAINER);
+		register("g", G, REMOVABLE_CONTAINER);
+		register("h1", H1, BLOCK | HEADING | NOT_PRINTED);
+		register("h2", H2, BLOCK | HEADING | NOT_PRINTED);
+		register("h3", H3, BLOCK | HEADING | NOT_PRINTED);
+		register("h4", H4, BLOCK | HEADING | NOT_PRINTED);
+		register("h5", H5, BLOCK | HEADING | NOT_PRINTED);
+		register("h6", H6, BLOCK | HEADING | NOT_PRINTED);
+		register("i", I, INLINE | NOT_PRINTED);
+		register("iframe", IFRAME, REMOVABLE_CONTAINER | FORBIDDEN_IN_DIV);
+		register("img", IMG, INLINE | VOID);
+		register("input", INPUT, VOID);
+		register("li", LI, BLOCK | NOT_PRINTED);
+		register("meta", META, VOID);
+		register("more", MORE, 0);
+		register("noscript", NOSCRIPT, 0);
+		register("object", OBJECT, FORBIDDEN_IN_DIV);
+		register("ol", OL, BLOCK);
+		register("p", P, BLOCK | NOT_PRINTED);
+		register("script", SCRIPT, REMOVABLE_CONTAINER);
+		register("span", SPAN, INLINE | NOT_PRINTED);
+		register("strong", STRONG, INLINE | NOT_PRINTED);
+		register("style", STYLE, REMOVABLE_CONTAINER);
+		register("table", TABLE, BLOCK | REMOVABLE_CONTAINER | FORBIDDEN_IN_DIV);
+		register("ul", UL, BLOCK | NOT_PRINTED);
+		register("unknown", UNKNOWN, 0);
+	}
+
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private TagVocabulary()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Registers one of the predefined tags.
+	 * </p>
+	 */
+	private static void register(String name, int id, int classes)
+	{
+		CLASSES[id] = classes;
+		names[id] = name;
+		lowerCaseNames[id] = name;
+		IDS.put(name, id);
+		size = id + 1;
+	}
+
+	/**
+	 * <p>
+	 * Returns the id of the short name of the provided tag.
+	 * </p>
+	 *
+	 * @param tag
+	 *            The tag to look up the id for
+	 * @return The id of the tag's short name
+	 * @see #getId(String)
+	 */
+	public static int getId(Tag tag)
+	{
+		return getId(tag.getShortTag());
+	}
+
+	/**
+	 * <p>
+	 * Returns the id of the provided short tag name. If the name was not seen
+	 * before it gets interned, unless the vocabulary already reached its
+	 * capacity in which case {@link #OTHER} is returned.
+	 * </p>
+	 *
+	 * @param shortTag
+	 *            The short name of the tag, f.e. <code>div</code>
+	 * @return The id of the name
+	 */
+	public static int getId(String shortTag)
+	{
+		if (shortTag == null)
+			return OTHER;
+		Integer id = IDS.get(shortTag);
+		if (id != null)
+			return id;
+		return intern(shortTag);
+	}
+
+	/**
+	 * <p>
+	 * Assigns the next free id to a name which was not seen before.
+	 * </p>
+	 */
+	private static synchronized int intern(String shortTag)
+	{
+		Integer id = IDS.get(shortTag);
+		if (id != null)
+			return id;
+		if (size >= MAX_SIZE)
+			return OTHER;
+
+		int next = size;
+		String[] n = names;
+		String[] l = lowerCaseNames;
+		if (next == n.length)
+		{
+			n = Arrays.copyOf(n, n.length * 2);
+			l = Arrays.copyOf(l, l.length * 2);
+		}
+		n[next] = shortTag;
+		l[next] = shortTag.toLowerCase();
+		// publish the names before the id becomes visible
+		names = n;
+		lowerCaseNames = l;
+		size = next + 1;
+		IDS.put(shortTag, next);
+		return next;
+	}
+
+	/**
+	 * <p>
+	 * Returns the name interned for the provided id.
+	 * </p>
+	 *
+	 * @param id
+	 *            The id of the name
+	 * @return The short tag name of the id
+	 */
+	public static String getName(int id)
+	{
+		return names[id];
+	}
+
+	/**
+	 * <p>
+	 * Returns the lower case version of the name interned for the provided id.
+	 * The lower case name is calculated only once per id.
+	 * </p>
+	 *
+	 * @param id
+	 *            The id of the name
+	 * @return The lower case short tag name of the id
+	 */
+	public static String getLowerCaseName(int id)
+	{
+		return lowerCaseNames[id];
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the tag with the provided id belongs to at least one of the
+	 * provided tag classes.
+	 * </p>
+	 *
+	 * @param id
+	 *            The id of the tag
+	 * @param tagClasses
+	 *            The classes to test, f.e. <code>BLOCK | HEADING</code>
+	 * @return true if the tag belongs to any of the classes
+	 */
+	public static boolean is(int id, int tagClasses)
+	{
+		return id < CLASSES.length && (CLASSES[id] & tagClasses) != 0;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of interned names.
+	 * </p>
+	 *
+	 * @return The number of ids in use
+	 */
+	public static synchronized int size()
+	{
+		return size;
+	}
+}
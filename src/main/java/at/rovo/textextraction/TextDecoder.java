@@ -0,0 +1,491 @@
+package at.rovo.textextraction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Decodes and sanitizes the text produced by
+ * {@link TextExtractor#formatText(java.util.List)} within a single scan over
+ * its characters.
+ * </p>
+ * <p>
+ * The decoder replaces
+ * </p>
+ * <ul>
+ * <li>named (<code>&amp;quot;</code>), decimal (<code>&amp;#39;</code>) and
+ * hexadecimal (<code>&amp;#x27;</code>) character references,</li>
+ * <li>UTF-8 sequences which were decoded as Windows-1252, f.e.
+ * <code>&acirc;&euro;&oelig;</code> for a left double quote,</li>
+ * <li>typographic quotes, dashes and non-breaking spaces with their plain
+ * ASCII counterparts</li>
+ * </ul>
+ * <p>
+ * and removes
+ * </p>
+ * <ul>
+ * <li>opening and closing anchor tags while keeping the anchor text,</li>
+ * <li><code>&lt;hr&gt;</code> tags and</li>
+ * <li>fragments of cut off tags starting with <code>id=</code> or
+ * <code>class=</code> up to the next <code>&gt;</code> on the same line.</li>
+ * </ul>
+ * <p>
+ * Decoded characters are not scanned again, so <code>&amp;amp;quot;</code>
+ * results in <code>&amp;quot;</code>.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class TextDecoder
+{
+	/** The longest entity name to look up **/
+	private static final int MAX_ENTITY_LENGTH = 8;
+	/** Replacements of single characters indexed by the character **/
+	private static final char[] CHARACTERS = new char[0x2040];
+	/** Replacements of the third character of a mis-decoded UTF-8 sequence **/
+	private static final Map<Character, String> MOJIBAKE = new HashMap<>();
+	/** The code points of the supported named entities **/
+	private static final Map<String, Integer> ENTITIES = new HashMap<>();
+
+	static
+	{
+		CHARACTERS['‘'] = '\'';
+		CHARACTERS['’'] = '\'';
+		CHARACTERS['‚'] = '\'';
+		CHARACTERS['“'] = '"';
+		CHARACTERS['”'] = '"';
+		CHARACTERS['„'] = '"';
+		CHARACTERS['–'] = '-';
+		CHARACTERS['—'] = '-';
+		CHARACTERS['\u00A0'] = ' ';
+		CHARACTERS['£'] = 'L';
+
+		// 'â€' followed by the Windows-1252 interpretation of the last byte
+		// of the UTF-8 encoded punctuation
+		MOJIBAKE.put('“', "-"); // en dash
+		MOJIBAKE.put('”', "-"); // em dash
+		MOJIBAKE.put('˜', "'"); // left single quote
+		MOJIBAKE.put('™', "'"); // right single quote
+		MOJIBAKE.put('š', "'"); // single low quote
+		MOJIBAKE.put('œ', "\""); // left double quote
+		MOJIBAKE.put('ž', "\""); // double low quote
+		MOJIBAKE.put('¦', "..."); // horizontal ellipsis
+		MOJIBAKE.put('¢', "*"); // bullet
+
+		ENTITIES.put("quot", 0x22);
+		ENTITIES.put("amp", 0x26);
+		ENTITIES.put("apos", 0x27);
+		ENTITIES.put("lt", 0x3C);
+		ENTITIES.put("gt", 0x3E);
+		ENTITIES.put("nbsp", 0xA0);
+		ENTITIES.put("iexcl", 0xA1);
+		ENTITIES.put("cent", 0xA2);
+		ENTITIES.put("pound", 0xA3);
+		ENTITIES.put("euro", 0x20AC);
+		ENTITIES.put("yen", 0xA5);
+		ENTITIES.put("sect", 0xA7);
+		ENTITIES.put("copy", 0xA9);
+		ENTITIES.put("laquo", 0xAB);
+		ENTITIES.put("reg", 0xAE);
+		ENTITIES.put("deg", 0xB0);
+		ENTITIES.put("plusmn", 0xB1);
+		ENTITIES.put("para", 0xB6);
+		ENTITIES.put("middot", 0xB7);
+		ENTITIES.put("raquo", 0xBB);
+		ENTITIES.put("iquest", 0xBF);
+		ENTITIES.put("times", 0xD7);
+		ENTITIES.put("divide", 0xF7);
+		ENTITIES.put("Agrave", 0xC0);
+		ENTITIES.put("Aacute", 0xC1);
+		ENTITIES.put("Auml", 0xC4);
+		ENTITIES.put("Ccedil", 0xC7);
+		ENTITIES.put("Egrave", 0xC8);
+		ENTITIES.put("Eacute", 0xC9);
+		ENTITIES.put("Ouml", 0xD6);
+		ENTITIES.put("Uuml", 0xDC);
+		ENTITIES.put("szlig", 0xDF);
+		ENTITIES.put("agrave", 0xE0);
+		ENTITIES.put("aacute", 0xE1);
+		ENTITIES.put("acirc", 0xE2);
+		ENTITIES.put("auml", 0xE4);
+		ENTITIES.put("ccedil", 0xE7);
+		ENTITIES.put("egrave", 0xE8);
+		ENTITIES.put("eacute", 0xE9);
+		ENTITIES.put("ecirc", 0xEA);
+		ENTITIES.put("iacute", 0xED);
+		ENTITIES.put("ntilde", 0xF1);
+		ENTITIES.put("oacute", 0xF3);
+		ENTITIES.put("ouml", 0xF6);
+		ENTITIES.put("uacute", 0xFA);
+		ENTITIES.put("uuml", 0xFC);
+		ENTITIES.put("ndash", 0x2013);
+		ENTITIES.put("mdash", 0x2014);
+		ENTITIES.put("lsquo", 0x2018);
+		ENTITIES.put("rsquo", 0x2019);
+		ENTITIES.put("sbquo", 0x201A);
+		ENTITIES.put("ldquo", 0x201C);
+		ENTITIES.put("rdquo", 0x201D);
+		ENTITIES.put("bdquo", 0x201E);
+		ENTITIES.put("bull", 0x2022);
+		ENTITIES.put("hellip", 0x2026);
+		ENTITIES.put("trade", 0x2122);
+	}
+
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private TextDecoder()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Decodes and sanitizes the provided text. Leading and trailing white
+	 * spaces are removed.
+	 * </p>
+	 *
+	 * @param text
+	 *            The text to decode
+	 * @return The decoded text
+	 */
+	public static String decode(CharSequence text)
+	{
+		StringBuilder out = new StringBuilder(text.length());
+		try
+		{
+			decode(text, out);
+		}
+		catch (IOException e)
+		{
+			// a StringBuilder never throws an IOException
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * <p>
+	 * Decodes and sanitizes the provided text and appends the result to
+	 * <em>out</em>. Leading and trailing white spaces are removed like
+	 * {@link #decode(CharSequence)} does, though the decoded text is never
+	 * materialized as a whole. White spaces are held back until the next
+	 * printable character is decoded and everything else is passed on in
+	 * chunks, which allows to stream the text directly into a
+	 * {@link Writer}.
+	 * </p>
+	 *
+	 * @param text
+	 *            The text to decode
+	 * @param out
+	 *            The target to append the decoded text to
+	 * @throws IOException
+	 *             If the decoded text could not be appended to <em>out</em>
+	 */
+	public static void decode(CharSequence text, Appendable out)
+			throws IOException
+	{
+		Sink sink = new Sink(out);
+		decode(text, sink);
+		sink.flush();
+	}
+
+	/**
+	 * <p>
+	 * Decodes and sanitizes the provided text and passes the result to the
+	 * sink.
+	 * </p>
+	 */
+	private static void decode(CharSequence text, Sink out) throws IOException
+	{
+		int length = text.length();
+		// the position of the next '>' and the next line break or the length
+		// of the text if there is none. They are only searched again once the
+		// scan passed them, so looking for the end of a tag stays linear
+		int nextGt = -1;
+		int nextNl = -1;
+		int i = 0;
+		while (i < length)
+		{
+			char c = text.charAt(i);
+			switch (c)
+			{
+				case '&':
+				{
+					int end = decodeEntity(text, i, out);
+					if (end > i)
+					{
+						i = end;
+						continue;
+					}
+					break;
+				}
+				case '<':
+				{
+					int skip = 0;
+					if (startsWith(text, i, "<a "))
+						skip = 3;
+					else if (startsWith(text, i, "</a>"))
+					{
+						i += 4;
+						continue;
+					}
+					else if (startsWith(text, i, "<hr>"))
+					{
+						i += 4;
+						continue;
+					}
+					if (skip > 0)
+					{
+						if (nextGt < i + skip)
+							nextGt = indexOf(text, '>', i + skip);
+						if (nextNl < i + skip)
+							nextNl = indexOf(text, '\n', i + skip);
+						if (nextGt < nextNl)
+						{
+							i = nextGt + 1;
+							continue;
+						}
+					}
+					break;
+				}
+				case 'i':
+				case 'c':
+				{
+					// fragments of cut off tags
+					int skip = 0;
+					if (c == 'i' && startsWith(text, i, "id="))
+						skip = 3;
+					else if (c == 'c' && startsWith(text, i, "class="))
+						skip = 6;
+					if (skip > 0)
+					{
+						if (nextGt < i + skip)
+							nextGt = indexOf(text, '>', i + skip);
+						if (nextNl < i + skip)
+							nextNl = indexOf(text, '\n', i + skip);
+						if (nextGt < nextNl)
+						{
+							i = nextGt + 1;
+							continue;
+						}
+					}
+					break;
+				}
+				case 'â':
+				{
+					// UTF-8 encoded punctuation decoded as Windows-1252
+					if (i + 1 < length && text.charAt(i + 1) == '€')
+					{
+						String replacement = (i + 2 < length) ? MOJIBAKE.get(text.charAt(i + 2)) : null;
+						if (replacement != null)
+						{
+							for (int j = 0; j < replacement.length(); j++)
+								out.append(replacement.charAt(j));
+							i += 3;
+						}
+						else
+						{
+							out.append('"');
+							i += 2;
+						}
+						continue;
+					}
+					break;
+				}
+				case 'Â':
+				{
+					// UTF-8 encoded non-breaking space decoded as Windows-1252
+					if (i + 1 < length && text.charAt(i + 1) == '\u00A0')
+					{
+						out.append(' ');
+						i += 2;
+						continue;
+					}
+					break;
+				}
+				default:
+					break;
+			}
+			appendCodePoint(out, c);
+			i++;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Decodes the character reference starting at position <em>i</em>.
+	 * </p>
+	 *
+	 * @return The position following the reference or <em>i</em> if there is
+	 *         no valid reference at position <em>i</em>
+	 */
+	private static int decodeEntity(CharSequence text, int i, Sink out)
+			throws IOException
+	{
+		int length = text.length();
+		int pos = i + 1;
+		if (pos < length && text.charAt(pos) == '#')
+		{
+			pos++;
+			int radix = 10;
+			if (pos < length && (text.charAt(pos) == 'x' || text.charAt(pos) == 'X'))
+			{
+				radix = 16;
+				pos++;
+			}
+			int start = pos;
+			int codePoint = 0;
+			while (pos < length && pos - start < 8)
+			{
+				int digit = Character.digit(text.charAt(pos), radix);
+				if (digit < 0)
+					break;
+				codePoint = codePoint * radix + digit;
+				pos++;
+			}
+			if (pos == start || pos >= length || text.charAt(pos) != ';'
+					|| !Character.isValidCodePoint(codePoint))
+				return i;
+			appendCodePoint(out, codePoint);
+			return pos + 1;
+		}
+
+		int start = pos;
+		while (pos < length && pos - start <= MAX_ENTITY_LENGTH
+				&& Character.isLetterOrDigit(text.charAt(pos)))
+			pos++;
+		if (pos == start || pos >= length || text.charAt(pos) != ';')
+			return i;
+		Integer codePoint = ENTITIES.get(text.subSequence(start, pos).toString());
+		if (codePoint == null)
+			return i;
+		appendCodePoint(out, codePoint);
+		return pos + 1;
+	}
+
+	/**
+	 * <p>
+	 * Appends a decoded code point after replacing typographic characters.
+	 * </p>
+	 */
+	private static void appendCodePoint(Sink out, int codePoint)
+			throws IOException
+	{
+		if (codePoint < CHARACTERS.length)
+		{
+			char replacement = CHARACTERS[codePoint];
+			out.append(replacement != 0 ? replacement : (char) codePoint);
+		}
+		else
+		{
+			for (char c : Character.toChars(codePoint))
+				out.append(c);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Specifies if <em>text</em> contains <em>prefix</em> at position
+	 * <em>i</em>.
+	 * </p>
+	 */
+	private static boolean startsWith(CharSequence text, int i, String prefix)
+	{
+		if (i + prefix.length() > text.length())
+			return false;
+		for (int j = 0; j < prefix.length(); j++)
+			if (text.charAt(i + j) != prefix.charAt(j))
+				return false;
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Returns the position of the next occurrence of <em>c</em> starting at
+	 * position <em>from</em> or the length of the text if there is none.
+	 * </p>
+	 */
+	private static int indexOf(CharSequence text, char c, int from)
+	{
+		for (int i = from; i < text.length(); i++)
+			if (text.charAt(i) == c)
+				return i;
+		return text.length();
+	}
+
+	/**
+	 * <p>
+	 * Collects the decoded characters in a small buffer which is passed on to
+	 * the target once it is full. Leading white spaces are dropped while any
+	 * other white space is only passed on once a printable character follows
+	 * it, hence trailing white spaces never reach the target. A dash
+	 * following '+ ' is turned into '+/-'.
+	 * </p>
+	 */
+	private static final class Sink
+	{
+		/** The target of the decoded text **/
+		private final Appendable out;
+		/** The decoded characters not yet passed on to the target **/
+		private final char[] buffer = new char[512];
+		/** The number of characters in the buffer **/
+		private int size = 0;
+		/** The white spaces following the last printable character **/
+		private final StringBuilder whiteSpaces = new StringBuilder();
+		/** The last printable character **/
+		private char last = 0;
+
+		Sink(Appendable out)
+		{
+			this.out = out;
+		}
+
+		void append(char c) throws IOException
+		{
+			if (c <= ' ')
+			{
+				if (this.last != 0)
+					this.whiteSpaces.append(c);
+				return;
+			}
+			int pending = this.whiteSpaces.length();
+			if (pending > 0)
+			{
+				if (c == '-' && this.last == '+' && pending == 1
+						&& this.whiteSpaces.charAt(0) == ' ')
+					this.whiteSpaces.setCharAt(0, '/');
+				for (int i = 0; i < pending; i++)
+					this.write(this.whiteSpaces.charAt(i));
+				this.whiteSpaces.setLength(0);
+			}
+			this.write(c);
+			this.last = c;
+		}
+
+		private void write(char c) throws IOException
+		{
+			if (this.size == this.buffer.length)
+				this.flush();
+			this.buffer[this.size++] = c;
+		}
+
+		void flush() throws IOException
+		{
+			if (this.size == 0)
+				return;
+			if (this.out instanceof StringBuilder)
+				((StringBuilder) this.out).append(this.buffer, 0, this.size);
+			else if (this.out instanceof Writer)
+				((Writer) this.out).write(this.buffer, 0, this.size);
+			else
+				this.out.append(CharBuffer.wrap(this.buffer, 0, this.size));
+			this.size = 0;
+		}
+	}
+}
@@ -1,18 +1,37 @@
 package at.rovo.textextraction;
 
 import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.common.UrlReader;
 import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
 import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
 import at.rovo.parser.Tag;
 import at.rovo.parser.Token;
 import at.rovo.parser.Word;
+import at.rovo.textextraction.mss.FeatureVocabulary;
+import at.rovo.textextraction.mss.ScoringTable;
 import at.rovo.textextraction.mss.TrainFeatureStrategy;
 
 /**
@@ -27,6 +46,12 @@ import at.rovo.textextraction.mss.TrainFeatureStrategy;
  * Of course there is also the wish to extract the text of an article or web
  * page.
  * </p>
+ * <p>
+ * Once {@link #initTrainingSamples(int)} returned, a single instance may 
+ * predict the text of several pages concurrently. The trained model is only
+ * read while predicting, while any state of a single prediction is kept 
+ * local to the call or the calling thread.
+ * </p>
  * 
  * @see at.rovo.textextraction.mss.MaximumSubsequenceSegmentation
  * @author Roman Vottner
@@ -36,14 +61,27 @@ public abstract class TextExtractor
 {
 	/** The logger of this class **/
 	private static Logger LOG = LogManager.getLogger(TextExtractor.class.getName());
+	/** The capacity of a layout buffer which is not kept for reuse **/
+	private static final int MAX_BUFFER_CAPACITY = 1 << 20;
+	/** The buffer each thread lays out the text to format in **/
+	private static final ThreadLocal<StringBuilder> LAYOUT_BUFFER = new ThreadLocal<StringBuilder>()
+	{
+		@Override
+		protected StringBuilder initialValue()
+		{
+			return new StringBuilder(4096);
+		}
+	};
 	/** Defines the source where to train the classifier from **/
 	protected TrainData trainFrom = TrainData.FILE;
 	/** The classifier which needs to be trained **/
 	protected NaiveBayes<String, String> classifier = null;
 	/** The map-structure containing common tags shared by multiple sources **/
 	protected Dictionary<String, List<String>> commonTags = new Hashtable<>();
-	/** Indicates if the instance is trained or is in need of training **/
-	protected boolean isTrained = false;
+	/** Indicates if the instance is trained or is in need of training. The 
+	 * flag is set after the trained model is complete and thereby publishes
+	 * it to every thread which checks the flag before predicting **/
+	protected volatile boolean isTrained = false;
 	/** Specifies how many tokens should be combined or how many features built
 	 * from training data examples **/
 	protected TrainFeatureStrategy trainFeatureStrategy = TrainFeatureStrategy.TRIPLE_UNIGRAM;
@@ -54,6 +92,12 @@ public abstract class TextExtractor
 	/** Specifies the probability calculation of the naive Bayes classifier to 
 	 * be used**/
 	protected ProbabilityCalculation probCalc = ProbabilityCalculation.EVEN_LIKELIHOOD;
+	/** The features the classifier was trained with **/
+	protected FeatureVocabulary featureVocabulary = null;
+	/** The read-optimized snapshot of the trained classifier **/
+	protected volatile ScoringTable scoringTable = null;
+	/** The fingerprint of the training data the classifier was trained with **/
+	protected long trainingSource = 0L;
 	
 	/**
 	 * <p>Returns the currently set strategy for training new samples.
@@ -129,12 +173,270 @@ public abstract class TextExtractor
 	/**
 	 * <p>Tries to predict the text based on either a certain heuristic or
 	 * based on some previous training.</p>
+	 * <p>The page is downloaded via {@link #readPage(String)} and predicted
+	 * via {@link #predictText(CharSequence, String)}.</p>
+	 * 
 	 * @param url The URL of the page whose text should be predicted
 	 * @return The predicted article's text
 	 * @throws ExtractionException Will be thrown if during the prediction an
 	 *                             error occurs
 	 */
-	public abstract String predictText(String url) throws ExtractionException;
+	public String predictText(String url) throws ExtractionException
+	{
+		return this.predictText(this.readPage(url), url);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of an already available HTML page. Unlike
+	 * {@link #predictText(String)} the page is not downloaded, so a crawler 
+	 * which already fetched the page does not need to fetch it again.</p>
+	 * 
+	 * @param html The HTML content of the page
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @return The predicted article's text
+	 * @throws ExtractionException Will be thrown if during the prediction an
+	 *                             error occurs
+	 */
+	public abstract String predictText(CharSequence html, String url) throws ExtractionException;
+	
+	/**
+	 * <p>Tries to predict the text of an HTML page which is available as 
+	 * encoded bytes, f.e. as it was stored by a crawler.</p>
+	 * 
+	 * @param html The encoded HTML content of the page
+	 * @param charset The character set the content is encoded with
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @return The predicted article's text
+	 * @throws ExtractionException Will be thrown if during the prediction an
+	 *                             error occurs
+	 * @throws IllegalArgumentException If either no content or no character 
+	 *                                  set is provided
+	 */
+	public String predictText(byte[] html, Charset charset, String url) throws ExtractionException
+	{
+		return this.predictText(readContent(html, charset), url);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of an HTML page which is read from the 
+	 * provided reader. The reader is read till its end but not closed.</p>
+	 * 
+	 * @param html The reader to read the HTML content of the page from
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @return The predicted article's text
+	 * @throws ExtractionException Will be thrown if the page could not be 
+	 *                             read or if during the prediction an error 
+	 *                             occurs
+	 * @throws IllegalArgumentException If no reader is provided
+	 */
+	public String predictText(Reader html, String url) throws ExtractionException
+	{
+		return this.predictText(readContent(html, url), url);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of an HTML page which is read from the 
+	 * provided stream. The stream is read till its end but not closed.</p>
+	 * 
+	 * @param html The stream to read the encoded HTML content of the page 
+	 *             from
+	 * @param charset The character set the content is encoded with
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @return The predicted article's text
+	 * @throws ExtractionException Will be thrown if the page could not be 
+	 *                             read or if during the prediction an error 
+	 *                             occurs
+	 * @throws IllegalArgumentException If either no stream or no character 
+	 *                                  set is provided
+	 */
+	public String predictText(InputStream html, Charset charset, String url) throws ExtractionException
+	{
+		return this.predictText(readContent(html, charset, url), url);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of an HTML page which was stored in the 
+	 * provided file.</p>
+	 * 
+	 * @param file The file containing the encoded HTML content of the page
+	 * @param charset The character set the content is encoded with
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @return The predicted article's text
+	 * @throws ExtractionException Will be thrown if the file could not be 
+	 *                             read or if during the prediction an error 
+	 *                             occurs
+	 * @throws IllegalArgumentException If either no file or no character 
+	 *                                  set is provided
+	 */
+	public String predictText(Path file, Charset charset, String url) throws ExtractionException
+	{
+		return this.predictText(readContent(file, charset, url), url);
+	}
+	
+	/**
+	 * <p>Decodes the HTML content of a page which is available as encoded 
+	 * bytes.</p>
+	 * 
+	 * @param html The encoded HTML content of the page
+	 * @param charset The character set the content is encoded with
+	 * @return The decoded HTML content
+	 * @throws IllegalArgumentException If either no content or no character 
+	 *                                  set is provided
+	 */
+	public static String readContent(byte[] html, Charset charset)
+	{
+		if (html == null)
+			throw new IllegalArgumentException("No content of the page provided!");
+		if (charset == null)
+			throw new IllegalArgumentException("No character set of the page provided!");
+		return new String(html, charset);
+	}
+	
+	/**
+	 * <p>Reads the HTML content of a page from the provided reader. The 
+	 * reader is read till its end but not closed.</p>
+	 * 
+	 * @param html The reader to read the HTML content of the page from
+	 * @param url The URL the page was retrieved from. It is only used to
+	 *            report errors and may be null
+	 * @return The HTML content read
+	 * @throws ExtractionException If the content could not be read
+	 * @throws IllegalArgumentException If no reader is provided
+	 */
+	public static StringBuilder readContent(Reader html, String url) throws ExtractionException
+	{
+		if (html == null)
+			throw new IllegalArgumentException("No content of the page provided!");
+		StringBuilder content = new StringBuilder(8192);
+		char[] buffer = new char[8192];
+		try
+		{
+			int read;
+			while ((read = html.read(buffer)) != -1)
+				content.append(buffer, 0, read);
+		}
+		catch (IOException e)
+		{
+			throw new ExtractionException("Could not read content of "+url, e);
+		}
+		return content;
+	}
+	
+	/**
+	 * <p>Reads and decodes the HTML content of a page from the provided 
+	 * stream. The stream is read till its end but not closed.</p>
+	 * 
+	 * @param html The stream to read the encoded HTML content of the page 
+	 *             from
+	 * @param charset The character set the content is encoded with
+	 * @param url The URL the page was retrieved from. It is only used to
+	 *            report errors and may be null
+	 * @return The decoded HTML content
+	 * @throws ExtractionException If the content could not be read
+	 * @throws IllegalArgumentException If either no stream or no character 
+	 *                                  set is provided
+	 */
+	public static StringBuilder readContent(InputStream html, Charset charset, String url) 
+			throws ExtractionException
+	{
+		if (html == null)
+			throw new IllegalArgumentException("No content of the page provided!");
+		if (charset == null)
+			throw new IllegalArgumentException("No character set of the page provided!");
+		return readContent(new InputStreamReader(html, charset), url);
+	}
+	
+	/**
+	 * <p>Reads and decodes the HTML content of a page which was stored in the
+	 * provided file.</p>
+	 * 
+	 * @param file The file containing the encoded HTML content of the page
+	 * @param charset The character set the content is encoded with
+	 * @param url The URL the page was retrieved from. It is only used to
+	 *            report errors and may be null
+	 * @return The decoded HTML content
+	 * @throws ExtractionException If the file could not be read
+	 * @throws IllegalArgumentException If either no file or no character 
+	 *                                  set is provided
+	 */
+	public static String readContent(Path file, Charset charset, String url) 
+			throws ExtractionException
+	{
+		if (file == null)
+			throw new IllegalArgumentException("No file of the page provided!");
+		byte[] html;
+		try
+		{
+			html = Files.readAllBytes(file);
+		}
+		catch (IOException e)
+		{
+			throw new ExtractionException("Could not read content of "+url+" from "+file, e);
+		}
+		return readContent(html, charset);
+	}
+	
+	/**
+	 * <p>Downloads the HTML content of the provided URL.</p>
+	 * 
+	 * @param url The URL of the page to download
+	 * @return The HTML content of the page; null or empty if the page could
+	 *         not be read
+	 */
+	protected String readPage(String url)
+	{
+		UrlReader reader = new UrlReader();
+		return reader.readPage(url);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of the provided page and appends it to
+	 * <em>out</em> instead of returning it. If the page could not be read
+	 * nothing is appended.</p>
+	 * <p>The page is downloaded via {@link #readPage(String)} and predicted
+	 * via {@link #predictText(CharSequence, String, Appendable)}.</p>
+	 * 
+	 * @param url The URL of the page whose text should be predicted
+	 * @param out The target to append the predicted article's text to
+	 * @throws ExtractionException Will be thrown if during the prediction an
+	 *                             error occurs
+	 * @throws IOException Will be thrown if the text could not be appended
+	 *                     to <em>out</em>
+	 */
+	public void predictText(String url, Appendable out) throws ExtractionException, IOException
+	{
+		this.predictText(this.readPage(url), url, out);
+	}
+	
+	/**
+	 * <p>Tries to predict the text of an already available HTML page and 
+	 * appends it to <em>out</em> instead of returning it. If the page does 
+	 * not provide any content nothing is appended.</p>
+	 * <p>By default the text is predicted via 
+	 * {@link #predictText(CharSequence, String)}; extending classes should 
+	 * override this method to format the predicted tokens directly into 
+	 * <em>out</em> via {@link #formatText(List, Appendable)}.</p>
+	 * 
+	 * @param html The HTML content of the page
+	 * @param url The URL the page was retrieved from. It is only used as 
+	 *            meta data of the page and may be null
+	 * @param out The target to append the predicted article's text to
+	 * @throws ExtractionException Will be thrown if during the prediction an
+	 *                             error occurs
+	 * @throws IOException Will be thrown if the text could not be appended
+	 *                     to <em>out</em>
+	 */
+	public void predictText(CharSequence html, String url, Appendable out) throws ExtractionException, IOException
+	{
+		String text = this.predictText(html, url);
+		if (text != null)
+			out.append(text);
+	}
 	
 	/**
 	 * <p>Tries to predict the text for the provided pages based on either a 
@@ -147,6 +449,111 @@ public abstract class TextExtractor
 	 */
 	public abstract List<String> predictText(List<String> urls) throws ExtractionException;
 	
+	/**
+	 * <p>Predicts the text of the provided pages concurrently. Every page is 
+	 * read, parsed and predicted via {@link #predictText(String)} on one of 
+	 * <em>parallelism</em> worker threads, so the blocking download of a 
+	 * page overlaps with the processing of other pages.</p>
+	 * <p>Unlike {@link #predictText(List)} a page which could not be 
+	 * predicted does not abort the batch. Instead the returned 
+	 * {@link Prediction} of the page contains the error. The predictions are
+	 * returned in the order of the provided URLs.</p>
+	 * 
+	 * @param urls The pages whose content should be predicted
+	 * @param parallelism The maximum number of pages predicted at the same 
+	 *                    time
+	 * @return The prediction of every page in the order of <em>urls</em>
+	 * @throws IllegalArgumentException If no URLs are provided or the 
+	 *                                  parallelism is not positive
+	 */
+	public List<Prediction> predictText(List<String> urls, int parallelism)
+	{
+		if (urls == null)
+			throw new IllegalArgumentException("No pages to predict provided!");
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The parallelism has to be positive!");
+		
+		List<Prediction> predictions = new ArrayList<>(urls.size());
+		if (urls.isEmpty())
+			return predictions;
+		
+		final AtomicInteger threads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(parallelism, urls.size()), new ThreadFactory()
+				{
+					@Override
+					public Thread newThread(Runnable task)
+					{
+						Thread thread = new Thread(task, "prediction-"+threads.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try
+		{
+			List<Future<Prediction>> futures = new ArrayList<>(urls.size());
+			for (final String url : urls)
+			{
+				futures.add(executor.submit(new Callable<Prediction>()
+				{
+					@Override
+					public Prediction call()
+					{
+						return predict(url);
+					}
+				}));
+			}
+			
+			for (int i = 0; i < futures.size(); i++)
+			{
+				try
+				{
+					predictions.add(futures.get(i).get());
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof Error)
+						throw (Error)e.getCause();
+					predictions.add(Prediction.failure(urls.get(i), e));
+				}
+				catch (InterruptedException e)
+				{
+					// keep the already available predictions and mark the
+					// remaining pages as failed
+					Thread.currentThread().interrupt();
+					for (int j = i; j < urls.size(); j++)
+						predictions.add(Prediction.failure(urls.get(j), e));
+					break;
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		return predictions;
+	}
+	
+	/**
+	 * <p>Predicts the text of a single page of a concurrent batch and catches
+	 * any exception raised while predicting the page.</p>
+	 * 
+	 * @param url The URL of the page whose text should be predicted
+	 * @return The prediction of the page
+	 */
+	protected Prediction predict(String url)
+	{
+		try
+		{
+			return Prediction.success(url, this.predictText(url));
+		}
+		catch (ExtractionException | RuntimeException e)
+		{
+			LOG.warn("Could not predict the text of {}: {}", url, e.getMessage());
+			return Prediction.failure(url, e);
+		}
+	}
+	
 	/**
 	 * <p>Removes unwanted parts of the extracted text</p>
 	 * 
@@ -189,6 +596,38 @@ public abstract class TextExtractor
 		sources.add("washingtonpost.com");
 		sources.add("wired.com");
 
+		// a previously compiled model is mapped instead of deserializing the
+		// classifier if it covers every feature
+		File modelFile = new File(trainingDir, this.getModelFileName());
+		if (modelFile.isFile())
+		{
+			try
+			{
+				ScoringTable model = ScoringTable.open(modelFile);
+				if (model.getStrategy() != this.trainFeatureStrategy)
+					LOG.warn("Ignoring model file {} as it was compiled for {}", modelFile, model.getStrategy());
+				else if (model.getSource() != this.getTrainingSource(trainingDir, sources))
+					LOG.warn("Ignoring model file {} as the training data changed since it was compiled", modelFile);
+				else if (model.isSelfContained())
+				{
+					this.scoringTable = model;
+					this.isTrained = true;
+					LOG.info("Mapped model of {} features from {}", model.size(), modelFile);
+					return;
+				}
+				else
+				{
+					// the classifier is still required for untrained
+					// combinations of features
+					this.scoringTable = model;
+				}
+			}
+			catch (IOException e)
+			{
+				LOG.error("Error while opening model file {}", modelFile, e);
+			}
+		}
+
 		List<TrainingDataStrategy> trainers = TrainerFactory.createTrainer(
 				this.trainFrom, trainingDir, sources,
 				this.trainingSampleSize, this.trainFeatureStrategy);
@@ -202,8 +641,10 @@ public abstract class TextExtractor
 		LOG.info("Start training");
 		long startTime = System.currentTimeMillis();
 
+		FeatureVocabulary vocabulary = new FeatureVocabulary(this.trainFeatureStrategy);
 		for (TrainingDataStrategy trainer : trainers)
 		{
+			trainer.setFeatureVocabulary(vocabulary);
 			this.classifier = (NaiveBayes<String,String>)trainer.trainModel(this.classifier);
 		}
 		
@@ -211,8 +652,151 @@ public abstract class TextExtractor
 		long min = neededTime/1000/60;
 		long sec = (neededTime - min*1000*60)/1000;
 		LOG.info("Training done. Time needed: {} min {} sec ({} ms)", min, sec, neededTime);
+		
+		this.featureVocabulary = vocabulary;
+		// the trainers may have written the training data only now
+		this.trainingSource = this.getTrainingSource(trainingDir, sources);
+		if (this.scoringTable == null)
+		{
+			this.freeze();
+			if (this.scoringTable != null)
+			{
+				try
+				{
+					this.saveModel(modelFile);
+				}
+				catch (IOException e)
+				{
+					LOG.error("Error while persisting model file {}", modelFile, e);
+				}
+			}
+		}
+		// publish the trained model
 		this.isTrained = true;
 	}
+	
+	/**
+	 * <p>Returns the name of the model file for the current training 
+	 * strategy and sample size inside the training directory.</p>
+	 * 
+	 * @return The name of the model file
+	 */
+	protected String getModelFileName()
+	{
+		return "mssModel_"+this.trainingSampleSize+"_"+this.trainFeatureStrategy.name()+".model";
+	}
+	
+	/**
+	 * <p>Calculates a fingerprint of the training data a classifier with the
+	 * current training source, strategy and sample size is trained with. It
+	 * covers the name, size and modification time of every file in the
+	 * training directory the trainers read or write, so it changes whenever
+	 * the training data or the serialized classifier are replaced.</p>
+	 * 
+	 * @param trainingDir The directory containing the training data
+	 * @param sources The sources to train from
+	 * @return The fingerprint of the training data
+	 */
+	protected long getTrainingSource(File trainingDir, List<String> sources)
+	{
+		final String classifierFileName = "mssClassificationData_"+this.trainingSampleSize
+				+"_"+this.trainFeatureStrategy.name()+".ser";
+		File[] files = trainingDir.listFiles(new FilenameFilter()
+		{
+			@Override
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".txt") || name.equals("ate.db") 
+						|| name.equals("commonTags.ser") || name.startsWith(classifierFileName);
+			}
+		});
+		if (files == null)
+			files = new File[0];
+		Arrays.sort(files);
+
+		StringBuilder source = new StringBuilder();
+		source.append(this.trainFrom).append(' ').append(this.trainingSampleSize)
+			.append(' ').append(this.trainFeatureStrategy).append(' ').append(sources);
+		for (File file : files)
+			source.append(' ').append(file.getName()).append(':').append(file.length())
+				.append(':').append(file.lastModified());
+		return ScoringTable.hash(source);
+	}
+	
+	/**
+	 * <p>Persists the compiled scoring table as model file which can be 
+	 * mapped into memory via {@link #loadModel(File)} instead of loading and
+	 * compiling the serialized classifier again.</p>
+	 * 
+	 * @param file The file to write the model to
+	 * @throws IOException If the model could not be written
+	 * @throws IllegalStateException If the classifier was not frozen yet
+	 */
+	public void saveModel(File file) throws IOException
+	{
+		if (this.scoringTable == null)
+			throw new IllegalStateException("No compiled model available. Please invoke freeze() beforehand!");
+		this.scoringTable.save(file);
+		LOG.info("Persisted model of {} features to {}", this.scoringTable.size(), file);
+	}
+	
+	/**
+	 * <p>Maps a model file written via {@link #saveModel(File)} into memory
+	 * and uses it to score tokens. If the model does not cover every feature
+	 * of its training strategy, see {@link ScoringTable#isSelfContained()},
+	 * the classifier needs to be trained or loaded as well.</p>
+	 * 
+	 * @param file The model file to map
+	 * @throws IOException If the file is not a valid model file
+	 */
+	public void loadModel(File file) throws IOException
+	{
+		ScoringTable model = ScoringTable.open(file);
+		this.trainFeatureStrategy = model.getStrategy();
+		this.scoringTable = model;
+		if (model.isSelfContained())
+			this.isTrained = true;
+	}
+	
+	/**
+	 * <p>Compiles the trained classifier into an immutable 
+	 * {@link ScoringTable} which is used to score tokens instead of asking 
+	 * the classifier for every token. This method is invoked by 
+	 * {@link #initTrainingSamples(int)} and only needs to be invoked again if
+	 * the classifier was trained further afterwards.</p>
+	 * <p>If no features were recorded while training, f.e. because the
+	 * classifier was loaded from a file without a feature vocabulary next to
+	 * it, no table is compiled and the classifier is used directly. A model
+	 * mapped from a model file is kept in that case, as the classifier was 
+	 * not trained with the features of the model.</p>
+	 */
+	public void freeze()
+	{
+		if (this.featureVocabulary == null || this.featureVocabulary.size() == 0)
+		{
+			if (this.scoringTable != null)
+				LOG.warn("No trained features recorded. Keeping the mapped model");
+			else
+				LOG.warn("No trained features recorded. Tokens are scored by the classifier directly");
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		this.scoringTable = ScoringTable.compile(this.classifier, this.featureVocabulary,
+				this.trainingSource);
+		LOG.info("Compiled scoring table of {} features in {} ms", 
+				this.scoringTable.size(), System.currentTimeMillis()-startTime);
+	}
+	
+	/**
+	 * <p>Returns the read-optimized snapshot of the trained classifier.</p>
+	 * 
+	 * @return The compiled scoring table or null if the classifier has not 
+	 *         been frozen
+	 */
+	public ScoringTable getScoringTable()
+	{
+		return this.scoringTable;
+	}
 
 	/**
 	 * <p>Formats the text in a more human readable form</p>
@@ -222,7 +806,61 @@ public abstract class TextExtractor
 	 */
 	protected String formatText(List<Token> text)
 	{
-		StringBuilder builder = new StringBuilder();
+		StringBuilder out = new StringBuilder();
+		try
+		{
+			this.formatText(text, out);
+		}
+		catch (IOException e)
+		{
+			// a StringBuilder never throws an IOException
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * <p>Formats the text in a more human readable form and appends it to
+	 * <em>out</em>, which may f.e. be a {@link java.io.Writer} of an export
+	 * file or a {@link StringBuilder} which is reused for many pages.</p>
+	 * <p>The text is laid out in a buffer which is reused by every call of 
+	 * the current thread and decoded straight into <em>out</em>, so the 
+	 * formatted text is never materialized as a {@link String}.</p>
+	 * 
+	 * @param text The {@link List} of {@link Token}s which should be formated
+	 * @param out The target to append the formated text to
+	 * @throws IOException Will be thrown if the text could not be appended
+	 *                     to <em>out</em>
+	 */
+	public void formatText(List<Token> text, Appendable out) throws IOException
+	{
+		StringBuilder builder = LAYOUT_BUFFER.get();
+		try
+		{
+			this.layoutText(text, builder);
+			// decode entities and special character encodings and remove
+			// remaining links and tag fragments
+			TextDecoder.decode(builder, out);
+		}
+		finally
+		{
+			// don't keep the buffer of an exceptionally large page alive
+			if (builder.capacity() > MAX_BUFFER_CAPACITY)
+				LAYOUT_BUFFER.remove();
+			else
+				builder.setLength(0);
+		}
+	}
+	
+	/**
+	 * <p>Lays out the words and the printed tags of the text in the provided
+	 * builder by inserting blanks and line breaks.</p>
+	 * 
+	 * @param text The {@link List} of {@link Token}s which should be formated
+	 * @param builder The builder to append the raw formated text to
+	 */
+	private void layoutText(List<Token> text, StringBuilder builder)
+	{
 		builder.append("\n");
 		boolean blank = false;
 		boolean append = true;
@@ -230,6 +868,8 @@ public abstract class TextExtractor
 		Token lastToken = null;
 		for (Token t : text)
 		{
+			// look up the id of a tag only once
+			int id = (t instanceof Tag) ? TagVocabulary.getId((Tag)t) : TagVocabulary.OTHER;
 			// if the last token was a word and this token is a word add a blank before the new token: 'word1 word2'
 			if (blank && append && t instanceof Word && !newLine)
 				builder.append(" ");
@@ -240,7 +880,7 @@ public abstract class TextExtractor
 				builder.append(" ");
 			// create a blank before a link if the last token was a word: 'word <a href...>'
 			if (append && t instanceof Tag && lastToken instanceof Word && ((Tag)t).isOpeningTag() && 
-					((Tag)t).getShortTag().equals("a") && !newLine)
+					id == TagVocabulary.A && !newLine)
 				builder.append(" ");
 			
 			if (t instanceof Tag)
@@ -248,32 +888,30 @@ public abstract class TextExtractor
 				blank = false;
 				Tag tag = (Tag)t;
 				// if the text contains <article>...</article> segments only use the part between those tags as content
-				if (tag.getShortTag().equals("article") || tag.getShortTag().equals("more"))
+				if (id == TagVocabulary.ARTICLE || id == TagVocabulary.MORE)
 				{ 
 					append = tag.isOpeningTag();
 				}
 				// don't show special HTML tags
-				if (append && !tag.getShortTag().equals("p") && !tag.getShortTag().equals("cite") && !tag.getShortTag().equals("li") && 
-						!tag.getShortTag().equals("strong") && !tag.getShortTag().equals("i") && !tag.getShortTag().equals("b") &&
-						!tag.getShortTag().equals("ul") && !tag.getShortTag().equals("span") && !tag.getShortTag().matches("h[1-6]") &&
-						!tag.getShortTag().equals("article") && !tag.getShortTag().equals("abbr") && !tag.getShortTag().equals("em"))
+				if (append && !TagVocabulary.is(id, TagVocabulary.NOT_PRINTED))
 				{
 					builder.append(t.getHTML());
 					newLine = false;
 				}
 				// insert a new line segment for certain HTML tags
-				if (!tag.isOpeningTag() && append && (tag.getShortTag().equals("p") ||tag.getShortTag().matches("h1")))
+				if (!tag.isOpeningTag() && append && (id == TagVocabulary.P || id == TagVocabulary.H1))
 				{
 					builder.append("\n\n");
 					newLine = true;
 				}
-				if (!tag.isOpeningTag() && (tag.getShortTag().matches("h[2-6]") || tag.getShortTag().equals("li") || tag.getShortTag().equals("cite")))
+				if (!tag.isOpeningTag() && (TagVocabulary.is(id, TagVocabulary.HEADING) && id != TagVocabulary.H1 
+						|| id == TagVocabulary.LI || id == TagVocabulary.CITE))
 				{
 					builder.append("\n");
 					newLine = true;
 				}
 				// insert a blank after a span-tag
-				if (!tag.isOpeningTag() && append && (tag.getShortTag().equals("span")) && builder.capacity()>0 && !newLine)
+				if (!tag.isOpeningTag() && append && id == TagVocabulary.SPAN && builder.capacity()>0 && !newLine)
 					builder.append(" ");
 			}
 			else
@@ -290,54 +928,5 @@ public abstract class TextExtractor
 			}
 			lastToken = t;
 		}
-		
-		// TODO: Replace with existing conversion method/library
-		// replace special character encodings
-		String txt = builder.toString();
-		txt = txt.replaceAll("’", "'");
-		txt = txt.replaceAll("–", "-");
-		txt = txt.replaceAll("—", "-");
-		txt = txt.replaceAll("‘", "'");
-		txt = txt.replaceAll("’", "'");
-		txt = txt.replaceAll(" ", " ");
-		txt = txt.replaceAll("“", "\"");
-		txt = txt.replaceAll("”", "\"");
-		txt = txt.replaceAll("£", "L");
-		
-		txt = txt.replaceAll("â€“", "-");
-		txt = txt.replaceAll("â€œ", "\"");
-		txt = txt.replaceAll("â€", "\"");
-			
-		txt = txt.replaceAll("&quot;", "\"");
-		txt = txt.replaceAll("&amp;", "&");
-		txt = txt.replaceAll("&nbsp;", " ");
-		txt = txt.replaceAll("&rsquo;", "'");
-		txt = txt.replaceAll("&mdash;", "-");
-		txt = txt.replaceAll("&ldquo;", "\"");
-		txt = txt.replaceAll("&rdquo;", "\"");
-		
-		txt = txt.replaceAll("&#32;", " ");
-		txt = txt.replaceAll("&#39;", "'");
-		txt = txt.replaceAll("&#160;", " ");
-		
-		txt = txt.replaceAll("&#039;", "'");	
-		txt = txt.replaceAll("&#8217;", "'");
-		txt = txt.replaceAll("&#8220;", "\"");
-		txt = txt.replaceAll("&#8221;", "\"");
-		
-		txt = txt.replace("+ -", "+/-");
-					
-		// remove links and only present text
-		txt = txt.replaceAll("<a .*?>(.*?)</a>", "$1");
-		txt = txt.replaceAll("</a>", "");
-		txt = txt.replaceAll("<a .*?>", "");
-		
-		txt = txt.replace("<hr>", "");
-		
-		// sometimes div-tags seem to be cut off inappropriately - delete their
-		// garbage
-		txt = txt.replaceAll("id=.*?>", "");
-		txt = txt.replaceAll("class=.*?>", "");	
-		return txt.trim();
 	}
 }
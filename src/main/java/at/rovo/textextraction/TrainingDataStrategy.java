@@ -1,6 +1,7 @@
 package at.rovo.textextraction;
 
 import at.rovo.classifier.Classifier;
+import at.rovo.textextraction.mss.FeatureVocabulary;
 
 /**
  * <p>
@@ -24,4 +25,16 @@ public interface TrainingDataStrategy
 	 * @return The trained classifier
 	 */
 	public Classifier<String, String> trainModel(Classifier<String, String> classifier, boolean ... retrain);
+
+	/**
+	 * <p>
+	 * Sets the vocabulary which records the features the classifier gets
+	 * trained with. If the classifier is loaded from a previous invocation
+	 * the vocabulary is loaded as well.
+	 * </p>
+	 *
+	 * @param featureVocabulary
+	 *            The vocabulary to record the trained features in
+	 */
+	public void setFeatureVocabulary(FeatureVocabulary featureVocabulary);
 }
@@ -0,0 +1,140 @@
+package at.rovo.textextraction.mss;
+
+/**
+ * <p>
+ * Describes how the iterations of the semi supervised prediction of a single
+ * page terminated.
+ * </p>
+ *
+ * @see at.rovo.textextraction.Prediction#getConvergence()
+ * @author Roman Vottner
+ */
+public final class Convergence
+{
+	/**
+	 * <p>
+	 * The reason why no further iteration was run.
+	 * </p>
+	 */
+	public enum Reason
+	{
+		/** The predicted segment did not move for the required number of
+		 * consecutive iterations before the iterations stopped **/
+		CONVERGED,
+		/** The iterations stopped before the predicted segment settled **/
+		MAX_ITERATIONS
+	}
+
+	/** The URL of the page **/
+	private final String url;
+	/** The number of iterations run for the page **/
+	private final int iterations;
+	/** The iteration in which the predicted segment of the page moved the
+	 * last time **/
+	private final int settledIteration;
+	/** The reason why the iterations stopped **/
+	private final Reason reason;
+
+	/**
+	 * <p>
+	 * Creates a new description of the termination of the iterations of a
+	 * page.
+	 * </p>
+	 *
+	 * @param url
+	 *            The URL of the page
+	 * @param iterations
+	 *            The number of iterations run for the page
+	 * @param settledIteration
+	 *            The iteration in which the predicted segment of the page
+	 *            moved the last time; 0 if it never moved
+	 * @param reason
+	 *            The reason why the iterations stopped
+	 * @throws IllegalArgumentException
+	 *             If the settled iteration is not within the run iterations
+	 */
+	public Convergence(String url, int iterations, int settledIteration, Reason reason)
+	{
+		if (settledIteration < 0 || settledIteration > iterations)
+			throw new IllegalArgumentException("The segment can not settle in iteration "
+					+ settledIteration + " of " + iterations + "!");
+		this.url = url;
+		this.iterations = iterations;
+		this.settledIteration = settledIteration;
+		this.reason = reason;
+	}
+
+	/**
+	 * <p>
+	 * Returns the URL of the page.
+	 * </p>
+	 *
+	 * @return The URL of the page
+	 */
+	public String getUrl()
+	{
+		return this.url;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of training and prediction iterations which were run
+	 * after the initial prediction of the trained classifier.
+	 * </p>
+	 *
+	 * @return The number of iterations
+	 */
+	public int getIterations()
+	{
+		return this.iterations;
+	}
+
+	/**
+	 * <p>
+	 * Returns the iteration in which the predicted segment of the page moved
+	 * the last time. The segment did not move in any later iteration. Within
+	 * a batch this may be earlier than the last iteration, as the batch
+	 * continues until the segments of all pages settled.
+	 * </p>
+	 *
+	 * @return The iteration the segment settled in; 0 if the segment
+	 *         predicted by the trained classifier never moved
+	 */
+	public int getSettledIteration()
+	{
+		return this.settledIteration;
+	}
+
+	/**
+	 * <p>
+	 * Returns the reason why no further iteration was run.
+	 * </p>
+	 *
+	 * @return The reason of the termination
+	 */
+	public Reason getReason()
+	{
+		return this.reason;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the predicted segment of the page did not move for the
+	 * required number of consecutive iterations before the iterations
+	 * stopped.
+	 * </p>
+	 *
+	 * @return true if the iterations converged, false otherwise
+	 */
+	public boolean isConverged()
+	{
+		return this.reason == Reason.CONVERGED;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Convergence[" + this.url + ", iterations=" + this.iterations
+				+ ", settled=" + this.settledIteration + ", reason=" + this.reason + "]";
+	}
+}
@@ -0,0 +1,303 @@
+package at.rovo.textextraction.mss;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Records the distinct features a classifier gets trained with. As the
+ * classifier itself does not expose the features it was trained with, the
+ * vocabulary is required to compile the classifier into a
+ * {@link ScoringTable} once training finished.
+ * </p>
+ * <p>
+ * Every element of a trained feature array is recorded as a single feature.
+ * If the leading elements of the array are independent features which are
+ * scored together, like the three tokens of a
+ * {@link TrainFeatureStrategy#TRIPLE_UNIGRAM}, their combination is recorded
+ * as well. Additionally the number of trainings of every category is
+ * counted, which is the prior probability of the categories.
+ * </p>
+ * <p>
+ * The vocabulary is persisted next to the serialized classifier so it is
+ * available if the classifier is loaded instead of trained.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class FeatureVocabulary
+{
+	/** Identifies a persisted vocabulary **/
+	private static final int MAGIC = 0x4D535356;
+	/** The version of the persisted format **/
+	private static final int VERSION = 2;
+
+	/** The strategy the features are trained with **/
+	private final TrainFeatureStrategy strategy;
+	/** The single features; the value is the instance shared by all entries **/
+	private final Map<String, String> features = new HashMap<>();
+	/** The combinations of independent features by the string their key
+	 * is calculated from **/
+	private final Map<String, String[]> combinations = new HashMap<>();
+	/** The number of trainings of every category **/
+	private final Map<String, Long> trainings = new HashMap<>();
+
+	/**
+	 * <p>
+	 * Creates a new empty vocabulary.
+	 * </p>
+	 *
+	 * @param strategy
+	 *            The strategy the features are trained with
+	 */
+	public FeatureVocabulary(TrainFeatureStrategy strategy)
+	{
+		this.strategy = strategy;
+	}
+
+	/**
+	 * <p>
+	 * Returns the strategy the features are trained with.
+	 * </p>
+	 *
+	 * @return The training strategy of the features
+	 */
+	public TrainFeatureStrategy getStrategy()
+	{
+		return this.strategy;
+	}
+
+	/**
+	 * <p>
+	 * Records the features of a single training step.
+	 * </p>
+	 *
+	 * @param feature
+	 *            The feature array passed to the classifier
+	 * @param combined
+	 *            The number of leading elements of the array which form a
+	 *            combination of independent features; 0 if the elements are
+	 *            not scored together
+	 */
+	public void add(String[] feature, int combined)
+	{
+		this.add(feature, combined, null);
+	}
+
+	/**
+	 * <p>
+	 * Records the features of a single training step and counts the
+	 * training of the category.
+	 * </p>
+	 *
+	 * @param feature
+	 *            The feature array passed to the classifier
+	 * @param combined
+	 *            The number of leading elements of the array which form a
+	 *            combination of independent features; 0 if the elements are
+	 *            not scored together
+	 * @param category
+	 *            The category the features were trained with; null if the
+	 *            training should not be counted
+	 */
+	public synchronized void add(String[] feature, int combined, String category)
+	{
+		if (category != null)
+		{
+			Long count = this.trainings.get(category);
+			this.trainings.put(category, count == null ? 1L : count + 1);
+		}
+		String[] combination = combined > 1 ? new String[combined] : null;
+		for (int i = 0; i < feature.length; i++)
+		{
+			if (feature[i] == null)
+			{
+				// incomplete combinations are never scored
+				if (i < combined)
+					combination = null;
+				continue;
+			}
+			String shared = this.features.get(feature[i]);
+			if (shared == null)
+			{
+				shared = feature[i];
+				this.features.put(shared, shared);
+			}
+			if (combination != null && i < combined)
+				combination[i] = shared;
+		}
+		if (combination != null)
+		{
+			// combinations whose keys collide are kept apart
+			String key = ScoringTable.combinationString(combination);
+			if (!this.combinations.containsKey(key))
+				this.combinations.put(key, combination);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of recorded single features and combinations.
+	 * </p>
+	 *
+	 * @return The size of the vocabulary
+	 */
+	public synchronized int size()
+	{
+		return this.features.size() + this.combinations.size();
+	}
+
+	synchronized String[] getFeatures()
+	{
+		return this.features.keySet().toArray(new String[this.features.size()]);
+	}
+
+	synchronized String[][] getCombinations()
+	{
+		return this.combinations.values().toArray(
+				new String[this.combinations.size()][]);
+	}
+
+	/**
+	 * <p>
+	 * Returns how often features were trained with the provided category.
+	 * </p>
+	 *
+	 * @param category
+	 *            The trained category
+	 * @return The number of trainings of the category
+	 */
+	public synchronized long getTrainings(String category)
+	{
+		Long count = this.trainings.get(category);
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * <p>
+	 * Persists the vocabulary to the provided file.
+	 * </p>
+	 *
+	 * @param file
+	 *            The file to write the vocabulary to
+	 * @throws IOException
+	 *             If the vocabulary could not be written
+	 */
+	public synchronized void save(File file) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(this.strategy.name());
+			out.writeInt(this.features.size());
+			for (String feature : this.features.keySet())
+				writeString(out, feature);
+			out.writeInt(this.combinations.size());
+			for (String[] combination : this.combinations.values())
+			{
+				out.writeInt(combination.length);
+				for (String feature : combination)
+					writeString(out, feature);
+			}
+			out.writeInt(this.trainings.size());
+			for (Map.Entry<String, Long> entry : this.trainings.entrySet())
+			{
+				writeString(out, entry.getKey());
+				out.writeLong(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Adds the features and the trainings of a persisted vocabulary to this
+	 * vocabulary. Vocabularies of the first version do not contain the
+	 * number of trainings of the categories.
+	 * </p>
+	 *
+	 * @param file
+	 *            The file to read the vocabulary from
+	 * @throws IOException
+	 *             If the file could not be read, is not a vocabulary of a
+	 *             supported version or was recorded for a different training
+	 *             strategy
+	 */
+	public synchronized void load(File file) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " does not contain a feature vocabulary");
+			int version = in.readInt();
+			if (version != 1 && version != VERSION)
+				throw new IOException("Unsupported version " + version
+						+ " of feature vocabulary " + file);
+			String strategy = in.readUTF();
+			if (!this.strategy.name().equals(strategy))
+				throw new IOException("Feature vocabulary " + file
+						+ " was recorded for " + strategy + " instead of "
+						+ this.strategy);
+
+			int features = in.readInt();
+			for (int i = 0; i < features; i++)
+			{
+				String feature = readString(in);
+				this.features.put(feature, feature);
+			}
+			int combinations = in.readInt();
+			for (int i = 0; i < combinations; i++)
+			{
+				String[] combination = new String[in.readInt()];
+				for (int j = 0; j < combination.length; j++)
+				{
+					String feature = readString(in);
+					String shared = this.features.get(feature);
+					combination[j] = shared != null ? shared : feature;
+				}
+				this.combinations.put(ScoringTable.combinationString(combination),
+						combination);
+			}
+			int categories = version > 1 ? in.readInt() : 0;
+			for (int i = 0; i < categories; i++)
+			{
+				String category = readString(in);
+				Long count = this.trainings.get(category);
+				this.trainings.put(category, in.readLong() + (count == null ? 0L : count));
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException
+	{
+		out.writeInt(s.length());
+		out.writeChars(s);
+	}
+
+	private static String readString(DataInputStream in) throws IOException
+	{
+		char[] chars = new char[in.readInt()];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = in.readChar();
+		return new String(chars);
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "FeatureVocabulary[" + this.strategy + ", features="
+				+ this.features.size() + ", combinations="
+				+ this.combinations.size() + ", trainings=" + this.trainings + "]";
+	}
+}
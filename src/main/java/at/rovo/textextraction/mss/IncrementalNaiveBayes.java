@@ -0,0 +1,245 @@
+package at.rovo.textextraction.mss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import at.rovo.classifier.Classifier;
+import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
+import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
+
+/**
+ * <p>
+ * Cache of the recorded naive Bayes trainings of a set of pages. The recorded
+ * training of every page is kept, so the training of a page can be replaced
+ * without walking the tags and building the features of the other pages
+ * again.
+ * </p>
+ * <p>
+ * The semi supervised prediction uses it as local classifier which is kept
+ * across iterations: only the trainings of pages whose prediction changed are
+ * recorded again instead of recording the trainings of all pages in every
+ * iteration.
+ * </p>
+ * <p>
+ * Adding or removing a page only records or forgets its training. The
+ * probabilities are calculated by a {@link NaiveBayes} classifier with the
+ * configured probability calculation and training data storage method, which
+ * is trained again with all kept trainings in the order of the pages the
+ * next time it is requested after a page was added or removed. Training it
+ * therefore still takes time proportional to the trainings of all pages, but
+ * it yields exactly the probabilities of a new classifier trained with the
+ * pages one after another.
+ * </p>
+ * <p>
+ * Instances are not thread-safe. They may only be shared between threads
+ * while they are not modified.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class IncrementalNaiveBayes
+{
+	/** The way the probabilities get calculated **/
+	private final ProbabilityCalculation probCalc;
+	/** The way the training data is stored by the classifier **/
+	private final TrainingDataStorageMethod storageMethod;
+	/** The recorded training of every page **/
+	private final SortedMap<Integer, Contribution> pages = new TreeMap<>();
+	/** The classifier trained with the current pages; null if a page was
+	 * added or removed since it was trained **/
+	private NaiveBayes<String, String> classifier = null;
+
+	/**
+	 * <p>
+	 * Creates a new instance whose probabilities are calculated by a
+	 * {@link NaiveBayes} classifier with the given configuration.
+	 * </p>
+	 *
+	 * @param probCalc
+	 *            The way the probabilities get calculated
+	 * @param storageMethod
+	 *            The way the training data is stored
+	 * @throws IllegalArgumentException
+	 *             If either argument is null
+	 */
+	public IncrementalNaiveBayes(ProbabilityCalculation probCalc,
+			TrainingDataStorageMethod storageMethod)
+	{
+		if (probCalc == null || storageMethod == null)
+			throw new IllegalArgumentException("No probability calculation or storage method provided!");
+		this.probCalc = probCalc;
+		this.storageMethod = storageMethod;
+	}
+
+	/**
+	 * <p>
+	 * Keeps the recorded trainings of a page. The contribution must not be
+	 * modified afterwards.
+	 * </p>
+	 *
+	 * @param page
+	 *            The number of the page
+	 * @param contribution
+	 *            The recorded trainings of the page
+	 * @throws IllegalArgumentException
+	 *             If no contribution is provided or if the trainings of the
+	 *             page are already kept
+	 */
+	public void add(int page, Contribution contribution)
+	{
+		if (contribution == null)
+			throw new IllegalArgumentException("No contribution provided!");
+		if (this.pages.containsKey(page))
+			throw new IllegalArgumentException("The trainings of page " + page
+					+ " are already kept!");
+		this.pages.put(page, contribution);
+		this.classifier = null;
+	}
+
+	/**
+	 * <p>
+	 * Forgets the recorded trainings of a page which was added before.
+	 * </p>
+	 *
+	 * @param page
+	 *            The number of the page
+	 * @throws IllegalArgumentException
+	 *             If the trainings of the page are not kept
+	 */
+	public void remove(int page)
+	{
+		if (this.pages.remove(page) == null)
+			throw new IllegalArgumentException("The trainings of page " + page
+					+ " are not kept!");
+		this.classifier = null;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of pages whose trainings are kept.
+	 * </p>
+	 *
+	 * @return The number of kept pages
+	 */
+	public int size()
+	{
+		return this.pages.size();
+	}
+
+	/**
+	 * <p>
+	 * Returns a {@link NaiveBayes} classifier trained with the current pages
+	 * in the order of the pages. The classifier is only trained again if a
+	 * page was added or removed since the last invocation and must not be
+	 * trained any further.
+	 * </p>
+	 *
+	 * @return The classifier trained with the current pages
+	 */
+	public NaiveBayes<String, String> getClassifier()
+	{
+		if (this.classifier == null)
+		{
+			NaiveBayes<String, String> classifier = NaiveBayes.create(this.probCalc,
+					this.storageMethod);
+			for (Contribution contribution : this.pages.values())
+				contribution.train(classifier);
+			this.classifier = classifier;
+		}
+		return this.classifier;
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of a feature to be labeled as the given
+	 * category.
+	 * </p>
+	 *
+	 * @param category
+	 *            The category to get the probability for
+	 * @param feature
+	 *            The feature to get the probability for
+	 * @return The probability of the feature to be labeled as category
+	 */
+	public double getProbability(String category, String feature)
+	{
+		return this.getClassifier().getProbability(category, feature);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the combination of independent features to
+	 * be labeled as the given category.
+	 * </p>
+	 *
+	 * @param category
+	 *            The category to get the probability for
+	 * @param features
+	 *            The combined features to get the probability for
+	 * @return The probability of the features to be labeled as category
+	 */
+	public double getProbability(String category, String[] features)
+	{
+		return this.getClassifier().getProbability(category, features);
+	}
+
+	/**
+	 * <p>
+	 * Records the trainings of a single document, so they can be kept by and
+	 * removed from an {@link IncrementalNaiveBayes} cache as a whole.
+	 * </p>
+	 */
+	public static final class Contribution
+	{
+		/** The trained features **/
+		private final List<String[]> features = new ArrayList<>();
+		/** The category of every trained feature **/
+		private final List<String> categories = new ArrayList<>();
+
+		/**
+		 * <p>
+		 * Records a training of features with a category. The features must
+		 * not be modified afterwards.
+		 * </p>
+		 *
+		 * @param features
+		 *            The trained features
+		 * @param category
+		 *            The category of the features
+		 */
+		public void add(String[] features, String category)
+		{
+			this.features.add(features);
+			this.categories.add(category);
+		}
+
+		/**
+		 * <p>
+		 * Trains a classifier with the recorded trainings in the order they
+		 * were recorded.
+		 * </p>
+		 *
+		 * @param classifier
+		 *            The classifier to train
+		 */
+		public void train(Classifier<String, String> classifier)
+		{
+			for (int i = 0; i < this.features.size(); i++)
+				classifier.train(this.features.get(i), this.categories.get(i));
+		}
+
+		/**
+		 * <p>
+		 * Returns the number of recorded trainings.
+		 * </p>
+		 *
+		 * @return The number of recorded trainings
+		 */
+		public int size()
+		{
+			return this.features.size();
+		}
+	}
+}
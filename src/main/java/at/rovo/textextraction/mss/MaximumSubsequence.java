@@ -0,0 +1,331 @@
+package at.rovo.textextraction.mss;
+
+/**
+ * <p>
+ * Contains the primitive maximum subsequence algorithms used by
+ * {@link MaximumSubsequenceSegmentation} and its extending classes.
+ * </p>
+ * <p>
+ * All methods operate on a plain <code>double[]</code> score array (or a slice
+ * of it) and only return the boundaries and the score of the found segments.
+ * Neither the scores nor the segments are copied or boxed.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class MaximumSubsequence
+{
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private MaximumSubsequence()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Finds the subsequence with the highest score in the provided score array
+	 * within linear time.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the maximum subsequence in
+	 * @return The subsequence with the highest score
+	 * @see #top(double[], int, int)
+	 */
+	public static Subsequence top(final double[] s)
+	{
+		return top(s, 0, s.length);
+	}
+
+	/**
+	 * <p>
+	 * Represents the algorithm presented by Jeff Pasternack and Dan Roth which
+	 * finds the subsequence with the highest score in a slice of the provided
+	 * score array within linear time.
+	 * </p>
+	 * <p>
+	 * If the slice only contains negative scores the highest single score is
+	 * returned. If the slice is empty {@link Subsequence#EMPTY} is returned.
+	 * The indices of the returned subsequence are based on the position in
+	 * <em>s</em> and not on the position inside the slice.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the maximum subsequence in
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @return The subsequence with the highest score
+	 * @throws IllegalArgumentException
+	 *             If the slice is not within the bounds of <em>s</em>
+	 */
+	public static Subsequence top(final double[] s, int offset, int length)
+	{
+		checkSlice(s, offset, length);
+		if (length == 0)
+			return Subsequence.EMPTY;
+
+		int end = offset + length;
+		int start = offset;
+		double sum = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		int maxStart = offset;
+		int maxEnd = offset - 1;
+		for (int i = offset; i < end; i++)
+		{
+			sum += s[i];
+			if (sum > max)
+			{
+				max = sum;
+				maxStart = start;
+				maxEnd = i;
+			}
+			if (sum < 0)
+			{
+				start = i + 1;
+				sum = 0;
+			}
+		}
+		return new Subsequence(maxStart, maxEnd, max);
+	}
+
+	/**
+	 * <p>
+	 * Finds all maximal scoring subsequences of the provided score array.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the maximal subsequences in
+	 * @return All maximal scoring subsequences ordered by their position
+	 * @see #all(double[], int, int)
+	 */
+	public static Subsequence[] all(final double[] s)
+	{
+		return all(s, 0, s.length);
+	}
+
+	/**
+	 * <p>
+	 * Implements the maximal scoring subsequences algorithm as proposed by
+	 * Walter Ruzzo and Martin Tompa in their paper 'A linear time algorithm for
+	 * finding all maximal scoring subsequences'.
+	 * </p>
+	 * <p>
+	 * The list of disjoint subsequences I<sub>1</sub> ... I<sub>k</sub> is kept
+	 * as a stack of primitive arrays. For every subsequence the cumulative
+	 * total up to but not including its leftmost score (L) and the cumulative
+	 * total including its rightmost score (R) is stored. Additionally every
+	 * entry remembers the nearest entry on its left whose L value is smaller
+	 * than its own. Following these links instead of scanning the list from
+	 * right to left and merging subsequences by simply moving the top of the
+	 * stack keeps the total runtime linear and does not require any recursion.
+	 * </p>
+	 * <p>
+	 * The indices of the returned subsequences are based on the position in
+	 * <em>s</em> and not on the position inside the slice.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the maximal subsequences in
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @return All maximal scoring subsequences ordered by their position
+	 * @throws IllegalArgumentException
+	 *             If the slice is not within the bounds of <em>s</em>
+	 */
+	public static Subsequence[] all(final double[] s, int offset, int length)
+	{
+		checkSlice(s, offset, length);
+
+		// at most every score starts a subsequence of its own
+		int[] start = new int[length];
+		int[] end = new int[length];
+		int[] prev = new int[length];
+		double[] L = new double[length];
+		double[] R = new double[length];
+		int size = 0;
+
+		double cumulativeTotal = 0.;
+		int last = offset + length;
+		for (int i = offset; i < last; i++)
+		{
+			// a non-positive score requires no special processing
+			if (s[i] > 0)
+			{
+				// a positive score is incorporated into a new subsequence Ik
+				// of length one
+				int k = size;
+				start[k] = i;
+				end[k] = i;
+				L[k] = cumulativeTotal;
+				R[k] = cumulativeTotal + s[i];
+				while (true)
+				{
+					// 1. the list is searched from right to left for the
+					// maximum value of j satisfying Lj < Lk
+					int j = k - 1;
+					while (j >= 0 && L[j] >= L[k])
+						j = prev[j];
+					// 2. if there is no such j or
+					// 3. there is such a j and Rj >= Rk, add Ik to the end of
+					// the list
+					if (j < 0 || R[j] >= R[k])
+					{
+						prev[k] = j;
+						size = k + 1;
+						break;
+					}
+					// 4. otherwise extend the subsequence Ik to the left to
+					// encompass everything up to and including the leftmost
+					// score in Ij. Delete Ij, Ij+1, ..., Ik-1 from the list and
+					// reconsider the newly extended subsequence (now renumbered
+					// Ij) as in step 1
+					end[j] = end[k];
+					R[j] = R[k];
+					k = j;
+				}
+			}
+			cumulativeTotal += s[i];
+		}
+
+		Subsequence[] result = new Subsequence[size];
+		for (int i = 0; i < size; i++)
+			result[i] = new Subsequence(start[i], end[i], R[i] - L[i]);
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Returns the <em>k</em> highest scoring non-overlapping subsequences of a
+	 * slice of the provided score array ordered by their score.
+	 * </p>
+	 * <p>
+	 * The candidates are the maximal scoring subsequences found by
+	 * {@link #all(double[], int, int)}. Before the candidates are ranked,
+	 * neighboring candidates which are separated by at most
+	 * <em>maxGap</em> scores are stitched together to a single subsequence if
+	 * the scores in between cost less than the better of both candidates
+	 * contributes. The score of a stitched subsequence is the sum of both
+	 * candidates and the (negative) scores in between, so it is always higher
+	 * than the score of the weaker candidate. As neighboring maximal
+	 * subsequences are separated by gaps which cost at least as much as the
+	 * weaker one contributes, the stitched score may be lower than the one of
+	 * the better candidate. This allows to retrieve articles
+	 * which are split by inline advertisements or link boxes as a single
+	 * segment without attaching unrelated content. A negative <em>maxGap</em>
+	 * disables stitching.
+	 * </p>
+	 * <p>
+	 * Apart from the ranking of the candidates, which only needs to consider
+	 * <em>k</em> entries at a time, every score is processed a constant number
+	 * of times.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the subsequences in
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @param k
+	 *            The maximum number of subsequences to return
+	 * @param maxGap
+	 *            The maximum number of scores between two subsequences which
+	 *            may be stitched together
+	 * @return Up to <em>k</em> subsequences ordered by descending score. Equal
+	 *         scores are ordered by their position
+	 * @throws IllegalArgumentException
+	 *             If the slice is not within the bounds of <em>s</em> or k is
+	 *             not positive
+	 */
+	public static Subsequence[] ranked(final double[] s, int offset,
+			int length, int k, int maxGap)
+	{
+		if (k < 1)
+			throw new IllegalArgumentException(
+					"At least one subsequence has to be requested!");
+
+		Subsequence[] candidates = all(s, offset, length);
+		int size = candidates.length;
+		if (maxGap >= 0 && size > 1)
+		{
+			// stitch neighbors separated by short gaps which cost less than
+			// the better neighbor contributes
+			size = 0;
+			Subsequence current = candidates[0];
+			for (int i = 1; i < candidates.length; i++)
+			{
+				Subsequence next = candidates[i];
+				double score = Double.NEGATIVE_INFINITY;
+				if (next.getStart() - current.getEnd() - 1 <= maxGap)
+				{
+					score = current.getScore() + next.getScore();
+					for (int j = current.getEnd() + 1; j < next.getStart(); j++)
+						score += s[j];
+				}
+				if (score > Math.min(current.getScore(), next.getScore()))
+					current = new Subsequence(current.getStart(),
+							next.getEnd(), score);
+				else
+				{
+					candidates[size++] = current;
+					current = next;
+				}
+			}
+			candidates[size++] = current;
+		}
+
+		// keep the k best candidates sorted by insertion
+		Subsequence[] best = new Subsequence[Math.min(k, size)];
+		int found = 0;
+		for (int i = 0; i < size; i++)
+		{
+			Subsequence candidate = candidates[i];
+			if (found == best.length
+					&& candidate.getScore() <= best[found - 1].getScore())
+				continue;
+			int pos = found < best.length ? found++ : found - 1;
+			while (pos > 0 && best[pos - 1].getScore() < candidate.getScore())
+			{
+				best[pos] = best[pos - 1];
+				pos--;
+			}
+			best[pos] = candidate;
+		}
+		return best;
+	}
+
+	/**
+	 * <p>
+	 * Verifies that the slice defined by <em>offset</em> and <em>length</em>
+	 * is inside the bounds of the score array.
+	 * </p>
+	 *
+	 * @param s
+	 *            The score array
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @throws IllegalArgumentException
+	 *             If no score array was provided or the slice is not within
+	 *             its bounds
+	 */
+	static void checkSlice(final double[] s, int offset, int length)
+	{
+		if (s == null)
+			throw new IllegalArgumentException(
+					"No sequence available to trace for subsequences!");
+		if (offset < 0 || length < 0 || offset + length > s.length)
+			throw new IllegalArgumentException("The slice [" + offset + ", "
+					+ (offset + length) + ") is not inside the sequence of "
+					+ s.length + " scores!");
+	}
+}
@@ -1,14 +1,18 @@
 package at.rovo.textextraction.mss;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Dictionary;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import at.rovo.classifier.naiveBayes.NaiveBayes;
 import at.rovo.parser.Tag;
 import at.rovo.parser.Token;
 import at.rovo.textextraction.ExtractionException;
+import at.rovo.textextraction.TagVocabulary;
 import at.rovo.textextraction.TextExtractor;
 import at.rovo.textextraction.TrainData;
 
@@ -34,6 +38,12 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 {
 	/** The logger of this class **/
 	private static Logger logger = LogManager.getLogger(MaximumSubsequenceSegmentation.class);
+	/** The default number of tokens a page needs to exceed to be scored and
+	 * segmented in parallel **/
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 17;
+	/** The number of tokens a page needs to exceed to be scored and segmented
+	 * in parallel **/
+	protected int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
 	/**
 	 * <p>
@@ -62,10 +72,50 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 		this.trainFrom = trainFrom;
 	}
 
+	/**
+	 * <p>
+	 * Specifies the number of tokens a page needs to exceed to be scored and
+	 * segmented in parallel. By default pages with more than
+	 * {@link #DEFAULT_PARALLEL_THRESHOLD} tokens are processed in parallel.
+	 * </p>
+	 * 
+	 * @param parallelThreshold
+	 *            The number of tokens a page needs to exceed to be processed
+	 *            in parallel
+	 * @throws IllegalArgumentException
+	 *             If the threshold is negative
+	 */
+	public void setParallelThreshold(int parallelThreshold)
+	{
+		if (parallelThreshold < 0)
+			throw new IllegalArgumentException("The parallel threshold must not be negative!");
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of tokens a page needs to exceed to be scored and
+	 * segmented in parallel.
+	 * </p>
+	 * 
+	 * @return The number of tokens a page needs to exceed to be processed in
+	 *         parallel
+	 */
+	public int getParallelThreshold()
+	{
+		return this.parallelThreshold;
+	}
+
 	/**
 	 * Represents the algorithm presented by Jeff Pasternack and Dan Roth which
 	 * finds the subsequence with the highest score in a provided {@link List}
 	 * within linear time.
+	 * <p>
+	 * This method only unboxes the provided scores and delegates to
+	 * {@link #topMaximumSubsequence(double[])}. The scores of the found
+	 * subsequence are copied into <em>maxSS</em> once after the search has
+	 * finished.
+	 * </p>
 	 * 
 	 * @param s
 	 *            A {@link List} of {@link Double} values representing a score
@@ -78,31 +128,191 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 	 */
 	public int topMaximumSubsequence(final List<Double> s, List<Double> maxSS)
 	{
-		int start = 0;
-		double sum = 0;
+		double[] scores = new double[s.size()];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = s.get(i);
+
+		Subsequence top = this.topMaximumSubsequence(scores);
 		maxSS.clear();
-		maxSS.add(Double.NEGATIVE_INFINITY);
-		int maxStart = 0;
+		for (int i = top.getStart(); i <= top.getEnd(); i++)
+			maxSS.add(scores[i]);
+		return top.getStart();
+	}
 
-		for (int i = 0; i < s.size(); i++)
+	/**
+	 * Represents the algorithm presented by Jeff Pasternack and Dan Roth which
+	 * finds the subsequence with the highest score in the provided score array
+	 * within linear time.
+	 * 
+	 * @param s
+	 *            The scores out of which a subsequence should be extracted that
+	 *            produces a highest score
+	 * @return The subsequence with the highest score
+	 * @see MaximumSubsequence#top(double[], int, int)
+	 */
+	public Subsequence topMaximumSubsequence(final double[] s)
+	{
+		return this.topMaximumSubsequence(s, 0, s.length);
+	}
+
+	/**
+	 * Finds the subsequence with the highest score within the slice of the
+	 * provided score array which starts at <em>offset</em> and contains
+	 * <em>length</em> scores.
+	 * 
+	 * @param s
+	 *            The scores out of which a subsequence should be extracted that
+	 *            produces a highest score
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @return The subsequence with the highest score. The indices of the
+	 *         subsequence are based on the position in <em>s</em>
+	 * @see MaximumSubsequence#top(double[], int, int)
+	 */
+	public Subsequence topMaximumSubsequence(final double[] s, int offset,
+			int length)
+	{
+		Subsequence top = MaximumSubsequence.top(s, offset, length);
+		logger.debug("Start at: {}, length: {}", top.getStart(), top.getLength());
+		return top;
+	}
+
+	/**
+	 * <p>
+	 * Scores the provided array via the scorer and finds the subsequence with
+	 * the highest score. If the array contains more scores than the
+	 * {@link #getParallelThreshold() parallel threshold} the array is scored
+	 * and segmented chunk by chunk in parallel via a {@link SubsequenceTree},
+	 * which yields the same subsequence as the sequential algorithm.
+	 * </p>
+	 * 
+	 * @param s
+	 *            The array to write the scores into
+	 * @param scorer
+	 *            Calculates the scores of a range of the array
+	 * @return The subsequence with the highest score
+	 */
+	protected Subsequence topMaximumSubsequence(final double[] s,
+			SubsequenceTree.Scorer scorer)
+	{
+		if (s.length <= this.parallelThreshold)
 		{
-			sum = sum + s.get(i);
-			if (sum > value(maxSS))
-			{
-				maxSS.clear();
-				maxStart = start;
-				for (int j = start; j <= i; j++)
-					maxSS.add(s.get(j));
-			}
-			if (sum < 0)
-			{
-				start = i + 1;
-				sum = 0;
-			}
+			scorer.score(0, s.length);
+			return this.topMaximumSubsequence(s);
+		}
+		Subsequence top = SubsequenceTree.top(s, 0, s.length,
+				SubsequenceTree.DEFAULT_CHUNK_SIZE, scorer);
+		logger.debug("Start at: {}, length: {} (parallel)", top.getStart(), top.getLength());
+		return top;
+	}
+
+	/**
+	 * <p>
+	 * Returns the <em>k</em> highest scoring non-overlapping subsequences of
+	 * the provided score array ordered by their score. Subsequences which are
+	 * separated by at most <em>maxGap</em> scores are stitched together before
+	 * they get ranked.
+	 * </p>
+	 * 
+	 * @param s
+	 *            The scores to find the subsequences in
+	 * @param k
+	 *            The maximum number of subsequences to return
+	 * @param maxGap
+	 *            The maximum number of scores between two subsequences which
+	 *            are stitched together. A negative value disables stitching
+	 * @return Up to <em>k</em> subsequences ordered by descending score
+	 * @see MaximumSubsequence#ranked(double[], int, int, int, int)
+	 */
+	public Subsequence[] topMaximumSubsequences(final double[] s, int k,
+			int maxGap)
+	{
+		return MaximumSubsequence.ranked(s, 0, s.length, k, maxGap);
+	}
+
+	/**
+	 * <p>
+	 * Extracts the <em>k</em> highest scoring non-overlapping segments of a
+	 * page. This is useful for pages whose article is split into several parts
+	 * by inline advertisements or boxes of related stories.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The tokens of the page
+	 * @param scores
+	 *            The scores calculated for the tokens of the page
+	 * @param scoreOffset
+	 *            The index of the token the first score belongs to. This is
+	 *            f.e. 2 if every score is calculated for the last token of a
+	 *            trigram, see {@link #getSegmentTokens(List, Subsequence, int)}
+	 * @param k
+	 *            The maximum number of segments to return
+	 * @param maxGap
+	 *            The maximum number of scores between two segments which are
+	 *            stitched together. A negative value disables stitching
+	 * @return Up to <em>k</em> segments ordered by descending score
+	 */
+	public List<PredictedSegment> rankSegments(List<Token> html,
+			final double[] scores, int scoreOffset, int k, int maxGap)
+	{
+		Subsequence[] ranked = this.topMaximumSubsequences(scores, k, maxGap);
+		List<PredictedSegment> segments = new ArrayList<>(ranked.length);
+		for (Subsequence subsequence : ranked)
+		{
+			List<Token> tokens = this.getSegmentTokens(html, subsequence, scoreOffset);
+			int first = subsequence.getStart();
+			segments.add(new PredictedSegment(subsequence, first,
+					first + tokens.size() - 1, this.formatText(this.cleanText(tokens))));
 		}
-		// logger.debug("Maximum subsequence: {}", maxSS);
-		logger.debug("Start at: {}, length: {}", maxStart, maxSS.size());
-		return maxStart;
+		logger.debug("Ranked segments: {}", segments);
+		return segments;
+	}
+
+	/**
+	 * <p>
+	 * Returns the tokens of a page covered by a subsequence of its scores.
+	 * The score at position <em>i</em> is calculated for the feature
+	 * consisting of the tokens <em>i</em> till <em>i + scoreOffset</em>, so
+	 * the segment contains every token of the features of its first and its
+	 * last score.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The tokens of the page
+	 * @param subsequence
+	 *            The subsequence of the scores of the page
+	 * @param scoreOffset
+	 *            The number of tokens preceding the token a score is
+	 *            calculated for within its feature
+	 * @return The tokens covered by the subsequence
+	 */
+	protected List<Token> getSegmentTokens(List<Token> html,
+			Subsequence subsequence, int scoreOffset)
+	{
+		int first = subsequence.getStart();
+		int last = Math.min(subsequence.getEnd() + scoreOffset, html.size() - 1);
+		return new ArrayList<>(html.subList(first, last + 1));
+	}
+
+	/**
+	 * <p>
+	 * Creates a new push-style maximum subsequence segmentation which accepts
+	 * one score at a time and keeps track of the best subsequence seen so far.
+	 * </p>
+	 * <p>
+	 * This allows to segment a page while its tokens are still produced
+	 * without materializing a score list first.
+	 * </p>
+	 * 
+	 * @param <T>
+	 *            The type of the items pushed together with their scores
+	 * @return A new and empty {@link SubsequenceStream}
+	 */
+	public <T> SubsequenceStream<T> openSubsequenceStream()
+	{
+		return new SubsequenceStream<T>();
 	}
 
 	/**
@@ -130,13 +340,22 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 	public int[] kMaximumSubsequenes(final List<Double> S,
 			List<List<Double>> kSS)
 	{
-		List<Integer> startPos = new ArrayList<Integer>();
-		this.kMaximumSubsequences(S, kSS, new ArrayList<Double>(),
-				new ArrayList<Double>(), startPos);
-		// copy startPos entries to int[]
-		int[] ret = new int[startPos.size()];
-		for (int i = 0; i < startPos.size(); i++)
-			ret[i] = startPos.get(i);
+		if (S == null || kSS == null)
+			throw new IllegalArgumentException(
+					"No sequence available to trace for subsequences!");
+		double[] scores = new double[S.size()];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = S.get(i);
+
+		Subsequence[] subsequences = this.kMaximumSubsequences(scores);
+		kSS.clear();
+		int[] ret = new int[subsequences.length];
+		for (int i = 0; i < subsequences.length; i++)
+		{
+			kSS.add(new ArrayList<Double>(S.subList(subsequences[i].getStart(),
+					subsequences[i].getEnd() + 1)));
+			ret[i] = subsequences[i].getStart();
+		}
 		return ret;
 	}
 
@@ -157,9 +376,14 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 	 * is returned via the startPos parameter.
 	 * </p>
 	 * <p>
-	 * Note that the content of the last three parameters does get cleared if
+	 * Note that the content of the last four parameters does get cleared if
 	 * there is one.
 	 * </p>
+	 * <p>
+	 * This method is a compatibility wrapper around
+	 * {@link MaximumSubsequence#all(double[], int, int)} which copies the
+	 * found subsequences into the provided {@link List}s.
+	 * </p>
 	 * 
 	 * @param S
 	 *            The sequence where subsequences should get extracted
@@ -185,144 +409,52 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 		if (I == null || L == null || R == null || startPos == null)
 			throw new IllegalArgumentException(
 					"A parameter required to return the results is null!");
-		/*
-		 * The algorithm proposed by Walter Ruzzo and Martin Tompa works as
-		 * follows: 1. the list is search from right to left for the maximum
-		 * value of j satisfying Lj < Lk 2. If there is no such j, then add Ik
-		 * to the end of the list. 3. If there is such a j, and Rj >= Rk, then
-		 * add Ik to the end of the list 4. Otherwise (i,e. there is such a j,
-		 * but Rj < Rk), extend the subsequence Ik to the left to encompass
-		 * everything up to and including the leftmost score in Ij. Delete
-		 * subsequences Ij, Ij+1, ... Ik-1 from the list (none of them is
-		 * maximal) and reconsider the newly extended subsequence Ik (now
-		 * renumbered Ij) as in step 1.
-		 */
-		double cumulativeTotal = 0.;
-		// The list is initially empty
+		double[] scores = new double[S.size()];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = S.get(i);
+		Subsequence[] subsequences = this.kMaximumSubsequences(scores);
+
+		// the cumulative totals are derived from the prefix sums of S
+		double[] cumulativeTotal = new double[scores.length + 1];
+		for (int i = 0; i < scores.length; i++)
+			cumulativeTotal[i + 1] = cumulativeTotal[i] + scores[i];
+
 		I.clear();
 		L.clear();
 		R.clear();
 		startPos.clear();
-		for (int i = 0; i < S.size(); i++)
+		for (Subsequence subsequence : subsequences)
 		{
-			// a non-positive score requires no special processing
-			if (S.get(i) > 0)
-				// a positive score is incorporated into a new subsequence Ik of
-				// length one
-				this.applySteps(i, cumulativeTotal, S, I, L, R, startPos, false);
-			cumulativeTotal += S.get(i);
+			I.add(new ArrayList<Double>(S.subList(subsequence.getStart(),
+					subsequence.getEnd() + 1)));
+			L.add(cumulativeTotal[subsequence.getStart()]);
+			R.add(cumulativeTotal[subsequence.getEnd() + 1]);
+			startPos.add(subsequence.getStart());
 		}
-		
+
 		logger.trace("I: {}", I);
 		logger.trace("L: {}", L);
 		logger.trace("R: {}", R);
 		logger.trace("startPos: {}", startPos);
 
-		return cumulativeTotal;
+		return cumulativeTotal[scores.length];
 	}
 
 	/**
 	 * <p>
-	 * Implements the 4 steps introduced by Walter Ruzzo and Martin Tompa. This
-	 * is necessary as the 4th step calls this method again without reading the
-	 * next part of the input sequence.
+	 * Finds all maximal scoring subsequences of the provided score array
+	 * within linear time as proposed by Walter Ruzzo and Martin Tompa.
 	 * </p>
 	 * 
-	 * @param i
-	 *            Current position in the origin sequence
-	 * @param cumulativeTotal
-	 *            Sum of all elements from the start to but not including the
-	 *            i'th element
-	 * @param S
-	 *            The origin sequence
-	 * @param I
-	 *            A {@link List} of all found subsequences up to the i'th
-	 *            element
-	 * @param L
-	 *            The cumulative values before the corresponding subsequence
-	 * @param R
-	 *            The cumulative values after the corresponding subsequence
-	 * @param startPos
-	 *            The start position in the origin sequence of a subsequence
-	 * @param append
-	 *            Decides if this method should consider the next value of the
-	 *            origin sequence (append == false) or use the latest
-	 *            subsequence for further processing
+	 * @param s
+	 *            The scores to find the maximal subsequences in
+	 * @return All maximal scoring subsequences ordered by their position in
+	 *         <em>s</em>
+	 * @see MaximumSubsequence#all(double[], int, int)
 	 */
-	private void applySteps(int i, double cumulativeTotal, List<Double> S,
-			List<List<Double>> I, List<Double> L, List<Double> R,
-			List<Integer> startPos, boolean append)
+	public Subsequence[] kMaximumSubsequences(final double[] s)
 	{
-		List<Double> Ik = new ArrayList<Double>();
-		Ik.add(S.get(i));
-		Double Lk, Rk;
-		if (!append)
-		{
-			Lk = cumulativeTotal;
-			Rk = Lk + S.get(i);
-		}
-		else
-		{
-			Lk = L.get(L.size() - 1);
-			Rk = R.get(R.size() - 1);
-		}
-		int k = I.size();
-		// that is then integrated into the list by the following process
-		// 1. The List is searched from right to left for the maximum value of j
-		// satisfying Lj < Lk
-		int j;
-		for (j = k; j > 0; j--)
-			if (L.get(j - 1) < Lk)
-				break;
-		// 2. If there is no such j, then add Ik to the end of the list
-		if (j == 0 && !append)
-		{
-			I.add(Ik);
-			L.add(Lk);
-			R.add(Rk);
-			startPos.add(i);
-		}
-		// 3. If there is such a j, and Rj >= Rk, then add Ik to the end of the
-		// list
-		else if (j > 0 && R.get(j - 1) >= Rk && !append)
-		{
-			I.add(Ik);
-			L.add(Lk);
-			R.add(Rk);
-			startPos.add(i);
-		}
-		// 4. Otherwise (i.e., there is such a j, but Rj < Rk), extend the
-		// subsequence Ik
-		// to the left to encompass everything up to and including the leftmost
-		// score in Ij.
-		// Delete subsequences Ij, Ij+1, ..., Ik-1 from the list (none of them
-		// is maximal)
-		// and reconsider the newly extended subsequence Ik (new renumbered Ij)
-		// as in step 1.
-		else
-		{
-			// join Ij to Ik
-			// as negative values might belong to the subsequence
-			// add everything from the start position of Ij + its
-			// length till the end of S(i)
-			// and remove every entry j+1 in I, L, R and startPos
-			if (j - 1 < 0)
-				return;
-			int pos = startPos.get(j - 1);
-			for (int p = pos + I.get(j - 1).size(); p <= i; p++)
-				I.get(j - 1).add(S.get(p));
-			for (int p = j; p < I.size(); p++)
-			{
-				I.remove(p);
-				L.remove(p);
-				R.remove(p);
-				startPos.remove(p);
-			}
-			// set Rj to the value of Rk
-			R.set(j - 1, Rk);
-
-			this.applySteps(i, L.get(j - 1), S, I, L, R, startPos, true);
-		}
+		return MaximumSubsequence.all(s, 0, s.length);
 	}
 
 	/**
@@ -342,18 +474,20 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 
 	/**
 	 * <p>
-	 * Predicts the main content of the HTML page
+	 * Predicts the main content of the provided HTML page
 	 * </p>
 	 * 
+	 * @param html
+	 *            The HTML content of the page to predict content from
 	 * @param url
-	 *            The URL of the page to predict content from
+	 *            The URL the page was retrieved from
 	 * @return A {@link List} of the predicted main content
 	 * @throws Throws
 	 *             an {@link ExtractionException} if an error occurs during the
 	 *             text prediction
 	 */
-	public abstract String predictText(final String url)
-			throws ExtractionException;
+	public abstract String predictText(final CharSequence html,
+			final String url) throws ExtractionException;
 
 	/**
 	 * <p>
@@ -376,30 +510,70 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 	 * in their paper on 'Extracting article text from the web with maximum
 	 * subsequence segmentation'.
 	 * </p>
+	 * <p>
+	 * Every opening tag starts a new frame on a stack which collects the
+	 * tokens up to the matching closing tag. Once the closing tag is reached,
+	 * the frame is either dropped or appended to its parent frame. A
+	 * <code>&lt;div&gt;</code> frame which is kept remains on the stack.
+	 * </p>
+	 * <p>
+	 * Instead of lists, the tokens of a frame are chained via their position
+	 * in <em>text</em>, so appending a frame to its parent only links two
+	 * chains. Every frame further keeps summary flags of its content (its
+	 * first tags, its last tokens, whether it contains a <code>&lt;p&gt;</code>
+	 * or a tag which forbids a <code>&lt;div&gt;</code>) which are updated
+	 * while tokens are added. Hence no frame is ever scanned again and every
+	 * token is touched a constant number of times.
+	 * </p>
+	 * <p>
+	 * Tags are compared by their id in the {@link TagVocabulary} which is
+	 * looked up once per tag.
+	 * </p>
 	 * 
 	 * @param text
 	 *            The extracted text from a web page via the
 	 *            {@link #topMaximumSubsequence(List, List)} method
-	 * @param renameUncommonTags
-	 *            Specifies if tags which aren't included in the common tags
-	 *            should be renamed to "unknown"
 	 * @return The cleaned text
 	 */
 	@Override
 	public List<Token> cleanText(List<Token> text)
 	{
-		Stack<List<Token>> tagStack = new Stack<List<Token>>();
+		return this.cleanText(text, this.commonTags);
+	}
+
+	/**
+	 * <p>
+	 * Cleans the extracted blocks like {@link #cleanText(List)} but looks up
+	 * the sources of the tags in the provided common tags instead of the ones
+	 * of this instance. This allows a single prediction to clean its text
+	 * with the tags it collected on its own.
+	 * </p>
+	 * 
+	 * @param text
+	 *            The extracted text from a web page
+	 * @param commonTags
+	 *            The sources every tag was found in
+	 * @return The cleaned text
+	 */
+	protected List<Token> cleanText(List<Token> text,
+			Dictionary<String, List<String>> commonTags)
+	{
+		Token[] tokens = text.toArray(new Token[text.size()]);
+		// the position of the token following a token within its frame
+		int[] next = new int[tokens.length];
+		// the tag ids of the tokens
+		int[] ids = new int[tokens.length];
+
+		Deque<Frame> tagStack = new ArrayDeque<Frame>();
 		// add a root-level to the stack
-		tagStack.push(new ArrayList<Token>());
-		List<Token> cleaned = new ArrayList<Token>();
-		for (Token token : text)
+		tagStack.push(new Frame());
+		for (int i = 0; i < tokens.length; i++)
 		{
+			Token token = tokens[i];
 			// we have found a tag - when it is a starting tag add a new
-			// sequence to the stack
-			// a closing tag should result in taking away the whole sequence
-			// (from start to end
-			// tag) from the stack
-			// if the tag is an image or break symbol add it to the parent
+			// frame to the stack
+			// a closing tag should result in taking away the whole frame
+			// (from start to end tag) from the stack
 			if (token instanceof Tag)
 			{
 				Tag tag = (Tag) token;
@@ -408,243 +582,251 @@ public abstract class MaximumSubsequenceSegmentation extends TextExtractor
 					continue;
 
 				// check if tag is in common tags
-				List<String> sources = this.commonTags.get(tag.getShortTag());
+				List<String> sources = commonTags.get(tag.getShortTag());
 				if (sources != null && sources.size() < 2)
 					tag.setAsUndefined();
 
-				// add <IMG> and <BR> tags in case they are not self-closed to
-				// the parent tag
-				if (tag.isOpeningTag() && tag.getShortTag().equals("img")
-						|| tag.getShortTag().equals("br")
-						&& !tag.isInlineCloseingTag())
-				{
-					// ignore images and line-breaks --> no content to analyze
-					// tagStack.peek().add(tag);
-				}
-				// push a new token list on the stack to fill it with elements
-				else if (tag.isOpeningTag())
+				int id = TagVocabulary.getId(tag);
+				ids[i] = id;
+				// ignore images and line-breaks in case they are not
+				// self-closed --> no content to analyze
+				if (tag.isOpeningTag() && id == TagVocabulary.IMG
+						|| id == TagVocabulary.BR && !tag.isInlineCloseingTag())
+					continue;
+
+				// push a new frame on the stack to fill it with elements
+				if (tag.isOpeningTag())
 				{
 					if (!tag.isInlineCloseingTag())
 					{
-						List<Token> subElement = new ArrayList<Token>();
-						subElement.add(tag);
-						tagStack.push(subElement);
+						Frame frame = new Frame();
+						frame.add(tokens, ids, next, i);
+						tagStack.push(frame);
 					}
+					continue;
 				}
+
 				// closing tag found - take it from the stack and decide based
-				// on its content
-				// if the tag should be kept or thrown away
+				// on its content if the tag should be kept or thrown away
+				if (tagStack.isEmpty())
+					continue;
+				Frame frame = tagStack.peek();
+				frame.add(tokens, ids, next, i);
+				// as the first part of a sequence could be a word which is
+				// followed by a closing tag - ignore that case
+				int start = frame.getStartTag(tokens, tag);
+				if (start < 0)
+					continue;
+				// closing tag has to equal the starting tag
+				if (ids[start] != id || id == TagVocabulary.OTHER
+						&& !tag.getShortTag().equals(((Tag) tokens[start]).getShortTag()))
+					continue;
+
+				// remove the contents of any <IFRAME> or <TABLE> tag pair
+				if (TagVocabulary.is(id, TagVocabulary.REMOVABLE_CONTAINER))
+					tagStack.pop();
+				// remove empty tags
+				else if (frame.size == 2)
+					tagStack.pop();
+				// remove li or p tags that only contain a link
+				else if (id == TagVocabulary.LI || id == TagVocabulary.P)
+				{
+					tagStack.pop();
+					if (!frame.containsOnlyLink(tokens, ids, next, id))
+						// if not, append the tag to its parent tag
+						this.appendToParent(tagStack, frame, next);
+				}
+				// remove the contents of any <DIV> tag pair that contains an
+				// unwanted element or does not contain a p-element. A div
+				// containing usable data stays on the stack
+				else if (id == TagVocabulary.DIV)
+				{
+					if (frame.forbidden || !frame.paragraph)
+						tagStack.pop();
+				}
+				// as the end of of sub element was reached add it to the
+				// parent element
 				else
 				{
-					if (tagStack.isEmpty())
-						continue;
-					tagStack.peek().add(token);
-					// as the first part of a sequence could be a word which
-					// is followed by a closing tag - ignore that case
-					Tag start = null;
-					for (int i = 0; i < tagStack.peek().size(); i++)
-					{
-						Token _start = tagStack.peek().get(i);
-						if (_start instanceof Tag && _start != token)
-						{
-							start = (Tag) _start;
-							break;
-						}
-					}
-					if (start == null)
-						continue;
-
-					// closing tag equals the starting tag
-					if (tag.getShortTag().equals(start.getShortTag()))
-					{
-						// remove the contents of any <IFRAME> or <TABLE> tag
-						// pair
-						if (start.getShortTag().equals("table")
-								|| start.getShortTag().equals("iframe")
-								|| start.getShortTag().equals("form")
-								|| start.getShortTag().equals("style")
-								|| start.getShortTag().equals("script")
-								|| start.getShortTag().equals("fb")
-								|| start.getShortTag().equals("g")
-								|| start.getShortTag().equals("blockquote")
-								|| start.getShortTag().equals("cite")) // ||
-																		// start.getShortTag().equals("unknown"))
-							tagStack.pop();
-						// remove empty tags
-						else if (tagStack.peek().size() == 2)
-							tagStack.pop();
-						// remove links that do not link to other pages
-						// else if (start.getShortTag().equals("a") &&
-						// !start.getHTML().contains("href=\"http://"))
-						// tagStack.pop();
-						// remove li tags that only contain a link
-						else if (start.getShortTag().equals("li"))
-						{
-							boolean remove = false;
-							if (tagStack.peek().size() > 3
-									&& tagStack.peek().get(0).getHTML()
-											.startsWith("<li")
-									&& tagStack.peek().get(1).getHTML()
-											.startsWith("<a ")
-									&& tagStack.peek().get(
-											tagStack.peek().size() - 2)
-											.getHTML().startsWith("</a")
-									&& tagStack.peek().get(
-											tagStack.peek().size() - 1)
-											.getHTML().startsWith("</li"))
-								remove = true;
-
-							if (remove == true)
-								tagStack.pop();
-							else
-								// if not, append the li-tag to its parent tag
-								for (Token t : tagStack.pop())
-								{
-									if (tagStack.isEmpty())
-										tagStack.push(new ArrayList<Token>());
-									tagStack.peek().add(t);
-								}
-						}
-						// remove p tags that only contain a link
-						else if (start.getShortTag().equals("p"))
-						{
-							boolean remove = false;
-							if (tagStack.peek().size() > 3
-									&& tagStack.peek().get(0).getHTML()
-											.startsWith("<p")
-									&& tagStack.peek().get(1).getHTML()
-											.startsWith("<a ")
-									&& tagStack.peek().get(
-											tagStack.peek().size() - 2)
-											.getHTML().startsWith("</a")
-									&& tagStack.peek().get(
-											tagStack.peek().size() - 1)
-											.getHTML().startsWith("</p"))
-								remove = true;
-
-							if (remove == true)
-								tagStack.pop();
-							else
-								// if not, append the p-tag to its parent tag
-								for (Token t : tagStack.pop())
-								{
-									if (tagStack.isEmpty())
-										tagStack.push(new ArrayList<Token>());
-									tagStack.peek().add(t);
-								}
-						}
-						// remove the contents of any <DIV> tag pair ...
-						else if (start.getShortTag().equals("div"))
-						{
-							// only <div..> and </div> element - can be removed
-							if (tagStack.peek().size() == 2)
-							{
-								tagStack.pop();
-								continue;
-							}
-							// more elements have been found inside the <div>
-							// tags
-							// look if there is a unwanted element inside the
-							// <div> tag
-							boolean delete = false;
-							for (Token t : tagStack.peek())
-							{
-								if (t instanceof Tag)
-								{
-									Tag _tag = (Tag) t;
-									// ... that contains a hyperlink (<A>) ...
-									if (// _tag.getShortTag().equals("a") ||
-										// ... <IFRAME> ...
-									_tag.getShortTag().equals("iframe")
-											||
-											// ... <TABLE> ...
-											_tag.getShortTag().equals("table")
-											||
-											// ... <IMG> ...
-											// _tag.getShortTag().equals("img")
-											// ||
-											// ... <EMBED> ...
-											_tag.getShortTag().equals("embed")
-											||
-											// ... <APPLET> ...
-											_tag.getShortTag().equals("applet")
-											||
-											// ... or <OBJECT>
-											_tag.getShortTag().equals("object"))
-									{
-										delete = true;
-										break;
-									}
-								}
-							}
-							// we found a link/iframe/table/img/embed/applet or
-							// object tag inside a div-tag
-							// remove the whole div-tag
-							if (delete == true)
-								tagStack.pop();
-							else
-							{
-								// check if the div-tag contains a p-element
-								List<Token> divTokens = tagStack.peek();
-								boolean found = false;
-								for (Token t : divTokens)
-								{
-									if (t instanceof Tag)
-									{
-										Tag _tag = (Tag) t;
-										if (_tag.getShortTag().equals("p"))
-										{
-											found = true;
-											break;
-										}
-									}
-								}
-								// only add div-tags to the previous elements if
-								// they contain
-								// usable data - in example of a p-element
-								if (found == false) // remove the div-tag which
-													// contains only useless
-													// data
-									tagStack.pop();
-							}
-						}
-						else
-						{
-							// as the end of of sub element was reached add it
-							// to the parent element
-							for (Token t : tagStack.pop())
-							{
-								if (tagStack.isEmpty())
-									tagStack.push(new ArrayList<Token>());
-								tagStack.peek().add(t);
-							}
-						}
-					}
+					tagStack.pop();
+					this.appendToParent(tagStack, frame, next);
 				}
 			}
 			else
 			{
-				if (tagStack != null && !tagStack.isEmpty()
-						&& tagStack.get(0) != null)
-					tagStack.peek().add(token);
-				else
-				{
-					List<Token> element = new ArrayList<Token>();
-					element.add(token);
-					tagStack.push(element);
-				}
+				if (tagStack.isEmpty())
+					tagStack.push(new Frame());
+				tagStack.peek().add(tokens, ids, next, i);
 			}
 		}
 
 		// ignore output of div- and unknown-tags
-		for (int i = 0; i < tagStack.size(); i++)
-			for (Token t : tagStack.get(i))
-				if (!t.getHTML().startsWith("<div")
-						&& !t.getHTML().startsWith("</div")
-						&& !t.getHTML().startsWith("<unknown")
-						&& !t.getHTML().startsWith("</unknown"))
-					cleaned.add(t);
+		List<Token> cleaned = new ArrayList<Token>();
+		Iterator<Frame> frames = tagStack.descendingIterator();
+		while (frames.hasNext())
+		{
+			Frame frame = frames.next();
+			for (int i = frame.head, n = 0; n < frame.size; i = next[i], n++)
+				if (!(tokens[i] instanceof Tag) || ids[i] != TagVocabulary.DIV
+						&& ids[i] != TagVocabulary.UNKNOWN)
+					cleaned.add(tokens[i]);
+		}
 
 		return cleaned;
 	}
+
+	/**
+	 * <p>
+	 * Appends the tokens of a frame which was taken from the stack to the
+	 * frame on top of the stack. If the stack is empty the frame is pushed
+	 * onto the stack again.
+	 * </p>
+	 * 
+	 * @param tagStack
+	 *            The stack of frames
+	 * @param frame
+	 *            The frame to append to its parent
+	 * @param next
+	 *            The chain of the tokens
+	 */
+	private void appendToParent(Deque<Frame> tagStack, Frame frame, int[] next)
+	{
+		if (tagStack.isEmpty())
+			tagStack.push(frame);
+		else
+			tagStack.peek().append(frame, next);
+	}
+
+	/**
+	 * <p>
+	 * A sequence of tokens on the stack of {@link #cleanText(List)}. The
+	 * tokens are not stored inside the frame but chained via their position
+	 * in the cleaned text. Next to the boundaries of the chain a frame keeps
+	 * track of the tokens and flags required to decide whether the frame is
+	 * kept once its closing tag is reached.
+	 * </p>
+	 */
+	private static final class Frame
+	{
+		/** The position of the first token of the frame **/
+		int head = -1;
+		/** The position of the last token of the frame **/
+		int tail = -1;
+		/** The position of the token preceding the last token **/
+		int beforeTail = -1;
+		/** The number of tokens of the frame **/
+		int size = 0;
+		/** The position of the first tag of the frame **/
+		int firstTag = -1;
+		/** The position of the second tag of the frame **/
+		int secondTag = -1;
+		/** Specifies if the frame contains a tag which removes a div **/
+		boolean forbidden = false;
+		/** Specifies if the frame contains a p-tag **/
+		boolean paragraph = false;
+
+		/**
+		 * <p>
+		 * Adds the token at position <em>i</em> to the end of the frame.
+		 * </p>
+		 */
+		void add(Token[] tokens, int[] ids, int[] next, int i)
+		{
+			if (this.size == 0)
+				this.head = i;
+			else
+				next[this.tail] = i;
+			this.beforeTail = this.tail;
+			this.tail = i;
+			this.size++;
+
+			if (tokens[i] instanceof Tag)
+			{
+				if (this.firstTag < 0)
+					this.firstTag = i;
+				else if (this.secondTag < 0)
+					this.secondTag = i;
+				this.forbidden |= TagVocabulary.is(ids[i], TagVocabulary.FORBIDDEN_IN_DIV);
+				this.paragraph |= ids[i] == TagVocabulary.P;
+			}
+		}
+
+		/**
+		 * <p>
+		 * Appends the tokens of the provided frame to the end of this frame.
+		 * </p>
+		 */
+		void append(Frame frame, int[] next)
+		{
+			if (frame.size == 0)
+				return;
+			if (this.size == 0)
+			{
+				this.head = frame.head;
+				this.beforeTail = frame.beforeTail;
+			}
+			else
+			{
+				next[this.tail] = frame.head;
+				this.beforeTail = frame.size > 1 ? frame.beforeTail : this.tail;
+			}
+			this.tail = frame.tail;
+			this.size += frame.size;
+
+			if (this.firstTag < 0)
+			{
+				this.firstTag = frame.firstTag;
+				this.secondTag = frame.secondTag;
+			}
+			else if (this.secondTag < 0)
+				this.secondTag = frame.firstTag;
+			this.forbidden |= frame.forbidden;
+			this.paragraph |= frame.paragraph;
+		}
+
+		/**
+		 * <p>
+		 * Returns the position of the first tag of the frame which is not the
+		 * provided closing tag or -1 if there is no such tag.
+		 * </p>
+		 */
+		int getStartTag(Token[] tokens, Tag closing)
+		{
+			if (this.firstTag >= 0 && tokens[this.firstTag] != closing)
+				return this.firstTag;
+			if (this.secondTag >= 0 && tokens[this.secondTag] != closing)
+				return this.secondTag;
+			return -1;
+		}
+
+		/**
+		 * <p>
+		 * Specifies if the frame consists of the provided tag which only wraps
+		 * a link.
+		 * </p>
+		 */
+		boolean containsOnlyLink(Token[] tokens, int[] ids, int[] next, int id)
+		{
+			return this.size > 3
+					&& isTag(tokens, ids, this.head, id, true)
+					// only anchors with attributes are considered links
+					&& isTag(tokens, ids, next[this.head], TagVocabulary.A, true)
+					&& tokens[next[this.head]].getHTML().startsWith("<a ")
+					&& isTag(tokens, ids, this.beforeTail, TagVocabulary.A, false)
+					&& isTag(tokens, ids, this.tail, id, false);
+		}
+
+		/**
+		 * <p>
+		 * Specifies if the token at position <em>i</em> is an opening or
+		 * closing tag with the provided id.
+		 * </p>
+		 */
+		private static boolean isTag(Token[] tokens, int[] ids, int i, int id,
+				boolean opening)
+		{
+			return tokens[i] instanceof Tag && ids[i] == id
+					&& ((Tag) tokens[i]).isOpeningTag() == opening;
+		}
+	}
 }
@@ -0,0 +1,115 @@
+package at.rovo.textextraction.mss;
+
+/**
+ * <p>
+ * Represents one of several ranked segments predicted for a single page. Next
+ * to the {@link Subsequence} of the score list it also contains the range of
+ * the segment within the page's tokens and the cleaned and formatted text of
+ * the segment.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class PredictedSegment
+{
+	/** The subsequence of the score list the segment is based on **/
+	private final Subsequence subsequence;
+	/** The index of the first token of the segment **/
+	private final int firstToken;
+	/** The index of the last token of the segment (inclusive) **/
+	private final int lastToken;
+	/** The cleaned and formatted text of the segment **/
+	private final String text;
+
+	/**
+	 * <p>
+	 * Creates a new predicted segment.
+	 * </p>
+	 *
+	 * @param subsequence
+	 *            The subsequence of the score list the segment is based on
+	 * @param firstToken
+	 *            The index of the first token of the segment
+	 * @param lastToken
+	 *            The index of the last token of the segment
+	 * @param text
+	 *            The cleaned and formatted text of the segment
+	 */
+	public PredictedSegment(Subsequence subsequence, int firstToken,
+			int lastToken, String text)
+	{
+		this.subsequence = subsequence;
+		this.firstToken = firstToken;
+		this.lastToken = lastToken;
+		this.text = text;
+	}
+
+	/**
+	 * <p>
+	 * Returns the subsequence of the score list the segment is based on.
+	 * </p>
+	 *
+	 * @return The subsequence of the segment
+	 */
+	public Subsequence getSubsequence()
+	{
+		return this.subsequence;
+	}
+
+	/**
+	 * <p>
+	 * Returns the score of the segment.
+	 * </p>
+	 *
+	 * @return The score of the segment
+	 */
+	public double getScore()
+	{
+		return this.subsequence.getScore();
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the first token of the segment within the tokens
+	 * of the page.
+	 * </p>
+	 *
+	 * @return The index of the first token
+	 */
+	public int getFirstToken()
+	{
+		return this.firstToken;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the last token of the segment within the tokens of
+	 * the page.
+	 * </p>
+	 *
+	 * @return The inclusive index of the last token
+	 */
+	public int getLastToken()
+	{
+		return this.lastToken;
+	}
+
+	/**
+	 * <p>
+	 * Returns the cleaned and formatted text of the segment.
+	 * </p>
+	 *
+	 * @return The text of the segment
+	 */
+	public String getText()
+	{
+		return this.text;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + this.firstToken + ", " + this.lastToken + "]: "
+				+ this.subsequence.getScore();
+	}
+}
@@ -0,0 +1,289 @@
+package at.rovo.textextraction.mss;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import at.rovo.classifier.Classifier;
+
+/**
+ * <p>
+ * Bounded cache of the probabilities classifiers return for features. Entries
+ * are identified by the identity of the classifier, the category and the
+ * feature, so a single cache can be shared by several classifiers and threads.
+ * </p>
+ * <p>
+ * The cache is split into segments which are locked independently. Every
+ * segment evicts its least recently used entry once it exceeds its share of
+ * the maximum size.
+ * </p>
+ * <p>
+ * As a classifier is identified by its identity, a classifier must not be
+ * trained further once probabilities were cached for it unless the cache is
+ * cleared afterwards.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class ProbabilityCache
+{
+	/** The number of independently locked segments **/
+	private static final int SEGMENTS = 16;
+
+	/** The cached entries **/
+	private final Segment[] segments;
+	/** The number of lookups which were answered by the cache **/
+	private final AtomicLong hits = new AtomicLong();
+	/** The number of lookups which were delegated to a classifier **/
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * <p>
+	 * Creates a new empty cache.
+	 * </p>
+	 *
+	 * @param maxSize
+	 *            The maximum number of cached probabilities
+	 * @throws IllegalArgumentException
+	 *             If the maximum size is not positive
+	 */
+	public ProbabilityCache(int maxSize)
+	{
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("The size of the cache has to be positive!");
+		this.segments = new Segment[SEGMENTS];
+		int segmentSize = Math.max(1, maxSize / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++)
+			this.segments[i] = new Segment(segmentSize);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the classifier for the feature to be labeled
+	 * as the given category. The classifier is only asked if the probability
+	 * is not cached yet.
+	 * </p>
+	 *
+	 * @param classifier
+	 *            The classifier to ask
+	 * @param category
+	 *            The category to get the probability for
+	 * @param feature
+	 *            The feature to get the probability for
+	 * @return The probability of the feature to be labeled as category
+	 */
+	public double getProbability(Classifier<String, String> classifier,
+			String category, String feature)
+	{
+		Key key = new Key(classifier, category, feature, feature == null ? 0 : feature.hashCode());
+		Double probability = this.get(key);
+		if (probability != null)
+			return probability;
+		double value = classifier.getProbability(category, feature);
+		this.put(key, value);
+		return value;
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the classifier for the combination of
+	 * independent features to be labeled as the given category. The
+	 * classifier is only asked if the probability is not cached yet.
+	 * </p>
+	 *
+	 * @param classifier
+	 *            The classifier to ask
+	 * @param category
+	 *            The category to get the probability for
+	 * @param features
+	 *            The combined features to get the probability for
+	 * @return The probability of the features to be labeled as category
+	 */
+	public double getProbability(Classifier<String, String> classifier,
+			String category, String[] features)
+	{
+		int hash = Arrays.hashCode(features);
+		Double probability = this.get(new Key(classifier, category, features, hash));
+		if (probability != null)
+			return probability;
+		double value = classifier.getProbability(category, features);
+		// the array is copied as the caller may reuse it
+		this.put(new Key(classifier, category, features.clone(), hash), value);
+		return value;
+	}
+
+	private Double get(Key key)
+	{
+		Segment segment = this.segmentFor(key);
+		Double probability;
+		synchronized (segment)
+		{
+			probability = segment.get(key);
+		}
+		if (probability != null)
+			this.hits.incrementAndGet();
+		else
+			this.misses.incrementAndGet();
+		return probability;
+	}
+
+	private void put(Key key, double probability)
+	{
+		Segment segment = this.segmentFor(key);
+		synchronized (segment)
+		{
+			segment.put(key, probability);
+		}
+	}
+
+	private Segment segmentFor(Key key)
+	{
+		int h = key.hash;
+		h ^= (h >>> 16);
+		return this.segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of lookups which were answered from the cache.
+	 * </p>
+	 *
+	 * @return The number of cache hits
+	 */
+	public long getHits()
+	{
+		return this.hits.get();
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of lookups which had to be delegated to the
+	 * classifier.
+	 * </p>
+	 *
+	 * @return The number of cache misses
+	 */
+	public long getMisses()
+	{
+		return this.misses.get();
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of currently cached probabilities.
+	 * </p>
+	 *
+	 * @return The number of cached probabilities
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : this.segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * <p>
+	 * Removes all cached probabilities and resets the counters.
+	 * </p>
+	 */
+	public void clear()
+	{
+		for (Segment segment : this.segments)
+		{
+			synchronized (segment)
+			{
+				segment.clear();
+			}
+		}
+		this.hits.set(0);
+		this.misses.set(0);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ProbabilityCache[size=" + this.size() + ", hits=" + this.getHits()
+				+ ", misses=" + this.getMisses() + "]";
+	}
+
+	/**
+	 * <p>
+	 * A part of the cache which evicts its least recently used entry if it
+	 * exceeds its maximum size.
+	 * </p>
+	 */
+	private static final class Segment extends LinkedHashMap<Key, Double>
+	{
+		private static final long serialVersionUID = 1L;
+		/** The maximum number of entries of this segment **/
+		private final int maxSize;
+
+		Segment(int maxSize)
+		{
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest)
+		{
+			return this.size() > this.maxSize;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Identifies a cached probability by the identity of the classifier, the
+	 * category and the feature, which is either a string or an array of
+	 * strings.
+	 * </p>
+	 */
+	private static final class Key
+	{
+		private final Object classifier;
+		private final String category;
+		private final Object feature;
+		private final int hash;
+
+		Key(Object classifier, String category, Object feature, int featureHash)
+		{
+			this.classifier = classifier;
+			this.category = category;
+			this.feature = feature;
+			int h = System.identityHashCode(classifier);
+			h = 31 * h + (category == null ? 0 : category.hashCode());
+			this.hash = 31 * h + featureHash;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			if (this.hash != other.hash || this.classifier != other.classifier)
+				return false;
+			if (this.category == null ? other.category != null : !this.category.equals(other.category))
+				return false;
+			if (this.feature instanceof String[])
+				return other.feature instanceof String[]
+						&& Arrays.equals((String[]) this.feature, (String[]) other.feature);
+			return this.feature == null ? other.feature == null : this.feature.equals(other.feature);
+		}
+	}
+}
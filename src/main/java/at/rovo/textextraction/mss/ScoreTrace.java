@@ -0,0 +1,460 @@
+package at.rovo.textextraction.mss;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Reusable buffer which captures how the tokens of a single page were scored
+ * for offline analysis: the score of every token, the index of the token every
+ * score belongs to, the segment chosen as article and, for iterative
+ * algorithms, the segment chosen in every iteration.
+ * </p>
+ * <p>
+ * Scores are kept as primitive values and the arrays of the buffer are only
+ * grown, never shrunk, so a trace which is {@link #clear() cleared} and
+ * reused for many pages does not allocate once it reached the size of the
+ * largest page.
+ * </p>
+ * <p>
+ * A trace can be written in a compact binary form via
+ * {@link #writeBinary(DataOutput)}, which is read back via
+ * {@link #readBinary(DataInput)}, or as comma separated values via
+ * {@link #writeCsv(Appendable)}.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class ScoreTrace
+{
+	/** Identifies the binary form of a trace **/
+	private static final int MAGIC = 0x4D535354;
+	/** The version of the binary form **/
+	private static final int VERSION = 1;
+
+	/**
+	 * <p>
+	 * Decides which pages are traced and receives their traces.
+	 * </p>
+	 */
+	public interface Recorder
+	{
+		/**
+		 * <p>
+		 * Specifies if the scores of the page should be traced. This method
+		 * is invoked once per prediction and should therefore be cheap, f.e.
+		 * a sampling decision.
+		 * </p>
+		 *
+		 * @param url
+		 *            The URL of the page which is about to be scored
+		 * @return true if the page should be traced, false otherwise
+		 */
+		boolean isTraced(String url);
+
+		/**
+		 * <p>
+		 * Receives the trace of a page once its prediction finished. The
+		 * trace is reused for the next page predicted by the same thread, so
+		 * it has to be written or copied before this method returns.
+		 * </p>
+		 *
+		 * @param trace
+		 *            The trace of the page
+		 */
+		void traced(ScoreTrace trace);
+	}
+
+	/** The URL of the traced page **/
+	private String url = null;
+	/** The scores of the tokens **/
+	private double[] scores = new double[0];
+	/** The index of the token every score belongs to **/
+	private int[] tokens = new int[0];
+	/** The number of scores **/
+	private int size = 0;
+	/** The segment chosen as article **/
+	private Subsequence segment = Subsequence.EMPTY;
+	/** The first and last score index of the segment of every iteration **/
+	private int[] iterationBounds = new int[0];
+	/** The score of the segment of every iteration **/
+	private double[] iterationScores = new double[0];
+	/** The number of iterations **/
+	private int iterations = 0;
+
+	/**
+	 * <p>
+	 * Removes every captured value and assigns the trace to a new page.
+	 * </p>
+	 *
+	 * @param url
+	 *            The URL of the page which is traced next; may be null
+	 */
+	public void clear(String url)
+	{
+		this.url = url;
+		this.size = 0;
+		this.segment = Subsequence.EMPTY;
+		this.iterations = 0;
+	}
+
+	/**
+	 * <p>
+	 * Removes every captured value.
+	 * </p>
+	 */
+	public void clear()
+	{
+		this.clear(null);
+	}
+
+	/**
+	 * <p>
+	 * Replaces the captured scores with a slice of the provided scores. The
+	 * score at position <em>offset + i</em> belongs to the token at index
+	 * <em>firstToken + i</em>.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores of the page
+	 * @param offset
+	 *            The index of the first score of the page within <em>s</em>
+	 * @param length
+	 *            The number of scores of the page
+	 * @param firstToken
+	 *            The index of the token the first score belongs to
+	 * @throws IllegalArgumentException
+	 *             If the slice is not within the bounds of <em>s</em>
+	 */
+	public void setScores(double[] s, int offset, int length, int firstToken)
+	{
+		MaximumSubsequence.checkSlice(s, offset, length);
+		this.ensureCapacity(length);
+		System.arraycopy(s, offset, this.scores, 0, length);
+		for (int i = 0; i < length; i++)
+			this.tokens[i] = firstToken + i;
+		this.size = length;
+	}
+
+	/**
+	 * <p>
+	 * Appends the score of a single token.
+	 * </p>
+	 *
+	 * @param token
+	 *            The index of the token the score belongs to
+	 * @param score
+	 *            The score of the token
+	 */
+	public void addScore(int token, double score)
+	{
+		this.ensureCapacity(this.size + 1);
+		this.scores[this.size] = score;
+		this.tokens[this.size] = token;
+		this.size++;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > this.scores.length)
+		{
+			int newCapacity = Math.max(capacity, this.scores.length * 2);
+			this.scores = Arrays.copyOf(this.scores, newCapacity);
+			this.tokens = Arrays.copyOf(this.tokens, newCapacity);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Sets the segment which was chosen as article. Its bounds are indices of
+	 * the captured scores.
+	 * </p>
+	 *
+	 * @param segment
+	 *            The chosen segment
+	 */
+	public void setSegment(Subsequence segment)
+	{
+		this.segment = segment != null ? segment : Subsequence.EMPTY;
+	}
+
+	/**
+	 * <p>
+	 * Appends the segment which was chosen in the next iteration of an
+	 * iterative algorithm. Its bounds are indices of the scores of that
+	 * iteration.
+	 * </p>
+	 *
+	 * @param segment
+	 *            The segment of the iteration
+	 */
+	public void addIteration(Subsequence segment)
+	{
+		if (2 * this.iterations + 2 > this.iterationBounds.length)
+		{
+			int newCapacity = Math.max(4, this.iterationScores.length * 2);
+			this.iterationBounds = Arrays.copyOf(this.iterationBounds, 2 * newCapacity);
+			this.iterationScores = Arrays.copyOf(this.iterationScores, newCapacity);
+		}
+		this.iterationBounds[2 * this.iterations] = segment.getStart();
+		this.iterationBounds[2 * this.iterations + 1] = segment.getEnd();
+		this.iterationScores[this.iterations] = segment.getScore();
+		this.iterations++;
+	}
+
+	/**
+	 * <p>
+	 * Returns the URL of the traced page.
+	 * </p>
+	 *
+	 * @return The URL of the page; null if unknown
+	 */
+	public String getUrl()
+	{
+		return this.url;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of captured scores.
+	 * </p>
+	 *
+	 * @return The number of scores
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * <p>
+	 * Returns a captured score.
+	 * </p>
+	 *
+	 * @param i
+	 *            The index of the score
+	 * @return The score at the given index
+	 * @throws IndexOutOfBoundsException
+	 *             If <em>i</em> is negative or not less than {@link #size()}
+	 */
+	public double getScore(int i)
+	{
+		this.checkIndex(i, this.size);
+		return this.scores[i];
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the token a captured score belongs to.
+	 * </p>
+	 *
+	 * @param i
+	 *            The index of the score
+	 * @return The index of the token within the tokens of the page
+	 * @throws IndexOutOfBoundsException
+	 *             If <em>i</em> is negative or not less than {@link #size()}
+	 */
+	public int getTokenIndex(int i)
+	{
+		this.checkIndex(i, this.size);
+		return this.tokens[i];
+	}
+
+	/**
+	 * <p>
+	 * Returns the segment chosen as article.
+	 * </p>
+	 *
+	 * @return The chosen segment; {@link Subsequence#EMPTY} if none was set
+	 */
+	public Subsequence getSegment()
+	{
+		return this.segment;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of captured iterations.
+	 * </p>
+	 *
+	 * @return The number of iterations
+	 */
+	public int getIterationCount()
+	{
+		return this.iterations;
+	}
+
+	/**
+	 * <p>
+	 * Returns the segment chosen in an iteration.
+	 * </p>
+	 *
+	 * @param i
+	 *            The index of the iteration
+	 * @return The segment of the iteration
+	 * @throws IndexOutOfBoundsException
+	 *             If <em>i</em> is negative or not less than
+	 *             {@link #getIterationCount()}
+	 */
+	public Subsequence getIteration(int i)
+	{
+		this.checkIndex(i, this.iterations);
+		return new Subsequence(this.iterationBounds[2 * i],
+				this.iterationBounds[2 * i + 1], this.iterationScores[i]);
+	}
+
+	private void checkIndex(int i, int size)
+	{
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+	}
+
+	/**
+	 * <p>
+	 * Writes the trace in its binary form. The form starts with a magic
+	 * number, a version and the URL, followed by the number of scores and
+	 * the token index and score of every score, the chosen segment and the
+	 * number and segments of the iterations.
+	 * </p>
+	 *
+	 * @param out
+	 *            The target to write the trace to
+	 * @throws IOException
+	 *             If the trace could not be written
+	 */
+	public void writeBinary(DataOutput out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(this.url != null ? this.url : "");
+		out.writeInt(this.size);
+		for (int i = 0; i < this.size; i++)
+		{
+			out.writeInt(this.tokens[i]);
+			out.writeDouble(this.scores[i]);
+		}
+		writeSegment(out, this.segment.getStart(), this.segment.getEnd(),
+				this.segment.getScore());
+		out.writeInt(this.iterations);
+		for (int i = 0; i < this.iterations; i++)
+			writeSegment(out, this.iterationBounds[2 * i],
+					this.iterationBounds[2 * i + 1], this.iterationScores[i]);
+	}
+
+	private static void writeSegment(DataOutput out, int start, int end,
+			double score) throws IOException
+	{
+		out.writeInt(start);
+		out.writeInt(end);
+		out.writeDouble(score);
+	}
+
+	/**
+	 * <p>
+	 * Reads a trace written via {@link #writeBinary(DataOutput)} into this
+	 * buffer, replacing any captured value.
+	 * </p>
+	 *
+	 * @param in
+	 *            The source to read the trace from
+	 * @throws IOException
+	 *             If the trace could not be read or the source does not
+	 *             contain a trace of a supported version
+	 */
+	public void readBinary(DataInput in) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a score trace");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported score trace version " + version);
+		String url = in.readUTF();
+		this.clear(url.isEmpty() ? null : url);
+		int size = in.readInt();
+		if (size < 0)
+			throw new IOException("Invalid number of scores " + size);
+		for (int i = 0; i < size; i++)
+			this.addScore(in.readInt(), in.readDouble());
+		this.segment = new Subsequence(in.readInt(), in.readInt(), in.readDouble());
+		int iterations = in.readInt();
+		if (iterations < 0)
+			throw new IOException("Invalid number of iterations " + iterations);
+		for (int i = 0; i < iterations; i++)
+			this.addIteration(new Subsequence(in.readInt(), in.readInt(), in.readDouble()));
+	}
+
+	/**
+	 * <p>
+	 * Writes the header of the comma separated values written by
+	 * {@link #writeCsv(Appendable)}.
+	 * </p>
+	 *
+	 * @param out
+	 *            The target to write the header to
+	 * @throws IOException
+	 *             If the header could not be written
+	 */
+	public static void writeCsvHeader(Appendable out) throws IOException
+	{
+		out.append("url,type,token,start,end,score\n");
+	}
+
+	/**
+	 * <p>
+	 * Writes the trace as comma separated values without a header. Every
+	 * score results in a <em>score</em> row containing the index of its
+	 * token, every iteration in an <em>iteration</em> row and the chosen
+	 * segment in a <em>segment</em> row containing the bounds of the segment.
+	 * As every row contains the URL, traces of several pages can be written
+	 * into the same target.
+	 * </p>
+	 *
+	 * @param out
+	 *            The target to write the trace to
+	 * @throws IOException
+	 *             If the trace could not be written
+	 */
+	public void writeCsv(Appendable out) throws IOException
+	{
+		String url = this.url != null ? escape(this.url) : "";
+		for (int i = 0; i < this.size; i++)
+		{
+			out.append(url).append(",score,").append(Integer.toString(this.tokens[i]))
+					.append(",,,").append(Double.toString(this.scores[i])).append('\n');
+		}
+		for (int i = 0; i < this.iterations; i++)
+			writeCsvSegment(out, url, "iteration", this.iterationBounds[2 * i],
+					this.iterationBounds[2 * i + 1], this.iterationScores[i]);
+		writeCsvSegment(out, url, "segment", this.segment.getStart(),
+				this.segment.getEnd(), this.segment.getScore());
+	}
+
+	private static void writeCsvSegment(Appendable out, String url,
+			String type, int start, int end, double score) throws IOException
+	{
+		out.append(url).append(',').append(type).append(",,")
+				.append(Integer.toString(start)).append(',')
+				.append(Integer.toString(end)).append(',')
+				.append(Double.toString(score)).append('\n');
+	}
+
+	private static String escape(String value)
+	{
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+				&& value.indexOf('\n') < 0)
+			return value;
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ScoreTrace[url=" + this.url + ", scores=" + this.size
+				+ ", segment=" + this.segment + ", iterations=" + this.iterations + "]";
+	}
+}
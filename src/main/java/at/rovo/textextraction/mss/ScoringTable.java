@@ -0,0 +1,860 @@
+package at.rovo.textextraction.mss;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import at.rovo.classifier.Classifier;
+
+/**
+ * <p>
+ * Immutable, read-optimized snapshot of the probabilities of a trained
+ * classifier to label a feature as <em>in</em>. The table is compiled once
+ * after training from the {@link FeatureVocabulary} recorded while training
+ * and maps every trained feature to the probability the classifier calculated
+ * for it with its configured probability calculation. Looking up a
+ * probability is therefore a probe into primitive arrays without any boxing,
+ * map lookup or recalculation.
+ * </p>
+ * <p>
+ * The key of a feature is a polynomial hash of its characters modulo the
+ * Mersenne prime 2<sup>61</sup>-1. As the hash of a concatenation can be
+ * derived from the hashes of its parts, the key of an n-gram can be calculated
+ * from the hashes of its tokens without building the n-gram string, see
+ * {@link #concat(long, long, long)}. The table contains the characters of
+ * every feature as well, which are compared with the looked up feature before
+ * a probability is returned. Features whose keys collide therefore occupy
+ * slots of their own and never get the probability of each other.
+ * </p>
+ * <p>
+ * Single features, like the n-grams of the {@link TrainFeatureStrategy#TRIGRAM}
+ * strategy or the plain token texts used to estimate the correctness of a
+ * prediction, which were not trained get the probability the classifier
+ * returns for unknown features. Combinations of independent features, like
+ * the ones of the {@link TrainFeatureStrategy#TRIPLE_UNIGRAM} strategy, which
+ * were not trained are combined from the probabilities of their features. As
+ * the classifier combines the probabilities on its own, the table determines
+ * while compiling which combination reproduces the probabilities the
+ * classifier returns for combinations: either the product of the
+ * probabilities of the features, or the product weighted with the prior
+ * probability of the categories, which is derived from the number of
+ * trainings of every category. If neither does, untrained combinations are
+ * only available from the classifier.
+ * </p>
+ * <p>
+ * A table can be persisted as versioned model file via {@link #save(File)}
+ * and opened again via {@link #open(File)}. The file consists of a fixed
+ * header followed by the keys, the probabilities and the characters of the
+ * features of the table in their lookup order, so opening the file only maps
+ * it into memory. The mapped model does not occupy the heap and the pages of
+ * the file are shared by every process on the host which opens the same file.
+ * </p>
+ * <p>
+ * A table may carry a fingerprint of the training data it was compiled from,
+ * which is persisted with the model. It allows to detect a model file which
+ * is outdated as the training data changed since it was written.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class ScoringTable
+{
+	/** The modulus of the polynomial hash **/
+	private static final long MODULUS = (1L << 61) - 1;
+	/** The base of the polynomial hash **/
+	static final long BASE = 0x5DEECE66DL;
+	/** The character separating the tokens of an n-gram **/
+	private static final char BLANK_CHAR = ' ';
+	/** The character separating combined features **/
+	private static final char SEPARATOR_CHAR = '\u0000';
+	/** The hash of the blank separating the tokens of an n-gram **/
+	static final long BLANK = BLANK_CHAR + 1;
+	/** The hash of the character separating combined features **/
+	static final long SEPARATOR = SEPARATOR_CHAR + 1;
+	/** The marker of an unused slot **/
+	private static final long NO_KEY = -1L;
+	/** Identifies a model file **/
+	private static final int MAGIC = 0x4D53534D;
+	/** The version of the model file format **/
+	private static final int VERSION = 3;
+	/** The number of bytes of the header of a model file **/
+	private static final int HEADER_SIZE = 96;
+	/** The maximum number of bytes of the strategy name in the header **/
+	private static final int MAX_NAME_LENGTH = 28;
+	/** Features which are never trained; they do not contain the separator
+	 * of combined features **/
+	private static final String[] UNSEEN = { "\u0001unseen\u0001", "\u0001unknown\u0001" };
+	/** The maximum difference of a combined probability to the one of the
+	 * classifier to be considered equal **/
+	private static final double TOLERANCE = 1e-9;
+	/** The maximum number of untrained combinations to compare with the
+	 * classifier while compiling **/
+	private static final int UNTRAINED_SAMPLES = 64;
+
+	/** Untrained combinations can not be combined without the classifier **/
+	private static final int NO_COMBINATION = 0;
+	/** Untrained combinations get the product of the probabilities of their
+	 * features normalized over both categories **/
+	private static final int PRODUCT = 1;
+	/** Untrained combinations get the product of the probabilities of their
+	 * features divided by the prior probabilities of the categories **/
+	private static final int PRIOR_PRODUCT = 2;
+
+	/** The strategy the features were trained with **/
+	private final TrainFeatureStrategy strategy;
+	/** The keys of the features **/
+	private final LongBuffer keys;
+	/** The probabilities of the features to be labeled as in **/
+	private final DoubleBuffer probabilities;
+	/** The position of the characters of the feature of every slot **/
+	private final IntBuffer offsets;
+	/** The length followed by the characters of every feature **/
+	private final CharBuffer chars;
+	/** The number of slots of the table **/
+	private final int capacity;
+	/** The number of features in the table **/
+	private final int size;
+	/** The probability of features which were not trained **/
+	private final double unseenProbability;
+	/** The fingerprint of the training data the table was compiled from **/
+	private final long source;
+	/** The number of trainings with in **/
+	private final long inTrainings;
+	/** The number of trainings with out **/
+	private final long outTrainings;
+	/** How untrained combinations of features are combined **/
+	private final int combination;
+
+	private ScoringTable(TrainFeatureStrategy strategy, int size, int capacity,
+			double unseenProbability, long source, long inTrainings,
+			long outTrainings, int combination, LongBuffer keys,
+			DoubleBuffer probabilities, IntBuffer offsets, CharBuffer chars)
+	{
+		this.strategy = strategy;
+		this.source = source;
+		this.size = size;
+		this.capacity = capacity;
+		this.unseenProbability = unseenProbability;
+		this.inTrainings = inTrainings;
+		this.outTrainings = outTrainings;
+		this.combination = combination;
+		this.keys = keys;
+		this.probabilities = probabilities;
+		this.offsets = offsets;
+		this.chars = chars;
+	}
+
+	/**
+	 * <p>
+	 * Compiles the probabilities of all features of the vocabulary into a new
+	 * table.
+	 * </p>
+	 * <p>
+	 * If the classifier does not return the same probability for two features
+	 * which were never trained, unknown single features are not covered by the
+	 * table and {@link #getProbability(long, String...)} returns
+	 * {@link Double#NaN} for them.
+	 * </p>
+	 *
+	 * @param classifier
+	 *            The trained classifier
+	 * @param vocabulary
+	 *            The features the classifier was trained with
+	 * @return The compiled table
+	 * @throws IllegalArgumentException
+	 *             If either the classifier or the vocabulary is missing
+	 */
+	public static ScoringTable compile(Classifier<String, String> classifier,
+			FeatureVocabulary vocabulary)
+	{
+		return compile(classifier, vocabulary, 0L);
+	}
+
+	/**
+	 * <p>
+	 * Compiles the probabilities of all features of the vocabulary into a new
+	 * table which is marked with the fingerprint of the training data the
+	 * classifier was trained with.
+	 * </p>
+	 *
+	 * @param classifier
+	 *            The trained classifier
+	 * @param vocabulary
+	 *            The features the classifier was trained with
+	 * @param source
+	 *            The fingerprint of the training data
+	 * @return The compiled table
+	 * @throws IllegalArgumentException
+	 *             If either the classifier or the vocabulary is missing
+	 * @see #compile(Classifier, FeatureVocabulary)
+	 */
+	public static ScoringTable compile(Classifier<String, String> classifier,
+			FeatureVocabulary vocabulary, long source)
+	{
+		if (classifier == null || vocabulary == null)
+			throw new IllegalArgumentException(
+					"A classifier and its vocabulary are required to compile a scoring table!");
+
+		double unseen = classifier.getProbability("in", UNSEEN[0]);
+		if (Double.compare(unseen, classifier.getProbability("in", UNSEEN[1])) != 0)
+			unseen = Double.NaN;
+
+		String[] features = vocabulary.getFeatures();
+		String[][] combinations = vocabulary.getCombinations();
+		int size = features.length + combinations.length;
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		long[] keys = new long[capacity];
+		Arrays.fill(keys, NO_KEY);
+		double[] probabilities = new double[capacity];
+		int[] offsets = new int[capacity];
+		Arrays.fill(offsets, -1);
+		StringBuilder chars = new StringBuilder();
+		for (String feature : features)
+			put(keys, probabilities, offsets, chars, hash(feature), feature,
+					classifier.getProbability("in", feature));
+		for (String[] combination : combinations)
+			put(keys, probabilities, offsets, chars, combinationKey(combination),
+					combinationString(combination), classifier.getProbability("in", combination));
+
+		char[] content = new char[chars.length()];
+		chars.getChars(0, content.length, content, 0);
+		long in = vocabulary.getTrainings("in");
+		long out = vocabulary.getTrainings("out");
+		ScoringTable table = null;
+		for (int combination : new int[] { PRODUCT, PRIOR_PRODUCT, NO_COMBINATION })
+		{
+			table = new ScoringTable(vocabulary.getStrategy(), size, capacity, unseen,
+					source, in, out, combination, LongBuffer.wrap(keys),
+					DoubleBuffer.wrap(probabilities), IntBuffer.wrap(offsets),
+					CharBuffer.wrap(content));
+			if (combinations.length > 0 && table.reproduces(classifier, combinations))
+				break;
+		}
+		return table;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the combination of this table reproduces the probability
+	 * the classifier returns for every trained combination as well as for
+	 * untrained combinations of trained and unknown features.
+	 * </p>
+	 */
+	private boolean reproduces(Classifier<String, String> classifier, String[][] combinations)
+	{
+		if (this.combination == NO_COMBINATION)
+			return false;
+		for (String[] combination : combinations)
+		{
+			double expected = this.getCombinationProbability(combinationKey(combination), combination);
+			if (!equal(expected, this.combine(combination, 0, combination.length)))
+				return false;
+		}
+		// rotated combinations and combinations with an unknown feature are
+		// most likely not trained
+		for (int i = 0; i < Math.min(combinations.length, UNTRAINED_SAMPLES); i++)
+		{
+			String[] rotated = new String[combinations[i].length];
+			for (int j = 0; j < rotated.length; j++)
+				rotated[j] = combinations[i][(j + 1) % rotated.length];
+			String[] unknown = combinations[i].clone();
+			unknown[unknown.length - 1] = UNSEEN[0];
+			for (String[] untrained : new String[][] { rotated, unknown })
+				if (!equal(classifier.getProbability("in", untrained),
+						this.getCombinationProbability(combinationKey(untrained), untrained)))
+					return false;
+		}
+		return true;
+	}
+
+	private static boolean equal(double expected, double actual)
+	{
+		return Math.abs(expected - actual) <= TOLERANCE
+				|| Double.isNaN(expected) && Double.isNaN(actual);
+	}
+
+	private static void put(long[] keys, double[] probabilities, int[] offsets,
+			StringBuilder chars, long key, String feature, double probability)
+	{
+		int mask = keys.length - 1;
+		int slot = spread(key) & mask;
+		// features whose keys collide are stored in slots of their own
+		while (keys[slot] != NO_KEY)
+			slot = (slot + 1) & mask;
+		keys[slot] = key;
+		probabilities[slot] = probability;
+		offsets[slot] = chars.length();
+		chars.append((char) (feature.length() >>> 16)).append((char) feature.length())
+				.append(feature);
+	}
+
+	/**
+	 * <p>
+	 * Returns the strategy the features of this table were trained with.
+	 * </p>
+	 *
+	 * @return The training strategy of the features
+	 */
+	public TrainFeatureStrategy getStrategy()
+	{
+		return this.strategy;
+	}
+
+	/**
+	 * <p>
+	 * Returns the fingerprint of the training data the table was compiled
+	 * from.
+	 * </p>
+	 *
+	 * @return The fingerprint of the training data or 0 if none was provided
+	 */
+	public long getSource()
+	{
+		return this.source;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of features and combinations of features contained
+	 * in the table.
+	 * </p>
+	 *
+	 * @return The number of entries of the table
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * <p>
+	 * Returns how often the classifier the table was compiled from was
+	 * trained with the provided category.
+	 * </p>
+	 *
+	 * @param category
+	 *            Either <em>in</em> or <em>out</em>
+	 * @return The number of trainings of the category; 0 for any other
+	 *         category or if the trainings were not counted
+	 */
+	public long getTrainings(String category)
+	{
+		if ("in".equals(category))
+			return this.inTrainings;
+		if ("out".equals(category))
+			return this.outTrainings;
+		return 0L;
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability the classifier returns for features which were
+	 * not trained.
+	 * </p>
+	 *
+	 * @return The probability of unknown features or {@link Double#NaN} if it
+	 *         depends on the feature
+	 */
+	public double getUnseenProbability()
+	{
+		return this.unseenProbability;
+	}
+
+	/**
+	 * <p>
+	 * Returns if the table provides the probability of every feature which
+	 * can be scored with its strategy. This is the case if the probability of
+	 * unknown features is constant and, for strategies which combine
+	 * independent features, untrained combinations can be combined from the
+	 * probabilities of their features. Otherwise the classifier the table was
+	 * compiled from is required.
+	 * </p>
+	 *
+	 * @return true if the classifier is not required to score features
+	 */
+	public boolean isSelfContained()
+	{
+		if (Double.isNaN(this.unseenProbability))
+			return false;
+		return this.combination != NO_COMBINATION
+				|| !TrainFeatureStrategy.DOUBLE_UNIGRAM.equals(this.strategy)
+				&& !TrainFeatureStrategy.TRIPLE_UNIGRAM.equals(this.strategy);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the n-gram of the provided tokens, or of the
+	 * single feature if only one token is provided, to be labeled as in.
+	 * </p>
+	 *
+	 * @param key
+	 *            The key of the n-gram, see {@link #key(String...)}
+	 * @param tokens
+	 *            The tokens of the n-gram
+	 * @return The probability of the n-gram or {@link Double#NaN} if the
+	 *         n-gram is unknown and the probability of unknown features is
+	 *         not constant
+	 */
+	public double getProbability(long key, String... tokens)
+	{
+		return this.getProbability(key, tokens, 0, tokens.length);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the n-gram of the tokens between
+	 * <em>from</em> (inclusive) and <em>to</em> (exclusive).
+	 * </p>
+	 */
+	double getProbability(long key, String[] tokens, int from, int to)
+	{
+		int slot = this.find(key, tokens, from, to, BLANK_CHAR);
+		return slot < 0 ? this.unseenProbability : this.probabilities.get(slot);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the combination of independent features to
+	 * be labeled as in. Untrained combinations are combined from the
+	 * probabilities of their features if the table knows how the classifier
+	 * combines them.
+	 * </p>
+	 *
+	 * @param key
+	 *            The key of the combination, see
+	 *            {@link #combinationKey(String[])}
+	 * @param features
+	 *            The combined features
+	 * @return The probability of the combination or {@link Double#NaN} if the
+	 *         combination was not trained and can not be combined without the
+	 *         classifier
+	 */
+	public double getCombinationProbability(long key, String[] features)
+	{
+		return this.getCombinationProbability(key, features, 0, features.length);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the combination of the features between
+	 * <em>from</em> (inclusive) and <em>to</em> (exclusive).
+	 * </p>
+	 */
+	double getCombinationProbability(long key, String[] features, int from, int to)
+	{
+		int slot = this.find(key, features, from, to, SEPARATOR_CHAR);
+		if (slot >= 0)
+			return this.probabilities.get(slot);
+		return this.combine(features, from, to);
+	}
+
+	/**
+	 * <p>
+	 * Combines the probabilities of independent features the way the
+	 * classifier does.
+	 * </p>
+	 */
+	private double combine(String[] features, int from, int to)
+	{
+		if (this.combination == NO_COMBINATION)
+			return Double.NaN;
+		double prior = Double.NaN;
+		if (this.combination == PRIOR_PRODUCT)
+		{
+			if (this.inTrainings <= 0 || this.outTrainings <= 0)
+				return Double.NaN;
+			prior = (double) this.inTrainings / (this.inTrainings + this.outTrainings);
+		}
+		double in = 1.;
+		double out = 1.;
+		for (int i = from; i < to; i++)
+		{
+			double q = this.getProbability(hash(features[i]), features, i, i + 1);
+			if (this.combination == PRIOR_PRODUCT)
+			{
+				in *= q / prior;
+				out *= (1 - q) / (1 - prior);
+			}
+			else
+			{
+				in *= q;
+				out *= 1 - q;
+			}
+		}
+		if (this.combination == PRIOR_PRODUCT)
+		{
+			in *= prior;
+			out *= 1 - prior;
+		}
+		return in / (in + out);
+	}
+
+	/**
+	 * <p>
+	 * Returns the slot of the feature consisting of the provided parts
+	 * separated by the separator or -1 if the feature is not contained.
+	 * </p>
+	 */
+	private int find(long key, String[] parts, int from, int to, char separator)
+	{
+		int mask = this.capacity - 1;
+		for (int slot = spread(key) & mask;; slot = (slot + 1) & mask)
+		{
+			long k = this.keys.get(slot);
+			if (k == NO_KEY)
+				return -1;
+			if (k == key && this.matches(slot, parts, from, to, separator))
+				return slot;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Compares the characters of the feature of a slot with the provided
+	 * parts separated by the separator without building the feature.
+	 * </p>
+	 */
+	private boolean matches(int slot, String[] parts, int from, int to, char separator)
+	{
+		int pos = this.offsets.get(slot);
+		int end = pos + 2 + ((this.chars.get(pos) << 16) | this.chars.get(pos + 1));
+		pos += 2;
+		for (int i = from; i < to; i++)
+		{
+			if (i > from && (pos == end || this.chars.get(pos++) != separator))
+				return false;
+			String part = parts[i] == null ? "null" : parts[i];
+			if (end - pos < part.length())
+				return false;
+			for (int c = 0; c < part.length(); c++)
+				if (this.chars.get(pos++) != part.charAt(c))
+					return false;
+		}
+		return pos == end;
+	}
+
+	/**
+	 * <p>
+	 * Persists the table as model file. The file starts with a header of 96
+	 * bytes containing a magic number, the version of the format, the number
+	 * of features, the number of slots, the probability of unknown features,
+	 * the fingerprint of the training data, the number of trainings with in
+	 * and with out, the way untrained combinations are combined, the number
+	 * of characters of the features and the name of the training strategy.
+	 * The header is followed by the key of every slot, the probability of
+	 * every slot, the position of the characters of the feature of every
+	 * slot and finally the characters of the features, every feature preceded
+	 * by its length as two characters. All values are stored in little-endian
+	 * byte order.
+	 * </p>
+	 *
+	 * @param file
+	 *            The file to write the model to
+	 * @throws IOException
+	 *             If the model could not be written
+	 */
+	public void save(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			byte[] name = this.strategy.name().getBytes(StandardCharsets.US_ASCII);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(this.size).putInt(this.capacity);
+			header.putDouble(this.unseenProbability).putLong(this.source);
+			header.putLong(this.inTrainings).putLong(this.outTrainings);
+			header.putInt(this.combination).putInt(this.chars.limit());
+			header.putInt(name.length).put(name);
+			header.clear();
+			writeFully(channel, header);
+
+			ByteBuffer buffer = ByteBuffer.allocate(8 * 8192).order(ByteOrder.LITTLE_ENDIAN);
+			for (int slot = 0; slot < this.capacity; slot++)
+			{
+				if (!buffer.hasRemaining())
+					writeFully(channel, (ByteBuffer) buffer.flip());
+				buffer.putLong(this.keys.get(slot));
+			}
+			for (int slot = 0; slot < this.capacity; slot++)
+			{
+				if (!buffer.hasRemaining())
+					writeFully(channel, (ByteBuffer) buffer.flip());
+				buffer.putDouble(this.probabilities.get(slot));
+			}
+			for (int slot = 0; slot < this.capacity; slot++)
+			{
+				if (buffer.remaining() < 4)
+					writeFully(channel, (ByteBuffer) buffer.flip());
+				buffer.putInt(this.offsets.get(slot));
+			}
+			for (int i = 0; i < this.chars.limit(); i++)
+			{
+				if (buffer.remaining() < 2)
+					writeFully(channel, (ByteBuffer) buffer.flip());
+				buffer.putChar(this.chars.get(i));
+			}
+			writeFully(channel, (ByteBuffer) buffer.flip());
+		}
+	}
+
+	/**
+	 * <p>
+	 * Opens a model file written via {@link #save(File)}. The keys,
+	 * probabilities and features are not read but mapped read-only into
+	 * memory, so opening a model takes constant time regardless of its size.
+	 * </p>
+	 *
+	 * @param file
+	 *            The model file to open
+	 * @return The table backed by the mapped file
+	 * @throws IOException
+	 *             If the file could not be mapped, is not a model file of a
+	 *             supported version or is truncated
+	 */
+	public static ScoringTable open(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(file + " is not a model file");
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC)
+				throw new IOException(file + " is not a model file");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported version " + version
+						+ " of model file " + file);
+			int size = header.getInt();
+			int capacity = header.getInt();
+			double unseenProbability = header.getDouble();
+			long source = header.getLong();
+			long inTrainings = header.getLong();
+			long outTrainings = header.getLong();
+			int combination = header.getInt();
+			int charCount = header.getInt();
+			int nameLength = header.getInt();
+			if (capacity <= 0 || Integer.bitCount(capacity) != 1 || size < 0
+					|| charCount < 0 || combination < NO_COMBINATION
+					|| combination > PRIOR_PRODUCT || nameLength < 0
+					|| nameLength > MAX_NAME_LENGTH)
+				throw new IOException("Corrupt header of model file " + file);
+			byte[] name = new byte[nameLength];
+			header.get(name);
+			TrainFeatureStrategy strategy;
+			try
+			{
+				strategy = TrainFeatureStrategy.valueOf(new String(name, StandardCharsets.US_ASCII));
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new IOException("Unknown training strategy in model file " + file, e);
+			}
+
+			// every section is mapped separately as a single mapping is
+			// limited to 2 GB
+			long length = 8L * capacity;
+			long charLength = 2L * charCount;
+			if (length > Integer.MAX_VALUE || charLength > Integer.MAX_VALUE)
+				throw new IOException("Model file " + file + " exceeds the supported size");
+			long position = HEADER_SIZE;
+			if (channel.size() < position + 2 * length + length / 2 + charLength)
+				throw new IOException("Model file " + file + " is truncated");
+			LongBuffer keys = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+					.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+			position += length;
+			DoubleBuffer probabilities = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, length).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			position += length;
+			IntBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					length / 2).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			position += length / 2;
+			CharBuffer chars = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					charLength).order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+			return new ScoringTable(strategy, size, capacity, unseenProbability, source,
+					inTrainings, outTrainings, combination, keys, probabilities, offsets,
+					chars);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException
+	{
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * <p>
+	 * Calculates the key of a single feature. A null feature is treated like
+	 * the string <code>null</code>.
+	 * </p>
+	 *
+	 * @param feature
+	 *            The feature to calculate the key for
+	 * @return The key of the feature
+	 */
+	public static long hash(CharSequence feature)
+	{
+		if (feature == null)
+			feature = "null";
+		long hash = 0;
+		for (int i = 0; i < feature.length(); i++)
+			hash = add(multiply(hash, BASE), feature.charAt(i) + 1);
+		return hash;
+	}
+
+	/**
+	 * <p>
+	 * Calculates the key of the n-gram consisting of the provided tokens
+	 * separated by a blank, which is the same as the key of the n-gram
+	 * string.
+	 * </p>
+	 *
+	 * @param tokens
+	 *            The tokens of the n-gram
+	 * @return The key of the n-gram
+	 */
+	public static long key(String... tokens)
+	{
+		return join(tokens, BLANK);
+	}
+
+	/**
+	 * <p>
+	 * Calculates the key of a combination of independent features.
+	 * </p>
+	 *
+	 * @param features
+	 *            The combined features
+	 * @return The key of the combination
+	 */
+	public static long combinationKey(String[] features)
+	{
+		return join(features, SEPARATOR);
+	}
+
+	/**
+	 * <p>
+	 * Returns the string the key of a combination of independent features is
+	 * calculated from, which is the features separated by a null character.
+	 * Two combinations are equal if their strings are equal.
+	 * </p>
+	 *
+	 * @param features
+	 *            The combined features
+	 * @return The string of the combination
+	 */
+	public static String combinationString(String[] features)
+	{
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < features.length; i++)
+		{
+			if (i > 0)
+				builder.append(SEPARATOR_CHAR);
+			builder.append(features[i] == null ? "null" : features[i]);
+		}
+		return builder.toString();
+	}
+
+	private static long join(String[] parts, long separator)
+	{
+		long hash = 0;
+		for (int i = 0; i < parts.length; i++)
+		{
+			if (i > 0)
+				hash = concat(hash, separator, BASE);
+			String part = parts[i] == null ? "null" : parts[i];
+			hash = concat(hash, hash(part), power(part.length()));
+		}
+		return hash;
+	}
+
+	/**
+	 * <p>
+	 * Calculates the hash of the concatenation of two character sequences out
+	 * of their hashes.
+	 * </p>
+	 *
+	 * @param first
+	 *            The hash of the first sequence
+	 * @param second
+	 *            The hash of the second sequence
+	 * @param power
+	 *            {@link #BASE} to the power of the length of the second
+	 *            sequence, see {@link #power(int)}
+	 * @return The hash of the concatenation
+	 */
+	static long concat(long first, long second, long power)
+	{
+		return add(multiply(first, power), second);
+	}
+
+	/**
+	 * <p>
+	 * Calculates {@link #BASE} to the power of the provided length.
+	 * </p>
+	 */
+	static long power(int length)
+	{
+		long result = 1;
+		long base = BASE;
+		for (int e = length; e > 0; e >>>= 1)
+		{
+			if ((e & 1) != 0)
+				result = multiply(result, base);
+			base = multiply(base, base);
+		}
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Multiplies two values in [0, 2<sup>61</sup>-1) modulo
+	 * 2<sup>61</sup>-1 by splitting them into 31 and 30 bit halves.
+	 * </p>
+	 */
+	static long multiply(long a, long b)
+	{
+		long aHigh = a >>> 31;
+		long aLow = a & 0x7FFFFFFFL;
+		long bHigh = b >>> 31;
+		long bLow = b & 0x7FFFFFFFL;
+		long middle = aLow * bHigh + aHigh * bLow;
+		long result = ((aHigh * bHigh) << 1) + (middle >>> 30)
+				+ ((middle & 0x3FFFFFFFL) << 31) + aLow * bLow;
+		return reduce(result);
+	}
+
+	private static long add(long a, long b)
+	{
+		return reduce(a + b);
+	}
+
+	private static long reduce(long value)
+	{
+		long result = (value & MODULUS) + (value >>> 61);
+		return result >= MODULUS ? result - MODULUS : result;
+	}
+
+	/**
+	 * <p>
+	 * Spreads the bits of a key over the lower bits of a slot index.
+	 * </p>
+	 */
+	private static int spread(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
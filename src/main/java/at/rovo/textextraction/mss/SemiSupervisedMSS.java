@@ -2,20 +2,28 @@ package at.rovo.textextraction.mss;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import at.rovo.common.UrlReader;
 import at.rovo.classifier.Classifier;
 import at.rovo.classifier.naiveBayes.NaiveBayes;
 import at.rovo.parser.ParseResult;
 import at.rovo.parser.Parser;
 import at.rovo.parser.Token;
 import at.rovo.textextraction.ExtractionException;
+import at.rovo.textextraction.Prediction;
 import at.rovo.textextraction.TrainData;
 
 /**
@@ -68,6 +76,13 @@ import at.rovo.textextraction.TrainData;
  * content which is further cleaned from unneeded HTML-tokens and formated to be
  * read more user friendly.
  * </p>
+ * <p>
+ * The tags found while training the local classifiers of a prediction are
+ * collected in a copy of the common tags of the trained classifier, which is
+ * only used to clean the text of that prediction. Predictions therefore never
+ * modify the common tags and do not depend on other predictions running at
+ * the same time.
+ * </p>
  * 
  * @author Roman Vottner
  */
@@ -77,7 +92,9 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	/** The logger of this instance **/
 	private static Logger LOG = LogManager.getLogger(SemiSupervisedMSS.class);
 	/** The maximum number of semi supervised training and prediction iterations **/
-	private static int MAX_ITERATIONS = 10;
+	private static final int MAX_ITERATIONS = 10;
+	/** The maximum number of pages whose local training is recorded at once **/
+	private static final int TRAINING_BLOCK = 64;
 	/**
 	 * The window radius will boost the likelihood of tokens close to the
 	 * boundary of the article text while it will decrease th probability of
@@ -89,8 +106,33 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	private double d = 64.;
 	/** multiplier for the importance weighting **/
 	private double c = 24.;
-	/** The parser used to download the content from pages on the Internet **/
-	private Parser parser = null;
+	/** The number of tokens the start and the length of a predicted segment
+	 * may move between two iterations to still be considered unchanged **/
+	private int convergenceTolerance = 0;
+	/** The number of consecutive iterations without a changed segment after
+	 * which the iterations stop **/
+	private int convergenceRounds = 1;
+	/** Specifies if the local classifier of a batch prediction is only
+	 * updated with the pages whose prediction changed **/
+	private boolean incrementalLocalTraining = false;
+	/** The pool processing the pages of a batch prediction in parallel; null
+	 * to process them one after another **/
+	private volatile ForkJoinPool batchPool = null;
+	/** The parser of every thread used to tokenize the content of pages **/
+	private final ThreadLocal<Parser> parser = new ThreadLocal<Parser>()
+	{
+		@Override
+		protected Parser initialValue()
+		{
+			Parser parser = new Parser();
+			parser.cleanAnchors();
+			return parser;
+		}
+	};
+	/** The default maximum number of cached probabilities **/
+	private static final int DEFAULT_CACHE_SIZE = 1 << 16;
+	/** Caches the probabilities of the trained classifier **/
+	private final ProbabilityCache probabilityCache = new ProbabilityCache(DEFAULT_CACHE_SIZE);
 
 	/**
 	 * <p>
@@ -106,9 +148,6 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	public SemiSupervisedMSS(TrainData trainForm)
 	{
 		super(trainForm);
-
-		this.parser = new Parser();
-		this.parser.cleanAnchors();
 	}
 
 	/**
@@ -199,7 +238,207 @@ public class SemiSupervisedMSS extends SupervisedMSS
 
 	/**
 	 * <p>
-	 * Predicts article text based on local classifiers.
+	 * Sets the work-stealing pool {@link #predictText(List)} processes the
+	 * steps which are independent for every page on. These are reading and
+	 * initially predicting the pages, estimating the correctness of their
+	 * predictions, recording the local training of the selected pages and
+	 * predicting the pages with the local classifier. The recorded trainings
+	 * are applied to the local classifier in the order of the pages, so the
+	 * predicted texts are the same as if the pages were processed one after
+	 * another.
+	 * </p>
+	 * <p>
+	 * By default no pool is used and the pages are processed one after
+	 * another. As reading a page blocks while downloading it, the pool is
+	 * informed via {@link ForkJoinPool.ManagedBlocker} and may start
+	 * additional workers meanwhile. A dedicated pool is still preferable to
+	 * the common one, which is shared with every other parallel task of the
+	 * JVM.
+	 * </p>
+	 * 
+	 * @param pool
+	 *            The pool to process the pages on, or null to process them one
+	 *            after another
+	 */
+	public void setBatchPool(ForkJoinPool pool)
+	{
+		this.batchPool = pool;
+	}
+
+	/**
+	 * <p>
+	 * Returns the pool the pages of a batch prediction are processed on.
+	 * </p>
+	 * 
+	 * @return The pool to process the pages on, or null if they are processed
+	 *         one after another
+	 */
+	public ForkJoinPool getBatchPool()
+	{
+		return this.batchPool;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the local classifier of {@link #predictText(List)} is kept
+	 * across the iterations and only updated with the pages whose selection
+	 * or predicted segment changed, instead of training a new classifier over
+	 * all selected pages in every iteration. Only the trainings of the
+	 * changed pages are then recorded again, which requires to walk their
+	 * tags and build their n-grams, while the recorded trainings of the other
+	 * pages are reused.
+	 * </p>
+	 * <p>
+	 * The recorded trainings are kept by an {@link IncrementalNaiveBayes}
+	 * instance. Whenever a page changed, a classifier with the configured
+	 * probability calculation and training data storage method is trained
+	 * again with the kept trainings of all pages, so its predictions are the
+	 * same as the ones of a newly trained classifier. Only recording the
+	 * trainings is saved, training the classifier itself still takes time
+	 * proportional to the trainings of all selected pages.
+	 * </p>
+	 * 
+	 * @param incremental
+	 *            true if the local classifier should only be updated with the
+	 *            changed pages, false to train a new one in every iteration
+	 */
+	public void setIncrementalLocalTraining(boolean incremental)
+	{
+		this.incrementalLocalTraining = incremental;
+	}
+
+	/**
+	 * <p>
+	 * Returns if the local classifier of a batch prediction is only updated
+	 * with the pages whose prediction changed.
+	 * </p>
+	 * 
+	 * @return true if the local classifier is updated incrementally, false
+	 *         otherwise
+	 */
+	public boolean isIncrementalLocalTraining()
+	{
+		return this.incrementalLocalTraining;
+	}
+
+	/**
+	 * <p>
+	 * Specifies how many tokens the start and the length of the predicted
+	 * segment of a page may move between two iterations to still be
+	 * considered unchanged. By default the segment has to remain exactly the
+	 * same.
+	 * </p>
+	 * 
+	 * @param tolerance
+	 *            The tolerated movement in tokens
+	 * @throws IllegalArgumentException
+	 *             If the tolerance is negative
+	 */
+	public void setConvergenceTolerance(int tolerance)
+	{
+		if (tolerance < 0)
+			throw new IllegalArgumentException("The convergence tolerance must not be negative!");
+		this.convergenceTolerance = tolerance;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of tokens the predicted segment may move between two
+	 * iterations to still be considered unchanged.
+	 * </p>
+	 * 
+	 * @return The tolerated movement in tokens
+	 */
+	public int getConvergenceTolerance()
+	{
+		return this.convergenceTolerance;
+	}
+
+	/**
+	 * <p>
+	 * Specifies after how many consecutive iterations without a changed
+	 * segment the iterations stop before the maximum number of iterations is
+	 * reached. By default the iterations stop as soon as the segment of every
+	 * page remained unchanged once. As the training of an iteration only
+	 * depends on the predicted segments, further iterations would then
+	 * predict the same segments again.
+	 * </p>
+	 * <p>
+	 * The training of a batch prediction also depends on the pages chosen for
+	 * it. As the first iteration trains with every page and later iterations
+	 * only with the pages whose prediction seems correct, an iteration of a
+	 * batch only counts as unchanged if the same pages were chosen as in the
+	 * previous iteration.
+	 * </p>
+	 * 
+	 * @param rounds
+	 *            The number of consecutive iterations without a changed
+	 *            segment
+	 * @throws IllegalArgumentException
+	 *             If the number of rounds is not positive
+	 */
+	public void setConvergenceRounds(int rounds)
+	{
+		if (rounds < 1)
+			throw new IllegalArgumentException("The number of convergence rounds has to be positive!");
+		this.convergenceRounds = rounds;
+	}
+
+	/**
+	 * <p>
+	 * Returns after how many consecutive iterations without a changed segment
+	 * the iterations stop.
+	 * </p>
+	 * 
+	 * @return The number of consecutive iterations without a changed segment
+	 */
+	public int getConvergenceRounds()
+	{
+		return this.convergenceRounds;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the predicted segment moved less than the convergence
+	 * tolerance between two iterations.
+	 * </p>
+	 * 
+	 * @param previous
+	 *            The segment of the previous iteration
+	 * @param current
+	 *            The segment of the current iteration
+	 * @return true if the segment is considered unchanged, false otherwise
+	 */
+	protected boolean isUnchanged(Subsequence previous, Subsequence current)
+	{
+		return Math.abs(current.getStart() - previous.getStart()) <= this.convergenceTolerance
+				&& Math.abs(current.getLength() - previous.getLength()) <= this.convergenceTolerance;
+	}
+
+	/**
+	 * <p>
+	 * Returns the cache of the probabilities the trained classifier returned
+	 * while predicting content. The cache has to be cleared if the trained
+	 * classifier is trained further.
+	 * </p>
+	 * <p>
+	 * The local classifiers only live for a single iteration and are
+	 * therefore not cached here, as every one of them would stay referenced
+	 * by the cache and evict the probabilities of the trained classifier. The
+	 * local classifier of a batch prediction gets a cache of its own which is
+	 * dropped after the iteration.
+	 * </p>
+	 * 
+	 * @return The cache of the probabilities of the trained classifier
+	 */
+	public ProbabilityCache getProbabilityCache()
+	{
+		return this.probabilityCache;
+	}
+
+	/**
+	 * <p>
+	 * Predicts the tokens of the article text based on local classifiers.
 	 * </p>
 	 * <p>
 	 * It therefore tries every classifier, out of which it is calculating a
@@ -210,23 +449,71 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	 * The score-list which produces the highest value is taken as predictor for
 	 * the article text.
 	 * </p>
+	 * <p>
+	 * If the page is traced, the trace contains the scores of the last
+	 * iteration and the segment predicted by the trained classifier followed
+	 * by the segment of every iteration.
+	 * </p>
 	 * 
-	 * @return The predicted main content of a news article
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @return The cleaned tokens of the predicted main content of a news
+	 *         article
 	 * @throws ExtractionException
-	 *         if the URL to predict content from is either null or empty
+	 *         if the page to predict content from is either null or empty
 	 * @throws NotTrainedException
 	 *         if the instance was not yet trained
 	 * @throws NoSubsequenceFoundException
 	 *         if no subsequence could be found
 	 */
 	@Override
-	public String predictText(final String url) throws ExtractionException
+	protected List<Token> predictContent(final CharSequence html,
+			final String url) throws ExtractionException
+	{
+		return this.predictPage(html, url).content;
+	}
+
+	/**
+	 * <p>
+	 * Predicts the text of a single page of a concurrent batch and returns
+	 * how the iterations of the page terminated together with the text.
+	 * </p>
+	 * 
+	 * @param url
+	 *            The URL of the page whose text should be predicted
+	 * @return The prediction of the page
+	 */
+	@Override
+	protected Prediction predict(String url)
+	{
+		try
+		{
+			PagePrediction prediction = this.predictPage(this.readPage(url), url);
+			return Prediction.success(url, this.formatText(prediction.content),
+					prediction.convergence);
+		}
+		catch (ExtractionException | RuntimeException e)
+		{
+			LOG.warn("Could not predict the text of {}: {}", url, e.getMessage());
+			return Prediction.failure(url, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Predicts the cleaned tokens of the content of a single page like
+	 * {@link #predictContent(CharSequence, String)} and records how the
+	 * iterations of the page terminated.
+	 * </p>
+	 */
+	private PagePrediction predictPage(final CharSequence html,
+			final String url) throws ExtractionException
 	{
-		UrlReader reader = new UrlReader();
-		String html = reader.readPage(url);
-		if (html == null || html.equals(""))
+		if (html == null || html.length() == 0)
 		{
-			LOG.error("No html content available!");
+			LOG.error("No html content available for {}!", url);
 			throw new ExtractionException(
 					"Page to predict content from is either null or empty");
 		}
@@ -241,21 +528,37 @@ public class SemiSupervisedMSS extends SupervisedMSS
 		// supervised approach
 		// is already done by the parent class
 		// 2. Predict extractions for the unlabeled documents U
-		ParseResult parse = this.parser.tokenize(html, false);
+		ParseResult parse = this.parser.get().tokenize(html.toString(), false);
 		List<Token> htmlToken = parse.getParsedTokens();
-		List<Double> score = this.buildScoreList(htmlToken, this.classifier);
-		List<Double> maxSS = new ArrayList<>();
-		int start = this.topMaximumSubsequence(score, maxSS);
+		double[] score = this.buildScores(htmlToken, this.classifier);
+		Subsequence maxSS = this.topMaximumSubsequence(score);
+		ScoreTrace trace = this.startTrace(url);
+		if (trace != null)
+			trace.addIteration(maxSS);
 		List<Token> L = htmlToken;
-		List<Token> predictedText = this.getPredictedContent(htmlToken, maxSS, start);
-		LOG.trace("Predicting content of {}", url);
-		LOG.trace("predicted Text: \n{}", this.formatText(predictedText));
-		// 3. Iterate:
+		List<Token> predictedText = this.getPredictedContent(htmlToken, maxSS);
+		if (LOG.isTraceEnabled())
+		{
+			LOG.trace("Predicting content of {}", url);
+			LOG.trace("predicted Text: \n{}", this.formatText(predictedText));
+		}
+		// the probabilities of the trained classifier do not change between
+		// the iterations
+		TokenProbabilities probabilities = this.buildProbabilities(htmlToken);
+		// the tags found while training the local classifiers are only
+		// visible to this prediction
+		Dictionary<String, List<String>> commonTags = this.copyCommonTags();
+		// 3. Iterate until the prediction settles:
+		int iterations = 0;
+		int settledIteration = 0;
+		int unchangedRounds = 0;
+		Convergence.Reason reason = Convergence.Reason.MAX_ITERATIONS;
 		for (int i = 0; i < MAX_ITERATIONS; i++)
 		{
 			// a. Choose a portion of the documents in U with the seemingly most
 			//    likely correct predicted extractions, and call these L.
-			double v = this.estimatePredictionCorrectness(htmlToken, start, start + maxSS.size());
+			double v = this.estimatePredictionCorrectness(probabilities, maxSS.getStart(),
+					maxSS.getStart() + maxSS.getLength());
 			if (v > 0.95)
 				L = htmlToken;
 
@@ -267,156 +570,343 @@ public class SemiSupervisedMSS extends SupervisedMSS
 			//    L with trigram features.
 			NaiveBayes<String, String> localClassifier = NaiveBayes.create(
 					this.probCalc,	this.storageMethod);
-			this.train(L, predictedText, url, localClassifier);
+			this.train(L, predictedText, url, localClassifier, commonTags);
 
 			// d. Predict new extractions for the documents in U.
-			score = this.buildScoreList(L, localClassifier);
-			start = this.topMaximumSubsequence(score, maxSS);
-			predictedText = this.getPredictedContent(L, maxSS, start);
+			score = this.buildScores(L, localClassifier);
+			Subsequence previous = maxSS;
+			maxSS = this.topMaximumSubsequence(score);
+			iterations++;
+			if (trace != null)
+				trace.addIteration(maxSS);
+			predictedText = this.getPredictedContent(L, maxSS);
 			LOG.debug("predicted Text: \n{}",predictedText);
 //			LOG.debug("predicted Text: \n{}",this.formatText(predictedText));
+
+			// e. Stop once the predicted segment settled
+			if (this.isUnchanged(previous, maxSS))
+				unchangedRounds++;
+			else
+			{
+				unchangedRounds = 0;
+				settledIteration = iterations;
+			}
+			if (unchangedRounds >= this.convergenceRounds)
+			{
+				reason = Convergence.Reason.CONVERGED;
+				break;
+			}
+		}
+		LOG.debug("Iterations of {} stopped after {} rounds: {}", url, iterations, reason);
+		if (trace != null)
+		{
+			trace.setScores(score, 0, score.length, this.getScoreOffset());
+			trace.setSegment(maxSS);
+			this.finishTrace(trace);
 		}
-		return this.formatText(this.cleanText(predictedText));
+		return new PagePrediction(this.cleanText(predictedText, commonTags),
+				new Convergence(url, iterations, settledIteration, reason));
 	}
 
 	@Override
 	public List<String> predictText(final List<String> urls)
 			throws ExtractionException
+	{
+		List<String> contentOfPages = new ArrayList<>(urls.size());
+		for (Prediction prediction : this.predictBatch(urls))
+			if (prediction.isSuccessful())
+				contentOfPages.add(prediction.getText());
+		return contentOfPages;
+	}
+
+	/**
+	 * <p>
+	 * Predicts the texts of the provided pages together like
+	 * {@link #predictText(List)}, but returns the prediction of every page in
+	 * the order of the provided URLs. The prediction of a page contains how
+	 * its iterations terminated, including the iteration its predicted
+	 * segment settled in. The prediction of a page whose content could not be
+	 * read contains the error instead.
+	 * </p>
+	 * 
+	 * @param urls
+	 *            The pages whose content should be predicted
+	 * @return The prediction of every page in the order of <em>urls</em>
+	 * @throws ExtractionException
+	 *             If the texts of the pages could not be predicted
+	 * @throws NotTrainedException
+	 *             if the instance was not yet trained
+	 */
+	public List<Prediction> predictBatch(final List<String> urls)
+			throws ExtractionException
 	{
 		if (!this.isTrained)
 			throw new NotTrainedException("The instance has not yet trained. "
 					+ "Please make sure to invoke initTrainingData() beforehand!");
 
-		List<List<Token>> htmlTokens = new ArrayList<>();
-		List<Integer> startPos = new ArrayList<>();
-		List<List<Double>> maxSSs = new ArrayList<>();
-		List<List<Token>> predictedTexts = new ArrayList<>();
+		final List<List<Token>> htmlTokens = new ArrayList<>();
+		final List<String> pageUrls = new ArrayList<>();
+		// the occurrences of the tokens of every page only depend on the page
+		final List<TokenPositionIndex> indices = new ArrayList<>();
+		// the probabilities of the trained classifier for the tokens of every
+		// page do not change between the iterations either
+		final List<TokenProbabilities> probabilities = new ArrayList<>();
+		final List<Subsequence> maxSSs = new ArrayList<>();
+		final List<List<Token>> predictedTexts = new ArrayList<>();
 		List<Double> vs = new ArrayList<>();
 
-		List<Double> score;
-		List<Double> maxSS = null;
-		List<Token> predictedText;
-
-		for (String url : urls)
+		// the pages are read and predicted independently of each other
+		final List<List<Token>> parsedTokens = nullList(urls.size());
+		final List<TokenPositionIndex> parsedIndices = nullList(urls.size());
+		final List<TokenProbabilities> parsedProbabilities = nullList(urls.size());
+		final List<Subsequence> parsedSSs = nullList(urls.size());
+		final List<List<Token>> parsedTexts = nullList(urls.size());
+		this.forEachPage(0, urls.size(), new PageTask()
 		{
-			UrlReader reader = new UrlReader();
-			String html = reader.readPage(url);
-			if (html == null || html.equals(""))
+			@Override
+			public void process(int page)
 			{
-				LOG.error("No html content available for {}!", url);
-				continue;
-			}
-
-			// 1. Training of the Naive Bayes classifier is already done by the
-			// parent class
-			// 2. Predict extractions for the unlabeled documents U
-			ParseResult parse = this.parser.tokenize(html, false);
-			List<Token> htmlToken = parse.getParsedTokens();
-			htmlTokens.add(htmlToken);
-			score = this.buildScoreList(htmlToken, this.classifier);
-			maxSS = new ArrayList<>();
+				String url = urls.get(page);
+				String html = readPageBlocking(url);
+				if (html == null || html.equals(""))
+				{
+					LOG.error("No html content available for {}!", url);
+					return;
+				}
 
-			int start = this.topMaximumSubsequence(score, maxSS);
-			maxSSs.add(maxSS);
-			startPos.add(start);
+				// 1. Training of the Naive Bayes classifier is already done by
+				// the parent class
+				// 2. Predict extractions for the unlabeled documents U
+				ParseResult parse = parser.get().tokenize(html, false);
+				List<Token> htmlToken = parse.getParsedTokens();
+				double[] score = buildScores(htmlToken, classifier);
+				Subsequence maxSS = topMaximumSubsequence(score);
 
-			LOG.trace("Predicting content of {}", url);
-			predictedText = this.getPredictedContent(htmlToken, maxSS, start);
-			predictedTexts.add(predictedText);
+				LOG.trace("Predicting content of {}", url);
+				List<Token> predictedText = getPredictedContent(htmlToken, maxSS);
+				LOG.debug("predicted Text: \n{}", predictedText);
+//				LOG.debug("predicted Text: \n{}", this.formatText(this.cleanText(predictedText)));
 
-			LOG.debug("predicted Text: \n{}", predictedText);
-//			LOG.debug("predicted Text: \n{}", this.formatText(this.cleanText(predictedText)));
+				parsedTokens.set(page, htmlToken);
+				parsedIndices.set(page, new TokenPositionIndex(htmlToken, 2));
+				parsedProbabilities.set(page, buildProbabilities(htmlToken));
+				parsedSSs.set(page, maxSS);
+				parsedTexts.set(page, predictedText);
+			}
+		});
+		for (int page = 0; page < urls.size(); page++)
+		{
+			if (parsedTokens.get(page) != null)
+			{
+				htmlTokens.add(parsedTokens.get(page));
+				pageUrls.add(urls.get(page));
+				indices.add(parsedIndices.get(page));
+				probabilities.add(parsedProbabilities.get(page));
+				maxSSs.add(parsedSSs.get(page));
+				predictedTexts.add(parsedTexts.get(page));
+			}
 		}
 
 		// Classifier<String, String> localClassifier = NaiveBayes.create(
 		// this.probCalc, this.storageMethod);
-		// 3. Iterate
+		// the local classifier which is kept across the iterations together
+		// with the training of every page and the segment it was trained with
+		final IncrementalNaiveBayes incrementalClassifier = this.incrementalLocalTraining
+				? new IncrementalNaiveBayes(this.probCalc, this.storageMethod) : null;
+		List<IncrementalNaiveBayes.Contribution> contributions = nullList(htmlTokens.size());
+		// the tags found while training the local classifiers are only
+		// visible to this batch
+		final Dictionary<String, List<String>> commonTags = this.copyCommonTags();
+		List<Subsequence> trainedSSs = nullList(htmlTokens.size());
+		// the iteration in which the segment of every page moved the last time
+		int[] settledIterations = new int[htmlTokens.size()];
+		// 3. Iterate until the predictions of all pages settle
+		int iterations = 0;
+		int unchangedRounds = 0;
+		// the pages chosen for the training of the previous iteration
+		Set<Integer> previousSelection = null;
+		Convergence.Reason reason = Convergence.Reason.MAX_ITERATIONS;
 		for (int i = 0; i < MAX_ITERATIONS; i++)
 		{
 
 			// a. Choose a portion of the documents in U with the seemingly most
 			//    likely correct predicted extractions, and call these L.
-			Map<Integer, List<Token>> L = new HashMap<>();
-			for (int j = 0; j < htmlTokens.size(); j++)
+			final double[] correctness = new double[htmlTokens.size()];
+			final boolean[] failed = new boolean[htmlTokens.size()];
+			this.forEachPage(0, htmlTokens.size(), new PageTask()
 			{
-				try
+				@Override
+				public void process(int j)
 				{
-					double v = this.estimatePredictionCorrectness(
-							htmlTokens.get(j), startPos.get(j), startPos.get(j)
-									+ maxSSs.get(j).size());
-					LOG.debug("start: {}; length: {}; end: {}; v: {}",
-							startPos.get(j), maxSSs.get(j).size(),
-							(startPos.get(j) + maxSSs.get(j).size()), v);
-
-					if (vs.size() < htmlTokens.size())
+					try
 					{
-						L.put(j, htmlTokens.get(j));
-						vs.add(v);
-						// localClassifier = NaiveBayes.create(this.probCalc,
-						//		this.storageMethod);
+						Subsequence prediction = maxSSs.get(j);
+						double v = estimatePredictionCorrectness(
+								probabilities.get(j), prediction.getStart(),
+								prediction.getStart() + prediction.getLength());
+						LOG.debug("start: {}; length: {}; end: {}; v: {}",
+								prediction.getStart(), prediction.getLength(),
+								(prediction.getStart() + prediction.getLength()), v);
+						correctness[j] = v;
 					}
-					else if (v > 0.95)// vs.get(j))
+					catch (Exception e)
 					{
-						L.put(j, htmlTokens.get(j));
-						vs.set(j, v);
-						// localClassifier = NaiveBayes.create(this.probCalc,
-						//		this.storageMethod);
+						LOG.error("Could not calculate prediction correctness", e);
+						failed[j] = true;
 					}
-					else
-						L.put(j, null);
 				}
-				catch (Exception e)
-				{
-					LOG.error("Could not calculate prediction correctness", e);
+			});
+			final Map<Integer, List<Token>> L = new HashMap<>();
+			for (int j = 0; j < htmlTokens.size(); j++)
+			{
+				double v = correctness[j];
+				if (failed[j])
 					L.put(j, null);
+				else if (vs.size() < htmlTokens.size())
+				{
+					L.put(j, htmlTokens.get(j));
+					vs.add(v);
+					// localClassifier = NaiveBayes.create(this.probCalc,
+					//		this.storageMethod);
 				}
+				else if (v > 0.95)// vs.get(j))
+				{
+					L.put(j, htmlTokens.get(j));
+					vs.set(j, v);
+					// localClassifier = NaiveBayes.create(this.probCalc,
+					//		this.storageMethod);
+				}
+				else
+					L.put(j, null);
 			}
+			Set<Integer> selection = new HashSet<>();
+			for (Map.Entry<Integer, List<Token>> entry : L.entrySet())
+				if (entry.getValue() != null)
+					selection.add(entry.getKey());
 			// b. Find "importance weights" for the trigrams of the documents in
 			//    L.
 			// are incorporated in the scoring function
 
 			// c. Train a new Naive Bayes local classifier over the documents in
 			//    L with trigram features.
-			NaiveBayes<String, String> localClassifier = NaiveBayes.create(
-					this.probCalc, this.storageMethod);
-			for (int j = 0; j < L.size(); j++)
+			final NaiveBayes<String, String> localClassifier;
+			// the local classifier only lives for this iteration, hence its
+			// probabilities are cached only for this iteration as well
+			final ProbabilityCache localCache = new ProbabilityCache(DEFAULT_CACHE_SIZE);
+			if (incrementalClassifier != null)
 			{
-				if (L.get(j) != null)
-					this.train(L.get(j), predictedTexts.get(j), urls.get(j),
-							localClassifier);
+				this.updateLocalClassifier(incrementalClassifier, L, predictedTexts,
+						pageUrls, maxSSs, contributions, trainedSSs, commonTags);
+				localClassifier = incrementalClassifier.getClassifier();
+			}
+			else
+			{
+				localClassifier = NaiveBayes.create(this.probCalc, this.storageMethod);
+				this.trainLocalClassifier(localClassifier, L, predictedTexts, pageUrls,
+						commonTags);
 			}
 
 			// d. Predict new extractions for the documents in U
-			for (int j = 0; j < L.size(); j++)
+			final boolean[] changed = new boolean[L.size()];
+			this.forEachPage(0, L.size(), new PageTask()
 			{
-				if (L.get(j) != null)
+				@Override
+				public void process(int j)
 				{
-					score = this.buildScoreList(L.get(j), localClassifier,
-							startPos.get(j), startPos.get(j)
-									+ maxSSs.get(j).size() - 1);
+					List<Token> page = L.get(j);
+					if (page == null)
+						return;
+
+					double[] score = buildScores(page, localClassifier,
+							maxSSs.get(j).getStart(), maxSSs.get(j).getEnd(),
+							indices.get(j), localCache);
 
 					if (LOG.isTraceEnabled())
 					{
-						LOG.trace("Predicting content of {}", urls.get(j));
-						LOG.trace("predicted score: {}", score);
+						LOG.trace("Predicting content of {}", pageUrls.get(j));
+						LOG.trace("predicted score: {}", Arrays.toString(score));
 					}
-					
-					int start = this.topMaximumSubsequence(score, maxSS);
-					startPos.set(j, start);
+
+					Subsequence maxSS = topMaximumSubsequence(score);
+					changed[j] = !isUnchanged(maxSSs.get(j), maxSS);
 					maxSSs.set(j, maxSS);
-					predictedText = this.getPredictedContent(L.get(j), maxSS,
-							start);
-					predictedTexts.set(j, predictedText);
+					predictedTexts.set(j, getPredictedContent(page, maxSS));
 
 					//LOG.debug("predicted Text: \n{}", predictedText);
 //					logger.debug("predicted Text: \n{}", this.formatText(this.cleanText(predictedText)));
 				}
+			});
+			iterations++;
+
+			// e. Stop once the predicted segments of all pages and the pages
+			//    chosen for the training settled
+			boolean unchanged = selection.equals(previousSelection);
+			for (int j = 0; j < changed.length; j++)
+			{
+				if (changed[j])
+				{
+					unchanged = false;
+					settledIterations[j] = iterations;
+				}
+			}
+			previousSelection = selection;
+			unchangedRounds = unchanged ? unchangedRounds + 1 : 0;
+			if (unchangedRounds >= this.convergenceRounds)
+			{
+				reason = Convergence.Reason.CONVERGED;
+				break;
 			}
 		}
-		List<String> contentOfPages = new ArrayList<>();
-		for (List<Token> tokens : predictedTexts)
-			contentOfPages.add(this.formatText(this.cleanText(tokens)));
-		return contentOfPages;
+		LOG.debug("Iterations stopped after {} rounds: {}", iterations, reason);
+		final List<String> contentOfPages = nullList(predictedTexts.size());
+		this.forEachPage(0, predictedTexts.size(), new PageTask()
+		{
+			@Override
+			public void process(int j)
+			{
+				contentOfPages.set(j, formatText(cleanText(predictedTexts.get(j), commonTags)));
+			}
+		});
+
+		List<Prediction> predictions = new ArrayList<>(urls.size());
+		int j = 0;
+		for (int page = 0; page < urls.size(); page++)
+		{
+			if (parsedTokens.get(page) == null)
+			{
+				predictions.add(Prediction.failure(urls.get(page), new ExtractionException(
+						"Page to predict content from is either null or empty")));
+				continue;
+			}
+			// a page settled if its segment did not move for the required
+			// number of rounds, even if other pages kept the batch going
+			Convergence.Reason pageReason = iterations - settledIterations[j] >= this.convergenceRounds
+					? Convergence.Reason.CONVERGED : Convergence.Reason.MAX_ITERATIONS;
+			predictions.add(Prediction.success(urls.get(page), contentOfPages.get(j),
+					new Convergence(urls.get(page), iterations, settledIterations[j], pageReason)));
+			j++;
+		}
+		return predictions;
+	}
+
+	/**
+	 * <p>
+	 * The cleaned tokens of the predicted content of a single page together
+	 * with how the iterations of the page terminated.
+	 * </p>
+	 */
+	private static final class PagePrediction
+	{
+		/** The cleaned tokens of the predicted content **/
+		private final List<Token> content;
+		/** How the iterations of the page terminated **/
+		private final Convergence convergence;
+
+		PagePrediction(List<Token> content, Convergence convergence)
+		{
+			this.content = content;
+			this.convergence = convergence;
+		}
 	}
 
 	/**
@@ -434,107 +924,547 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	 *            debugging purposes
 	 * @param classifier
 	 *            The classifier to be used for training
+	 * @param commonTags
+	 *            The common tags of the prediction the tags of the article
+	 *            are collected in
 	 */
 	protected void train(List<Token> html, List<Token> predictedText,
-			String url, Classifier<String, String> classifier)
+			String url, Classifier<String, String> classifier,
+			Dictionary<String, List<String>> commonTags)
+	{
+		this.createTrainingEntry(html, predictedText, url, classifier,
+				commonTags).train(false);
+	}
+
+	/**
+	 * <p>
+	 * Records the training of a local classifier with a new article without
+	 * training any classifier, so the training can be added to and removed
+	 * from an {@link IncrementalNaiveBayes} cache later on
+	 * <p>
+	 * 
+	 * @param html
+	 *            The origin HTML page as a {@link List} of {@link Token}s
+	 * @param predictedText
+	 *            The predicted text for the HTML page as a {@link List} of
+	 *            {@link Token}s
+	 * @param url
+	 *            The URL of the origin HTML page. This is only used for
+	 *            debugging purposes
+	 * @param commonTags
+	 *            The common tags of the prediction the tags of the article
+	 *            are collected in
+	 * @return The recorded training of the article
+	 */
+	protected IncrementalNaiveBayes.Contribution train(List<Token> html,
+			List<Token> predictedText, String url,
+			Dictionary<String, List<String>> commonTags)
+	{
+		return this.record(html, predictedText, url, commonTags);
+	}
+
+	/**
+	 * <p>
+	 * Records the training of a local classifier with a new article and
+	 * collects the tags of the article in the provided common tags.
+	 * </p>
+	 */
+	private IncrementalNaiveBayes.Contribution record(List<Token> html,
+			List<Token> predictedText, String url,
+			Dictionary<String, List<String>> commonTags)
+	{
+		IncrementalNaiveBayes.Contribution contribution = new IncrementalNaiveBayes.Contribution();
+		TrainingEntry entry = this.createTrainingEntry(html, predictedText, url,
+				null, commonTags);
+		entry.setContribution(contribution);
+		entry.train(false);
+		return contribution;
+	}
+
+	private TrainingEntry createTrainingEntry(List<Token> html,
+			List<Token> predictedText, String url,
+			Classifier<String, String> classifier,
+			Dictionary<String, List<String>> commonTags)
 	{
 		TrainingEntry entry = new TrainingEntry(html, predictedText,
 				classifier, false);
 		entry.setTrainFeatureStrategy(this.trainFeatureStrategy);
 		entry.setSourceUrl(this.extractSourceUrlFromUrl(url));
 		entry.setUrl(url);
-		entry.setCommonTags(this.commonTags);
-		entry.train(false);
+		entry.setCommonTags(commonTags);
+		return entry;
 	}
 
 	/**
 	 * <p>
-	 * Calculates the correctness of the predicted text
+	 * Records the trainings of the given pages in parallel, every page with
+	 * its own common tags. The trainings and the tags are then applied in
+	 * the order of the pages, which results in the same classifier and
+	 * common tags as training the pages one after another.
 	 * </p>
-	 * 
-	 * @param html
-	 *            All Tokens of the
-	 * @param j
-	 *            The index of the first token of the predicted text
-	 * @param k
-	 *            The index of the last token of the predicted text
-	 * @return The likelihood of the correctness of the text prediction
-	 *
-	 * @throws IllegalArgumentException
-	 *             If If html is null or empty, j < 0 or j >= html.size(),
-	 *             k < 0 or k >= html.size() or if j >= k
 	 */
-	protected double estimatePredictionCorrectness(List<Token> html, int j,
-			int k)
+	private void recordPages(final List<Integer> pages,
+			final Map<Integer, List<Token>> L,
+			final List<List<Token>> predictedTexts, final List<String> pageUrls,
+			final List<IncrementalNaiveBayes.Contribution> recorded,
+			final List<Dictionary<String, List<String>>> recordedTags)
 	{
-		if (html == null || html.isEmpty())
-			throw new IllegalArgumentException("No list of tokens representing "
-					+ "the origin page provided!");
-		if (j < 0 || j >= html.size())
-			throw new IllegalArgumentException("The index of the predicted first"
-					+ " token is not inside the origin list of tokens!");
-		if (k < 0 || k >= html.size() || k - this.windowRadius < 0)
-			throw new IllegalArgumentException("The index of the predicted last "
-					+ "token is not inside the origin's list of tokens!");
-		if (j >= k)
-			throw new IllegalArgumentException("The start of the predicted text "
-					+ "cannot be after the end or at the same position!");
+		this.forEachPage(0, pages.size(), new PageTask()
+		{
+			@Override
+			public void process(int p)
+			{
+				int j = pages.get(p);
+				Dictionary<String, List<String>> tags = new Hashtable<>();
+				recorded.set(p, record(L.get(j), predictedTexts.get(j),
+						pageUrls.get(j), tags));
+				recordedTags.set(p, tags);
+			}
+		});
+	}
 
-		// pi = probability given by the Naive Bayes predictor that a token is
-		// "in"
-		// j is the index of the first token
-		// k is the index of the last token
-		// n = total number of tokens in the document
-		int n = html.size();
-		double prob1 = 1.;
-		double prob2 = 1.;
-		double prob3 = 1.;
-		double prob4 = 1.;
+	/**
+	 * <p>
+	 * Trains a new local classifier with the currently selected pages. The
+	 * trainings of the pages are recorded in parallel in blocks of
+	 * {@link #TRAINING_BLOCK} pages and replayed in the order of the pages,
+	 * so the classifier is trained exactly like training the pages one after
+	 * another.
+	 * </p>
+	 */
+	private void trainLocalClassifier(Classifier<String, String> classifier,
+			Map<Integer, List<Token>> L, List<List<Token>> predictedTexts,
+			List<String> pageUrls, Dictionary<String, List<String>> commonTags)
+	{
+		List<Integer> selected = new ArrayList<>();
+		for (int j = 0; j < L.size(); j++)
+			if (L.get(j) != null)
+				selected.add(j);
 
-		// Check if we start the calculations with the first token if j is any
-		// number
-		// less than the window radius
-		int start = j - this.windowRadius;
-		if (start < 0)
-			start = 0;
-		for (int i = start; i <= j - 1; i++)
+		for (int from = 0; from < selected.size(); from += TRAINING_BLOCK)
 		{
-			if (html.get(i).getText() != null)
-				prob1 *= (1 - this.classifier.getProbability("in", html.get(i).getText()));
-			else
-				prob1 *= (1 - this.classifier.getProbability("in", html.get(i).getHTML()));
+			List<Integer> block = selected.subList(from,
+					Math.min(from + TRAINING_BLOCK, selected.size()));
+			List<IncrementalNaiveBayes.Contribution> recorded = nullList(block.size());
+			List<Dictionary<String, List<String>>> recordedTags = nullList(block.size());
+			this.recordPages(block, L, predictedTexts, pageUrls, recorded, recordedTags);
+			for (int p = 0; p < block.size(); p++)
+			{
+				mergeCommonTags(commonTags, recordedTags.get(p));
+				recorded.get(p).train(classifier);
+			}
 		}
-		for (int i = j; i <= j + this.windowRadius - 1; i++)
+	}
+
+	/**
+	 * <p>
+	 * Updates the recorded trainings which are kept across the iterations of
+	 * a batch prediction to the currently selected pages. Only the trainings
+	 * of pages which left or entered the selection or whose predicted segment
+	 * changed since their last training are forgotten or recorded again. The new trainings are recorded in
+	 * parallel and applied in the order of the pages.
+	 * </p>
+	 */
+	private void updateLocalClassifier(IncrementalNaiveBayes classifier,
+			Map<Integer, List<Token>> L, List<List<Token>> predictedTexts,
+			List<String> pageUrls, List<Subsequence> maxSSs,
+			List<IncrementalNaiveBayes.Contribution> contributions,
+			List<Subsequence> trainedSSs, Dictionary<String, List<String>> commonTags)
+	{
+		List<Integer> changed = new ArrayList<>();
+		List<Integer> retrained = new ArrayList<>();
+		for (int j = 0; j < contributions.size(); j++)
 		{
-			if (html.get(i).getText() != null)
-				prob2 *= this.classifier.getProbability("in", html.get(i).getText());
-			else
-				prob2 *= this.classifier.getProbability("in", html.get(i).getHTML());
+			Subsequence trained = trainedSSs.get(j);
+			Subsequence current = L.get(j) != null ? maxSSs.get(j) : null;
+			if (trained == current || trained != null && current != null
+					&& trained.getStart() == current.getStart()
+					&& trained.getLength() == current.getLength())
+				continue;
+			changed.add(j);
+			if (current != null)
+				retrained.add(j);
 		}
-		for (int i = k - this.windowRadius + 1; i <= k; i++)
+
+		List<IncrementalNaiveBayes.Contribution> recorded = nullList(retrained.size());
+		List<Dictionary<String, List<String>>> recordedTags = nullList(retrained.size());
+		this.recordPages(retrained, L, predictedTexts, pageUrls, recorded, recordedTags);
+
+		int p = 0;
+		for (int j : changed)
 		{
-			if (html.get(i).getText() != null)
-				prob3 *= this.classifier.getProbability("in", html.get(i).getText());
+			IncrementalNaiveBayes.Contribution contribution = contributions.get(j);
+			if (contribution != null)
+				classifier.remove(j);
+			if (L.get(j) != null)
+			{
+				mergeCommonTags(commonTags, recordedTags.get(p));
+				contribution = recorded.get(p++);
+				classifier.add(j, contribution);
+				trainedSSs.set(j, maxSSs.get(j));
+			}
 			else
-				prob3 *= this.classifier.getProbability("in", html.get(i).getHTML());
+			{
+				contribution = null;
+				trainedSSs.set(j, null);
+			}
+			contributions.set(j, contribution);
 		}
-		// Check that we do not read more tokens than are available
-		int end = k + this.windowRadius;
-		if (end > n)
-			end = n;
-		for (int i = k + 1; i <= end; i++)
+		LOG.debug("Updated the local classifier with {} of {} pages",
+				changed.size(), contributions.size());
+	}
+
+	/**
+	 * <p>
+	 * Copies the common tags of the trained classifier, so a single
+	 * prediction can collect the tags of its local trainings without
+	 * modifying the common tags shared by all predictions. The sources of
+	 * every tag are copied as well.
+	 * </p>
+	 */
+	private Dictionary<String, List<String>> copyCommonTags()
+	{
+		Dictionary<String, List<String>> copy = new Hashtable<>();
+		mergeCommonTags(copy, this.commonTags);
+		return copy;
+	}
+
+	/**
+	 * <p>
+	 * Adds the sources of the tags collected while training a single page to
+	 * the common tags, keeping the order the sources were found in.
+	 * </p>
+	 */
+	private static void mergeCommonTags(Dictionary<String, List<String>> commonTags,
+			Dictionary<String, List<String>> tags)
+	{
+		Enumeration<String> names = tags.keys();
+		while (names.hasMoreElements())
 		{
-			if (html.get(i).getText() != null)
-				prob4 *= (1 - this.classifier.getProbability("in", html.get(i).getText()));
-			else
-				prob4 *= (1 - this.classifier.getProbability("in", html.get(i).getHTML()));
+			String name = names.nextElement();
+			List<String> sources = commonTags.get(name);
+			if (sources == null)
+			{
+				sources = new ArrayList<String>();
+				commonTags.put(name, sources);
+			}
+			for (String source : tags.get(name))
+				if (!sources.contains(source))
+					sources.add(source);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Processes the pages <em>from</em> till <em>to</em> (exclusive) of a
+	 * batch prediction on the {@link #setBatchPool(ForkJoinPool) batch pool},
+	 * or one after another if no pool is set. The method returns once every
+	 * page was processed.
+	 * </p>
+	 */
+	private void forEachPage(int from, int to, PageTask task)
+	{
+		ForkJoinPool pool = this.batchPool;
+		if (pool == null || to - from < 2)
+		{
+			for (int page = from; page < to; page++)
+				task.process(page);
 		}
+		else
+			pool.invoke(new PageRange(task, from, to));
+	}
 
-		double v = Math.pow((prob1 * prob2 * prob3 * prob4), (1. / n));
+	/**
+	 * <p>
+	 * Reads a page via {@link #readPage(String)} and lets the pool of the
+	 * current worker know that the worker is blocked while the page is
+	 * downloaded, so the pool may compensate for it. If the current thread
+	 * is interrupted meanwhile, the page is considered unreadable.
+	 * </p>
+	 */
+	private String readPageBlocking(final String url)
+	{
+		PageReader reader = new PageReader(url);
+		try
+		{
+			ForkJoinPool.managedBlock(reader);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while reading {}", url);
+			return null;
+		}
+		return reader.html;
+	}
+
+	private static <T> List<T> nullList(int size)
+	{
+		return new ArrayList<T>(Collections.<T> nCopies(size, null));
+	}
+
+	/**
+	 * <p>
+	 * A step of a batch prediction which processes every page independently
+	 * of the other pages.
+	 * </p>
+	 */
+	private interface PageTask
+	{
+		void process(int page);
+	}
+
+	/**
+	 * <p>
+	 * Reads a single page while the pool of the current worker may run other
+	 * tasks on additional workers.
+	 * </p>
+	 */
+	private final class PageReader implements ForkJoinPool.ManagedBlocker
+	{
+		/** The URL of the page to read **/
+		private final String url;
+		/** The content of the page once it was read **/
+		private String html = null;
+		/** Specifies if the page was read **/
+		private boolean done = false;
+
+		PageReader(String url)
+		{
+			this.url = url;
+		}
+
+		@Override
+		public boolean block()
+		{
+			if (!this.done)
+			{
+				this.html = readPage(this.url);
+				this.done = true;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable()
+		{
+			return this.done;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Splits a range of pages into halves until every page is processed by
+	 * its own task, so idle workers can steal the remaining pages.
+	 * </p>
+	 */
+	private static final class PageRange extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4730846512953104927L;
+
+		/** The step to process every page with **/
+		private final PageTask task;
+		/** The first page of the range **/
+		private final int from;
+		/** The page following the last page of the range **/
+		private final int to;
+
+		PageRange(PageTask task, int from, int to)
+		{
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.to - this.from == 1)
+				this.task.process(this.from);
+			else if (this.to > this.from)
+			{
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PageRange(this.task, this.from, middle),
+						new PageRange(this.task, middle, this.to));
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Calculates the correctness of the predicted text
+	 * </p>
+	 * 
+	 * @param html
+	 *            All Tokens of the
+	 * @param j
+	 *            The index of the first token of the predicted text
+	 * @param k
+	 *            The index of the last token of the predicted text
+	 * @return The likelihood of the correctness of the text prediction
+	 *
+	 * @throws IllegalArgumentException
+	 *             If If html is null or empty, j < 0 or j >= html.size(),
+	 *             k < 0 or k >= html.size() or if j >= k
+	 */
+	protected double estimatePredictionCorrectness(List<Token> html, int j,
+			int k)
+	{
+		if (html == null || html.isEmpty())
+			throw new IllegalArgumentException("No list of tokens representing "
+					+ "the origin page provided!");
+		return this.estimatePredictionCorrectness(this.buildProbabilities(html), j, k);
+	}
+
+	/**
+	 * <p>
+	 * Calculates the correctness of the predicted text like
+	 * {@link #estimatePredictionCorrectness(List, int, int)} does, but takes
+	 * the probabilities of the tokens from the provided vector of the page.
+	 * The products of the probabilities of the windows around the borders of
+	 * the predicted text are therefore calculated from the prefix sums of
+	 * their logarithms in constant time.
+	 * </p>
+	 * 
+	 * @param probabilities
+	 *            The probabilities of all tokens of the page
+	 * @param j
+	 *            The index of the first token of the predicted text
+	 * @param k
+	 *            The index of the last token of the predicted text
+	 * @return The likelihood of the correctness of the text prediction
+	 *
+	 * @throws IllegalArgumentException
+	 *             If no probabilities are provided, j < 0 or
+	 *             j >= probabilities.size(), k < 0 or
+	 *             k >= probabilities.size() or if j >= k
+	 */
+	protected double estimatePredictionCorrectness(
+			TokenProbabilities probabilities, int j, int k)
+	{
+		if (probabilities == null || probabilities.size() == 0)
+			throw new IllegalArgumentException("No list of tokens representing "
+					+ "the origin page provided!");
+		if (j < 0 || j >= probabilities.size())
+			throw new IllegalArgumentException("The index of the predicted first"
+					+ " token is not inside the origin list of tokens!");
+		if (k < 0 || k >= probabilities.size() || k - this.windowRadius < 0)
+			throw new IllegalArgumentException("The index of the predicted last "
+					+ "token is not inside the origin's list of tokens!");
+		if (j >= k)
+			throw new IllegalArgumentException("The start of the predicted text "
+					+ "cannot be after the end or at the same position!");
+
+		// pi = probability given by the Naive Bayes predictor that a token is
+		// "in"
+		// j is the index of the first token
+		// k is the index of the last token
+		// n = total number of tokens in the document
+		int n = probabilities.size();
+
+		// Check if we start the calculations with the first token if j is any
+		// number
+		// less than the window radius
+		int start = j - this.windowRadius;
+		if (start < 0)
+			start = 0;
+		// Check that we do not read more tokens than are available; the
+		// window after the text includes the token at position end
+		int end = k + this.windowRadius;
+		if (end > n - 1)
+			end = n - 1;
+
+		double logProb = probabilities.getOutLogProbability(start, j)
+				+ probabilities.getInLogProbability(j, j + this.windowRadius)
+				+ probabilities.getInLogProbability(k - this.windowRadius + 1, k + 1)
+				+ probabilities.getOutLogProbability(k + 1, end + 1);
+
+		double v = Math.exp(logProb / n);
 		LOG.trace("Estimated correctness: {}", v);
 		return v;
 	}
 
+	/**
+	 * <p>
+	 * Builds the vector of the probabilities of the trained classifier for
+	 * every token of a page to be labeled as in, which is used to estimate the
+	 * correctness of the predictions of the page. As the trained classifier
+	 * does not change while predicting, the vector only needs to be built
+	 * once per page.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The tokens of the page
+	 * @return The probabilities of the tokens of the page
+	 */
+	protected TokenProbabilities buildProbabilities(List<Token> html)
+	{
+		double[] probabilities = new double[html.size()];
+		for (int i = 0; i < probabilities.length; i++)
+			probabilities[i] = this.getInProbability(html.get(i));
+		return new TokenProbabilities(probabilities);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the trained classifier that the text of a
+	 * token, or its HTML if the token has no text, is labeled as in. The
+	 * probability is taken from the frozen {@link ScoringTable} if available.
+	 * </p>
+	 */
+	private double getInProbability(Token token)
+	{
+		String feature = token.getText() != null ? token.getText() : token.getHTML();
+		ScoringTable table = this.scoringTable;
+		if (table != null)
+		{
+			double probability = table.getProbability(ScoringTable.hash(feature), feature);
+			if (!Double.isNaN(probability))
+				return probability;
+		}
+		return this.probabilityCache.getProbability(this.classifier, "in", feature);
+	}
+
+	@Override
+	protected double getProbability(Classifier<String, String> classifier, String feature)
+	{
+		// only the probabilities of the trained classifier are shared
+		if (classifier != this.classifier)
+			return classifier.getProbability("in", feature);
+		return this.probabilityCache.getProbability(classifier, "in", feature);
+	}
+
+	@Override
+	protected double getProbability(Classifier<String, String> classifier, String[] features)
+	{
+		if (classifier != this.classifier)
+			return classifier.getProbability("in", features);
+		return this.probabilityCache.getProbability(classifier, "in", features);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of a classifier for a feature from the provided
+	 * cache, or via {@link #getProbability(Classifier, String)} if no cache is
+	 * provided.
+	 * </p>
+	 */
+	private double getProbability(Classifier<String, String> classifier,
+			ProbabilityCache cache, String feature)
+	{
+		if (cache == null)
+			return this.getProbability(classifier, feature);
+		return cache.getProbability(classifier, "in", feature);
+	}
+
+	private double getProbability(Classifier<String, String> classifier,
+			ProbabilityCache cache, String[] features)
+	{
+		if (cache == null)
+			return this.getProbability(classifier, features);
+		return cache.getProbability(classifier, "in", features);
+	}
+
 	/**
 	 * <p>
 	 * Calculates the importance weights for a trigram.
@@ -563,6 +1493,143 @@ public class SemiSupervisedMSS extends SupervisedMSS
 		return mh;
 	}
 
+	/**
+	 * <p>
+	 * Calculates the importance weights for a trigram whose occurrences are
+	 * provided as positions within the HTML document.
+	 * </p>
+	 * 
+	 * @param positions
+	 *            The positions of all tokens with trigram h
+	 * @param j
+	 *            The index of the first token in the article text
+	 * @param k
+	 *            The index of the last token in the article text
+	 * @return The importance weight of trigram h
+	 */
+	protected double calculateImportanceWeighting(int[] positions, int j, int k)
+	{
+		double mh = 0.;
+		for (int t : positions)
+			mh += (this.d - Math.min(this.d, Math.min(Math.abs(t - (j - 0.5)),
+					Math.abs(t - (k + 0.5)) - 0.5))) / (this.d);
+
+		return mh;
+	}
+
+	/**
+	 * <p>
+	 * Calculates the importance weights for the trigram of a group of the
+	 * provided index in logarithmic time.
+	 * </p>
+	 * <p>
+	 * The distance of an occurrence at position <em>t</em> to the article,
+	 * <code>min(|t - (j - 0.5)|, |t - (k + 0.5)| - 0.5)</code>, is linear in
+	 * <em>t</em> between the positions <em>j</em>, <em>k + 1</em> and the
+	 * positions where the distances to both ends of the article are equal. Only
+	 * occurrences closer than <em>d</em> contribute to the weight. Hence the
+	 * contributing occurrences of every linear piece are found via binary
+	 * search in the sorted positions and their sum of distances is derived
+	 * from the prefix sums of the positions. The result equals
+	 * {@link #calculateImportanceWeighting(int[], int, int)} apart from
+	 * rounding.
+	 * </p>
+	 * 
+	 * @param index
+	 *            The index of the positions of the tokens of the page
+	 * @param group
+	 *            The group of the token whose trigram should be weighted
+	 * @param j
+	 *            The index of the first token in the article text
+	 * @param k
+	 *            The index of the last token in the article text
+	 * @return The importance weight of trigram h
+	 */
+	protected double calculateImportanceWeighting(TokenPositionIndex index,
+			int group, int j, int k)
+	{
+		int[] positions = index.getPositions(group);
+		double d = this.d;
+		if (positions.length == 0)
+			return 0.;
+		if (!(d > 0) || Double.isInfinite(d))
+			return this.calculateImportanceWeighting(positions, j, k);
+		long[] sums = index.getPositionSums(group);
+
+		// the positions where the distance changes its linear piece: the
+		// ends of the article and where the distances to both ends are equal
+		// inside or, if j > k, outside of the article
+		long[] bounds = { j, k + 1L, (long) Math.ceil((j + (double) k - 0.5) / 2.),
+				(long) Math.ceil((j + (double) k + 0.5) / 2.) };
+		Arrays.sort(bounds);
+
+		// the doubled distances are integers, hence their sum is exact
+		long count = 0;
+		long doubledDistance = 0;
+		long lo = positions[0];
+		for (int p = 0; p <= bounds.length; p++)
+		{
+			long hi = p < bounds.length ? bounds[p] - 1 : positions[positions.length - 1];
+			if (lo <= hi)
+			{
+				// the doubled distance of a position t within the piece is
+				// slope * 2t + offset
+				long t = lo;
+				long a = t < j ? 2L * j - 1 - 2 * t : 2 * t - 2L * j + 1;
+				long b = t <= k ? 2L * k - 2 * t : 2 * t - 2L * k - 2;
+				int slope;
+				long offset;
+				if (a <= b)
+				{
+					slope = t < j ? -1 : 1;
+					offset = t < j ? 2L * j - 1 : 1 - 2L * j;
+				}
+				else
+				{
+					slope = t <= k ? -1 : 1;
+					offset = t <= k ? 2L * k : -2L * k - 2;
+				}
+				// restrict the piece to the positions closer than d
+				double limit = (2 * d - offset) / 2.;
+				long from = lo;
+				long to = hi;
+				if (slope > 0)
+					to = Math.min(hi, (long) Math.ceil(limit) - 1);
+				else
+					from = Math.max(lo, (long) Math.floor(-limit) + 1);
+				if (from <= to)
+				{
+					int first = this.lowerBound(positions, from);
+					int last = this.lowerBound(positions, to + 1);
+					long n = last - first;
+					count += n;
+					doubledDistance += slope * 2 * (sums[last] - sums[first]) + n * offset;
+				}
+			}
+			if (p < bounds.length)
+				lo = Math.max(lo, bounds[p]);
+		}
+		return (count * d - doubledDistance / 2.) / d;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the first of the sorted positions which is not
+	 * less than the provided position.
+	 * </p>
+	 */
+	private int lowerBound(int[] positions, long position)
+	{
+		if (position > Integer.MAX_VALUE)
+			return positions.length;
+		if (position < Integer.MIN_VALUE)
+			return 0;
+		int i = Arrays.binarySearch(positions, (int) position);
+		if (i < 0)
+			return -i - 1;
+		return i;
+	}
+
 	/**
 	 * <p>
 	 * Builds a score-list based on the probabilities of the local classifier
@@ -586,8 +1653,91 @@ public class SemiSupervisedMSS extends SupervisedMSS
 	protected List<Double> buildScoreList(List<Token> html,
 			NaiveBayes<String, String> classifier, int j, int k)
 	{
-		List<Double> scoreList = new ArrayList<>();
+		double[] scores = this.buildScores(html, classifier, j, k);
+		List<Double> scoreList = new ArrayList<>(scores.length);
+		for (double score : scores)
+			scoreList.add(score);
+		return scoreList;
+	}
+
+	/**
+	 * <p>
+	 * Builds a primitive score array based on the probabilities of the local
+	 * classifier for every token to be labeled as in - 0.5 to generate values
+	 * between -0.5 and 0.5 which are further weighted by the importance of the
+	 * token's nGram
+	 * </p>
+	 * 
+	 * @param html
+	 *            {@link List} of {@link Token}s which represent the HTML page
+	 *            whose main article text should be predicted
+	 * @param classifier
+	 *            The local classifier used
+	 * @param j
+	 *            The index of the first token in the article text from previous
+	 *            predictions
+	 * @param k
+	 *            The index of the last token in the article text from previous
+	 *            predictions
+	 * @return The scores of the tokens
+	 */
+	protected double[] buildScores(List<Token> html,
+			NaiveBayes<String, String> classifier, int j, int k)
+	{
+		return this.buildScores(html, classifier, j, k,
+				new TokenPositionIndex(html, 2));
+	}
+
+	/**
+	 * <p>
+	 * Builds the scores like {@link #buildScores(List, NaiveBayes, int, int)}
+	 * does, but looks up the occurrences of every token in the provided index
+	 * of the page instead of building its feature set. As the index does not
+	 * depend on the classifier or the prediction, it only needs to be built
+	 * once per page and can be reused by every iteration.
+	 * </p>
+	 * 
+	 * @param html
+	 *            {@link List} of {@link Token}s which represent the HTML page
+	 *            whose main article text should be predicted
+	 * @param classifier
+	 *            The local classifier used
+	 * @param j
+	 *            The index of the first token in the article text from previous
+	 *            predictions
+	 * @param k
+	 *            The index of the last token in the article text from previous
+	 *            predictions
+	 * @param index
+	 *            The index of the positions of the tokens of the page,
+	 *            starting at the third token
+	 * @return The scores of the tokens
+	 */
+	protected double[] buildScores(List<Token> html,
+			NaiveBayes<String, String> classifier, int j, int k,
+			TokenPositionIndex index)
+	{
+		return this.buildScores(html, classifier, j, k, index, null);
+	}
+
+	/**
+	 * <p>
+	 * Builds the scores of the tokens and takes the probabilities of the
+	 * classifier from the provided cache, if any.
+	 * </p>
+	 */
+	private double[] buildScores(List<Token> html,
+			NaiveBayes<String, String> classifier, int j, int k,
+			TokenPositionIndex index, ProbabilityCache cache)
+	{
+		double[] scores = new double[Math.max(html.size() - 2, 0)];
 		LOG.trace("Score-List:");
+		// the format of the logged scores; null if they are not logged
+		DecimalFormat format = LOG.isTraceEnabled() ? new DecimalFormat("#0.000") : null;
+		// tokens of the same group share their occurrences and therefore
+		// their importance weight
+		double[] weights = new double[index.getGroupCount()];
+		Arrays.fill(weights, Double.NaN);
 		for (int i = 2; i < html.size(); i++)
 		{
 			// prepare and build the trigrams
@@ -595,68 +1745,39 @@ public class SemiSupervisedMSS extends SupervisedMSS
 			Token token2 = html.get(i - 1);
 			Token token3 = html.get(i);
 
-			double score = 0.;
-			Set<List<Token>> featureSet = this.buildFeatureSet(html, token3);
-
-			if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIGRAM))
+			int group = index.getGroup(i);
+			double mh = weights[group];
+			if (Double.isNaN(mh))
 			{
-				if (LOG.isTraceEnabled())
-				{
-					LOG.trace("pi: {}", classifier.getProbability("in", this.getTrigram(token1, token2, token3)));
-					LOG.trace("mh: {}", this.calculateImportanceWeighting(featureSet, j, k));
-				}
-				score = (classifier.getProbability("in", this.getTrigram(token1, token2, token3)) - 0.5)
-						* (this.calculateImportanceWeighting(featureSet, j, k) * this.c + 1.);
+				mh = this.calculateImportanceWeighting(index, group, j, k);
+				weights[group] = mh;
 			}
+
+			double pi;
+			if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIGRAM))
+				pi = this.getProbability(classifier, cache, this.getTrigram(token1, token2, token3));
 			else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.BIGRAM))
-			{
-				if (LOG.isTraceEnabled())
-				{
-					LOG.trace("pi: {}", classifier.getProbability("in", this.getBigram(token2, token3)));
-					LOG.trace("mh: {}", this.calculateImportanceWeighting(featureSet, j, k));
-				}
-				score = (classifier.getProbability("in", this.getBigram(token2,	token3)) - 0.5)
-						* (this.calculateImportanceWeighting(featureSet, j, k) * this.c + 1.);
-			}
+				pi = this.getProbability(classifier, cache, this.getBigram(token2, token3));
 			else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.UNIGRAM))
-			{
-				if (LOG.isTraceEnabled())
-				{
-					LOG.trace("pi: {}", classifier.getProbability("in", this.getUnigram(token3)));
-					LOG.trace("mh: {}", this.calculateImportanceWeighting(featureSet, j, k));
-				}
-				score = (classifier.getProbability("in", this.getUnigram(token3)) - 0.5)
-						* (this.calculateImportanceWeighting(featureSet, j, k) * this.c + 1.);
-			}
+				pi = this.getProbability(classifier, cache, this.getUnigram(token3));
 			else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.DOUBLE_UNIGRAM))
-			{
-				if (LOG.isTraceEnabled())
-				{
-					LOG.trace("pi: {}", classifier.getProbability("in", this.getDoubleUnigram(token2, token3)));
-					LOG.trace("mh: {}", this.calculateImportanceWeighting(featureSet, j, k));
-				}
-				score = (classifier.getProbability("in", this.getDoubleUnigram(token2, token3)) - 0.5)
-						* (this.calculateImportanceWeighting(featureSet, j, k) * this.c + 1.);
-			}
+				pi = this.getProbability(classifier, cache, this.getDoubleUnigram(token2, token3));
 			else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIPLE_UNIGRAM))
-			{
-				if (LOG.isTraceEnabled())
-				{
-					LOG.trace("pi: {}", classifier.getProbability("in", this.getTripleUnigram(token1, token2, token3)));
-					LOG.trace("mh: {}", this.calculateImportanceWeighting(featureSet, j, k));
-				}
-				score = (classifier.getProbability("in", this.getTripleUnigram(token1, token2, token3)) - 0.5)
-						* (this.calculateImportanceWeighting(featureSet, j, k) * this.c + 1.);
-			}
+				pi = this.getProbability(classifier, cache, this.getTripleUnigram(token1, token2, token3));
+			else
+				pi = 0.5;
+			double score = (pi - 0.5) * (mh * this.c + 1.);
 
-			if (LOG.isTraceEnabled())
+			if (format != null)
 			{
-				LOG.trace("{} : {}", new DecimalFormat("#0.000").format(score),
+				LOG.trace("pi: {}", pi);
+				LOG.trace("mh: {}", mh);
+				LOG.trace("{} : {}", format.format(score),
 						(token3.getText() != null ? token3.getText() : token3.getHTML()));
 			}
-			scoreList.add(score);
+			scores[i - 2] = score;
 		}
-		return scoreList;
+		return scores;
 	}
 
 	/**
@@ -684,14 +1805,15 @@ public class SemiSupervisedMSS extends SupervisedMSS
 			Token token1 = html.get(i - 2);
 			Token token2 = html.get(i - 1);
 			Token token3 = html.get(i);
-			token3.setIndex(i);
 			if (token3.getText() != null)
 			{
 				if (token3.getText().equals(token.getText())
 						|| token3.getHTML() != null
 						&& token3.getHTML().equals(token.getHTML()))
 				{
-					List<Token> nGram = new ArrayList<>();
+					// the position is kept with the nGram instead of the
+					// token, as the tokens may be shared by concurrent calls
+					List<Token> nGram = new NGram(i);
 					if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIGRAM))
 						nGram.add(token1);
 					if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIGRAM)
@@ -724,6 +1846,27 @@ public class SemiSupervisedMSS extends SupervisedMSS
 		// summation;
 		// it's the index of each token with the given trigram (not just the
 		// first)"
+		if (nGram instanceof NGram)
+			return ((NGram) nGram).index;
 		return nGram.get(nGram.size() - 1).getIndex();
 	}
+
+	/**
+	 * <p>
+	 * The tokens of a nGram together with the position of its key-token
+	 * within the HTML document.
+	 * </p>
+	 */
+	private static final class NGram extends ArrayList<Token>
+	{
+		private static final long serialVersionUID = 3514806223946216417L;
+		/** The position of the last token of the nGram **/
+		private final int index;
+
+		NGram(int index)
+		{
+			super(3);
+			this.index = index;
+		}
+	}
 }
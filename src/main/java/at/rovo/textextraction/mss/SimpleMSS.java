@@ -1,10 +1,10 @@
 package at.rovo.textextraction.mss;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import at.rovo.common.UrlReader;
 import at.rovo.parser.ParseResult;
 import at.rovo.parser.Parser;
 import at.rovo.parser.Tag;
@@ -34,8 +34,15 @@ public class SimpleMSS extends MaximumSubsequenceSegmentation
 {
 	/** The logger of this instance **/
 	private static Logger logger = LogManager.getLogger(SimpleMSS.class);
-	/** The parser used to download the content from pages on the Internet **/
-	private Parser parser = null;
+	/** The parser of every thread used to tokenize the content of pages **/
+	private final ThreadLocal<Parser> parser = new ThreadLocal<Parser>()
+	{
+		@Override
+		protected Parser initialValue()
+		{
+			return new Parser();
+		}
+	};
 
 	/**
 	 * <p>
@@ -46,8 +53,6 @@ public class SimpleMSS extends MaximumSubsequenceSegmentation
 	public SimpleMSS()
 	{
 		super();
-
-		this.parser = new Parser();
 	}
 
 	/**
@@ -65,57 +70,176 @@ public class SimpleMSS extends MaximumSubsequenceSegmentation
 	 * are now used to find the article text in the provided list of tokens
 	 * </p>
 	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
 	 * @param url
-	 *            The URL of the page to predict its content from
-	 * @return The predicted article of the provided URL; null if the HTML page
-	 *         could not be read
+	 *            The URL the page was retrieved from
+	 * @return The predicted article of the provided page; null if the page
+	 *         does not provide any content
 	 * @throws NoSubsequenceFoundException
 	 *             If no subsequence could be calculated
 	 */
 	@Override
-	public String predictText(final String url)
+	public String predictText(final CharSequence html, final String url)
 			throws NoSubsequenceFoundException
 	{
-		UrlReader reader = new UrlReader();
-		String html = reader.readPage(url);
-		if (html == null || html.equals(""))
+		List<Token> text = this.predictContent(html, url);
+		if (text == null)
+			return null;
+		return this.formatText(text);
+	}
+
+	/**
+	 * <p>
+	 * Predicts the article text of the provided page like
+	 * {@link #predictText(CharSequence, String)} does but formats it directly
+	 * into <em>out</em>. Nothing is appended if the page does not provide any
+	 * content.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @param out
+	 *            The target to append the predicted article to
+	 * @throws NoSubsequenceFoundException
+	 *             If no subsequence could be calculated
+	 * @throws IOException
+	 *             If the article could not be appended to <em>out</em>
+	 */
+	@Override
+	public void predictText(final CharSequence html, final String url,
+			Appendable out) throws NoSubsequenceFoundException, IOException
+	{
+		List<Token> text = this.predictContent(html, url);
+		if (text != null)
+			this.formatText(text, out);
+	}
+
+	/**
+	 * <p>
+	 * Predicts the cleaned tokens of the article of the provided page.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @return The cleaned tokens of the predicted article; null if the page
+	 *         does not provide any content
+	 * @throws NoSubsequenceFoundException
+	 *             If no subsequence could be calculated
+	 */
+	protected List<Token> predictContent(final CharSequence html,
+			final String url) throws NoSubsequenceFoundException
+	{
+		if (html == null || html.length() == 0)
 		{
-			logger.error("No html content available!");
+			logger.error("No html content available for {}!", url);
 			return null;
 		}
 
-		ParseResult parse = this.parser.tokenize(html, false);
+		ParseResult parse = this.parser.get().tokenize(html.toString(), false);
 		List<Token> htmlToken = parse.getParsedTokens();
 
-		// Build a score-list for the Maximum Subsequence algorithm to work with
-		// Like in the paper, Jeff Pasternack and Dan Roth suggested, the simple
-		// method assigns a score of -3.25 to every tag and +1 to every word
-		List<Double> score = new ArrayList<Double>();
-		for (Token token : htmlToken)
-			if (token instanceof Tag)
-				score.add(-3.25);
-			else if (token instanceof Word)
-				score.add(1d);
+		List<Token> text;
+		if (htmlToken.size() > this.parallelThreshold)
+			text = this.segmentInParallel(htmlToken);
+		else
+			// segment the tokens while they are scored
+			text = this.segment(htmlToken);
 
-		// run the Maximum Subsequence Optimization
-		List<Double> maxSS = new ArrayList<Double>();
-		int start = this.topMaximumSubsequence(score, maxSS);
+		logger.debug("predictedText: {}", text);
 
-		logger.debug("maxSS: {}", maxSS);
-		logger.debug("start: {}", start);
-		logger.debug("html.size: {}", htmlToken.size());
+		return this.cleanText(text);
+	}
 
-		if (maxSS == null || maxSS.size() < 1)
+	/**
+	 * <p>
+	 * Segments the provided tokens while they are consumed. Like in the paper,
+	 * Jeff Pasternack and Dan Roth suggested, the simple method assigns a
+	 * score of -3.25 to every tag and +1 to every word. Each score is pushed
+	 * into a {@link SubsequenceStream} right away so neither a score-list is
+	 * built nor are tokens retained which can no longer be part of the
+	 * predicted article.
+	 * </p>
+	 * 
+	 * @param tokens
+	 *            The tokens of the page in the order of their occurrence
+	 * @return The tokens of the subsequence with the highest value followed by
+	 *         the token succeeding the subsequence
+	 * @throws NoSubsequenceFoundException
+	 *             If no subsequence could be calculated
+	 */
+	protected List<Token> segment(Iterable<Token> tokens)
+			throws NoSubsequenceFoundException
+	{
+		SubsequenceStream<Token> stream = this.openSubsequenceStream();
+		// the token following the maximum subsequence is part of the
+		// prediction too
+		Token following = null;
+		for (Token token : tokens)
+		{
+			if (!(token instanceof Tag) && !(token instanceof Word))
+				continue;
+			if (stream.getEnd() == stream.size() - 1)
+				following = token;
+			stream.push(token, token instanceof Tag ? -3.25 : 1.);
+		}
+
+		logger.debug("maxSS: {}", stream.getMaximumSubsequence());
+
+		if (stream.size() == 0)
 			throw new NoSubsequenceFoundException("No maximum sequence found!");
 
-		// build the list of the predicted article list
-		List<Token> text = new ArrayList<Token>();
-		for (int i = start; i <= start + maxSS.size(); i++)
-			text.add(htmlToken.get(i));
+		List<Token> text = stream.getItems();
+		if (following != null && stream.getEnd() < stream.size() - 1)
+			text.add(following);
+		return text;
+	}
 
-		logger.debug("predictedText: {}", text);
+	/**
+	 * <p>
+	 * Segments the provided tokens like {@link #segment(Iterable)} does, but
+	 * scores and segments chunks of the tokens in parallel. This is used for
+	 * very large pages which exceed the parallel threshold.
+	 * </p>
+	 * 
+	 * @param tokens
+	 *            The tokens of the page in the order of their occurrence
+	 * @return The tokens of the subsequence with the highest value followed by
+	 *         the token succeeding the subsequence
+	 * @throws NoSubsequenceFoundException
+	 *             If no subsequence could be calculated
+	 */
+	protected List<Token> segmentInParallel(List<Token> tokens)
+			throws NoSubsequenceFoundException
+	{
+		final List<Token> scored = new ArrayList<Token>(tokens.size());
+		for (Token token : tokens)
+			if (token instanceof Tag || token instanceof Word)
+				scored.add(token);
+		if (scored.isEmpty())
+			throw new NoSubsequenceFoundException("No maximum sequence found!");
 
-		return this.formatText(this.cleanText(text));
+		final double[] scores = new double[scored.size()];
+		Subsequence maxSS = this.topMaximumSubsequence(scores, new SubsequenceTree.Scorer()
+		{
+			@Override
+			public void score(int from, int to)
+			{
+				for (int i = from; i < to; i++)
+					scores[i] = scored.get(i) instanceof Tag ? -3.25 : 1.;
+			}
+		});
+
+		logger.debug("maxSS: {}", maxSS);
+
+		// the token following the maximum subsequence is part of the
+		// prediction too
+		int end = Math.min(maxSS.getEnd() + 1, scored.size() - 1);
+		return new ArrayList<Token>(scored.subList(maxSS.getStart(), end + 1));
 	}
 
 	/**
@@ -132,6 +256,10 @@ public class SimpleMSS extends MaximumSubsequenceSegmentation
 	 * This start position of the sequence and the length of the returned array
 	 * are now used to find the article text in the provided list of tokens
 	 * </p>
+	 * <p>
+	 * The scores of all pages are packed into a single array and segmented by
+	 * a {@link SubsequenceBatch} at once.
+	 * </p>
 	 * 
 	 * @param urls
 	 *            The URLs of the pages to predict content from
@@ -144,9 +272,56 @@ public class SimpleMSS extends MaximumSubsequenceSegmentation
 	public List<String> predictText(final List<String> urls)
 			throws NoSubsequenceFoundException
 	{
-		List<String> predictedContent = new ArrayList<String>();
-		for (String url : urls)
-			predictedContent.add(this.predictText(url));
+		// keep only the scored tokens of every page to know the size of the
+		// packed score array
+		List<List<Token>> pages = new ArrayList<List<Token>>(urls.size());
+		int[] offsets = new int[urls.size() + 1];
+		for (int d = 0; d < urls.size(); d++)
+		{
+			List<Token> scored = null;
+			String html = this.readPage(urls.get(d));
+			if (html == null || html.equals(""))
+				logger.error("No html content available!");
+			else
+			{
+				scored = new ArrayList<Token>();
+				for (Token token : this.parser.get().tokenize(html, false).getParsedTokens())
+					if (token instanceof Tag || token instanceof Word)
+						scored.add(token);
+			}
+			pages.add(scored);
+			offsets[d + 1] = offsets[d] + (scored != null ? scored.size() : 0);
+		}
+
+		double[] scores = new double[offsets[urls.size()]];
+		for (int d = 0; d < pages.size(); d++)
+		{
+			int i = offsets[d];
+			if (pages.get(d) != null)
+				for (Token token : pages.get(d))
+					scores[i++] = token instanceof Tag ? -3.25 : 1.;
+		}
+
+		Subsequence[] maxSS = SubsequenceBatch.top(scores, offsets);
+
+		List<String> predictedContent = new ArrayList<String>(urls.size());
+		for (int d = 0; d < pages.size(); d++)
+		{
+			List<Token> scored = pages.get(d);
+			if (scored == null)
+			{
+				predictedContent.add(null);
+				continue;
+			}
+			if (maxSS[d].isEmpty())
+				throw new NoSubsequenceFoundException("No maximum sequence found!");
+			logger.debug("maxSS of {}: {}", urls.get(d), maxSS[d]);
+			// the token following the maximum subsequence is part of the
+			// prediction too
+			int end = Math.min(maxSS[d].getEnd() + 1, scored.size() - 1);
+			List<Token> text = new ArrayList<Token>(scored.subList(maxSS[d].getStart(), end + 1));
+			predictedContent.add(this.formatText(this.cleanText(text)));
+		}
 		return predictedContent;
 	}
 }
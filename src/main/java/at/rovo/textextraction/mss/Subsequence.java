@@ -0,0 +1,133 @@
+package at.rovo.textextraction.mss;
+
+/**
+ * <p>
+ * Immutable result of a maximum subsequence search. It only stores the
+ * boundaries of the found segment within the origin score array and the sum of
+ * the scores between these boundaries instead of a copy of the scores
+ * themselves.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class Subsequence
+{
+	/** Represents the result of a search on an empty score sequence **/
+	public static final Subsequence EMPTY = new Subsequence(0, -1,
+			Double.NEGATIVE_INFINITY);
+
+	/** The index of the first score of the segment **/
+	private final int start;
+	/** The index of the last score of the segment (inclusive) **/
+	private final int end;
+	/** The sum of all scores from start to end **/
+	private final double score;
+
+	/**
+	 * <p>
+	 * Creates a new segment ranging from <em>start</em> to <em>end</em>
+	 * (inclusive).
+	 * </p>
+	 *
+	 * @param start
+	 *            The index of the first score of the segment
+	 * @param end
+	 *            The index of the last score of the segment
+	 * @param score
+	 *            The sum of all scores within the segment
+	 */
+	public Subsequence(int start, int end, double score)
+	{
+		this.start = start;
+		this.end = end;
+		this.score = score;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the first score of the segment based on its
+	 * position in the origin score sequence.
+	 * </p>
+	 *
+	 * @return The start index of the segment
+	 */
+	public int getStart()
+	{
+		return this.start;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the last score of the segment based on its position
+	 * in the origin score sequence.
+	 * </p>
+	 *
+	 * @return The inclusive end index of the segment
+	 */
+	public int getEnd()
+	{
+		return this.end;
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of scores contained in the segment.
+	 * </p>
+	 *
+	 * @return The length of the segment
+	 */
+	public int getLength()
+	{
+		return this.end - this.start + 1;
+	}
+
+	/**
+	 * <p>
+	 * Returns the sum of all scores contained in the segment.
+	 * </p>
+	 *
+	 * @return The score of the segment
+	 */
+	public double getScore()
+	{
+		return this.score;
+	}
+
+	/**
+	 * <p>
+	 * Specifies if the segment does not contain any score.
+	 * </p>
+	 *
+	 * @return true if the segment is empty, false otherwise
+	 */
+	public boolean isEmpty()
+	{
+		return this.end < this.start;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Subsequence))
+			return false;
+		Subsequence other = (Subsequence) obj;
+		return this.start == other.start && this.end == other.end
+				&& Double.compare(this.score, other.score) == 0;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		long bits = Double.doubleToLongBits(this.score);
+		int result = 31 * this.start + this.end;
+		return 31 * result + (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + this.start + ", " + this.end + "]: " + this.score;
+	}
+}
@@ -0,0 +1,210 @@
+package at.rovo.textextraction.mss;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Finds the maximum subsequence of many documents within a single call. The
+ * scores of all documents are packed into one contiguous <code>double[]</code>
+ * while an offset array marks the boundaries of the documents. The scores of
+ * document <em>d</em> range from <code>offsets[d]</code> (inclusive) to
+ * <code>offsets[d+1]</code> (exclusive), hence the offset array contains one
+ * entry more than there are documents.
+ * </p>
+ * <p>
+ * Every document is processed by the same tight loop as
+ * {@link MaximumSubsequence#top(double[], int, int)} without copying or boxing
+ * any scores. If the batch contains more scores than the specified threshold,
+ * the documents are split into halves and processed on the common
+ * {@link ForkJoinPool} until the number of scores of a part drops below the
+ * threshold.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class SubsequenceBatch
+{
+	/** The default number of scores a batch needs to exceed to get split **/
+	public static final int DEFAULT_THRESHOLD = 1 << 15;
+
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private SubsequenceBatch()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Finds the maximum subsequence of every document of the batch using the
+	 * {@link #DEFAULT_THRESHOLD}.
+	 * </p>
+	 *
+	 * @param scores
+	 *            The packed scores of all documents
+	 * @param offsets
+	 *            The index of the first score of every document followed by
+	 *            the number of packed scores
+	 * @return The maximum subsequence of every document
+	 * @see #top(double[], int[], int)
+	 */
+	public static Subsequence[] top(final double[] scores, final int[] offsets)
+	{
+		return top(scores, offsets, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * <p>
+	 * Finds the maximum subsequence of every document of the batch. The
+	 * indices of the returned subsequences are based on the position inside
+	 * the scores of the respective document and not on the position in the
+	 * packed array. Documents without any score yield
+	 * {@link Subsequence#EMPTY}.
+	 * </p>
+	 *
+	 * @param scores
+	 *            The packed scores of all documents
+	 * @param offsets
+	 *            The index of the first score of every document followed by
+	 *            the number of packed scores
+	 * @param threshold
+	 *            The number of scores a part of the batch needs to exceed to
+	 *            get processed in parallel
+	 * @return The maximum subsequence of every document
+	 * @throws IllegalArgumentException
+	 *             If the offsets are not ascending or not within the bounds of
+	 *             the scores
+	 */
+	public static Subsequence[] top(final double[] scores, final int[] offsets,
+			int threshold)
+	{
+		if (scores == null || offsets == null || offsets.length == 0)
+			throw new IllegalArgumentException(
+					"No batch available to trace for subsequences!");
+		for (int d = 1; d < offsets.length; d++)
+			if (offsets[d] < offsets[d - 1])
+				throw new IllegalArgumentException("Offset " + offsets[d]
+						+ " of document " + d + " precedes its predecessor!");
+		MaximumSubsequence.checkSlice(scores, offsets[0],
+				offsets[offsets.length - 1] - offsets[0]);
+
+		Subsequence[] result = new Subsequence[offsets.length - 1];
+		threshold = Math.max(threshold, 1);
+		Segmentation task = new Segmentation(scores, offsets, 0, result.length,
+				threshold, result);
+		if (offsets[result.length] - offsets[0] > threshold && result.length > 1)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.compute();
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Finds the maximum subsequences of the documents <em>from</em> till
+	 * <em>to</em> (exclusive) sequentially.
+	 * </p>
+	 *
+	 * @param s
+	 *            The packed scores of all documents
+	 * @param offsets
+	 *            The boundaries of the documents
+	 * @param from
+	 *            The first document to process
+	 * @param to
+	 *            The document following the last document to process
+	 * @param result
+	 *            The array to store the maximum subsequences in
+	 */
+	private static void top(final double[] s, final int[] offsets, int from,
+			int to, final Subsequence[] result)
+	{
+		for (int d = from; d < to; d++)
+		{
+			int offset = offsets[d];
+			int end = offsets[d + 1];
+			if (end == offset)
+			{
+				result[d] = Subsequence.EMPTY;
+				continue;
+			}
+
+			int start = offset;
+			double sum = 0;
+			double max = Double.NEGATIVE_INFINITY;
+			int maxStart = offset;
+			int maxEnd = offset - 1;
+			for (int i = offset; i < end; i++)
+			{
+				sum += s[i];
+				if (sum > max)
+				{
+					max = sum;
+					maxStart = start;
+					maxEnd = i;
+				}
+				if (sum < 0)
+				{
+					start = i + 1;
+					sum = 0;
+				}
+			}
+			result[d] = new Subsequence(maxStart - offset, maxEnd - offset, max);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Splits a range of documents into halves until the number of scores of a
+	 * range does not exceed the threshold any longer.
+	 * </p>
+	 */
+	private static final class Segmentation extends RecursiveAction
+	{
+		private static final long serialVersionUID = -2807369617316549013L;
+
+		/** The packed scores of all documents **/
+		private final double[] scores;
+		/** The boundaries of the documents **/
+		private final int[] offsets;
+		/** The first document of the range **/
+		private final int from;
+		/** The document following the last document of the range **/
+		private final int to;
+		/** The number of scores a range needs to exceed to get split **/
+		private final int threshold;
+		/** The array to store the maximum subsequences in **/
+		private final Subsequence[] result;
+
+		Segmentation(double[] scores, int[] offsets, int from, int to,
+				int threshold, Subsequence[] result)
+		{
+			this.scores = scores;
+			this.offsets = offsets;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.to - this.from < 2
+					|| this.offsets[this.to] - this.offsets[this.from] <= this.threshold)
+			{
+				top(this.scores, this.offsets, this.from, this.to, this.result);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Segmentation(this.scores, this.offsets, this.from,
+					middle, this.threshold, this.result), new Segmentation(
+					this.scores, this.offsets, middle, this.to, this.threshold,
+					this.result));
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package at.rovo.textextraction.mss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Push-style variant of the maximum subsequence algorithm presented by Jeff
+ * Pasternack and Dan Roth. Scores are provided one at a time via
+ * {@link #push(double)} or {@link #push(Object, double)} and the subsequence
+ * with the highest score seen so far is tracked in constant memory.
+ * </p>
+ * <p>
+ * If items are pushed together with their score, only the items of the
+ * currently best subsequence and of the currently running subsequence are
+ * retained. Every item is stored exactly once as the best subsequence is
+ * always a prefix of one of the runs. Once a run is dropped, because its sum
+ * became negative, its items are released unless they contain the best
+ * subsequence.
+ * </p>
+ * <p>
+ * Instances are not thread-safe and are intended to be used for a single
+ * sequence only. Create a new instance via
+ * {@link MaximumSubsequenceSegmentation#openSubsequenceStream()} for every
+ * sequence to segment.
+ * </p>
+ *
+ * @param <T>
+ *            The type of the items which are pushed together with their score
+ * @author Roman Vottner
+ */
+public class SubsequenceStream<T>
+{
+	/** The number of scores pushed so far **/
+	private int count = 0;
+	/** The index of the first score of the running subsequence **/
+	private int start = 0;
+	/** The sum of the running subsequence **/
+	private double sum = 0.;
+	/** The index of the first score of the best subsequence **/
+	private int maxStart = 0;
+	/** The index of the last score of the best subsequence **/
+	private int maxEnd = -1;
+	/** The sum of the best subsequence **/
+	private double max = Double.NEGATIVE_INFINITY;
+	/** The items of the running subsequence **/
+	private List<T> run = new ArrayList<>();
+	/** The items of the run which contains the best subsequence **/
+	private List<T> maxRun = null;
+
+	/**
+	 * <p>
+	 * Adds the next score of the sequence without retaining any item.
+	 * </p>
+	 *
+	 * @param score
+	 *            The next score of the sequence
+	 */
+	public void push(double score)
+	{
+		this.push(null, score);
+	}
+
+	/**
+	 * <p>
+	 * Adds the next score of the sequence together with the item the score
+	 * was calculated for. The item is only retained as long as it is part of
+	 * the running or the best subsequence.
+	 * </p>
+	 *
+	 * @param item
+	 *            The item the score belongs to. If null is provided no item is
+	 *            retained
+	 * @param score
+	 *            The next score of the sequence
+	 */
+	public void push(T item, double score)
+	{
+		int i = this.count++;
+		if (item != null)
+			this.run.add(item);
+
+		this.sum += score;
+		if (this.sum > this.max)
+		{
+			this.max = this.sum;
+			this.maxStart = this.start;
+			this.maxEnd = i;
+			this.maxRun = this.run;
+		}
+		if (this.sum < 0)
+		{
+			this.start = i + 1;
+			this.sum = 0;
+			// keep the items of the run if the best subsequence is part of it
+			// but release the items following the best subsequence
+			if (this.maxRun == this.run)
+			{
+				int length = this.maxEnd - this.maxStart + 1;
+				if (length < this.maxRun.size())
+					this.maxRun.subList(length, this.maxRun.size()).clear();
+				this.run = new ArrayList<>();
+			}
+			else
+				this.run.clear();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of scores pushed so far.
+	 * </p>
+	 *
+	 * @return The number of scores pushed
+	 */
+	public int size()
+	{
+		return this.count;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the first score of the best subsequence seen so
+	 * far.
+	 * </p>
+	 *
+	 * @return The start index of the best subsequence
+	 */
+	public int getStart()
+	{
+		return this.maxStart;
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the last score of the best subsequence seen so far.
+	 * If no score was pushed yet -1 is returned.
+	 * </p>
+	 *
+	 * @return The inclusive end index of the best subsequence
+	 */
+	public int getEnd()
+	{
+		return this.maxEnd;
+	}
+
+	/**
+	 * <p>
+	 * Returns the score of the best subsequence seen so far.
+	 * </p>
+	 *
+	 * @return The score of the best subsequence
+	 */
+	public double getScore()
+	{
+		return this.max;
+	}
+
+	/**
+	 * <p>
+	 * Returns the best subsequence seen so far.
+	 * </p>
+	 *
+	 * @return The subsequence with the highest score seen so far or
+	 *         {@link Subsequence#EMPTY} if no score was pushed yet
+	 */
+	public Subsequence getMaximumSubsequence()
+	{
+		if (this.count == 0)
+			return Subsequence.EMPTY;
+		return new Subsequence(this.maxStart, this.maxEnd, this.max);
+	}
+
+	/**
+	 * <p>
+	 * Returns the items of the best subsequence seen so far. Only items which
+	 * were pushed together with their score are returned.
+	 * </p>
+	 *
+	 * @return A copy of the items of the best subsequence
+	 */
+	public List<T> getItems()
+	{
+		if (this.maxRun == null)
+			return Collections.emptyList();
+		int length = Math.min(this.maxEnd - this.maxStart + 1, this.maxRun.size());
+		return new ArrayList<>(this.maxRun.subList(0, length));
+	}
+}
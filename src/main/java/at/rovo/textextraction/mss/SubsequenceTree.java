@@ -0,0 +1,318 @@
+package at.rovo.textextraction.mss;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Finds the maximum subsequence of a single, very large score array in
+ * parallel. The array is split into chunks which are processed on the common
+ * {@link ForkJoinPool}. Every chunk is summarized by its total, its best
+ * prefix, its best suffix and its best inner segment. Two adjacent summaries
+ * are merged like the nodes of a segment tree, so the summary of the whole
+ * array contains the maximum subsequence.
+ * </p>
+ * <p>
+ * Ties are resolved like {@link MaximumSubsequence#top(double[], int, int)}
+ * does: among segments with the same score the one ending first wins and among
+ * those the longer one. The result is therefore the same as the one of the
+ * sequential algorithm, apart from rounding differences caused by summing the
+ * scores of the chunks separately.
+ * </p>
+ * <p>
+ * Optionally a {@link Scorer} calculates the scores of a chunk right before
+ * the chunk gets summarized, so scoring is parallelized as well.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class SubsequenceTree
+{
+	/** The default number of scores of a chunk **/
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+	/**
+	 * <p>
+	 * Calculates the scores of a chunk of the score array.
+	 * </p>
+	 */
+	public interface Scorer
+	{
+		/**
+		 * <p>
+		 * Writes the scores of the positions <em>from</em> till <em>to</em>
+		 * (exclusive) into the score array. Chunks are scored concurrently,
+		 * hence an implementation must not write outside of its chunk.
+		 * </p>
+		 *
+		 * @param from
+		 *            The index of the first score of the chunk
+		 * @param to
+		 *            The index following the last score of the chunk
+		 */
+		void score(int from, int to);
+	}
+
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private SubsequenceTree()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Finds the subsequence with the highest score within a slice of the
+	 * provided score array.
+	 * </p>
+	 *
+	 * @param s
+	 *            The scores to find the maximum subsequence in
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @param chunkSize
+	 *            The maximum number of scores which are processed sequentially
+	 * @return The subsequence with the highest score. The indices are based on
+	 *         the position in <em>s</em>
+	 * @see #top(double[], int, int, int, Scorer)
+	 */
+	public static Subsequence top(final double[] s, int offset, int length,
+			int chunkSize)
+	{
+		return top(s, offset, length, chunkSize, null);
+	}
+
+	/**
+	 * <p>
+	 * Scores a slice of the provided array chunk by chunk and finds the
+	 * subsequence with the highest score within the slice. If the slice is
+	 * empty {@link Subsequence#EMPTY} is returned.
+	 * </p>
+	 *
+	 * @param s
+	 *            The array to write the scores into and to find the maximum
+	 *            subsequence in
+	 * @param offset
+	 *            The index of the first score of the slice
+	 * @param length
+	 *            The number of scores of the slice
+	 * @param chunkSize
+	 *            The maximum number of scores which are processed sequentially
+	 * @param scorer
+	 *            Calculates the scores of a chunk; null if the array already
+	 *            contains the scores
+	 * @return The subsequence with the highest score. The indices are based on
+	 *         the position in <em>s</em>
+	 * @throws IllegalArgumentException
+	 *             If the slice is not within the bounds of <em>s</em>
+	 */
+	public static Subsequence top(final double[] s, int offset, int length,
+			int chunkSize, Scorer scorer)
+	{
+		MaximumSubsequence.checkSlice(s, offset, length);
+		if (length == 0)
+			return Subsequence.EMPTY;
+
+		Summary summary;
+		Summarization task = new Summarization(s, offset, offset + length,
+				Math.max(chunkSize, 1), scorer);
+		if (length > chunkSize)
+			summary = ForkJoinPool.commonPool().invoke(task);
+		else
+			summary = task.compute();
+		return new Subsequence(summary.bestStart, summary.bestEnd, summary.best);
+	}
+
+	/**
+	 * <p>
+	 * Summarizes the scores from <em>from</em> till <em>to</em> (exclusive)
+	 * sequentially.
+	 * </p>
+	 */
+	private static Summary summarize(final double[] s, int from, int to)
+	{
+		Summary summary = new Summary();
+
+		// the best prefix is the first maximum of the running total, the
+		// best suffix starts after the first minimum of the running total
+		double total = 0;
+		summary.prefix = Double.NEGATIVE_INFINITY;
+		double minimum = 0;
+		int minimumEnd = from - 1;
+
+		// the best inner segment is found like in MaximumSubsequence.top
+		int start = from;
+		double sum = 0;
+		summary.best = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++)
+		{
+			total += s[i];
+			if (total > summary.prefix)
+			{
+				summary.prefix = total;
+				summary.prefixEnd = i;
+			}
+			if (total < minimum && i < to - 1)
+			{
+				minimum = total;
+				minimumEnd = i;
+			}
+
+			sum += s[i];
+			if (sum > summary.best)
+			{
+				summary.best = sum;
+				summary.bestStart = start;
+				summary.bestEnd = i;
+			}
+			if (sum < 0)
+			{
+				start = i + 1;
+				sum = 0;
+			}
+		}
+		summary.total = total;
+		summary.suffix = total - minimum;
+		summary.suffixStart = minimumEnd + 1;
+		return summary;
+	}
+
+	/**
+	 * <p>
+	 * Merges the summaries of two adjacent ranges where <em>left</em> precedes
+	 * <em>right</em>.
+	 * </p>
+	 */
+	private static Summary merge(Summary left, Summary right)
+	{
+		Summary summary = new Summary();
+		summary.total = left.total + right.total;
+
+		double prefix = left.total + right.prefix;
+		if (prefix > left.prefix)
+		{
+			summary.prefix = prefix;
+			summary.prefixEnd = right.prefixEnd;
+		}
+		else
+		{
+			summary.prefix = left.prefix;
+			summary.prefixEnd = left.prefixEnd;
+		}
+
+		double suffix = left.suffix + right.total;
+		if (suffix >= right.suffix)
+		{
+			summary.suffix = suffix;
+			summary.suffixStart = left.suffixStart;
+		}
+		else
+		{
+			summary.suffix = right.suffix;
+			summary.suffixStart = right.suffixStart;
+		}
+
+		// the best segment of the left range ends before any other candidate,
+		// a crossing segment ends before the best segment of the right range
+		// or at the same position but starts earlier
+		summary.best = left.best;
+		summary.bestStart = left.bestStart;
+		summary.bestEnd = left.bestEnd;
+		double crossing = left.suffix + right.prefix;
+		if (crossing > summary.best)
+		{
+			summary.best = crossing;
+			summary.bestStart = left.suffixStart;
+			summary.bestEnd = right.prefixEnd;
+		}
+		if (right.best > summary.best)
+		{
+			summary.best = right.best;
+			summary.bestStart = right.bestStart;
+			summary.bestEnd = right.bestEnd;
+		}
+		return summary;
+	}
+
+	/**
+	 * <p>
+	 * The total, best prefix, best suffix and best inner segment of a range
+	 * of scores.
+	 * </p>
+	 */
+	private static final class Summary
+	{
+		/** The sum of all scores of the range **/
+		double total;
+		/** The highest sum of scores starting at the first score **/
+		double prefix;
+		/** The index of the last score of the best prefix **/
+		int prefixEnd;
+		/** The highest sum of scores ending at the last score **/
+		double suffix;
+		/** The index of the first score of the best suffix **/
+		int suffixStart;
+		/** The highest sum of any segment of the range **/
+		double best;
+		/** The index of the first score of the best segment **/
+		int bestStart;
+		/** The index of the last score of the best segment **/
+		int bestEnd;
+	}
+
+	/**
+	 * <p>
+	 * Splits a range of scores into halves until it does not exceed the chunk
+	 * size any longer and merges the summaries of the halves.
+	 * </p>
+	 */
+	private static final class Summarization extends RecursiveTask<Summary>
+	{
+		private static final long serialVersionUID = 4164390539916371092L;
+
+		/** The scores **/
+		private final double[] scores;
+		/** The index of the first score of the range **/
+		private final int from;
+		/** The index following the last score of the range **/
+		private final int to;
+		/** The maximum number of scores which are processed sequentially **/
+		private final int chunkSize;
+		/** Calculates the scores of a chunk if set **/
+		private final Scorer scorer;
+
+		Summarization(double[] scores, int from, int to, int chunkSize,
+				Scorer scorer)
+		{
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.scorer = scorer;
+		}
+
+		@Override
+		protected Summary compute()
+		{
+			if (this.to - this.from <= this.chunkSize)
+			{
+				if (this.scorer != null)
+					this.scorer.score(this.from, this.to);
+				return summarize(this.scores, this.from, this.to);
+			}
+			int middle = (this.from + this.to) >>> 1;
+			Summarization left = new Summarization(this.scores, this.from,
+					middle, this.chunkSize, this.scorer);
+			Summarization right = new Summarization(this.scores, middle,
+					this.to, this.chunkSize, this.scorer);
+			right.fork();
+			Summary summary = left.compute();
+			return merge(summary, right.join());
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package at.rovo.textextraction.mss;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import at.rovo.common.UrlReader;
+import at.rovo.classifier.Classifier;
 import at.rovo.classifier.naiveBayes.NaiveBayes;
 import at.rovo.parser.ParseResult;
 import at.rovo.parser.Parser;
@@ -64,8 +65,27 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 {
 	/** The logger of this instance **/
 	private static Logger logger = LogManager.getLogger(SupervisedMSS.class);
-	/** The parser used to download the content from pages on the Internet **/
-	private Parser parser = null;
+	/** The parser of every thread used to tokenize the content of pages **/
+	private final ThreadLocal<Parser> parser = new ThreadLocal<Parser>()
+	{
+		@Override
+		protected Parser initialValue()
+		{
+			return new Parser();
+		}
+	};
+	/** The trace buffer of every thread which is reused for every page **/
+	private static final ThreadLocal<ScoreTrace> SCORE_TRACE = new ThreadLocal<ScoreTrace>()
+	{
+		@Override
+		protected ScoreTrace initialValue()
+		{
+			return new ScoreTrace();
+		}
+	};
+	/** Decides which pages are traced and receives their traces; null if
+	 * tracing is disabled **/
+	private volatile ScoreTrace.Recorder scoreRecorder = null;
 
 	/**
 	 * <p>
@@ -80,8 +100,69 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 	public SupervisedMSS(TrainData trainForm)
 	{
 		super(trainForm);
+	}
+
+	/**
+	 * <p>
+	 * Sets the recorder which decides which pages are traced and receives
+	 * the scores of the traced pages. If no recorder is set, which is the
+	 * default, no page is traced.
+	 * </p>
+	 * 
+	 * @param recorder
+	 *            The recorder of the score traces; null to disable tracing
+	 */
+	public void setScoreRecorder(ScoreTrace.Recorder recorder)
+	{
+		this.scoreRecorder = recorder;
+	}
 
-		this.parser = new Parser();
+	/**
+	 * <p>
+	 * Returns the recorder which receives the scores of traced pages.
+	 * </p>
+	 * 
+	 * @return The recorder of the score traces; null if tracing is disabled
+	 */
+	public ScoreTrace.Recorder getScoreRecorder()
+	{
+		return this.scoreRecorder;
+	}
+
+	/**
+	 * <p>
+	 * Starts the trace of a page if a recorder is set and it decides to trace
+	 * the page.
+	 * </p>
+	 * 
+	 * @param url
+	 *            The URL of the page which is about to be scored
+	 * @return The cleared trace buffer of the current thread; null if the
+	 *         page is not traced
+	 */
+	protected ScoreTrace startTrace(String url)
+	{
+		ScoreTrace.Recorder recorder = this.scoreRecorder;
+		if (recorder == null || !recorder.isTraced(url))
+			return null;
+		ScoreTrace trace = SCORE_TRACE.get();
+		trace.clear(url);
+		return trace;
+	}
+
+	/**
+	 * <p>
+	 * Hands the completed trace of a page to the recorder.
+	 * </p>
+	 * 
+	 * @param trace
+	 *            The trace returned by {@link #startTrace(String)}
+	 */
+	protected void finishTrace(ScoreTrace trace)
+	{
+		ScoreTrace.Recorder recorder = this.scoreRecorder;
+		if (recorder != null)
+			recorder.traced(trace);
 	}
 
 	/**
@@ -98,22 +179,74 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 	 * the article text.
 	 * </p>
 	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
 	 * @return The predicted main content of a news article
 	 * @throws ExtractionException
-	 *         if the URL to predict content from is either null or empty
+	 *         if the page to predict content from is either null or empty
 	 * @throws NotTrainedException
 	 *             if the instance was not yet trained
 	 * @throws NoSubsequenceFoundException
 	 *             if no subsequence could be found
 	 */
 	@Override
-	public String predictText(final String url) throws ExtractionException
+	public String predictText(final CharSequence html, final String url)
+			throws ExtractionException
 	{
-		UrlReader reader = new UrlReader();
-		String html = reader.readPage(url);
-		if (html == null || html.equals(""))
+		return this.formatText(this.predictContent(html, url));
+	}
+
+	/**
+	 * <p>
+	 * Predicts the article text of the provided page like
+	 * {@link #predictText(CharSequence, String)} does but formats it directly
+	 * into <em>out</em>.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @param out
+	 *            The target to append the predicted article to
+	 * @throws ExtractionException
+	 *             if the page to predict content from is either null or empty
+	 * @throws IOException
+	 *             if the article could not be appended to <em>out</em>
+	 */
+	@Override
+	public void predictText(final CharSequence html, final String url,
+			Appendable out) throws ExtractionException, IOException
+	{
+		this.formatText(this.predictContent(html, url), out);
+	}
+
+	/**
+	 * <p>
+	 * Predicts the cleaned tokens of the main content of the provided page
+	 * based on the trained classifier.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The HTML content of the page to predict its content from
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @return The cleaned tokens of the predicted main content
+	 * @throws ExtractionException
+	 *             if the page to predict content from is either null or empty
+	 * @throws NotTrainedException
+	 *             if the instance was not yet trained
+	 * @throws NoSubsequenceFoundException
+	 *             if no subsequence could be found
+	 */
+	protected List<Token> predictContent(final CharSequence html,
+			final String url) throws ExtractionException
+	{
+		if (html == null || html.length() == 0)
 		{
-			logger.error("No html content available!");
+			logger.error("No html content available for {}!", url);
 			throw new ExtractionException(
 					"Page to predict content from is either null or empty");
 		}
@@ -122,27 +255,34 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 			throw new NotTrainedException("The instance has not yet trained. "
 					+ "Please make sure to invoke initTrainingData() beforehand!");
 
-		List<Double> maxSS = new ArrayList<Double>();
 		String classifierName = null;
-		double maxVal = Double.NEGATIVE_INFINITY;
-		ParseResult parse = this.parser.tokenize(html, false);
+		ParseResult parse = this.parser.get().tokenize(html.toString(), false);
 		List<Token> htmlToken = parse.getParsedTokens();
 
 		// Build a score-list for the classifier
-		List<Double> score = this.buildScoreList(htmlToken, this.classifier);
-		int start = this.topMaximumSubsequence(score, maxSS);
-		if (maxSS == null || maxSS.size() < 1)
+		double[] score = new double[this.getScoreCount(htmlToken)];
+		Subsequence maxSS = this.topMaximumSubsequence(score,
+				this.createScorer(htmlToken, this.classifier, score));
+		ScoreTrace trace = this.startTrace(url);
+		if (trace != null)
+		{
+			trace.setScores(score, 0, score.length, this.getScoreOffset());
+			trace.setSegment(maxSS);
+			this.finishTrace(trace);
+		}
+		if (maxSS.isEmpty())
 			throw new NoSubsequenceFoundException("No maximum sequence found!");
-		maxVal = this.value(maxSS);
-		classifierName = this.classifier.getName();
-		logger.trace("Calculating MSS of {}: {}", classifierName, maxVal);
+		// a mapped model scores the tokens without any classifier
+		if (this.classifier != null)
+			classifierName = this.classifier.getName();
+		logger.trace("Calculating MSS of {}: {}", classifierName, maxSS.getScore());
 
 		// We actually found a subsequence with highest value in one of
 		// our classifiers
 		if (classifierName != null)
 			logger.debug("Using classifier: {}", classifierName);
 
-		List<Token> predictedContent = this.getPredictedContent(htmlToken, maxSS, start);
+		List<Token> predictedContent = this.getPredictedContent(htmlToken, maxSS);
 
 		logger.trace("title: {}", parse.getTitle());
 		logger.trace("author: {}", parse.getAuthors());
@@ -151,17 +291,145 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 		logger.trace("MSS: {}", maxSS);
 		logger.debug("Predicted Content: {}", predictedContent);
 		
-		// clean and format the text
-		return this.formatText(this.cleanText(predictedContent));
+		// clean the text
+		return this.cleanText(predictedContent);
+	}
+
+	/**
+	 * <p>
+	 * Predicts up to <em>k</em> non-overlapping article segments of a page
+	 * based on the trained classifier. Unlike {@link #predictText(String)}
+	 * which only returns the single best segment, this method returns every
+	 * segment which scores among the <em>k</em> best segments of the page.
+	 * Segments separated by at most <em>maxGap</em> tokens are stitched
+	 * together.
+	 * </p>
+	 * 
+	 * @param url
+	 *            The URL of the page to predict the segments for
+	 * @param k
+	 *            The maximum number of segments to return
+	 * @param maxGap
+	 *            The maximum number of tokens between two segments which are
+	 *            stitched together. A negative value disables stitching
+	 * @return Up to <em>k</em> segments ordered by descending score
+	 * @throws ExtractionException
+	 *         if the URL to predict content from is either null or empty
+	 * @throws NotTrainedException
+	 *             if the instance was not yet trained
+	 * @throws NoSubsequenceFoundException
+	 *             if no segment could be found
+	 */
+	public List<PredictedSegment> predictSegments(final String url, int k,
+			int maxGap) throws ExtractionException
+	{
+		return this.predictSegments(this.readPage(url), url, k, maxGap);
+	}
+
+	/**
+	 * <p>
+	 * Predicts up to <em>k</em> non-overlapping article segments of an already
+	 * available page like {@link #predictSegments(String, int, int)} does
+	 * without downloading the page.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The HTML content of the page to predict the segments for
+	 * @param url
+	 *            The URL the page was retrieved from
+	 * @param k
+	 *            The maximum number of segments to return
+	 * @param maxGap
+	 *            The maximum number of tokens between two segments which are
+	 *            stitched together. A negative value disables stitching
+	 * @return Up to <em>k</em> segments ordered by descending score
+	 * @throws ExtractionException
+	 *         if the page to predict content from is either null or empty
+	 * @throws NotTrainedException
+	 *             if the instance was not yet trained
+	 * @throws NoSubsequenceFoundException
+	 *             if no segment could be found
+	 */
+	public List<PredictedSegment> predictSegments(final CharSequence html,
+			final String url, int k, int maxGap) throws ExtractionException
+	{
+		if (html == null || html.length() == 0)
+		{
+			logger.error("No html content available for {}!", url);
+			throw new ExtractionException(
+					"Page to predict content from is either null or empty");
+		}
+
+		if (!this.isTrained)
+			throw new NotTrainedException("The instance has not yet trained. "
+					+ "Please make sure to invoke initTrainingData() beforehand!");
+
+		List<Token> htmlToken = this.parser.get().tokenize(html.toString(), false).getParsedTokens();
+		double[] score = this.buildScores(htmlToken, this.classifier);
+		List<PredictedSegment> segments = this.rankSegments(htmlToken, score,
+				this.getScoreOffset(), k, maxGap);
+		if (segments.isEmpty())
+			throw new NoSubsequenceFoundException("No maximum sequence found!");
+		return segments;
 	}
 
+	/**
+	 * <p>
+	 * Predicts the article text of every provided page based on the trained
+	 * classifier. The scores of all pages are packed into a single array and
+	 * segmented by a {@link SubsequenceBatch} at once.
+	 * </p>
+	 * 
+	 * @param urls
+	 *            The URLs of the pages to predict content from
+	 * @return The predicted articles in the order of the provided URLs
+	 * @throws ExtractionException
+	 *         if the content of one of the pages is either null or empty
+	 * @throws NotTrainedException
+	 *             if the instance was not yet trained
+	 * @throws NoSubsequenceFoundException
+	 *             if no subsequence could be found for one of the pages
+	 */
 	@Override
 	public List<String> predictText(final List<String> urls)
 			throws ExtractionException
 	{
-		List<String> predictedContent = new ArrayList<String>();
-		for (String url : urls)
-			predictedContent.add(this.predictText(url));
+		if (!this.isTrained)
+			throw new NotTrainedException("The instance has not yet trained. "
+					+ "Please make sure to invoke initTrainingData() beforehand!");
+
+		// tokenize all pages first to know the size of the packed score array
+		List<List<Token>> pages = new ArrayList<List<Token>>(urls.size());
+		int[] offsets = new int[urls.size() + 1];
+		for (int d = 0; d < urls.size(); d++)
+		{
+			String html = this.readPage(urls.get(d));
+			if (html == null || html.equals(""))
+			{
+				logger.error("No html content available!");
+				throw new ExtractionException(
+						"Page to predict content from is either null or empty");
+			}
+			List<Token> htmlToken = this.parser.get().tokenize(html, false).getParsedTokens();
+			pages.add(htmlToken);
+			offsets[d + 1] = offsets[d] + this.getScoreCount(htmlToken);
+		}
+
+		double[] scores = new double[offsets[urls.size()]];
+		for (int d = 0; d < pages.size(); d++)
+			this.buildScores(pages.get(d), this.classifier, scores, offsets[d]);
+
+		Subsequence[] maxSS = SubsequenceBatch.top(scores, offsets);
+
+		List<String> predictedContent = new ArrayList<String>(urls.size());
+		for (int d = 0; d < pages.size(); d++)
+		{
+			if (maxSS[d].isEmpty())
+				throw new NoSubsequenceFoundException("No maximum sequence found!");
+			logger.trace("MSS of {}: {}", urls.get(d), maxSS[d]);
+			List<Token> content = this.getPredictedContent(pages.get(d), maxSS[d]);
+			predictedContent.add(this.formatText(this.cleanText(content)));
+		}
 		return predictedContent;
 	}
 
@@ -211,6 +479,25 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 		return text;
 	}
 
+	/**
+	 * <p>
+	 * Extracts the predicted article content from the HTML page
+	 * </p>
+	 * 
+	 * @param html
+	 *            A {@link List} containing all {@link Token}s of the origin
+	 *            page
+	 * @param maxSS
+	 *            The predicted result of the maximum subsequence segmentation
+	 *            algorithm
+	 * @return The predicted text as a {@link List} of {@link Token}s
+	 * @see #getSegmentTokens(List, Subsequence, int)
+	 */
+	protected List<Token> getPredictedContent(List<Token> html, Subsequence maxSS)
+	{
+		return this.getSegmentTokens(html, maxSS, this.getScoreOffset());
+	}
+
 	/**
 	 * <p>
 	 * Builds a score-list based on the probabilities of the local classifier
@@ -227,45 +514,226 @@ public class SupervisedMSS extends MaximumSubsequenceSegmentation
 	 */
 	protected List<Double> buildScoreList(List<Token> html,	NaiveBayes<String, String> classifier)
 	{
-		List<Double> scoreList = new ArrayList<Double>();
-		logger.trace("Score-List:");
-		int start = 0;
-		if (TrainFeatureStrategy.BIGRAM.equals(this.trainFeatureStrategy)
-				|| TrainFeatureStrategy.DOUBLE_UNIGRAM.equals(this.trainFeatureStrategy))
-			start = 1;
-		else if (TrainFeatureStrategy.TRIGRAM.equals(this.trainFeatureStrategy)
-				|| TrainFeatureStrategy.TRIPLE_UNIGRAM.equals(this.trainFeatureStrategy))
-			start = 2;
+		double[] scores = this.buildScores(html, classifier);
+		List<Double> scoreList = new ArrayList<Double>(scores.length);
+		for (double score : scores)
+			scoreList.add(score);
+		return scoreList;
+	}
 
-		Token token1 = null;
-		Token token2 = null;
-		for (int i = 0; i < html.size(); i++)
+	/**
+	 * <p>
+	 * Builds a primitive score array based on the probabilities of the local
+	 * classifier for every token to be labeled as in - 0.5 to generate values
+	 * between -0.5 and 0.5
+	 * </p>
+	 * 
+	 * @param html
+	 *            {@link List} of {@link Token}s which represent the HTML page
+	 *            whose main article text should be predicted
+	 * @param classifier
+	 *            The local classifier used
+	 * @return The scores of the tokens
+	 */
+	protected double[] buildScores(List<Token> html, NaiveBayes<String, String> classifier)
+	{
+		double[] scores = new double[this.getScoreCount(html)];
+		this.buildScores(html, classifier, scores, 0);
+		return scores;
+	}
+
+	/**
+	 * <p>
+	 * Writes the scores of the tokens into the provided array starting at
+	 * <em>offset</em>. This allows to pack the scores of several pages into a
+	 * single array which can be segmented via {@link SubsequenceBatch}.
+	 * </p>
+	 * <p>
+	 * Every token is normalized only once. If the trained classifier was
+	 * frozen into a {@link ScoringTable} the probabilities are taken from the
+	 * table. Otherwise, or if the table does not cover a combination of
+	 * features, the classifier is only asked for the probability of n-grams
+	 * which did not occur on the page before, hence feature strings are only
+	 * built for distinct n-grams.
+	 * </p>
+	 * 
+	 * @param html
+	 *            {@link List} of {@link Token}s which represent the HTML page
+	 *            whose main article text should be predicted
+	 * @param classifier
+	 *            The local classifier used
+	 * @param scores
+	 *            The array to write the scores into. It has to provide space
+	 *            for {@link #getScoreCount(List)} scores following
+	 *            <em>offset</em>
+	 * @param offset
+	 *            The index of the first score of the page within the array
+	 */
+	protected void buildScores(List<Token> html, NaiveBayes<String, String> classifier, 
+			double[] scores, int offset)
+	{
+		logger.trace("Score-List:");
+		int start = this.getScoreOffset();
+		// the number of tokens of a feature
+		int n = start + 1;
+		TrainFeatureStrategy strategy = this.trainFeatureStrategy;
+
+		boolean combined = TrainFeatureStrategy.DOUBLE_UNIGRAM.equals(strategy)
+				|| TrainFeatureStrategy.TRIPLE_UNIGRAM.equals(strategy);
+		// the frozen probabilities of the trained classifier
+		ScoringTable table = this.scoringTable;
+		if (table != null && (classifier != this.classifier || table.getStrategy() != strategy))
+			table = null;
+
+		// the format of the logged scores; null if they are not logged
+		DecimalFormat format = logger.isTraceEnabled() ? new DecimalFormat("#0.000") : null;
+		// normalize every token only once
+		TokenFeatures features = new TokenFeatures(html);
+		for (int i = start; i < html.size(); i++)
 		{
-			Token token = html.get(i);
-			double score = 0.;
-			// build an n-gram for the token and look up the probability for
-			// this n-gram
-			if (i >= start)
+			double probability = Double.NaN;
+			if (table != null)
+			{
+				if (combined)
+					probability = table.getCombinationProbability(features.getCombinationKey(i, n),
+							features.getTerms(), i - n + 1, i + 1);
+				else
+					probability = table.getProbability(features.getFeatureKey(i, n),
+							features.getTerms(), i - n + 1, i + 1);
+			}
+			// look up the probability for the n-gram ending at the token only
+			// once per page
+			long key = features.getKey(i, n);
+			if (Double.isNaN(probability))
+				probability = features.getProbability(key);
+			if (Double.isNaN(probability))
+			{
+				if (TrainFeatureStrategy.TRIGRAM.equals(strategy)
+						|| TrainFeatureStrategy.BIGRAM.equals(strategy)
+						|| TrainFeatureStrategy.UNIGRAM.equals(strategy))
+					probability = this.getProbability(classifier, features.getNGram(i, n));
+				else if (TrainFeatureStrategy.DOUBLE_UNIGRAM.equals(strategy)
+						|| TrainFeatureStrategy.TRIPLE_UNIGRAM.equals(strategy))
+					probability = this.getProbability(classifier, features.getUnigrams(i, n));
+				else
+					probability = 0.5;
+				features.setProbability(key, probability);
+			}
+			double score = probability - 0.5;
+
+			if (format != null)
 			{
-				if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIGRAM))
-					score = classifier.getProbability("in", this.getTrigram(token1, token2, token)) - 0.5;
-				else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.BIGRAM))
-					score = classifier.getProbability("in", this.getBigram(token2, token)) - 0.5;
-				else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.UNIGRAM))
-					score = classifier.getProbability("in", this.getUnigram(token)) - 0.5;
-				else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.DOUBLE_UNIGRAM))
-					score = classifier.getProbability("in", this.getDoubleUnigram(token2, token)) - 0.5;
-				else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIPLE_UNIGRAM))
-					score = classifier.getProbability("in", this.getTripleUnigram(token1, token2, token)) - 0.5;
-
-				logger.trace("{}{} : {}", (score < 0 ? "" : " "), new DecimalFormat("#0.000").format(score), 
+				Token token = html.get(i);
+				logger.trace("{}{} : {}", (score < 0 ? "" : " "), format.format(score), 
 						(token.getText() != null ? token.getText() : token.getHTML()));
-				scoreList.add(score);
 			}
-			token1 = token2;
-			token2 = token;
+			scores[offset + i - start] = score;
 		}
-		return scoreList;
+	}
+
+	/**
+	 * <p>
+	 * Creates a scorer which scores a range of the tokens of a page into the
+	 * provided array. As every score only depends on the token it belongs to
+	 * and the tokens preceding it within a feature, ranges can be scored
+	 * independently and concurrently.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The tokens of the page
+	 * @param classifier
+	 *            The classifier used to score the tokens
+	 * @param scores
+	 *            The array to write the scores into; it has to provide space
+	 *            for {@link #getScoreCount(List)} scores
+	 * @return The scorer of the page
+	 */
+	protected SubsequenceTree.Scorer createScorer(final List<Token> html,
+			final NaiveBayes<String, String> classifier, final double[] scores)
+	{
+		final int start = this.getScoreOffset();
+		return new SubsequenceTree.Scorer()
+		{
+			@Override
+			public void score(int from, int to)
+			{
+				// include the tokens preceding the first scored token which
+				// are part of its feature
+				buildScores(html.subList(from, to + start), classifier, scores, from);
+			}
+		};
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the classifier for a feature to be labeled as
+	 * in. Extending classes may override this method to cache probabilities.
+	 * </p>
+	 * 
+	 * @param classifier
+	 *            The classifier to ask
+	 * @param feature
+	 *            The feature to get the probability for
+	 * @return The probability of the feature to be labeled as in
+	 */
+	protected double getProbability(Classifier<String, String> classifier, String feature)
+	{
+		return classifier.getProbability("in", feature);
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of the classifier for a combination of
+	 * independent features to be labeled as in. Extending classes may override
+	 * this method to cache probabilities.
+	 * </p>
+	 * 
+	 * @param classifier
+	 *            The classifier to ask
+	 * @param features
+	 *            The combined features to get the probability for
+	 * @return The probability of the features to be labeled as in
+	 */
+	protected double getProbability(Classifier<String, String> classifier, String[] features)
+	{
+		return classifier.getProbability("in", features);
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of scores {@link #buildScores(List, NaiveBayes)}
+	 * calculates for the provided tokens.
+	 * </p>
+	 * 
+	 * @param html
+	 *            The tokens of the page
+	 * @return The number of scores of the page
+	 */
+	protected int getScoreCount(List<Token> html)
+	{
+		return Math.max(html.size() - this.getScoreOffset(), 0);
+	}
+
+	/**
+	 * <p>
+	 * Returns the index of the token the first score calculated by
+	 * {@link #buildScores(List, NaiveBayes)} belongs to. As every score is
+	 * calculated for the last token of a n-gram, this is the number of tokens
+	 * preceding the key token of the n-gram.
+	 * </p>
+	 * 
+	 * @return The number of tokens which do not get a score at the beginning
+	 *         of the page
+	 */
+	protected int getScoreOffset()
+	{
+		if (TrainFeatureStrategy.BIGRAM.equals(this.trainFeatureStrategy)
+				|| TrainFeatureStrategy.DOUBLE_UNIGRAM.equals(this.trainFeatureStrategy))
+			return 1;
+		else if (TrainFeatureStrategy.TRIGRAM.equals(this.trainFeatureStrategy)
+				|| TrainFeatureStrategy.TRIPLE_UNIGRAM.equals(this.trainFeatureStrategy))
+			return 2;
+		return 0;
 	}
 
 	/**
@@ -0,0 +1,250 @@
+package at.rovo.textextraction.mss;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import at.rovo.parser.ParserUtil;
+import at.rovo.parser.Token;
+import at.rovo.parser.Word;
+
+/**
+ * <p>
+ * Holds the normalized text of every token of a single page, which is the
+ * formatted text of a word or the HTML of a tag, and the n-gram features
+ * derived from them.
+ * </p>
+ * <p>
+ * Every token is normalized exactly once. Equal terms are mapped to the same
+ * id of a dictionary which only lives as long as the page is processed. An
+ * n-gram of up to three tokens is therefore identified by a single
+ * <code>long</code> key packing the ids of its terms. The keys are used to
+ * cache the probability of every distinct n-gram of the page, so feature
+ * strings or arrays only need to be built for n-grams which were not seen
+ * before on this page.
+ * </p>
+ * <p>
+ * Additionally the {@link ScoringTable} hash of every term is calculated once
+ * so the table key of an n-gram can be derived without building the n-gram.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+final class TokenFeatures
+{
+	/** The number of bits of an id within an n-gram key **/
+	private static final int ID_BITS = 21;
+	/** The marker of an unused slot of the probability cache **/
+	private static final long NO_KEY = -1L;
+
+	/** The normalized text of every token **/
+	private final String[] terms;
+	/** The dictionary id of the term of every token **/
+	private final int[] ids;
+	/** The scoring table hash of every term **/
+	private final long[] hashes;
+	/** The base of the scoring table hash to the power of the term length **/
+	private final long[] powers;
+	/** Specifies if the ids fit into an n-gram key **/
+	private final boolean packable;
+
+	/** The keys of the cached probabilities **/
+	private final long[] keys;
+	/** The cached probabilities **/
+	private final double[] probabilities;
+
+	/**
+	 * <p>
+	 * Normalizes the tokens of a page.
+	 * </p>
+	 *
+	 * @param html
+	 *            The tokens of the page
+	 */
+	TokenFeatures(List<Token> html)
+	{
+		int size = html.size();
+		this.terms = new String[size];
+		this.ids = new int[size];
+		this.hashes = new long[size];
+		this.powers = new long[size];
+		Map<String, Integer> dictionary = new HashMap<>();
+		for (int i = 0; i < size; i++)
+		{
+			Token token = html.get(i);
+			String term;
+			if (token instanceof Word)
+				term = ParserUtil.formatText(token.getText());
+			else
+				term = token.getHTML();
+			Integer id = dictionary.get(term);
+			if (id == null)
+			{
+				id = dictionary.size();
+				dictionary.put(term, id);
+			}
+			this.terms[i] = term;
+			this.ids[i] = id;
+			this.hashes[i] = ScoringTable.hash(term);
+			this.powers[i] = ScoringTable.power(term == null ? 4 : term.length());
+		}
+		this.packable = dictionary.size() < (1 << ID_BITS);
+
+		// there are never more distinct n-grams than tokens, so a table of
+		// twice the number of tokens never needs to grow
+		int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+		this.keys = new long[this.packable ? capacity : 0];
+		this.probabilities = new double[this.keys.length];
+		Arrays.fill(this.keys, NO_KEY);
+	}
+
+	/**
+	 * <p>
+	 * Returns the normalized text of the token at position <em>i</em>.
+	 * </p>
+	 */
+	String getTerm(int i)
+	{
+		return this.terms[i];
+	}
+
+	/**
+	 * <p>
+	 * Returns the normalized text of every token. The array must not be
+	 * modified.
+	 * </p>
+	 */
+	String[] getTerms()
+	{
+		return this.terms;
+	}
+
+	/**
+	 * <p>
+	 * Builds the feature of the <em>n</em> tokens ending at position
+	 * <em>i</em> consisting of the terms separated by a blank.
+	 * </p>
+	 */
+	String getNGram(int i, int n)
+	{
+		if (n == 1)
+			return this.terms[i];
+		StringBuilder builder = new StringBuilder();
+		builder.append(this.terms[i - n + 1]);
+		for (int j = i - n + 2; j <= i; j++)
+			builder.append(' ').append(this.terms[j]);
+		return builder.toString();
+	}
+
+	/**
+	 * <p>
+	 * Builds the feature of the <em>n</em> tokens ending at position
+	 * <em>i</em> consisting of the independent terms.
+	 * </p>
+	 */
+	String[] getUnigrams(int i, int n)
+	{
+		return Arrays.copyOfRange(this.terms, i - n + 1, i + 1);
+	}
+
+	/**
+	 * <p>
+	 * Returns the key of the <em>n</em> tokens (at most three) ending at
+	 * position <em>i</em> or -1 if the page contains too many distinct terms to
+	 * build keys.
+	 * </p>
+	 */
+	long getKey(int i, int n)
+	{
+		if (!this.packable)
+			return NO_KEY;
+		long key = 0;
+		for (int j = i - n + 1; j <= i; j++)
+			key = (key << ID_BITS) | this.ids[j];
+		return key;
+	}
+
+	/**
+	 * <p>
+	 * Returns the {@link ScoringTable} key of the n-gram of the <em>n</em>
+	 * tokens ending at position <em>i</em>, which is the key of
+	 * {@link #getNGram(int, int)}.
+	 * </p>
+	 */
+	long getFeatureKey(int i, int n)
+	{
+		return this.join(i, n, ScoringTable.BLANK);
+	}
+
+	/**
+	 * <p>
+	 * Returns the {@link ScoringTable} key of the combination of the
+	 * <em>n</em> independent tokens ending at position <em>i</em>, which is
+	 * the key of {@link #getUnigrams(int, int)}.
+	 * </p>
+	 */
+	long getCombinationKey(int i, int n)
+	{
+		return this.join(i, n, ScoringTable.SEPARATOR);
+	}
+
+	private long join(int i, int n, long separator)
+	{
+		long key = this.hashes[i - n + 1];
+		for (int j = i - n + 2; j <= i; j++)
+		{
+			key = ScoringTable.concat(key, separator, ScoringTable.BASE);
+			key = ScoringTable.concat(key, this.hashes[j], this.powers[j]);
+		}
+		return key;
+	}
+
+	/**
+	 * <p>
+	 * Returns the cached probability of the n-gram with the provided key or
+	 * {@link Double#NaN} if it was not cached yet.
+	 * </p>
+	 */
+	double getProbability(long key)
+	{
+		if (key == NO_KEY)
+			return Double.NaN;
+		int mask = this.keys.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask)
+		{
+			long k = this.keys[slot];
+			if (k == key)
+				return this.probabilities[slot];
+			if (k == NO_KEY)
+				return Double.NaN;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Caches the probability of the n-gram with the provided key.
+	 * </p>
+	 */
+	void setProbability(long key, double probability)
+	{
+		if (key == NO_KEY)
+			return;
+		int mask = this.keys.length - 1;
+		int slot = hash(key) & mask;
+		while (this.keys[slot] != NO_KEY && this.keys[slot] != key)
+			slot = (slot + 1) & mask;
+		this.keys[slot] = key;
+		this.probabilities[slot] = probability;
+	}
+
+	/**
+	 * <p>
+	 * Spreads the bits of a key over the lower bits of the hash.
+	 * </p>
+	 */
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,259 @@
+package at.rovo.textextraction.mss;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import at.rovo.parser.Token;
+
+/**
+ * <p>
+ * Inverted index of the positions of the tokens of a single document. Two
+ * tokens are occurrences of the same feature if either their texts or their
+ * HTML representations are equal, like
+ * {@link SemiSupervisedMSS#buildFeatureSet(List, Token)} defines it.
+ * </p>
+ * <p>
+ * The index is built once per document with a single pass over its tokens.
+ * Every position is assigned to a group of tokens sharing the same text and
+ * HTML representation, and every group knows the sorted positions of all
+ * occurrences of its feature and their prefix sums. Looking up the
+ * occurrences of a token therefore neither scans the document nor compares
+ * any strings.
+ * </p>
+ * <p>
+ * Instances are immutable once created.
+ * </p>
+ *
+ * @author Roman Vottner
+ */
+public final class TokenPositionIndex
+{
+	/** The position of the first indexed token **/
+	private final int first;
+	/** The group of every indexed position **/
+	private final int[] groups;
+	/** The sorted positions of the occurrences of every group **/
+	private final int[][] positions;
+	/** The prefix sums of the positions of every group **/
+	private final long[][] sums;
+
+	/**
+	 * <p>
+	 * Indexes the tokens of a document starting at position <em>first</em>.
+	 * Only tokens containing text are recorded as occurrences.
+	 * </p>
+	 *
+	 * @param html
+	 *            The tokens of the document
+	 * @param first
+	 *            The position of the first token to index
+	 * @throws IllegalArgumentException
+	 *             If no tokens are provided or <em>first</em> is negative
+	 */
+	public TokenPositionIndex(List<Token> html, int first)
+	{
+		if (html == null)
+			throw new IllegalArgumentException("No list of tokens provided!");
+		if (first < 0)
+			throw new IllegalArgumentException("The first position must not be negative!");
+		this.first = first;
+		int size = Math.max(html.size() - first, 0);
+		this.groups = new int[size];
+
+		Map<String, Positions> byText = new HashMap<>();
+		Map<String, Positions> byHtml = new HashMap<>();
+		Map<List<String>, Integer> groupIds = new HashMap<>();
+		for (int i = first; i < html.size(); i++)
+		{
+			Token token = html.get(i);
+			String text = token.getText();
+			String htmlText = token.getHTML();
+			if (text != null)
+			{
+				add(byText, text, i);
+				if (htmlText != null)
+					add(byHtml, htmlText, i);
+			}
+
+			List<String> key = Arrays.asList(text, htmlText);
+			Integer group = groupIds.get(key);
+			if (group == null)
+			{
+				group = groupIds.size();
+				groupIds.put(key, group);
+			}
+			this.groups[i - first] = group;
+		}
+
+		this.positions = new int[groupIds.size()][];
+		this.sums = new long[groupIds.size()][];
+		for (Map.Entry<List<String>, Integer> entry : groupIds.entrySet())
+		{
+			String text = entry.getKey().get(0);
+			String htmlText = entry.getKey().get(1);
+			Positions textPositions = text != null ? byText.get(text) : null;
+			Positions htmlPositions = htmlText != null ? byHtml.get(htmlText) : null;
+			int[] occurrences = union(textPositions, htmlPositions);
+			long[] sum = new long[occurrences.length + 1];
+			for (int i = 0; i < occurrences.length; i++)
+				sum[i + 1] = sum[i] + occurrences[i];
+			this.positions[entry.getValue()] = occurrences;
+			this.sums[entry.getValue()] = sum;
+		}
+	}
+
+	private static void add(Map<String, Positions> index, String key, int position)
+	{
+		Positions positions = index.get(key);
+		if (positions == null)
+		{
+			positions = new Positions();
+			index.put(key, positions);
+		}
+		positions.add(position);
+	}
+
+	/**
+	 * <p>
+	 * Merges two ascending lists of positions into a single ascending array
+	 * without duplicates.
+	 * </p>
+	 */
+	private static int[] union(Positions a, Positions b)
+	{
+		if (a == null && b == null)
+			return new int[0];
+		if (b == null)
+			return a.toArray();
+		if (a == null)
+			return b.toArray();
+
+		int[] merged = new int[a.size + b.size];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.size || j < b.size)
+		{
+			int next;
+			if (j == b.size || i < a.size && a.values[i] < b.values[j])
+				next = a.values[i++];
+			else if (i == a.size || b.values[j] < a.values[i])
+				next = b.values[j++];
+			else
+			{
+				next = a.values[i++];
+				j++;
+			}
+			merged[n++] = next;
+		}
+		return n == merged.length ? merged : Arrays.copyOf(merged, n);
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of groups of tokens sharing the same text and HTML
+	 * representation.
+	 * </p>
+	 *
+	 * @return The number of groups
+	 */
+	public int getGroupCount()
+	{
+		return this.positions.length;
+	}
+
+	/**
+	 * <p>
+	 * Returns the group of the token at the given position. Tokens of the
+	 * same group have the same occurrences.
+	 * </p>
+	 *
+	 * @param position
+	 *            The position of an indexed token
+	 * @return The group of the token
+	 * @throws IndexOutOfBoundsException
+	 *             If the token at the position was not indexed
+	 */
+	public int getGroup(int position)
+	{
+		if (position < this.first || position - this.first >= this.groups.length)
+			throw new IndexOutOfBoundsException("Position " + position
+					+ " is not indexed");
+		return this.groups[position - this.first];
+	}
+
+	/**
+	 * <p>
+	 * Returns the positions of all occurrences of the feature of a group.
+	 * The returned array must not be modified.
+	 * </p>
+	 *
+	 * @param group
+	 *            The group to return the occurrences for
+	 * @return The ascending positions of the occurrences
+	 */
+	public int[] getPositions(int group)
+	{
+		return this.positions[group];
+	}
+
+	/**
+	 * <p>
+	 * Returns the prefix sums of the positions of the occurrences of the
+	 * feature of a group. The element at index <em>i</em> is the sum of the
+	 * first <em>i</em> positions returned by {@link #getPositions(int)}, so
+	 * the sum of the positions of any range of occurrences is available in
+	 * constant time. The returned array must not be modified.
+	 * </p>
+	 *
+	 * @param group
+	 *            The group to return the prefix sums for
+	 * @return The prefix sums of the positions, which contain one more
+	 *         element than the positions
+	 */
+	public long[] getPositionSums(int group)
+	{
+		return this.sums[group];
+	}
+
+	/**
+	 * <p>
+	 * Returns the positions of all occurrences of the feature of the token at
+	 * the given position. The returned array must not be modified.
+	 * </p>
+	 *
+	 * @param position
+	 *            The position of an indexed token
+	 * @return The ascending positions of the occurrences
+	 * @throws IndexOutOfBoundsException
+	 *             If the token at the position was not indexed
+	 */
+	public int[] getOccurrences(int position)
+	{
+		return this.positions[this.getGroup(position)];
+	}
+
+	/**
+	 * <p>
+	 * Growable list of ascending positions.
+	 * </p>
+	 */
+	private static final class Positions
+	{
+		int[] values = new int[4];
+		int size = 0;
+
+		void add(int position)
+		{
+			if (this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			this.values[this.size++] = position;
+		}
+
+		int[] toArray()
+		{
+			return Arrays.copyOf(this.values, this.size);
+		}
+	}
+}
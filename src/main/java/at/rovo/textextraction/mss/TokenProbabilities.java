@@ -0,0 +1,157 @@
+package at.rovo.textextraction.mss;
+
+/**
+ * <p>
+ * The probabilities of the tokens of a single document to be labeled as in,
+ * together with the prefix sums of their logarithms. The sum of the
+ * logarithms of the probabilities of any range of tokens to be labeled as in
+ * or as out is therefore available in constant time. Summing up logarithms
+ * instead of multiplying the probabilities also prevents the product of many
+ * small probabilities from underflowing to 0.
+ * </p>
+ * <p>
+ * As the probabilities are taken from the trained classifier, which does not
+ * change while predicting, they are computed once per document and reused by
+ * every iteration of the semi supervised prediction.
+ * </p>
+ * <p>
+ * Instances are immutable once created.
+ * </p>
+ *
+ * @see SemiSupervisedMSS#buildProbabilities(java.util.List)
+ * @author Roman Vottner
+ */
+public final class TokenProbabilities
+{
+	/** The probability of every token to be labeled as in **/
+	private final double[] probabilities;
+	/** The prefix sums of the logarithms of the in probabilities **/
+	private final double[] inSums;
+	/** The prefix sums of the logarithms of the out probabilities **/
+	private final double[] outSums;
+	/** The number of tokens whose in probability has no finite logarithm
+	 * before every position **/
+	private final int[] inSingular;
+	/** The number of tokens whose out probability has no finite logarithm
+	 * before every position **/
+	private final int[] outSingular;
+
+	/**
+	 * <p>
+	 * Creates the prefix sums of the logarithms of the provided
+	 * probabilities. The array must not be modified afterwards.
+	 * </p>
+	 *
+	 * @param probabilities
+	 *            The probability of every token of a document to be labeled
+	 *            as in
+	 * @throws IllegalArgumentException
+	 *             If no probabilities are provided
+	 */
+	public TokenProbabilities(double[] probabilities)
+	{
+		if (probabilities == null)
+			throw new IllegalArgumentException("No probabilities provided!");
+		int n = probabilities.length;
+		this.probabilities = probabilities;
+		this.inSums = new double[n + 1];
+		this.outSums = new double[n + 1];
+		this.inSingular = new int[n + 1];
+		this.outSingular = new int[n + 1];
+		for (int i = 0; i < n; i++)
+		{
+			double in = Math.log(probabilities[i]);
+			double out = Math.log(1 - probabilities[i]);
+			boolean inFinite = !Double.isInfinite(in) && !Double.isNaN(in);
+			boolean outFinite = !Double.isInfinite(out) && !Double.isNaN(out);
+			this.inSums[i + 1] = this.inSums[i] + (inFinite ? in : 0.);
+			this.outSums[i + 1] = this.outSums[i] + (outFinite ? out : 0.);
+			this.inSingular[i + 1] = this.inSingular[i] + (inFinite ? 0 : 1);
+			this.outSingular[i + 1] = this.outSingular[i] + (outFinite ? 0 : 1);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the number of tokens of the document.
+	 * </p>
+	 *
+	 * @return The number of tokens
+	 */
+	public int size()
+	{
+		return this.probabilities.length;
+	}
+
+	/**
+	 * <p>
+	 * Returns the probability of a token to be labeled as in.
+	 * </p>
+	 *
+	 * @param i
+	 *            The position of the token
+	 * @return The probability of the token to be labeled as in
+	 */
+	public double getProbability(int i)
+	{
+		return this.probabilities[i];
+	}
+
+	/**
+	 * <p>
+	 * Returns the sum of the logarithms of the probabilities of the tokens
+	 * <em>from</em> till <em>to</em> (exclusive) to be labeled as in. An empty
+	 * range yields 0.
+	 * </p>
+	 *
+	 * @param from
+	 *            The position of the first token
+	 * @param to
+	 *            The position following the last token
+	 * @return The logarithm of the product of the probabilities
+	 */
+	public double getInLogProbability(int from, int to)
+	{
+		if (to <= from)
+			return 0.;
+		if (this.inSingular[to] != this.inSingular[from])
+			return this.sumLogarithms(from, to, true);
+		return this.inSums[to] - this.inSums[from];
+	}
+
+	/**
+	 * <p>
+	 * Returns the sum of the logarithms of the probabilities of the tokens
+	 * <em>from</em> till <em>to</em> (exclusive) to be labeled as out. An
+	 * empty range yields 0.
+	 * </p>
+	 *
+	 * @param from
+	 *            The position of the first token
+	 * @param to
+	 *            The position following the last token
+	 * @return The logarithm of the product of the probabilities
+	 */
+	public double getOutLogProbability(int from, int to)
+	{
+		if (to <= from)
+			return 0.;
+		if (this.outSingular[to] != this.outSingular[from])
+			return this.sumLogarithms(from, to, false);
+		return this.outSums[to] - this.outSums[from];
+	}
+
+	/**
+	 * <p>
+	 * Sums up the logarithms of a range which contains a probability without
+	 * a finite logarithm, like a probability of 0, one after another.
+	 * </p>
+	 */
+	private double sumLogarithms(int from, int to, boolean in)
+	{
+		double sum = 0.;
+		for (int i = from; i < to; i++)
+			sum += Math.log(in ? this.probabilities[i] : 1 - this.probabilities[i]);
+		return sum;
+	}
+}
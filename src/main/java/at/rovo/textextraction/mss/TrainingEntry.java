@@ -16,6 +16,7 @@ import at.rovo.parser.ParserUtil;
 import at.rovo.parser.Tag;
 import at.rovo.parser.Token;
 import at.rovo.parser.Word;
+import at.rovo.textextraction.TagVocabulary;
 import at.rovo.stemmer.PorterStemmer;
 
 /**
@@ -42,6 +43,10 @@ public class TrainingEntry
 	private String category = "";
 	/** Classifier of this entry **/
 	private Classifier<String, String> classifier = null;
+	/** Records the trained features if set **/
+	private FeatureVocabulary featureVocabulary = null;
+	/** Records the trainings of this entry if set **/
+	private IncrementalNaiveBayes.Contribution contribution = null;
 	/** List of common tags	**/
 	private Dictionary<String, List<String>> commonTags = null;
 	/**
@@ -381,6 +386,36 @@ public class TrainingEntry
 		this.classifier = classifier;
 	}
 
+	/**
+	 * <p>
+	 * Sets the vocabulary which records every feature the classifier gets
+	 * trained with
+	 * </p>
+	 * 
+	 * @param featureVocabulary
+	 *            {@link FeatureVocabulary}
+	 */
+	public void setFeatureVocabulary(FeatureVocabulary featureVocabulary)
+	{
+		this.featureVocabulary = featureVocabulary;
+	}
+
+	/**
+	 * <p>
+	 * Sets the contribution which records every training of this entry, so
+	 * the training can be kept by and removed from an
+	 * {@link IncrementalNaiveBayes} cache later on. If no
+	 * {@link Classifier} is set, the trainings are only recorded.
+	 * </p>
+	 * 
+	 * @param contribution
+	 *            {@link IncrementalNaiveBayes.Contribution}
+	 */
+	public void setContribution(IncrementalNaiveBayes.Contribution contribution)
+	{
+		this.contribution = contribution;
+	}
+
 	/**
 	 * <p>
 	 * Sets the list of common tags including their sources
@@ -415,8 +450,8 @@ public class TrainingEntry
 	 *            expected!
 	 *            </p>
 	 * @throws IllegalArgumentException
-	 *             If no {@link Classifier} or no text to train the
-	 *             {@link Classifier} was specified
+	 *             If neither a {@link Classifier} nor a contribution or no
+	 *             text to train the {@link Classifier} was specified
 	 */
 	public void train(final boolean fixErrors) throws IllegalArgumentException
 	{
@@ -430,7 +465,7 @@ public class TrainingEntry
 		}
 		logger.debug("Tokens: {}", this.tokens);
 
-		if (this.classifier == null)
+		if (this.classifier == null && this.contribution == null)
 		{
 			logger.error("No classifier to train was specified!");
 			throw new IllegalArgumentException("No classifier to train was specified!");
@@ -529,24 +564,26 @@ public class TrainingEntry
 		if (this.source == null || this.source.equals(""))
 			throw new IllegalArgumentException("No source was defined for this entry!");
 
-		if (tag.getShortTag().trim().equals(""))
+		// the lower case name is calculated only once per tag name
+		int id = TagVocabulary.getId(tag);
+		String name = (id != TagVocabulary.OTHER) ? TagVocabulary.getLowerCaseName(id) 
+				: tag.getShortTag().toLowerCase();
+		if (name.trim().equals(""))
 			return;
-		List<String> sources = commonTags.get(tag.getShortTag().toLowerCase());
+		List<String> sources = commonTags.get(name);
 		if (sources == null)
 		{
 			sources = new ArrayList<String>();
 			sources.add(this.source);
-			commonTags.put(tag.getShortTag().toLowerCase(), sources);
-			logger.debug("New tag found: '{}', source: {}", 
-					tag.getShortTag().toLowerCase(), this.source);
+			commonTags.put(name, sources);
+			logger.debug("New tag found: '{}', source: {}", name, this.source);
 		}
 		else
 		{
 			if (!sources.contains(this.source))
 			{
 				sources.add(this.source);
-				logger.debug("Tag found: '{}', new source: {}", 
-						tag.getShortTag().toLowerCase(), this.source);
+				logger.debug("Tag found: '{}', new source: {}", name, this.source);
 			}
 		}
 	}
@@ -774,8 +811,16 @@ public class TrainingEntry
 			Token token2, Token token3, Stack<String> mostRecentUnclosedTag,
 			List<String> trigrams)
 	{
-		if (token3.getHTML() != null
-				&& token3.getHTML().toLowerCase().equals("<br>"))
+		// look up the ids of the token and of the most recent unclosed tag
+		// once, all further tag comparisons are plain integer comparisons
+		Tag tag3 = (token3 instanceof Tag) ? (Tag) token3 : null;
+		int id = (tag3 != null) ? TagVocabulary.getId(tag3) : TagVocabulary.OTHER;
+		boolean closing = tag3 != null && !tag3.isOpeningTag() && !tag3.isComment();
+		boolean inlineClosing = tag3 != null && tag3.isInlineCloseingTag();
+		int top = mostRecentUnclosedTag.isEmpty() ? TagVocabulary.OTHER 
+				: getId(mostRecentUnclosedTag.peek());
+
+		if (id == TagVocabulary.BR && !closing && !inlineClosing)
 		{
 			logger.debug("Found {}: removed {} from the stack - mostRecentUnclosedTag: {}", 
 					token3.getHTML(), mostRecentUnclosedTag.pop(), mostRecentUnclosedTag.peek());
@@ -783,7 +828,7 @@ public class TrainingEntry
 			return;
 		}
 		// don't pop or push </br> tags on or from the stack
-		if (token3.getHTML() != null && token3.getHTML().toLowerCase().startsWith("</br"))
+		if (id == TagVocabulary.BR && closing)
 		{
 				logger.debug("Found {}: leave it on the stack - mostRecentUnclosedTag: {}", 
 						token3.getHTML(), mostRecentUnclosedTag.peek());
@@ -792,8 +837,7 @@ public class TrainingEntry
 		}
 
 		// seldom lonely </noscript> tags appear - remove them
-		if (token3.getHTML() != null && token3.getHTML().toLowerCase().equals("</noscript>")
-				&& !mostRecentUnclosedTag.peek().toLowerCase().equals("<noscript>"))
+		if (id == TagVocabulary.NOSCRIPT && closing && top != TagVocabulary.NOSCRIPT)
 		{
 			logger.warn("Found lonly </noscript> tag - ignore it! mostRecentUnclosedTag: {}",
 						mostRecentUnclosedTag.peek());
@@ -801,8 +845,7 @@ public class TrainingEntry
 			return;
 		}
 		// lonly </p> tag found
-		if (token3.getHTML() != null && token3.getHTML().toLowerCase().equals("</p>")
-				&& !mostRecentUnclosedTag.peek().toLowerCase().startsWith("<p"))
+		if (id == TagVocabulary.P && closing && top != TagVocabulary.P)
 		{
 			logger.warn("Found lonly </p> tag - mostRecentUnclosedTag: {} leave stack as it is", 
 					mostRecentUnclosedTag.peek());
@@ -811,14 +854,9 @@ public class TrainingEntry
 		}
 
 		// inline closing tag found - pop the open tag from the stack
-		if (token3.getHTML() != null
-				&& (token3.getHTML().endsWith("/>") || (mostRecentUnclosedTag.peek().endsWith(">") &&
-				// catch <img ...> tags that do not end with <img ... />
-				(mostRecentUnclosedTag.peek().toLowerCase().startsWith("<img") ||
-						// catch <input ...> tags
-						mostRecentUnclosedTag.peek().toLowerCase().startsWith("<input") ||
-				// catch <meta ...> tags
-				mostRecentUnclosedTag.peek().toLowerCase().startsWith("<meta")))))
+		// catch <img ...>, <input ...> or <meta ...> tags that do not end 
+		// with /> too
+		if (inlineClosing || TagVocabulary.is(top, TagVocabulary.VOID))
 		{
 			// tag is now closed
 			logger.debug("Got {} - popping {} from the stack! New mostRecentUnclosedTag: {}", 
@@ -845,19 +883,17 @@ public class TrainingEntry
 		// closing tag found - pop the tag from the stack and compare if both
 		// relate to
 		// the same tag - if not raise an exception as something went wrong
-		if (token3.getHTML() != null && token3.getHTML().startsWith("</"))
+		if (closing)
 		{
 			String tag = mostRecentUnclosedTag.pop();
-			String closingTagName = token3.getHTML().replaceAll("</(.+?)>",
-					"$1");
-			String tagName = tag.substring(1, tag.indexOf(" ") > -1 ? tag
-					.indexOf(" ") : tag.indexOf(">"));
-			if (!closingTagName.equals(tagName))
+			if (!isClosedBy(tag, top, tag3, id))
 			{
+				int below = mostRecentUnclosedTag.isEmpty() ? TagVocabulary.OTHER
+						: getId(mostRecentUnclosedTag.peek());
 				// link or paragraph was not closed - ignore them
-				if ((tagName.equals("a") || tagName.equals("p"))
-						&& mostRecentUnclosedTag.peek().startsWith(
-								"<" + closingTagName))
+				if ((top == TagVocabulary.A || top == TagVocabulary.P)
+						&& !mostRecentUnclosedTag.isEmpty()
+						&& isClosedBy(mostRecentUnclosedTag.peek(), below, tag3, id))
 				{
 					// as a closing tag for the tag below the not closed tag was
 					// found, pop this from the stack too
@@ -871,17 +907,17 @@ public class TrainingEntry
 				}
 				// no opening <a ...> tag was found - delete the closing </a>
 				// tag
-				else if (tagName.equals("li") && closingTagName.equals("a"))
+				else if (top == TagVocabulary.LI && id == TagVocabulary.A)
 				{
 					// as the starting tag was taken from the stack, push is
 					// back again
 					mostRecentUnclosedTag.push(tag);
 					logger.warn("Ignoring {} as no opening tag could be found! mostRecentUnclosedTag is: {}",
-							closingTagName, mostRecentUnclosedTag.peek());
+							tag3.getShortTag(), mostRecentUnclosedTag.peek());
 				}
 				// lonely <li> starting tag inside <ul> tag found
-				else if (tag.startsWith("<li") && closingTagName.equals("ul")
-						&& mostRecentUnclosedTag.peek().startsWith("<ul"))
+				else if (top == TagVocabulary.LI && id == TagVocabulary.UL
+						&& below == TagVocabulary.UL)
 				{
 					// as <li> tag already got removed from the stack,
 					// remove ul as its closer tag was found
@@ -889,7 +925,7 @@ public class TrainingEntry
 							+ "from the stack as its closer tag was found! mostRecentUnclosedTag: {}", 
 							tag, mostRecentUnclosedTag.pop(), mostRecentUnclosedTag.peek());
 				}
-				else if (tagName.equals("ul") && closingTagName.equals("li"))
+				else if (top == TagVocabulary.UL && id == TagVocabulary.LI)
 				{
 					mostRecentUnclosedTag.push(tag);
 					logger.warn("Ignoring {} as no opening tag could be found! mostRecentUnclosedTag is: {}",
@@ -902,13 +938,62 @@ public class TrainingEntry
 					mostRecentUnclosedTag.push(tag);
 					logger.error("Starting and closing tag do not match! \n"
 							+ "\tFound opening tag: {} ({}) and closing tag: {} ({})"
-							+ "\n\tmostRecentUnclosedTag: {}", tagName, tag, 
-							closingTagName, token3.getHTML(), mostRecentUnclosedTag.peek());
+							+ "\n\tmostRecentUnclosedTag: {}", getName(tag), tag, 
+							tag3.getShortTag(), token3.getHTML(), mostRecentUnclosedTag.peek());
 				}
 			}
 		}
 	}
 
+	/**
+	 * <p>
+	 * Returns the name of the tag an element of the stack of unclosed tags was
+	 * created from. Elements which are not a tag, like comments, have an empty
+	 * name.
+	 * </p>
+	 */
+	private static String getName(String unclosedTag)
+	{
+		if (unclosedTag == null || !unclosedTag.startsWith("<"))
+			return "";
+		int end = 1;
+		while (end < unclosedTag.length() 
+				&& Character.isLetterOrDigit(unclosedTag.charAt(end)))
+			end++;
+		return unclosedTag.substring(1, end);
+	}
+
+	/**
+	 * <p>
+	 * Returns the id of the tag an element of the stack of unclosed tags was
+	 * created from. Elements which are not a tag have the id
+	 * {@link TagVocabulary#OTHER}.
+	 * </p>
+	 */
+	private static int getId(String unclosedTag)
+	{
+		String name = getName(unclosedTag);
+		if (name.isEmpty())
+			return TagVocabulary.OTHER;
+		return TagVocabulary.getId(name.toLowerCase());
+	}
+
+	/**
+	 * <p>
+	 * Specifies if an element of the stack of unclosed tags is closed by a
+	 * closing tag. Only tags which exceed the capacity of the
+	 * {@link TagVocabulary} are compared by their name.
+	 * </p>
+	 */
+	private static boolean isClosedBy(String unclosedTag, int unclosedId, 
+			Tag closingTag, int closingId)
+	{
+		if (unclosedId != TagVocabulary.OTHER || closingId != TagVocabulary.OTHER)
+			return unclosedId == closingId;
+		String name = getName(unclosedTag);
+		return !name.isEmpty() && name.equalsIgnoreCase(closingTag.getShortTag());
+	}
+
 	/**
 	 * <p>
 	 * Trains a provided {@link Classifier} with n-gram and
@@ -1025,7 +1110,19 @@ public class TrainingEntry
 		}
 
 		logger.debug("classifiying as {}: {}", categorie, Arrays.toString(feature));
-		this.classifier.train(feature, categorie);
+		if (this.featureVocabulary != null)
+		{
+			int combined = 0;
+			if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.DOUBLE_UNIGRAM))
+				combined = 2;
+			else if (this.trainFeatureStrategy.equals(TrainFeatureStrategy.TRIPLE_UNIGRAM))
+				combined = 3;
+			this.featureVocabulary.add(feature, combined, categorie);
+		}
+		if (this.contribution != null)
+			this.contribution.add(feature, categorie);
+		if (this.classifier != null)
+			this.classifier.train(feature, categorie);
 	}
 
 	/**
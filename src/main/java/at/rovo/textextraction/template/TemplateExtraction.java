@@ -441,16 +441,28 @@ public class TemplateExtraction
 	 */
 	public List<Token> buildDOMTree(String url)
 	{
-		String html;
 		if (url.startsWith("http://"))
 		{
 			UrlReader reader = new UrlReader();
-			html = reader.readPage(url);
-		}
-		else
-		{
-			html = url;
+			return this.buildDOMTree(reader.readPage(url), url);
 		}
+		return this.buildDOMTree(url, null);
+	}
+
+	/**
+	 * Generates a document object model (DOM) like tree of the tokens of an already available page without
+	 * downloading it.
+	 *
+	 * @param html
+	 * 		The HTML content of the page to generate a DOM like tree for
+	 * @param url
+	 * 		The URL the page was retrieved from. It is only used as meta data of the page and may be null
+	 *
+	 * @return A list of tokens which have DOM like properties set
+	 */
+	public List<Token> buildDOMTree(CharSequence html, String url)
+	{
+		LOG.debug("Building DOM tree of {}", url);
 
 		// remove invalid HTML tags including <#comment>, <style>, <script>,
 		// <noscript>, <img>, <form>, <input> and <select>
@@ -464,6 +476,6 @@ public class TemplateExtraction
 		parser.cleanImages(true);
 		parser.cleanFormElements(true);
 
-		return parser.tokenize(html, false).getParsedTokens();
+		return parser.tokenize(html.toString(), false).getParsedTokens();
 	}
 }
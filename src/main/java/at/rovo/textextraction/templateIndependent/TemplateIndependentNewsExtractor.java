@@ -6,6 +6,9 @@ import at.rovo.parser.Parser;
 import at.rovo.parser.Tag;
 import at.rovo.parser.Token;
 import at.rovo.parser.Word;
+import at.rovo.textextraction.ExtractionException;
+import at.rovo.textextraction.TagVocabulary;
+import at.rovo.textextraction.TextExtractor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -13,8 +16,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -29,10 +36,10 @@ import java.util.regex.Pattern;
  * <p/>
  * The algorithm first parses the HTML content (or the content of the URL) provided in {@link #predictText(String)} into
  * a sequence of consecutive tokens which contain both words and HTML tags. To estimate the content-area for the parsed
- * token-sequence the sequence is passed to {@link #SScore(String)} which calculates the overall segment score.
+ * token-sequence the sequence is passed to {@link #SScore(String, String)} which calculates the overall segment score.
  * <p/>
  * The overall segment score, furthermore, is calculated by estimating a {@link #WS(String) content score} of the word
- * sequence given in segment <em>s</em> and subtracting a lambda parameter times a {@link #LS(String) link penalty
+ * sequence given in segment <em>s</em> and subtracting a lambda parameter times a {@link #LS(String, String) link penalty
  * score}. The lambda parameter is used to adjust the penalty size of the link penalty score function and is set to
  * <em>0.03</em> by default.
  * <p/>
@@ -60,8 +67,6 @@ public class TemplateIndependentNewsExtractor
 {
 	/** The logger of this class */
 	private final static Logger LOG = LogManager.getLogger(TemplateIndependentNewsExtractor.class);
-	/** */
-	private String docUrl = null;
 	/** A parameter to adjust the link penalty score */
 	private float lambda = 0.03f;
 	/** A parameter to filter out segments which do not contain sufficient stop words to form a news article */
@@ -176,23 +181,135 @@ public class TemplateIndependentNewsExtractor
 	public String predictText(String url)
 	{
 		// Load the content of the URL or use the content already available in
-		// the URL and parse the content into tokens
-		String html;
+		// the URL
 		if (url.startsWith("http://") || url.startsWith("https://"))
 		{
-			this.docUrl = url;
-
-			UrlReader reader = new UrlReader();
-			html = reader.readPage(url);
-		}
-		else
-		{
-			html = url;
+			return this.predictText(this.readPage(url), url);
 		}
+		return this.predictText(url, null);
+	}
+
+	/**
+	 * Downloads the HTML content of the provided URL.
+	 *
+	 * @param url
+	 * 		The URL of the page to download
+	 *
+	 * @return The HTML content of the page; null or empty if the page could not be read
+	 */
+	protected String readPage(String url)
+	{
+		UrlReader reader = new UrlReader();
+		return reader.readPage(url);
+	}
+
+	/**
+	 * Predicts the main article of a page which is available as encoded bytes, f.e. as it was stored by a crawler.
+	 *
+	 * @param html
+	 * 		The encoded HTML content of the page
+	 * @param charset
+	 * 		The character set the content is encoded with
+	 * @param url
+	 * 		The URL the page was retrieved from. It is compared with the links found in the candidate segments of the
+	 * 		page and may be null
+	 *
+	 * @return The predicted main article of the provided page
+	 *
+	 * @throws IllegalArgumentException
+	 * 		If either no content or no character set is provided
+	 */
+	public String predictText(byte[] html, Charset charset, String url)
+	{
+		return this.predictText(TextExtractor.readContent(html, charset), url);
+	}
+
+	/**
+	 * Predicts the main article of a page which is read from the provided reader. The reader is read till its end but
+	 * not closed.
+	 *
+	 * @param html
+	 * 		The reader to read the HTML content of the page from
+	 * @param url
+	 * 		The URL the page was retrieved from. It is compared with the links found in the candidate segments of the
+	 * 		page and may be null
+	 *
+	 * @return The predicted main article of the provided page
+	 *
+	 * @throws ExtractionException
+	 * 		If the page could not be read
+	 * @throws IllegalArgumentException
+	 * 		If no reader is provided
+	 */
+	public String predictText(Reader html, String url) throws ExtractionException
+	{
+		return this.predictText(TextExtractor.readContent(html, url), url);
+	}
+
+	/**
+	 * Predicts the main article of a page which is read from the provided stream. The stream is read till its end but
+	 * not closed.
+	 *
+	 * @param html
+	 * 		The stream to read the encoded HTML content of the page from
+	 * @param charset
+	 * 		The character set the content is encoded with
+	 * @param url
+	 * 		The URL the page was retrieved from. It is compared with the links found in the candidate segments of the
+	 * 		page and may be null
+	 *
+	 * @return The predicted main article of the provided page
+	 *
+	 * @throws ExtractionException
+	 * 		If the page could not be read
+	 * @throws IllegalArgumentException
+	 * 		If either no stream or no character set is provided
+	 */
+	public String predictText(InputStream html, Charset charset, String url) throws ExtractionException
+	{
+		return this.predictText(TextExtractor.readContent(html, charset, url), url);
+	}
+
+	/**
+	 * Predicts the main article of a page which was stored in the provided file.
+	 *
+	 * @param file
+	 * 		The file containing the encoded HTML content of the page
+	 * @param charset
+	 * 		The character set the content is encoded with
+	 * @param url
+	 * 		The URL the page was retrieved from. It is compared with the links found in the candidate segments of the
+	 * 		page and may be null
+	 *
+	 * @return The predicted main article of the provided page
+	 *
+	 * @throws ExtractionException
+	 * 		If the file could not be read
+	 * @throws IllegalArgumentException
+	 * 		If either no file or no character set is provided
+	 */
+	public String predictText(Path file, Charset charset, String url) throws ExtractionException
+	{
+		return this.predictText(TextExtractor.readContent(file, charset, url), url);
+	}
 
+	/**
+	 * Predicts the main article of an already available page without downloading it.
+	 *
+	 * @param html
+	 * 		The HTML content of the page to predict the article for
+	 * @param url
+	 * 		The URL the page was retrieved from. It is compared with the links found in the candidate segments of the
+	 * 		page and may be null
+	 *
+	 * @return The predicted main article of the provided page
+	 */
+	public String predictText(CharSequence html, String url)
+	{
+		// parse the content into tokens
 		Parser parser = new Parser();
 
-		ParseResult result = parser.tokenize(html, false);
+		ParseResult result = parser.tokenize(html.toString(), false);
 		List<Token> tokens = result.getParsedTokens();
 
 		// get the start time the actual extraction (without downloading and
@@ -258,7 +375,7 @@ public class TemplateIndependentNewsExtractor
 			// candidates with highest generative probability.
 			// It also considers the negative effect of the unimportant links
 			// through calculating the penalty score of the hyperlinks.
-			double score = this.SScore(s);
+			double score = this.SScore(s, url);
 			if (score > maxScore)
 			{
 				maxScore = score;
@@ -323,10 +440,11 @@ public class TemplateIndependentNewsExtractor
 			else
 			{
 				Tag tag = (Tag) token;
+				int id = TagVocabulary.getId(tag);
 				// for HTML anchors remove everything except the tag name and
 				// the hyperlink-reference "href=..." segment which we need
 				// later to count link specific statistics
-				if (tag.getShortTag().equals("a"))
+				if (id == TagVocabulary.A)
 				{
 					String urlRef = null;
 					if (tag.isOpeningTag() && tag.getHTML().contains("href="))
@@ -356,7 +474,7 @@ public class TemplateIndependentNewsExtractor
 						builder.append(" ");
 					}
 				}
-				else if (tag.getShortTag().equals("p"))
+				else if (id == TagVocabulary.P)
 				{
 					if (!tag.isOpeningTag())
 					{
@@ -435,14 +553,16 @@ public class TemplateIndependentNewsExtractor
 	/**
 	 * Calculates the overall segment score of a given candidate <em>s</em> by calculating the {@link #WS(String)
 	 * content score of word sequences} given in the segment s and subtracting <em>lambda</em> times the calculated
-	 * {@link #LS(String) link penalty score}
+	 * {@link #LS(String, String) link penalty score}
 	 *
 	 * @param segment
 	 * 		A sequence of consecutive tokens which includes both tokens and words
+	 * @param docUrl
+	 * 		The URL of the given HTML document; may be null
 	 *
 	 * @return The calculated overall segment score for the given candidate
 	 */
-	private double SScore(String segment)
+	private double SScore(String segment, String docUrl)
 	{
 		// SScore(s) = WS(s) - lambda * LS(s)
 		// WS(s) estimates the content score of the word sequence given the
@@ -450,7 +570,7 @@ public class TemplateIndependentNewsExtractor
 		// the segment
 		double ws = this.WS(segment);
 		// LS(s) is the function of link penalty score for s
-		double ls = this.LS(segment);
+		double ls = this.LS(segment, docUrl);
 		double result = ws - this.lambda * ls;
 		if (LOG.isTraceEnabled())
 		{
@@ -562,10 +682,12 @@ public class TemplateIndependentNewsExtractor
 	 *
 	 * @param s
 	 * 		The segment <em>s</em> containing words and links
+	 * @param docUrl
+	 * 		The URL of the given HTML document; may be null
 	 *
 	 * @return The link penalization score for the given segment
 	 */
-	private double LS(String s)
+	private double LS(String s, String docUrl)
 	{
 		// LS(s) = LW(s)+SWL(s)+UC(s.url, Doc.url)
 		// LW(s) is the linked word string size (the number of words between
@@ -573,7 +695,7 @@ public class TemplateIndependentNewsExtractor
 		// SWL(s) measures the number of links that contain at least one stopword
 		// UC(s.url, Doc.url) compares the url string between the given html
 		//                    document (Doc) and s
-		double res = this.LW(s) + this.SWL(s) + this.UC(s, this.docUrl);
+		double res = this.LW(s) + this.SWL(s) + this.UC(s, docUrl);
 		if (LOG.isTraceEnabled())
 		{
 			LOG.trace("s: {} = {}", s, res);
@@ -650,9 +772,9 @@ public class TemplateIndependentNewsExtractor
 	 * @param sUrl
 	 * 		The URL found in the segment s
 	 * @param docUrl
-	 * 		The URL of the given HTML document
+	 * 		The URL of the given HTML document; may be null
 	 *
-	 * @return The average string similarity among all sub-links
+	 * @return The average string similarity among all sub-links or 0 if no URL of the document is known
 	 */
 	private double UC(String sUrl, String docUrl)
 	{
@@ -668,7 +790,7 @@ public class TemplateIndependentNewsExtractor
 		{
 			urls.add(matcher.group(1));
 		}
-		if (urls.isEmpty())
+		if (urls.isEmpty() || docUrl == null)
 		{
 			return 0.;
 		}
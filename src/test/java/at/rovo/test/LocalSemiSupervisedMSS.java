@@ -0,0 +1,73 @@
+package at.rovo.test;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.List;
+import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
+import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
+import at.rovo.parser.Token;
+import at.rovo.parser.Word;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.SemiSupervisedMSS;
+
+/**
+ * <p>
+ * Trains its classifier on the words of the middle of a page in memory and
+ * serves the pages to predict from the test resources, so the prediction path
+ * can be exercised without downloading any page. URLs ending with
+ * <em>missing</em> can not be read.
+ * </p>
+ * 
+ * @author Roman Vottner
+ */
+class LocalSemiSupervisedMSS extends SemiSupervisedMSS
+{
+	LocalSemiSupervisedMSS(List<Token> page)
+	{
+		super(TrainData.FILE);
+		this.classifier = NaiveBayes.create(ProbabilityCalculation.EVEN_LIKELIHOOD,
+				TrainingDataStorageMethod.MAP);
+		// label the words of the middle of the page as article
+		for (int i = 2; i < page.size(); i++)
+		{
+			boolean in = page.get(i) instanceof Word && i > page.size() / 3
+					&& i < page.size() * 2 / 3;
+			this.classifier.train(this.getTripleUnigram(page.get(i - 2),
+					page.get(i - 1), page.get(i)), in ? "in" : "out");
+		}
+		this.isTrained = true;
+	}
+
+	/**
+	 * <p>
+	 * Returns a classifier trained on the words of the middle of a page, like
+	 * the one every instance of this class uses, for extractors which need to
+	 * inherit from a different class.
+	 * </p>
+	 */
+	static NaiveBayes<String, String> train(List<Token> page)
+	{
+		return new LocalSemiSupervisedMSS(page).classifier;
+	}
+
+	@Override
+	protected String readPage(String url)
+	{
+		if (url.endsWith("missing"))
+			return null;
+		try
+		{
+			return TestResources.readResource(url.substring(url.lastIndexOf('/')));
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	Dictionary<String, List<String>> getCommonTags()
+	{
+		return this.commonTags;
+	}
+}
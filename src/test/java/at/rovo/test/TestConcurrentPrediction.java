@@ -0,0 +1,197 @@
+package at.rovo.test;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.classifier.Classifier;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Tag;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.ExtractionException;
+import at.rovo.textextraction.Prediction;
+import at.rovo.textextraction.TextExtractor;
+
+public class TestConcurrentPrediction
+{
+	/**
+	 * Fails on every URL ending with 'bad' and delays the others to shuffle
+	 * the order in which the predictions complete.
+	 */
+	private static class FlakyExtractor extends TextExtractor
+	{
+		@Override
+		public String predictText(String url) throws ExtractionException
+		{
+			if (url.endsWith("bad"))
+				throw new ExtractionException("Could not read " + url);
+			if (url.endsWith("npe"))
+				throw new NullPointerException();
+			try
+			{
+				Thread.sleep(url.hashCode() & 7);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return "text of " + url;
+		}
+
+		@Override
+		public String predictText(CharSequence html, String url)
+		{
+			return "text of " + url;
+		}
+
+		@Override
+		public List<String> predictText(List<String> urls) throws ExtractionException
+		{
+			List<String> texts = new ArrayList<>();
+			for (String url : urls)
+				texts.add(this.predictText(url));
+			return texts;
+		}
+
+		@Override
+		public List<Token> cleanText(List<Token> text)
+		{
+			return text;
+		}
+	}
+
+	@Test
+	public void isolateFailuresAndKeepOrder()
+	{
+		List<String> urls = new ArrayList<>();
+		for (int i = 0; i < 500; i++)
+			urls.add("http://example.com/" + i + (i % 7 == 3 ? "/bad" : i % 11 == 5 ? "/npe" : ""));
+
+		List<Prediction> predictions = new FlakyExtractor().predictText(urls, 16);
+		Assert.assertEquals(urls.size(), predictions.size());
+		for (int i = 0; i < urls.size(); i++)
+		{
+			Prediction prediction = predictions.get(i);
+			Assert.assertEquals(urls.get(i), prediction.getUrl());
+			if (i % 7 == 3)
+			{
+				Assert.assertFalse(prediction.isSuccessful());
+				Assert.assertTrue(prediction.getError() instanceof ExtractionException);
+			}
+			else if (i % 11 == 5)
+			{
+				Assert.assertFalse(prediction.isSuccessful());
+				Assert.assertTrue(prediction.getError() instanceof NullPointerException);
+			}
+			else
+			{
+				Assert.assertTrue(prediction.isSuccessful());
+				Assert.assertEquals("text of " + urls.get(i), prediction.getText());
+			}
+		}
+	}
+
+	/**
+	 * Collects the tags of every page it trains a local classifier with, so
+	 * the cleaned text depends on the tags visible to the prediction.
+	 */
+	private static class TaggingMSS extends LocalSemiSupervisedMSS
+	{
+		TaggingMSS(List<Token> page)
+		{
+			super(page);
+		}
+
+		@Override
+		protected void train(List<Token> html, List<Token> predictedText, String url,
+				Classifier<String, String> classifier, Dictionary<String, List<String>> commonTags)
+		{
+			super.train(html, predictedText, url, classifier, commonTags);
+			for (Token token : html)
+			{
+				if (!(token instanceof Tag) || ((Tag) token).isComment())
+					continue;
+				String name = ((Tag) token).getShortTag();
+				List<String> sources = commonTags.get(name);
+				if (sources == null)
+				{
+					sources = new ArrayList<>();
+					commonTags.put(name, sources);
+				}
+				if (!sources.contains(url))
+					sources.add(url);
+			}
+		}
+	}
+
+	@Test
+	public void identicalResultsUnder32Threads() throws Exception
+	{
+		final List<String> pages = new ArrayList<>();
+		for (String name : new String[] { "/p0.txt", "/p1.txt" })
+			pages.add(TestResources.readResource(name));
+		List<Token> tokens = new Parser().tokenize(pages.get(0), false).getParsedTokens();
+		final TaggingMSS extractor = new TaggingMSS(tokens);
+		extractor.setWindowRadius(0);
+
+		// every page is predicted the same way no matter how often or in
+		// which order the pages were predicted before
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < pages.size(); i++)
+			expected.add(extractor.predictText(pages.get(i), url(i)));
+		for (int i = pages.size() - 1; i >= 0; i--)
+			Assert.assertEquals(expected.get(i), extractor.predictText(pages.get(i), url(i)));
+		Assert.assertTrue(extractor.getCommonTags().isEmpty());
+
+		int threads = 32;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			List<Future<List<String>>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+			{
+				final int offset = t;
+				results.add(executor.submit(new Callable<List<String>>()
+				{
+					@Override
+					public List<String> call() throws Exception
+					{
+						start.await();
+						List<String> predicted = new ArrayList<>();
+						// every thread trains its local classifiers
+						// with the same tags
+						for (int i = 0; i < 4; i++)
+						{
+							int page = (offset + i) % pages.size();
+							predicted.add(extractor.predictText(pages.get(page), url(page)));
+						}
+						return predicted;
+					}
+				}));
+			}
+			start.countDown();
+			for (int t = 0; t < threads; t++)
+			{
+				List<String> predicted = results.get(t).get();
+				for (int i = 0; i < predicted.size(); i++)
+					Assert.assertEquals(expected.get((t + i) % pages.size()), predicted.get(i));
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private static String url(int page)
+	{
+		return "http://site" + page + ".example.com/p" + page + ".txt";
+	}
+}
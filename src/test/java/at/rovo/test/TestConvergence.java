@@ -0,0 +1,100 @@
+package at.rovo.test;
+
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.Prediction;
+import at.rovo.textextraction.mss.Convergence;
+
+public class TestConvergence
+{
+	@Test
+	public void stopOnceSegmentSettled() throws Exception
+	{
+		String html = TestResources.readResource("/p0.txt");
+		List<Token> tokens = new Parser().tokenize(html, false).getParsedTokens();
+		LocalSemiSupervisedMSS mss = new LocalSemiSupervisedMSS(tokens);
+		// short segments have to be estimated as well
+		mss.setWindowRadius(0);
+		String url = "http://example.com/p0.txt";
+
+		// requiring more unchanged rounds than iterations disables the early stop
+		mss.setConvergenceRounds(Integer.MAX_VALUE);
+		String expected = mss.predictText(html, url);
+		// the pages are predicted on worker threads, the convergence is
+		// returned with the prediction of every page
+		Prediction prediction = mss.predictText(Arrays.asList(url), 2).get(0);
+		Assert.assertEquals(expected, prediction.getText());
+		Convergence full = prediction.getConvergence();
+		Assert.assertEquals(10, full.getIterations());
+		Assert.assertFalse(full.isConverged());
+
+		mss.setConvergenceRounds(1);
+		prediction = mss.predictText(Arrays.asList(url, url), 2).get(1);
+		Assert.assertEquals(expected, prediction.getText());
+		Convergence convergence = prediction.getConvergence();
+		Assert.assertEquals(url, convergence.getUrl());
+		Assert.assertEquals(Convergence.Reason.CONVERGED, convergence.getReason());
+		Assert.assertTrue(convergence.getIterations() < 10);
+		// the segment moved the last time in the iteration before the
+		// unchanged one and did not move afterwards either
+		Assert.assertEquals(convergence.getIterations() - 1, convergence.getSettledIteration());
+		Assert.assertEquals(full.getSettledIteration(), convergence.getSettledIteration());
+	}
+
+	@Test
+	public void stopBatchOnceSegmentsAndTrainingSettled() throws Exception
+	{
+		List<Token> tokens = new Parser().tokenize(TestResources.readResource("/p0.txt"), false)
+				.getParsedTokens();
+		List<String> urls = Arrays.asList("http://example.com/p0.txt",
+				"http://example.com/p1.txt", "http://example.org/missing",
+				"http://example.org/p1.txt");
+		for (boolean incremental : new boolean[] { false, true })
+		{
+			LocalSemiSupervisedMSS mss = new LocalSemiSupervisedMSS(tokens);
+			// short segments have to be estimated as well
+			mss.setWindowRadius(0);
+			mss.setIncrementalLocalTraining(incremental);
+
+			mss.setConvergenceRounds(Integer.MAX_VALUE);
+			List<String> expected = mss.predictText(urls);
+			List<Prediction> full = mss.predictBatch(urls);
+			Assert.assertEquals(urls.size(), full.size());
+
+			mss.setConvergenceRounds(1);
+			Assert.assertEquals(expected, mss.predictText(urls));
+			List<Prediction> settled = mss.predictBatch(urls);
+			Assert.assertEquals(urls.size(), settled.size());
+			// the page which could not be read carries its error
+			Assert.assertFalse(settled.get(2).isSuccessful());
+			Assert.assertNull(settled.get(2).getConvergence());
+
+			int text = 0;
+			for (int i = 0; i < urls.size(); i++)
+			{
+				if (i == 2)
+					continue;
+				Assert.assertEquals(expected.get(text++), settled.get(i).getText());
+				Convergence fullConvergence = full.get(i).getConvergence();
+				Convergence convergence = settled.get(i).getConvergence();
+				Assert.assertEquals(urls.get(i), convergence.getUrl());
+				Assert.assertEquals(10, fullConvergence.getIterations());
+				Assert.assertFalse(fullConvergence.isConverged());
+				// the first iteration trains with every page, so the pages
+				// chosen for the training can not have settled before the
+				// second one
+				Assert.assertTrue(convergence.getIterations() >= 2);
+				Assert.assertTrue(convergence.isConverged());
+				// every page reports the iteration its own segment settled
+				// in, which does not depend on when the batch stopped
+				Assert.assertEquals(fullConvergence.getSettledIteration(),
+						convergence.getSettledIteration());
+				Assert.assertTrue(convergence.getSettledIteration() < convergence.getIterations());
+			}
+		}
+	}
+}
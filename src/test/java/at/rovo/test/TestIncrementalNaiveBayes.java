@@ -0,0 +1,141 @@
+package at.rovo.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
+import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.mss.IncrementalNaiveBayes;
+
+public class TestIncrementalNaiveBayes
+{
+	private static IncrementalNaiveBayes.Contribution randomContribution(Random random)
+	{
+		IncrementalNaiveBayes.Contribution contribution = new IncrementalNaiveBayes.Contribution();
+		int trainings = 1 + random.nextInt(50);
+		for (int i = 0; i < trainings; i++)
+		{
+			String[] features = new String[4];
+			for (int f = 0; f < features.length; f++)
+				features[f] = f == 3 && random.nextBoolean() ? null : "f" + random.nextInt(30);
+			contribution.add(features, random.nextInt(3) == 0 ? "in" : "out");
+		}
+		return contribution;
+	}
+
+	private static IncrementalNaiveBayes create()
+	{
+		return new IncrementalNaiveBayes(ProbabilityCalculation.EVEN_LIKELIHOOD,
+				TrainingDataStorageMethod.MAP);
+	}
+
+	@Test
+	public void sameProbabilitiesAsRetrainedClassifier()
+	{
+		Random random = new Random(7);
+		List<IncrementalNaiveBayes.Contribution> pages = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			pages.add(randomContribution(random));
+
+		IncrementalNaiveBayes incremental = create();
+		for (int i = 0; i < pages.size(); i++)
+			incremental.add(i, pages.get(i));
+		// replace the training of every other page
+		for (int i = 0; i < pages.size(); i += 2)
+		{
+			incremental.remove(i);
+			pages.set(i, randomContribution(random));
+			incremental.add(i, pages.get(i));
+		}
+
+		NaiveBayes<String, String> trained = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		for (int i = 0; i < pages.size(); i++)
+			pages.get(i).train(trained);
+		Assert.assertEquals(pages.size(), incremental.size());
+		for (int i = 0; i < 40; i++)
+		{
+			String[] features = { "f" + i, "f" + (i * 7 % 40), "f" + (i * 3 % 40) };
+			Assert.assertEquals(trained.getProbability("in", features),
+					incremental.getProbability("in", features));
+			Assert.assertEquals(trained.getProbability("out", "f" + i),
+					incremental.getProbability("out", "f" + i));
+		}
+
+		for (int i = 0; i < pages.size(); i++)
+			incremental.remove(i);
+		Assert.assertEquals(0, incremental.size());
+	}
+
+	@Test
+	public void removeForgetsTheTrainingsOfAPage()
+	{
+		IncrementalNaiveBayes incremental = create();
+		IncrementalNaiveBayes.Contribution once = new IncrementalNaiveBayes.Contribution();
+		once.add(new String[] { "f1", "f2" }, "in");
+		incremental.add(0, once);
+		IncrementalNaiveBayes.Contribution twice = new IncrementalNaiveBayes.Contribution();
+		twice.add(new String[] { "f1", "f1", "f3" }, "in");
+		incremental.add(1, twice);
+		NaiveBayes<String, String> both = incremental.getClassifier();
+		// the classifier is only trained again after a page changed
+		Assert.assertTrue(both == incremental.getClassifier());
+
+		incremental.remove(1);
+		NaiveBayes<String, String> trained = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		once.train(trained);
+		Assert.assertTrue(both != incremental.getClassifier());
+		for (String feature : new String[] { "f1", "f2", "f3" })
+			Assert.assertEquals(trained.getProbability("in", feature),
+					incremental.getProbability("in", feature));
+
+		try
+		{
+			incremental.remove(1);
+			Assert.fail("Removed a page whose trainings are not kept");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+		try
+		{
+			incremental.add(0, twice);
+			Assert.fail("Added the trainings of a page twice");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+		Assert.assertEquals(1, incremental.size());
+	}
+
+	@Test
+	public void sameTextsAsRetrainedBatch() throws Exception
+	{
+		List<Token> tokens = new Parser().tokenize(TestResources.readResource("/p0.txt"), false)
+				.getParsedTokens();
+		List<String> urls = Arrays.asList("http://example.com/p0.txt",
+				"http://example.com/p1.txt", "http://example.org/p0.txt",
+				"http://example.org/p1.txt");
+
+		LocalSemiSupervisedMSS retrained = new LocalSemiSupervisedMSS(tokens);
+		// short segments have to be estimated as well
+		retrained.setWindowRadius(0);
+		retrained.setConvergenceRounds(Integer.MAX_VALUE);
+		List<String> expected = retrained.predictText(urls);
+
+		LocalSemiSupervisedMSS incremental = new LocalSemiSupervisedMSS(tokens);
+		incremental.setWindowRadius(0);
+		incremental.setConvergenceRounds(Integer.MAX_VALUE);
+		incremental.setIncrementalLocalTraining(true);
+		Assert.assertEquals(expected, incremental.predictText(urls));
+	}
+}
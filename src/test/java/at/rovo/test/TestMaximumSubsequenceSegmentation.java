@@ -3,6 +3,7 @@ package at.rovo.test;
 import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import junit.framework.Assert;
 
 import org.apache.logging.log4j.LogManager;
@@ -13,7 +14,12 @@ import at.rovo.parser.Parser;
 import at.rovo.parser.Token;
 import at.rovo.parser.Word;
 import at.rovo.textextraction.ExtractionException;
+import at.rovo.textextraction.mss.MaximumSubsequence;
 import at.rovo.textextraction.mss.MaximumSubsequenceSegmentation;
+import at.rovo.textextraction.mss.Subsequence;
+import at.rovo.textextraction.mss.SubsequenceBatch;
+import at.rovo.textextraction.mss.SubsequenceStream;
+import at.rovo.textextraction.mss.SubsequenceTree;
 
 public class TestMaximumSubsequenceSegmentation extends	MaximumSubsequenceSegmentation 
 {
@@ -106,6 +112,222 @@ public class TestMaximumSubsequenceSegmentation extends	MaximumSubsequenceSegmen
 		Assert.assertEquals(r, R);
 	}
 	
+	@Test
+	public void topMaximumSubsequence()
+	{
+		double[] data = new double[] { 4., -5., 3., -3., 1., 2., -2., 2., -2., 1., 5. };
+		Subsequence top = this.topMaximumSubsequence(data);
+		logger.debug("top subsequence: "+top);
+		Assert.assertEquals(2, top.getStart());
+		Assert.assertEquals(10, top.getEnd());
+		Assert.assertEquals(9, top.getLength());
+		Assert.assertEquals(7., top.getScore());
+
+		// a slice only considers the scores inside its bounds
+		top = this.topMaximumSubsequence(data, 0, 4);
+		Assert.assertEquals(0, top.getStart());
+		Assert.assertEquals(0, top.getEnd());
+		Assert.assertEquals(4., top.getScore());
+
+		// only negative scores return the highest single score
+		top = MaximumSubsequence.top(new double[] { -3., -1., -2. });
+		Assert.assertEquals(1, top.getStart());
+		Assert.assertEquals(1, top.getLength());
+		Assert.assertEquals(-1., top.getScore());
+
+		Assert.assertTrue(MaximumSubsequence.top(new double[0]).isEmpty());
+
+		// the list based version is an adapter of the primitive one
+		List<Double> list = new ArrayList<Double>();
+		for (double d : data)
+			list.add(d);
+		List<Double> maxSS = new ArrayList<Double>();
+		int start = this.topMaximumSubsequence(list, maxSS);
+		Assert.assertEquals(2, start);
+		Assert.assertEquals(list.subList(2, 11), maxSS);
+	}
+	
+	@Test
+	public void allMaximalSubsequences()
+	{
+		// example as presented in the paper:
+		// 'A linear time algorithm for finding all maximal scoring subsequences'
+		double[] data = new double[] { 4., -5., 3., -3., 1., 2., -2., 2., -2., 1., 5. };
+		Subsequence[] all = this.kMaximumSubsequences(data);
+		Assert.assertEquals(3, all.length);
+		Assert.assertEquals(new Subsequence(0, 0, 4.), all[0]);
+		Assert.assertEquals(new Subsequence(2, 2, 3.), all[1]);
+		Assert.assertEquals(new Subsequence(4, 10, 7.), all[2]);
+
+		// a long chain of merges neither requires recursion nor quadratic time
+		int n = 1000000;
+		double[] chain = new double[n];
+		for (int i = 0; i < n; i++)
+			chain[i] = (i % 2 == 0) ? 1. : -0.5;
+		all = MaximumSubsequence.all(chain);
+		Assert.assertEquals(1, all.length);
+		Assert.assertEquals(0, all[0].getStart());
+		Assert.assertEquals(n - 2, all[0].getEnd());
+
+		// the slice based version reports positions based on the whole array
+		all = MaximumSubsequence.all(data, 2, 3);
+		Assert.assertEquals(2, all.length);
+		Assert.assertEquals(new Subsequence(2, 2, 3.), all[0]);
+		Assert.assertEquals(new Subsequence(4, 4, 1.), all[1]);
+	}
+	
+	@Test
+	public void rankedMaximumSubsequences()
+	{
+		double[] data = new double[] { 4., -5., 3., -3., 1., 2., -2., 2., -2., 1., 5. };
+		Subsequence[] ranked = this.topMaximumSubsequences(data, 2, -1);
+		Assert.assertEquals(2, ranked.length);
+		Assert.assertEquals(new Subsequence(4, 10, 7.), ranked[0]);
+		Assert.assertEquals(new Subsequence(0, 0, 4.), ranked[1]);
+
+		ranked = this.topMaximumSubsequences(data, 5, -1);
+		Assert.assertEquals(3, ranked.length);
+		Assert.assertEquals(new Subsequence(2, 2, 3.), ranked[2]);
+
+		// segments separated by a single score are only stitched together if
+		// the gap costs less than the better part contributes
+		ranked = this.topMaximumSubsequences(data, 5, 1);
+		Assert.assertEquals(2, ranked.length);
+		Assert.assertEquals(new Subsequence(2, 10, 7.), ranked[0]);
+		Assert.assertEquals(new Subsequence(0, 0, 4.), ranked[1]);
+
+		// a gap costing more than the better part is never stitched
+		ranked = this.topMaximumSubsequences(data, 5, 10);
+		Assert.assertEquals(2, ranked.length);
+		Assert.assertEquals(new Subsequence(2, 10, 7.), ranked[0]);
+
+		// a short negative gap is bridged although the stitched segment
+		// scores lower than the better part
+		data = new double[] { 7., -2., -2., -2., 5., -9., 2. };
+		ranked = this.topMaximumSubsequences(data, 5, 2);
+		Assert.assertEquals(3, ranked.length);
+		Assert.assertEquals(new Subsequence(0, 0, 7.), ranked[0]);
+		Assert.assertEquals(new Subsequence(4, 4, 5.), ranked[1]);
+		ranked = this.topMaximumSubsequences(data, 5, 3);
+		Assert.assertEquals(2, ranked.length);
+		Assert.assertEquals(new Subsequence(0, 4, 6.), ranked[0]);
+		Assert.assertEquals(new Subsequence(6, 6, 2.), ranked[1]);
+
+		try
+		{
+			this.topMaximumSubsequences(data, 0, -1);
+			Assert.fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void streamedMaximumSubsequence()
+	{
+		Random random = new Random(42);
+		for (int run = 0; run < 100; run++)
+		{
+			double[] data = new double[random.nextInt(500)];
+			SubsequenceStream<Integer> stream = this.openSubsequenceStream();
+			for (int i = 0; i < data.length; i++)
+			{
+				data[i] = random.nextDouble() * 2. - 1.2;
+				stream.push(i, data[i]);
+			}
+			// the streamed result equals the one of the array based version
+			Subsequence top = MaximumSubsequence.top(data);
+			Assert.assertEquals(top, stream.getMaximumSubsequence());
+			// only the items of the best subsequence are returned
+			List<Integer> items = stream.getItems();
+			Assert.assertEquals(top.isEmpty() ? 0 : top.getLength(), items.size());
+			for (int i = 0; i < items.size(); i++)
+				Assert.assertEquals(Integer.valueOf(top.getStart() + i), items.get(i));
+		}
+	}
+	
+	@Test
+	public void batchedMaximumSubsequences()
+	{
+		Random random = new Random(42);
+		int documents = 200;
+		int[] offsets = new int[documents + 1];
+		for (int d = 0; d < documents; d++)
+			offsets[d + 1] = offsets[d] + random.nextInt(500);
+		double[] scores = new double[offsets[documents]];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = random.nextDouble() * 2. - 1.2;
+
+		// a small threshold forces the batch to be split across threads
+		Subsequence[] sequential = SubsequenceBatch.top(scores, offsets, Integer.MAX_VALUE);
+		Subsequence[] parallel = SubsequenceBatch.top(scores, offsets, 1000);
+		Assert.assertEquals(documents, parallel.length);
+		for (int d = 0; d < documents; d++)
+		{
+			Subsequence top = MaximumSubsequence.top(scores, offsets[d], offsets[d + 1] - offsets[d]);
+			if (top.isEmpty())
+				Assert.assertEquals(Subsequence.EMPTY, parallel[d]);
+			else
+				Assert.assertEquals(new Subsequence(top.getStart() - offsets[d],
+						top.getEnd() - offsets[d], top.getScore()), parallel[d]);
+			Assert.assertEquals(parallel[d], sequential[d]);
+		}
+	}
+
+	@Test
+	public void parallelMaximumSubsequence()
+	{
+		// integral scores are summed up without rounding errors and produce
+		// plenty of ties which have to be resolved like the sequential
+		// algorithm does
+		Random random = new Random(42);
+		for (int run = 0; run < 2000; run++)
+		{
+			double[] scores = new double[1 + random.nextInt(300)];
+			for (int i = 0; i < scores.length; i++)
+				scores[i] = random.nextInt(5) - 2;
+			int offset = random.nextInt(scores.length);
+			int length = random.nextInt(scores.length - offset + 1);
+			Assert.assertEquals(MaximumSubsequence.top(scores, offset, length),
+					SubsequenceTree.top(scores, offset, length, 1 + random.nextInt(16)));
+		}
+
+		final double[] expected = new double[1 << 20];
+		for (int i = 0; i < expected.length; i++)
+			expected[i] = random.nextInt(5) == 0 ? -3.25 : 1.;
+		final double[] scores = new double[expected.length];
+		Subsequence top = SubsequenceTree.top(scores, 0, scores.length, 1 << 12,
+				new SubsequenceTree.Scorer()
+				{
+					@Override
+					public void score(int from, int to)
+					{
+						System.arraycopy(expected, from, scores, from, to - from);
+					}
+				});
+		Assert.assertEquals(MaximumSubsequence.top(expected), top);
+	}
+
+	@Test
+	public void cleanTextMatchesLegacyImplementation() throws Exception
+	{
+		Parser parser = new Parser();
+		String[] pages = new String[] { TestResources.readResource("/p0.txt"),
+				TestResources.readResource("/p1.txt"),
+				TestResources.buildLargePage(200) };
+		for (String page : pages)
+		{
+			List<Token> expected = LegacyCleanText.cleanText(
+					parser.tokenize(page, false).getParsedTokens(), this.commonTags);
+			List<Token> actual = this.cleanText(parser.tokenize(page, false).getParsedTokens());
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++)
+				Assert.assertEquals(expected.get(i).getHTML(), actual.get(i).getHTML());
+		}
+	}
+
 	@Test
 	public void testTextCleaning()
 	{
@@ -160,7 +382,7 @@ public class TestMaximumSubsequenceSegmentation extends	MaximumSubsequenceSegmen
 	}
 
 	@Override
-	public String predictText(String url) throws ExtractionException 
+	public String predictText(CharSequence html, String url) throws ExtractionException 
 	{
 		fail("Not yet implemented");
 		return null;
@@ -0,0 +1,63 @@
+package at.rovo.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.Prediction;
+
+public class TestParallelBatchPrediction
+{
+	@Test
+	public void sameResultsAsSequentialBatch() throws Exception
+	{
+		List<Token> tokens = new Parser().tokenize(TestResources.readResource("/p0.txt"), false)
+				.getParsedTokens();
+		List<String> urls = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+			urls.add("http://site" + (i % 3) + ".example.com/" + (i % 4 == 2 ? "missing" : "p" + (i % 2) + ".txt"));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			for (boolean incremental : new boolean[] { false, true })
+			{
+				LocalSemiSupervisedMSS sequential = new LocalSemiSupervisedMSS(tokens);
+				// short segments have to be estimated as well
+				sequential.setWindowRadius(0);
+				sequential.setIncrementalLocalTraining(incremental);
+				// the pages are processed one after another by default
+				Assert.assertNull(sequential.getBatchPool());
+				List<String> expected = sequential.predictText(urls);
+
+				LocalSemiSupervisedMSS parallel = new LocalSemiSupervisedMSS(tokens);
+				parallel.setWindowRadius(0);
+				parallel.setIncrementalLocalTraining(incremental);
+				parallel.setBatchPool(pool);
+				Assert.assertEquals(expected, parallel.predictText(urls));
+				List<Prediction> sequentialPredictions = sequential.predictBatch(urls);
+				List<Prediction> parallelPredictions = parallel.predictBatch(urls);
+				Assert.assertEquals(urls.size(), parallelPredictions.size());
+				for (int i = 0; i < urls.size(); i++)
+				{
+					Prediction prediction = parallelPredictions.get(i);
+					Assert.assertEquals(sequentialPredictions.get(i).getText(), prediction.getText());
+					Assert.assertEquals(urls.get(i).endsWith("missing"), !prediction.isSuccessful());
+					if (prediction.isSuccessful())
+						Assert.assertEquals(sequentialPredictions.get(i).getConvergence().getSettledIteration(),
+								prediction.getConvergence().getSettledIteration());
+				}
+				// the tags of the local trainings are not shared
+				Assert.assertTrue(sequential.getCommonTags().isEmpty());
+				Assert.assertTrue(parallel.getCommonTags().isEmpty());
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package at.rovo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.PredictedSegment;
+import at.rovo.textextraction.mss.SimpleMSS;
+import at.rovo.textextraction.mss.Subsequence;
+import at.rovo.textextraction.mss.SupervisedMSS;
+import at.rovo.textextraction.mss.TrainFeatureStrategy;
+import at.rovo.textextraction.templateIndependent.TemplateIndependentNewsExtractor;
+
+public class TestPredictFromContent
+{
+	private static class LocalSupervisedMSS extends SupervisedMSS
+	{
+		LocalSupervisedMSS(List<Token> page)
+		{
+			super(TrainData.FILE);
+			this.classifier = LocalSemiSupervisedMSS.train(page);
+			this.isTrained = true;
+		}
+
+		@Override
+		protected List<Token> getPredictedContent(List<Token> html, Subsequence maxSS)
+		{
+			return super.getPredictedContent(html, maxSS);
+		}
+
+		@Override
+		protected String formatText(List<Token> text)
+		{
+			return super.formatText(text);
+		}
+	}
+
+	@Test
+	public void predictSameTextFromEverySource() throws Exception
+	{
+		String url = "http://example.com/article.html";
+		String html = TestResources.readResource("/p0.txt");
+		byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+
+		SimpleMSS mss = new SimpleMSS();
+		String expected = mss.predictText(html, url);
+		Assert.assertNotNull(expected);
+
+		Assert.assertEquals(expected, mss.predictText(new StringBuilder(html), url));
+		Assert.assertEquals(expected, mss.predictText(bytes, StandardCharsets.UTF_8, url));
+		Assert.assertEquals(expected, mss.predictText(new StringReader(html), url));
+		Assert.assertEquals(expected, mss.predictText(
+				new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, url));
+
+		File file = File.createTempFile("page", ".html");
+		try
+		{
+			Files.write(file.toPath(), bytes);
+			Assert.assertEquals(expected, mss.predictText(file.toPath(), StandardCharsets.UTF_8, url));
+		}
+		finally
+		{
+			file.delete();
+		}
+
+		StringBuilder out = new StringBuilder();
+		mss.predictText(html, url, out);
+		Assert.assertEquals(expected, out.toString());
+
+		Assert.assertNull(mss.predictText("", url));
+	}
+
+	@Test
+	public void predictSameTemplateIndependentTextFromEverySource() throws Exception
+	{
+		String url = "http://example.com/article.html";
+		String html = TestResources.readResource("/p0.txt");
+		byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+
+		TemplateIndependentNewsExtractor extractor = new TemplateIndependentNewsExtractor();
+		String expected = extractor.predictText(html, url);
+		Assert.assertNotNull(expected);
+
+		Assert.assertEquals(expected, extractor.predictText(bytes, StandardCharsets.UTF_8, url));
+		Assert.assertEquals(expected, extractor.predictText(new StringReader(html), url));
+		Assert.assertEquals(expected, extractor.predictText(
+				new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, url));
+
+		File file = File.createTempFile("page", ".html");
+		try
+		{
+			Files.write(file.toPath(), bytes);
+			Assert.assertEquals(expected, extractor.predictText(file.toPath(), StandardCharsets.UTF_8, url));
+		}
+		finally
+		{
+			file.delete();
+		}
+
+		// the URL of a previous page is not used for a page without URL
+		Assert.assertEquals(new TemplateIndependentNewsExtractor().predictText(html),
+				extractor.predictText(html));
+	}
+
+	@Test
+	public void predictSameTokensAsTopSegment() throws Exception
+	{
+		String html = TestResources.readResource("/p0.txt");
+		List<Token> tokens = new Parser().tokenize(html, false).getParsedTokens();
+		LocalSupervisedMSS mss = new LocalSupervisedMSS(tokens);
+		mss.setTrainFeatureStrategy(TrainFeatureStrategy.TRIPLE_UNIGRAM);
+
+		// a single positive run of scores in the middle of the page
+		double[] scores = new double[tokens.size() - 2];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = i >= 100 && i < 200 ? 1. : -1.;
+		Subsequence top = mss.topMaximumSubsequence(scores);
+		Assert.assertEquals(new Subsequence(100, 199, 100.), top);
+
+		// both predictions map the subsequence to the same tokens
+		List<Token> content = mss.getPredictedContent(tokens, top);
+		Assert.assertEquals(tokens.subList(100, 202), content);
+		List<PredictedSegment> segments = mss.rankSegments(tokens, scores, 2, 1, -1);
+		Assert.assertEquals(1, segments.size());
+		Assert.assertEquals(100, segments.get(0).getFirstToken());
+		Assert.assertEquals(201, segments.get(0).getLastToken());
+		Assert.assertEquals(mss.formatText(mss.cleanText(content)), segments.get(0).getText());
+	}
+}
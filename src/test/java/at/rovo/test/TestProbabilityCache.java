@@ -0,0 +1,88 @@
+package at.rovo.test;
+
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
+import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
+import at.rovo.parser.Parser;
+import at.rovo.textextraction.mss.ProbabilityCache;
+
+public class TestProbabilityCache
+{
+	@Test
+	public void cacheProbabilitiesPerClassifier()
+	{
+		NaiveBayes<String, String> first = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		first.train(new String[] { "<div>", "news" }, "in");
+		NaiveBayes<String, String> second = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		second.train(new String[] { "<div>" }, "out");
+
+		ProbabilityCache cache = new ProbabilityCache(1024);
+		Assert.assertEquals(first.getProbability("in", "<div>"),
+				cache.getProbability(first, "in", "<div>"));
+		Assert.assertEquals(first.getProbability("in", "<div>"),
+				cache.getProbability(first, "in", "<div>"));
+		Assert.assertEquals(second.getProbability("in", "<div>"),
+				cache.getProbability(second, "in", "<div>"));
+
+		String[] features = { "<div>", "news" };
+		double combined = cache.getProbability(first, "in", features);
+		// the cached entry must not depend on the array of the caller
+		features[1] = "sports";
+		Assert.assertEquals(first.getProbability("in", features),
+				cache.getProbability(first, "in", features));
+		Assert.assertEquals(combined,
+				cache.getProbability(first, "in", new String[] { "<div>", "news" }));
+
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		Assert.assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void evictEntriesBeyondMaximumSize()
+	{
+		NaiveBayes<String, String> classifier = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		ProbabilityCache cache = new ProbabilityCache(64);
+		for (int i = 0; i < 10000; i++)
+			cache.getProbability(classifier, "in", "token" + i);
+		Assert.assertTrue(cache.size() <= 64);
+		Assert.assertEquals(10000, cache.getMisses());
+
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0, cache.getMisses());
+	}
+
+	@Test
+	public void keepLocalClassifiersOutOfSharedCache() throws Exception
+	{
+		String html = TestResources.readResource("/p0.txt");
+		LocalSemiSupervisedMSS mss = new LocalSemiSupervisedMSS(
+				new Parser().tokenize(html, false).getParsedTokens());
+		// short segments have to be estimated as well
+		mss.setWindowRadius(0);
+		ProbabilityCache cache = mss.getProbabilityCache();
+
+		String expected = mss.predictText(html, "http://example.com/p0");
+		int size = cache.size();
+		Assert.assertTrue(size > 0);
+		// every prediction trains new local classifiers whose probabilities
+		// must not be added to the shared cache
+		Assert.assertEquals(expected, mss.predictText(html, "http://example.com/p0"));
+		Assert.assertEquals(size, cache.size());
+
+		List<String> urls = Arrays.asList("http://example.com/p0.txt",
+				"http://example.com/p1.txt");
+		List<String> texts = mss.predictText(urls);
+		size = cache.size();
+		Assert.assertEquals(texts, mss.predictText(urls));
+		Assert.assertEquals(size, cache.size());
+	}
+}
@@ -0,0 +1,80 @@
+package at.rovo.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * <p>
+ * Provides the pages the tests work on: the fixtures found on the class path
+ * and a large synthetic page.
+ * </p>
+ * 
+ * @author Roman Vottner
+ */
+public final class TestResources
+{
+	/**
+	 * <p>
+	 * Disallow instantiations of this class.
+	 * </p>
+	 */
+	private TestResources()
+	{
+
+	}
+
+	/**
+	 * <p>
+	 * Reads a resource from the class path.
+	 * </p>
+	 *
+	 * @param name
+	 *            The absolute name of the resource, f.e. <code>/p0.txt</code>
+	 * @return The content of the resource
+	 * @throws IOException
+	 *             If the resource could not be found or read
+	 */
+	public static String readResource(String name) throws IOException
+	{
+		InputStream stream = TestResources.class.getResourceAsStream(name);
+		if (stream == null)
+			throw new IOException("Resource " + name + " not found on the class path");
+		StringBuilder builder = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				stream, "UTF-8")))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+				builder.append(line).append("\n");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * <p>
+	 * Builds a page containing <em>depth</em> nested div blocks each holding
+	 * a paragraph followed by a long div block of link lists.
+	 * </p>
+	 *
+	 * @param depth
+	 *            The number of nested div blocks
+	 * @return The generated page
+	 */
+	public static String buildLargePage(int depth)
+	{
+		StringBuilder builder = new StringBuilder("<html><body>");
+		for (int i = 0; i < depth; i++)
+			builder.append("<div class=\"level\"><p>Paragraph ").append(i)
+					.append(" of the article text.</p>");
+		for (int i = 0; i < depth; i++)
+			builder.append("</div>some trailing words");
+		builder.append("<div id=\"links\">");
+		for (int i = 0; i < depth; i++)
+			builder.append("<ul><li><a href=\"http://example.com/").append(i)
+					.append("\">related story</a></li></ul>");
+		builder.append("</div></body></html>");
+		return builder.toString();
+	}
+}
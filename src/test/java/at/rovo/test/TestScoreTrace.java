@@ -0,0 +1,105 @@
+package at.rovo.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.ScoreTrace;
+import at.rovo.textextraction.mss.Subsequence;
+import at.rovo.textextraction.mss.SupervisedMSS;
+
+public class TestScoreTrace
+{
+	@Test
+	public void writeAndReadTrace() throws Exception
+	{
+		ScoreTrace trace = new ScoreTrace();
+		trace.clear("http://example.com/a,b");
+		trace.setScores(new double[] { 9., -0.25, 0.5, 0.125, 9. }, 1, 3, 2);
+		trace.addIteration(new Subsequence(0, 1, 0.25));
+		trace.addIteration(new Subsequence(1, 2, 0.625));
+		trace.setSegment(new Subsequence(1, 2, 0.625));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		trace.writeBinary(new DataOutputStream(bytes));
+		ScoreTrace read = new ScoreTrace();
+		read.addScore(7, 7.);
+		read.readBinary(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(trace.getUrl(), read.getUrl());
+		Assert.assertEquals(3, read.size());
+		for (int i = 0; i < 3; i++)
+		{
+			Assert.assertEquals(i + 2, read.getTokenIndex(i));
+			Assert.assertEquals(trace.getScore(i), read.getScore(i));
+		}
+		Assert.assertEquals(trace.getSegment(), read.getSegment());
+		Assert.assertEquals(2, read.getIterationCount());
+		Assert.assertEquals(new Subsequence(0, 1, 0.25), read.getIteration(0));
+
+		StringBuilder csv = new StringBuilder();
+		trace.writeCsv(csv);
+		Assert.assertEquals("\"http://example.com/a,b\",score,2,,,-0.25\n"
+				+ "\"http://example.com/a,b\",score,3,,,0.5\n"
+				+ "\"http://example.com/a,b\",score,4,,,0.125\n"
+				+ "\"http://example.com/a,b\",iteration,,0,1,0.25\n"
+				+ "\"http://example.com/a,b\",iteration,,1,2,0.625\n"
+				+ "\"http://example.com/a,b\",segment,,1,2,0.625\n", csv.toString());
+	}
+
+	/**
+	 * Trains its classifier on the words of the middle of a page in memory.
+	 */
+	private static class LocalSupervisedMSS extends SupervisedMSS
+	{
+		LocalSupervisedMSS(List<Token> page)
+		{
+			super(TrainData.FILE);
+			this.classifier = LocalSemiSupervisedMSS.train(page);
+			this.isTrained = true;
+		}
+	}
+
+	@Test
+	public void traceSampledPagesOnly() throws Exception
+	{
+		String html = TestResources.readResource("/p0.txt");
+		List<Token> tokens = new Parser().tokenize(html, false).getParsedTokens();
+		LocalSupervisedMSS mss = new LocalSupervisedMSS(tokens);
+		String expected = mss.predictText(html, "http://example.com/skipped");
+
+		final List<String> traced = new ArrayList<>();
+		final List<Subsequence> segments = new ArrayList<>();
+		final List<Integer> sizes = new ArrayList<>();
+		mss.setScoreRecorder(new ScoreTrace.Recorder()
+		{
+			@Override
+			public boolean isTraced(String url)
+			{
+				return url.endsWith("traced");
+			}
+
+			@Override
+			public void traced(ScoreTrace trace)
+			{
+				traced.add(trace.getUrl());
+				segments.add(trace.getSegment());
+				sizes.add(trace.size());
+			}
+		});
+		Assert.assertEquals(expected, mss.predictText(html, "http://example.com/skipped"));
+		Assert.assertEquals(expected, mss.predictText(html, "http://example.com/traced"));
+
+		Assert.assertEquals(1, traced.size());
+		Assert.assertEquals("http://example.com/traced", traced.get(0));
+		Assert.assertEquals(tokens.size() - 2, sizes.get(0).intValue());
+		Assert.assertFalse(segments.get(0).isEmpty());
+	}
+}
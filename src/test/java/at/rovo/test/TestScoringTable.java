@@ -0,0 +1,334 @@
+package at.rovo.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.classifier.naiveBayes.NaiveBayes;
+import at.rovo.classifier.naiveBayes.ProbabilityCalculation;
+import at.rovo.classifier.naiveBayes.TrainingDataStorageMethod;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.parser.Word;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.FeatureVocabulary;
+import at.rovo.textextraction.mss.ScoringTable;
+import at.rovo.textextraction.mss.SemiSupervisedMSS;
+import at.rovo.textextraction.mss.SupervisedMSS;
+import at.rovo.textextraction.mss.TrainFeatureStrategy;
+
+public class TestScoringTable
+{
+	/**
+	 * <p>
+	 * Trains the bigrams of the middle of a page as article and records them
+	 * in its feature vocabulary, so the classifier can be frozen into a self
+	 * contained model.
+	 * </p>
+	 */
+	private static class BigramMSS extends SupervisedMSS
+	{
+		BigramMSS(List<Token> page)
+		{
+			super(TrainData.FILE);
+			this.trainFeatureStrategy = TrainFeatureStrategy.BIGRAM;
+			this.featureVocabulary = new FeatureVocabulary(TrainFeatureStrategy.BIGRAM);
+			for (int i = 1; i < page.size(); i++)
+			{
+				boolean in = page.get(i) instanceof Word && i > page.size() / 3
+						&& i < page.size() * 2 / 3;
+				String[] feature = { this.getBigram(page.get(i - 1), page.get(i)) };
+				this.classifier.train(feature, in ? "in" : "out");
+				this.featureVocabulary.add(feature, 0);
+			}
+			this.isTrained = true;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Trains the triple unigrams of the middle of a page as article and
+	 * records them in its feature vocabulary, so the classifier can be frozen
+	 * into a model of the default training strategy.
+	 * </p>
+	 */
+	private static class TripleUnigramMSS extends SupervisedMSS
+	{
+		TripleUnigramMSS(List<Token> page)
+		{
+			super(TrainData.FILE);
+			this.trainFeatureStrategy = TrainFeatureStrategy.TRIPLE_UNIGRAM;
+			this.featureVocabulary = new FeatureVocabulary(TrainFeatureStrategy.TRIPLE_UNIGRAM);
+			for (int i = 2; i < page.size(); i++)
+			{
+				boolean in = page.get(i) instanceof Word && i > page.size() / 3
+						&& i < page.size() * 2 / 3;
+				String[] feature = this.getTripleUnigram(page.get(i - 2), page.get(i - 1),
+						page.get(i));
+				this.classifier.train(feature, in ? "in" : "out");
+				this.featureVocabulary.add(feature, 3, in ? "in" : "out");
+			}
+			this.isTrained = true;
+		}
+	}
+
+	@Test
+	public void ngramKeys()
+	{
+		Assert.assertEquals(ScoringTable.hash("a"), ScoringTable.key("a"));
+		Assert.assertEquals(ScoringTable.hash("<p> new york"),
+				ScoringTable.key("<p>", "new", "york"));
+		Assert.assertEquals(ScoringTable.hash("null b"), ScoringTable.key(null, "b"));
+		Assert.assertFalse(ScoringTable.hash("ab") == ScoringTable.hash("ba"));
+		// combinations of independent features are not n-grams
+		Assert.assertFalse(ScoringTable.key("new", "york") == ScoringTable
+				.combinationKey(new String[] { "new", "york" }));
+		Assert.assertFalse(ScoringTable.combinationKey(new String[] { "a b", "c" }) == ScoringTable
+				.combinationKey(new String[] { "a", "b c" }));
+	}
+
+	@Test
+	public void saveAndLoadVocabulary() throws IOException
+	{
+		FeatureVocabulary vocabulary = new FeatureVocabulary(TrainFeatureStrategy.TRIPLE_UNIGRAM);
+		vocabulary.add(new String[] { "<p>", "new", "york", "<p> new york" }, 3, "in");
+		vocabulary.add(new String[] { "new", "york", "été" }, 3, "out");
+		// incomplete combinations are dropped
+		vocabulary.add(new String[] { null, "new", "york" }, 3, "in");
+		Assert.assertEquals(7, vocabulary.size());
+		Assert.assertEquals(2, vocabulary.getTrainings("in"));
+		Assert.assertEquals(1, vocabulary.getTrainings("out"));
+
+		File file = File.createTempFile("vocabulary", ".features");
+		try
+		{
+			vocabulary.save(file);
+			FeatureVocabulary loaded = new FeatureVocabulary(TrainFeatureStrategy.TRIPLE_UNIGRAM);
+			loaded.load(file);
+			Assert.assertEquals(vocabulary.toString(), loaded.toString());
+			Assert.assertEquals(2, loaded.getTrainings("in"));
+
+			try
+			{
+				new FeatureVocabulary(TrainFeatureStrategy.BIGRAM).load(file);
+				Assert.fail("Vocabulary of a different strategy was loaded");
+			}
+			catch (IOException e)
+			{
+				// expected
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void saveAndOpenModel() throws IOException
+	{
+		NaiveBayes<String, String> classifier = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		FeatureVocabulary vocabulary = new FeatureVocabulary(TrainFeatureStrategy.BIGRAM);
+		String[][] features = { { "<p> new" }, { "new york" }, { "york </p>" }, { "<a> more" } };
+		for (int i = 0; i < features.length; i++)
+		{
+			classifier.train(features[i], i < 3 ? "in" : "out");
+			vocabulary.add(features[i], 0);
+		}
+		ScoringTable table = ScoringTable.compile(classifier, vocabulary, 0x1234567890ABCDEFL);
+
+		File file = File.createTempFile("scoring", ".model");
+		try
+		{
+			table.save(file);
+			ScoringTable model = ScoringTable.open(file);
+			Assert.assertEquals(TrainFeatureStrategy.BIGRAM, model.getStrategy());
+			Assert.assertEquals(0x1234567890ABCDEFL, model.getSource());
+			Assert.assertEquals(table.size(), model.size());
+			Assert.assertEquals(table.isSelfContained(), model.isSelfContained());
+			for (String[] feature : features)
+			{
+				long key = ScoringTable.hash(feature[0]);
+				Assert.assertEquals(classifier.getProbability("in", feature[0]),
+						model.getProbability(key, feature[0]));
+			}
+			Assert.assertEquals(classifier.getProbability("in", "new york"),
+					model.getProbability(ScoringTable.key("new", "york"), "new", "york"));
+			Assert.assertEquals(table.getProbability(ScoringTable.key("new", "jersey"), "new", "jersey"),
+					model.getProbability(ScoringTable.key("new", "jersey"), "new", "jersey"));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void keysAreVerifiedAgainstTheFeature() throws IOException
+	{
+		NaiveBayes<String, String> classifier = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		FeatureVocabulary vocabulary = new FeatureVocabulary(TrainFeatureStrategy.BIGRAM);
+		for (int i = 0; i < 3; i++)
+		{
+			String[] feature = { "new york" };
+			classifier.train(feature, "in");
+			vocabulary.add(feature, 0, "in");
+		}
+		ScoringTable table = ScoringTable.compile(classifier, vocabulary);
+		Assert.assertTrue(table.getUnseenProbability() != classifier.getProbability("in", "new york"));
+
+		File file = File.createTempFile("scoring", ".model");
+		try
+		{
+			table.save(file);
+			ScoringTable model = ScoringTable.open(file);
+			// a feature whose key collides with the one of a trained feature
+			// is still unknown
+			long key = ScoringTable.hash("new york");
+			Assert.assertEquals(classifier.getProbability("in", "new york"),
+					model.getProbability(key, "new", "york"));
+			Assert.assertEquals(model.getUnseenProbability(), model.getProbability(key, "new york!"));
+			Assert.assertEquals(model.getUnseenProbability(), model.getProbability(key, "new", "yor"));
+			Assert.assertEquals(model.getUnseenProbability(), model.getProbability(key, "new york", ""));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void combineUntrainedCombinationsWithoutClassifier() throws IOException
+	{
+		NaiveBayes<String, String> classifier = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		FeatureVocabulary vocabulary = new FeatureVocabulary(TrainFeatureStrategy.TRIPLE_UNIGRAM);
+		String[][] features = { { "<p>", "new", "york", "<p>" }, { "new", "york", "city", "<p>" },
+				{ "york", "city", "</p>", "<p>" }, { "</p>", "<a>", "more", "<a>" } };
+		for (int i = 0; i < features.length; i++)
+		{
+			classifier.train(features[i], i < 3 ? "in" : "out");
+			vocabulary.add(features[i], 3, i < 3 ? "in" : "out");
+		}
+		ScoringTable table = ScoringTable.compile(classifier, vocabulary);
+		Assert.assertEquals(3, table.getTrainings("in"));
+		Assert.assertEquals(1, table.getTrainings("out"));
+		Assert.assertTrue(table.isSelfContained());
+
+		File file = File.createTempFile("scoring", ".model");
+		try
+		{
+			table.save(file);
+			ScoringTable model = ScoringTable.open(file);
+			Assert.assertTrue(model.isSelfContained());
+			Assert.assertEquals(3, model.getTrainings("in"));
+			String[][] combinations = { { "<p>", "new", "york" }, { "city", "new", "more" },
+					{ "york", "unknown", "<a>" }, { "never", "seen", "before" } };
+			for (String[] combination : combinations)
+				Assert.assertEquals(classifier.getProbability("in", combination),
+						model.getCombinationProbability(ScoringTable.combinationKey(combination),
+								combination), 1e-12);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void freezeKeepsMappedModel() throws IOException
+	{
+		NaiveBayes<String, String> classifier = NaiveBayes.create(
+				ProbabilityCalculation.EVEN_LIKELIHOOD, TrainingDataStorageMethod.MAP);
+		FeatureVocabulary vocabulary = new FeatureVocabulary(TrainFeatureStrategy.BIGRAM);
+		String[][] features = { { "new york" }, { "<a> more" } };
+		for (int i = 0; i < features.length; i++)
+		{
+			classifier.train(features[i], i < 1 ? "in" : "out");
+			vocabulary.add(features[i], 0);
+		}
+
+		File file = File.createTempFile("scoring", ".model");
+		try
+		{
+			ScoringTable.compile(classifier, vocabulary).save(file);
+			SemiSupervisedMSS mss = new SemiSupervisedMSS(TrainData.FILE);
+			mss.loadModel(file);
+			ScoringTable model = mss.getScoringTable();
+			Assert.assertTrue(model.isSelfContained());
+
+			// the classifier of the extractor was never trained, so the
+			// mapped model must not be replaced or dropped
+			mss.freeze();
+			Assert.assertTrue(model == mss.getScoringTable());
+			Assert.assertEquals(classifier.getProbability("in", "new york"),
+					mss.getScoringTable().getProbability(ScoringTable.hash("new york"), "new york"));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void predictWithMappedModel() throws Exception
+	{
+		String url = "http://example.com/article.html";
+		String html = TestResources.readResource("/p0.txt");
+		List<Token> tokens = new Parser().tokenize(html, false).getParsedTokens();
+		BigramMSS trained = new BigramMSS(tokens);
+		String expected = trained.predictText(html, url);
+
+		File file = File.createTempFile("scoring", ".model");
+		try
+		{
+			// the combinations of the default strategy which were not
+			// trained are combined from the mapped model as well
+			TripleUnigramMSS tripleUnigrams = new TripleUnigramMSS(tokens);
+			String expectedTripleUnigrams = tripleUnigrams.predictText(html, url);
+			tripleUnigrams.freeze();
+			tripleUnigrams.saveModel(file);
+			SupervisedMSS mappedTripleUnigrams = new SupervisedMSS(TrainData.FILE)
+			{
+				{
+					this.classifier = null;
+				}
+			};
+			mappedTripleUnigrams.loadModel(file);
+			Assert.assertTrue(mappedTripleUnigrams.getScoringTable().isSelfContained());
+			Assert.assertEquals(expectedTripleUnigrams, mappedTripleUnigrams.predictText(html, url));
+
+			trained.freeze();
+			trained.saveModel(file);
+
+			// an extractor which never got a classifier predicts from the
+			// mapped model only
+			SupervisedMSS mapped = new SupervisedMSS(TrainData.FILE)
+			{
+				{
+					this.classifier = null;
+				}
+			};
+			mapped.loadModel(file);
+			Assert.assertTrue(mapped.getScoringTable().isSelfContained());
+			Assert.assertEquals(expected, mapped.predictText(html, url));
+
+			SemiSupervisedMSS semi = new SemiSupervisedMSS(TrainData.FILE)
+			{
+				{
+					this.classifier = null;
+				}
+			};
+			semi.setWindowRadius(0);
+			semi.loadModel(file);
+			Assert.assertNotNull(semi.predictText(html, url));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package at.rovo.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.textextraction.TextDecoder;
+
+public class TestTextDecoder
+{
+	@Test
+	public void decodeEntities()
+	{
+		Assert.assertEquals("He said \"hi\" & left now.",
+				TextDecoder.decode("He said &quot;hi&quot; &amp; left&nbsp;now."));
+		Assert.assertEquals("' ' ' \"q\" - \u2026",
+				TextDecoder.decode("&#39; &#039; &#x27; &ldquo;q&rdquo; &mdash; &hellip;"));
+		// decoded characters are not decoded again
+		Assert.assertEquals("&quot;", TextDecoder.decode("&amp;quot;"));
+		// unknown or malformed references are kept
+		Assert.assertEquals("&unknown; &#; &#xZZ; & amp;",
+				TextDecoder.decode("&unknown; &#; &#xZZ; & amp;"));
+	}
+
+	@Test
+	public void decodeMojibake()
+	{
+		Assert.assertEquals("\"quote\" - it's", 
+				TextDecoder.decode("â€œquoteâ€ â€“ itâ€™s"));
+		Assert.assertEquals("It's 5 +/- 2 - L", TextDecoder.decode("It’s 5 + – 2 — £"));
+	}
+
+	@Test
+	public void removeLinksAndFragments()
+	{
+		Assert.assertEquals("a link and text",
+				TextDecoder.decode("\na <a href=\"http://x\">link</a> and <hr>id=\"foo\">text\n"));
+		// tags which are not closed on the same line are kept
+		Assert.assertEquals("<a href=x\n>text", TextDecoder.decode("<a href=x\n>text</a>"));
+	}
+
+	@Test
+	public void decodeIntoWriter() throws IOException
+	{
+		StringBuilder text = new StringBuilder("\n  ");
+		for (int i = 0; i < 300; i++)
+			text.append("5 + &ndash; 2 &amp; <a href=\"x\">more</a>\n");
+		text.append(" \n");
+
+		StringWriter writer = new StringWriter();
+		writer.append('>');
+		TextDecoder.decode(text, writer);
+		Assert.assertEquals(">" + TextDecoder.decode(text.toString()), writer.toString());
+		Assert.assertTrue(writer.toString().startsWith(">5 +/- 2 & more\n5"));
+		Assert.assertTrue(writer.toString().endsWith("2 & more"));
+	}
+}
@@ -0,0 +1,89 @@
+package at.rovo.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.parser.Parser;
+import at.rovo.parser.Token;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.SemiSupervisedMSS;
+import at.rovo.textextraction.mss.TokenPositionIndex;
+
+public class TestTokenPositionIndex
+{
+	/**
+	 * Exposes the importance weighting of the feature set of a token.
+	 */
+	private static class Weighting extends SemiSupervisedMSS
+	{
+		Weighting()
+		{
+			super(TrainData.FILE);
+		}
+
+		double featureSetWeight(List<Token> html, int i, int j, int k)
+		{
+			Set<List<Token>> featureSet = this.buildFeatureSet(html, html.get(i));
+			return this.calculateImportanceWeighting(featureSet, j, k);
+		}
+
+		double indexWeight(TokenPositionIndex index, int i, int j, int k)
+		{
+			return this.calculateImportanceWeighting(index.getOccurrences(i), j, k);
+		}
+
+		double groupWeight(TokenPositionIndex index, int i, int j, int k)
+		{
+			return this.calculateImportanceWeighting(index, index.getGroup(i), j, k);
+		}
+	}
+
+	@Test
+	public void sameWeightsAsFeatureSets() throws Exception
+	{
+		List<Token> tokens = new Parser().tokenize(TestResources.readResource("/p1.txt"), false)
+				.getParsedTokens();
+		List<Token> html = new ArrayList<>(tokens.subList(0, Math.min(tokens.size(), 2000)));
+		TokenPositionIndex index = new TokenPositionIndex(html, 2);
+		Assert.assertTrue(index.getGroupCount() < html.size());
+
+		Weighting weighting = new Weighting();
+		int j = html.size() / 3;
+		int k = html.size() / 2;
+		for (int i = 2; i < html.size(); i++)
+		{
+			Assert.assertEquals(weighting.featureSetWeight(html, i, j, k),
+					weighting.indexWeight(index, i, j, k));
+			int[] occurrences = index.getOccurrences(i);
+			for (int p = 1; p < occurrences.length; p++)
+				Assert.assertTrue(occurrences[p - 1] < occurrences[p]);
+		}
+	}
+
+	@Test
+	public void logarithmicWeightsMatchSummedWeights() throws Exception
+	{
+		List<Token> html = new Parser().tokenize(TestResources.readResource("/p0.txt"), false)
+				.getParsedTokens();
+		TokenPositionIndex index = new TokenPositionIndex(html, 2);
+
+		Weighting weighting = new Weighting();
+		Random random = new Random(42);
+		for (double d : new double[] { 64., 2.5, 0.25, 1000. })
+		{
+			weighting.setDistanceCutoffFactor(d);
+			for (int run = 0; run < 2000; run++)
+			{
+				int i = 2 + random.nextInt(html.size() - 2);
+				int j = random.nextInt(html.size());
+				int k = run % 10 == 0 ? random.nextInt(html.size()) : j + random.nextInt(300);
+				double expected = weighting.indexWeight(index, i, j, k);
+				Assert.assertEquals(expected, weighting.groupWeight(index, i, j, k),
+						1e-9 * Math.max(1., expected));
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package at.rovo.test;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+import at.rovo.textextraction.TrainData;
+import at.rovo.textextraction.mss.SemiSupervisedMSS;
+import at.rovo.textextraction.mss.TokenProbabilities;
+
+public class TestTokenProbabilities
+{
+	/**
+	 * Exposes the correctness estimation based on a probability vector.
+	 */
+	private static class Estimation extends SemiSupervisedMSS
+	{
+		Estimation(int windowRadius)
+		{
+			super(TrainData.FILE);
+			this.setWindowRadius(windowRadius);
+		}
+
+		double estimate(TokenProbabilities probabilities, int j, int k)
+		{
+			return this.estimatePredictionCorrectness(probabilities, j, k);
+		}
+	}
+
+	/**
+	 * Multiplies the probabilities of the windows around the predicted text
+	 * one after another.
+	 */
+	private static double multiply(double[] p, int w, int j, int k)
+	{
+		double prob = 1.;
+		for (int i = Math.max(j - w, 0); i <= j - 1; i++)
+			prob *= 1 - p[i];
+		for (int i = j; i <= j + w - 1; i++)
+			prob *= p[i];
+		for (int i = k - w + 1; i <= k; i++)
+			prob *= p[i];
+		for (int i = k + 1; i <= Math.min(k + w, p.length - 1); i++)
+			prob *= 1 - p[i];
+		return Math.pow(prob, 1. / p.length);
+	}
+
+	@Test
+	public void sameEstimateAsMultipliedWindows()
+	{
+		Random random = new Random(3);
+		double[] p = new double[400];
+		for (int i = 0; i < p.length; i++)
+			p[i] = i % 97 == 5 ? 0. : i % 89 == 7 ? 1. : random.nextDouble();
+		TokenProbabilities probabilities = new TokenProbabilities(p);
+		Estimation estimation = new Estimation(10);
+		for (int run = 0; run < 1000; run++)
+		{
+			int j = random.nextInt(p.length - 40);
+			int k = j + 10 + random.nextInt(p.length - j - 30);
+			double expected = multiply(p, 10, j, k);
+			Assert.assertEquals(expected, estimation.estimate(probabilities, j, k), 1e-12);
+		}
+
+		// the window after the text ends with the last token
+		for (int k = p.length - 10; k < p.length; k++)
+			Assert.assertEquals(multiply(p, 10, 10, k), estimation.estimate(probabilities, 10, k),
+					1e-12);
+	}
+
+	@Test
+	public void noUnderflowOfLargeWindows()
+	{
+		double[] p = new double[1000];
+		Arrays.fill(p, 0.001);
+		Estimation estimation = new Estimation(200);
+		Assert.assertEquals(0., multiply(p, 200, 300, 600));
+		double v = estimation.estimate(new TokenProbabilities(p), 300, 600);
+		Assert.assertTrue(v > 0.);
+		double expected = Math.exp((400 * Math.log(0.999) + 400 * Math.log(0.001)) / 1000);
+		Assert.assertEquals(expected, v, 1e-12);
+	}
+}